@@ -0,0 +1,369 @@
+import io.swagger.v3.oas.models.Components;
+import io.swagger.v3.oas.models.OpenAPI;
+import io.swagger.v3.oas.models.Operation;
+import io.swagger.v3.oas.models.PathItem;
+import io.swagger.v3.oas.models.examples.Example;
+import io.swagger.v3.oas.models.media.Content;
+import io.swagger.v3.oas.models.media.MediaType;
+import io.swagger.v3.oas.models.media.Schema;
+import io.swagger.v3.oas.models.parameters.Parameter;
+import io.swagger.v3.oas.models.responses.ApiResponse;
+import io.swagger.v3.oas.models.security.OAuthFlow;
+import io.swagger.v3.oas.models.security.OAuthFlows;
+import io.swagger.v3.oas.models.security.SecurityRequirement;
+import io.swagger.v3.oas.models.security.SecurityScheme;
+
+import java.util.*;
+
+public class ApiModel {
+
+    public static class Endpoint {
+        final String path;
+        final String method;
+        final String operationId;
+        final String summary;
+        final String description;
+        final List<String> tags;
+        final Map<String, Object> extensions;
+        final List<Param> params;
+        final List<Body> bodies;
+        final List<Response> responses;
+        final Security security;
+
+        Endpoint(String path, String method, Operation op, List<Param> params, List<Body> bodies, List<Response> responses,
+                 Security security) {
+            this.path = path;
+            this.method = method;
+            this.operationId = op.getOperationId();
+            this.summary = op.getSummary();
+            this.description = op.getDescription();
+            this.tags = op.getTags() != null ? Collections.unmodifiableList(new ArrayList<>(op.getTags())) : Collections.<String>emptyList();
+            this.extensions = op.getExtensions() != null
+                    ? Collections.unmodifiableMap(new LinkedHashMap<>(op.getExtensions())) : Collections.<String, Object>emptyMap();
+            this.params = Collections.unmodifiableList(params);
+            this.bodies = Collections.unmodifiableList(bodies);
+            this.responses = Collections.unmodifiableList(responses);
+            this.security = security;
+        }
+
+        public String label() {
+            return method + " " + path;
+        }
+
+        public Response response(String code) {
+            for (Response response : responses) {
+                if (response.code.equals(code)) return response;
+            }
+            return null;
+        }
+    }
+
+    public static class Param {
+        final String name;
+        final String in;
+        final Boolean required;
+        final String description;
+        final Object example;
+        final int schema;
+
+        Param(Parameter p, int schema) {
+            this.name = p.getName();
+            this.in = p.getIn();
+            this.required = p.getRequired();
+            this.description = p.getDescription();
+            this.example = p.getExample();
+            this.schema = schema;
+        }
+
+        public boolean isRequired() {
+            return Boolean.TRUE.equals(required);
+        }
+    }
+
+    public static class Body {
+        final String mediaType;
+        final int schema;
+        final Object example;
+        final Map<String, Object> examples;
+
+        Body(String mediaType, int schema, Object example, Map<String, Object> examples) {
+            this.mediaType = mediaType;
+            this.schema = schema;
+            this.example = example;
+            this.examples = Collections.unmodifiableMap(examples);
+        }
+    }
+
+    public static class Response {
+        final String code;
+        final String description;
+        final List<Body> content;
+        final List<Link> links;
+
+        Response(String code, ApiResponse response, List<Body> content) {
+            this.code = code;
+            this.description = response != null ? response.getDescription() : null;
+            this.content = content != null ? Collections.unmodifiableList(content) : null;
+            this.links = response != null ? links(response.getLinks()) : Collections.<Link>emptyList();
+        }
+
+        private static List<Link> links(Map<String, io.swagger.v3.oas.models.links.Link> links) {
+            if (links == null || links.isEmpty()) return Collections.emptyList();
+            List<Link> out = new ArrayList<>();
+            for (Map.Entry<String, io.swagger.v3.oas.models.links.Link> entry : links.entrySet()) {
+                if (entry.getValue() != null) out.add(new Link(entry.getKey(), entry.getValue()));
+            }
+            return Collections.unmodifiableList(out);
+        }
+    }
+
+    // an OpenAPI link from a response to the operation that consumes it
+    public static class Link {
+        final String name;
+        final String operationId;
+        final String operationRef;
+
+        Link(String name, io.swagger.v3.oas.models.links.Link link) {
+            this.name = name;
+            this.operationId = link.getOperationId();
+            this.operationRef = link.getOperationRef();
+        }
+    }
+
+    public static class Auth {
+        final String name;
+        // apiKey, http, oauth2, openIdConnect, mutualTLS, or null when the scheme is not declared in components
+        final String type;
+        final String scheme;
+        final String bearerFormat;
+        final String in;
+        final String parameter;
+        final List<String> scopes;
+        final List<String> flows;
+
+        Auth(String name, SecurityScheme scheme, List<String> scopes) {
+            this.name = name;
+            this.type = scheme != null && scheme.getType() != null ? scheme.getType().toString() : null;
+            this.scheme = scheme != null && scheme.getScheme() != null ? scheme.getScheme().toLowerCase(Locale.ROOT) : null;
+            this.bearerFormat = scheme != null ? scheme.getBearerFormat() : null;
+            this.in = scheme != null && scheme.getIn() != null ? scheme.getIn().toString() : null;
+            this.parameter = scheme != null ? scheme.getName() : null;
+            this.scopes = scopes != null ? Collections.unmodifiableList(new ArrayList<>(scopes)) : Collections.<String>emptyList();
+            this.flows = scheme != null ? flows(scheme.getFlows()) : Collections.<String>emptyList();
+        }
+
+        // oauth2 and openIdConnect tokens travel as bearer tokens as well
+        public boolean isBearer() {
+            return "http".equals(type) ? "bearer".equals(scheme) : "oauth2".equals(type) || "openIdConnect".equals(type);
+        }
+
+        public String describe() {
+            StringBuilder sb = new StringBuilder(name).append(" (");
+            if (type == null) {
+                sb.append("undeclared scheme");
+            } else if ("apiKey".equals(type)) {
+                sb.append("apiKey in ").append(in).append(": ").append(parameter);
+            } else if ("http".equals(type)) {
+                sb.append("http ").append(scheme);
+                if (bearerFormat != null) sb.append(", bearerFormat: ").append(bearerFormat);
+            } else {
+                sb.append(type);
+                if (!flows.isEmpty()) sb.append(", flows: ").append(String.join(", ", flows));
+            }
+            if (!scopes.isEmpty()) sb.append(", scopes: ").append(String.join(", ", scopes));
+            return sb.append(')').toString();
+        }
+
+        private static List<String> flows(OAuthFlows flows) {
+            if (flows == null) return Collections.emptyList();
+            List<String> names = new ArrayList<>();
+            addFlow(names, "implicit", flows.getImplicit());
+            addFlow(names, "password", flows.getPassword());
+            addFlow(names, "clientCredentials", flows.getClientCredentials());
+            addFlow(names, "authorizationCode", flows.getAuthorizationCode());
+            return Collections.unmodifiableList(names);
+        }
+
+        private static void addFlow(List<String> names, String name, OAuthFlow flow) {
+            if (flow != null) names.add(flow.getTokenUrl() != null ? name + " " + flow.getTokenUrl() : name);
+        }
+    }
+
+    public static class Security {
+        static final Security NONE = new Security(Collections.<List<Auth>>emptyList(), false);
+
+        // each alternative is a set of schemes that must all be satisfied; any one alternative grants access
+        final List<List<Auth>> alternatives;
+        final boolean anonymous;
+
+        Security(List<List<Auth>> alternatives, boolean anonymous) {
+            this.alternatives = Collections.unmodifiableList(alternatives);
+            this.anonymous = anonymous;
+        }
+
+        public boolean isRequired() {
+            return !alternatives.isEmpty() && !anonymous;
+        }
+
+        public List<Auth> primary() {
+            return alternatives.isEmpty() ? Collections.<Auth>emptyList() : alternatives.get(0);
+        }
+
+        public boolean hasScopes() {
+            for (List<Auth> alternative : alternatives) {
+                for (Auth auth : alternative) {
+                    if (!auth.scopes.isEmpty()) return true;
+                }
+            }
+            return false;
+        }
+
+        public List<String> describe() {
+            List<String> lines = new ArrayList<>();
+            for (List<Auth> alternative : alternatives) {
+                StringBuilder sb = new StringBuilder();
+                for (Auth auth : alternative) {
+                    if (sb.length() > 0) sb.append(" + ");
+                    sb.append(auth.describe());
+                }
+                lines.add(sb.toString());
+            }
+            if (anonymous) lines.add("anonymous access allowed");
+            return lines;
+        }
+    }
+
+    // only what renderers read is copied out of the parsed spec, so the swagger object graph can be dropped after build
+    final SchemaGraph schemas;
+    final List<Endpoint> endpoints;
+    final String serverUrl;
+    final OutputNames outputNames;
+
+    private ApiModel(String serverUrl, SchemaGraph schemas, List<Endpoint> endpoints) {
+        this.schemas = schemas;
+        this.endpoints = Collections.unmodifiableList(endpoints);
+        this.serverUrl = serverUrl;
+        this.outputNames = new OutputNames(this.endpoints);
+    }
+
+    public List<Endpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    public SchemaGraph getSchemas() {
+        return schemas;
+    }
+
+    public OutputNames getOutputNames() {
+        return outputNames;
+    }
+
+    // Parameters, request bodies and responses are resolved once here; renderers never touch $refs or global merging again.
+    public static ApiModel build(OpenAPI openAPI, boolean includeGlobalResponses) {
+        Components components = openAPI.getComponents();
+        Map<String, Schema> schemaMap = components != null && components.getSchemas() != null
+                ? components.getSchemas() : Collections.<String, Schema>emptyMap();
+        SchemaGraph.Builder graph = new SchemaGraph.Builder(schemaMap);
+
+        List<Endpoint> endpoints = new ArrayList<>();
+        Map<List<SecurityRequirement>, Security> securities = new HashMap<>();
+        if (openAPI.getPaths() != null) {
+            for (Map.Entry<String, PathItem> entry : openAPI.getPaths().entrySet()) {
+                String path = entry.getKey();
+                PathItem pathItem = entry.getValue();
+                for (Map.Entry<PathItem.HttpMethod, Operation> opEntry : pathItem.readOperationsMap().entrySet()) {
+                    Operation op = opEntry.getValue();
+                    endpoints.add(new Endpoint(path, opEntry.getKey().name(), op,
+                            params(components, pathItem, op, graph),
+                            bodies(op.getRequestBody() != null ? op.getRequestBody().getContent() : null, graph),
+                            responses(components, op, includeGlobalResponses, graph),
+                            security(components, op.getSecurity() != null ? op.getSecurity() : openAPI.getSecurity(), securities)));
+                }
+            }
+        }
+        String serverUrl = openAPI.getServers() != null && !openAPI.getServers().isEmpty()
+                ? openAPI.getServers().get(0).getUrl() : null;
+        return new ApiModel(serverUrl, graph.build(), endpoints);
+    }
+
+    private static List<Param> params(Components components, PathItem pathItem, Operation op, SchemaGraph.Builder graph) {
+        List<Parameter> declared = new ArrayList<>();
+        if (pathItem.getParameters() != null) declared.addAll(pathItem.getParameters());
+        if (op.getParameters() != null) declared.addAll(op.getParameters());
+        List<Param> params = new ArrayList<>();
+        for (Parameter p : declared) {
+            if (p != null && p.get$ref() != null) {
+                p = components != null && components.getParameters() != null
+                        ? components.getParameters().get(p.get$ref().substring(p.get$ref().lastIndexOf('/') + 1)) : null;
+            }
+            if (p != null) params.add(new Param(p, graph.add(p.getSchema())));
+        }
+        return params;
+    }
+
+    // most operations share the global requirement, so each distinct requirement list is resolved once
+    private static Security security(Components components, List<SecurityRequirement> requirements,
+                                     Map<List<SecurityRequirement>, Security> cache) {
+        if (requirements == null || requirements.isEmpty()) return Security.NONE;
+        Security cached = cache.get(requirements);
+        if (cached != null) return cached;
+        Map<String, SecurityScheme> schemes = components != null && components.getSecuritySchemes() != null
+                ? components.getSecuritySchemes() : Collections.<String, SecurityScheme>emptyMap();
+        List<List<Auth>> alternatives = new ArrayList<>();
+        boolean anonymous = false;
+        for (SecurityRequirement requirement : requirements) {
+            if (requirement == null || requirement.isEmpty()) {
+                anonymous = true;
+                continue;
+            }
+            List<Auth> alternative = new ArrayList<>();
+            for (Map.Entry<String, List<String>> entry : requirement.entrySet()) {
+                alternative.add(new Auth(entry.getKey(), schemes.get(entry.getKey()), entry.getValue()));
+            }
+            alternatives.add(Collections.unmodifiableList(alternative));
+        }
+        Security security = new Security(alternatives, anonymous);
+        cache.put(requirements, security);
+        return security;
+    }
+
+    private static List<Body> bodies(Content content, SchemaGraph.Builder graph) {
+        List<Body> bodies = new ArrayList<>();
+        if (content == null) return bodies;
+        for (Map.Entry<String, MediaType> entry : content.entrySet()) {
+            MediaType mediaType = entry.getValue();
+            Map<String, Object> examples = new LinkedHashMap<>();
+            if (mediaType != null && mediaType.getExamples() != null) {
+                for (Map.Entry<String, Example> example : mediaType.getExamples().entrySet()) {
+                    if (example.getValue() != null && example.getValue().getValue() != null) {
+                        examples.put(example.getKey(), example.getValue().getValue());
+                    }
+                }
+            }
+            bodies.add(new Body(entry.getKey(), mediaType != null ? graph.add(mediaType.getSchema()) : SchemaGraph.NONE,
+                    mediaType != null ? mediaType.getExample() : null, examples));
+        }
+        return bodies;
+    }
+
+    private static List<Response> responses(Components components, Operation op, boolean includeGlobalResponses,
+                                            SchemaGraph.Builder graph) {
+        Map<String, ApiResponse> merged = new LinkedHashMap<>();
+        if (op.getResponses() != null) merged.putAll(op.getResponses());
+        if (includeGlobalResponses && components != null && components.getResponses() != null) {
+            for (Map.Entry<String, ApiResponse> globalEntry : components.getResponses().entrySet()) {
+                merged.putIfAbsent(globalEntry.getKey(), globalEntry.getValue());
+            }
+        }
+        List<Response> responses = new ArrayList<>();
+        for (Map.Entry<String, ApiResponse> entry : merged.entrySet()) {
+            ApiResponse response = entry.getValue();
+            if (response != null && response.get$ref() != null && components != null && components.getResponses() != null) {
+                response = components.getResponses().get(response.get$ref().substring(response.get$ref().lastIndexOf('/') + 1));
+            }
+            Content content = response != null ? response.getContent() : null;
+            responses.add(new Response(entry.getKey(), response, content != null ? bodies(content, graph) : null));
+        }
+        return responses;
+    }
+}
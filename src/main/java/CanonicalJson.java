@@ -0,0 +1,193 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.POJONode;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+// One spelling for every value taken from a spec, whichever parser type, host, locale or time zone it came through:
+// object keys sorted, numbers without exponent or trailing zeros, dates as ISO-8601 in UTC and strings escaped as JSON
+// but otherwise left as Unicode for the UTF-8 output. Examples, enums and defaults go through here so the same spec
+// always renders to the same bytes.
+public final class CanonicalJson {
+
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+
+    private CanonicalJson() {
+    }
+
+    public static String render(Object value) {
+        StringBuilder sb = new StringBuilder();
+        append(sb, value);
+        return sb.toString();
+    }
+
+    // like render, but a top-level string is returned as is, e.g. an XML example or a plain default value
+    public static String text(Object value) {
+        if (value instanceof JsonNode) {
+            return ((JsonNode) value).isTextual() ? ((JsonNode) value).textValue() : render(value);
+        }
+        if (value == null || value instanceof Map || value instanceof Collection || value instanceof Object[]
+                || value instanceof Number || value instanceof Boolean) {
+            return render(value);
+        }
+        return value instanceof byte[] ? Base64.getEncoder().encodeToString((byte[]) value) : unquoted(value);
+    }
+
+    static void append(StringBuilder sb, Object value) {
+        if (value == null) {
+            sb.append("null");
+        } else if (value instanceof JsonNode) {
+            appendNode(sb, (JsonNode) value);
+        } else if (value instanceof Map) {
+            Map<String, Object> sorted = new TreeMap<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) sorted.put(String.valueOf(entry.getKey()), entry.getValue());
+            sb.append('{');
+            boolean first = true;
+            for (Map.Entry<String, Object> entry : sorted.entrySet()) {
+                if (!first) sb.append(',');
+                first = false;
+                appendString(sb, entry.getKey());
+                sb.append(':');
+                append(sb, entry.getValue());
+            }
+            sb.append('}');
+        } else if (value instanceof Collection) {
+            appendArray(sb, ((Collection<?>) value).toArray());
+        } else if (value instanceof Object[]) {
+            appendArray(sb, (Object[]) value);
+        } else if (value instanceof byte[]) {
+            appendString(sb, Base64.getEncoder().encodeToString((byte[]) value));
+        } else if (value instanceof Number) {
+            appendNumber(sb, (Number) value);
+        } else if (value instanceof Boolean) {
+            sb.append(value);
+        } else {
+            appendString(sb, unquoted(value));
+        }
+    }
+
+    public static String number(Number number) {
+        StringBuilder sb = new StringBuilder();
+        appendNumber(sb, number);
+        return sb.toString();
+    }
+
+    static void appendString(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\b': sb.append("\\b"); break;
+                case '\f': sb.append("\\f"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        sb.append("\\u00").append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 0xf, 16));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        sb.append('"');
+    }
+
+    private static void appendArray(StringBuilder sb, Object[] values) {
+        sb.append('[');
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) sb.append(',');
+            append(sb, values[i]);
+        }
+        sb.append(']');
+    }
+
+    private static void appendNode(StringBuilder sb, JsonNode node) {
+        if (node.isObject()) {
+            List<String> names = new ArrayList<>();
+            node.fieldNames().forEachRemaining(names::add);
+            Collections.sort(names);
+            sb.append('{');
+            for (int i = 0; i < names.size(); i++) {
+                if (i > 0) sb.append(',');
+                appendString(sb, names.get(i));
+                sb.append(':');
+                appendNode(sb, node.get(names.get(i)));
+            }
+            sb.append('}');
+        } else if (node.isArray()) {
+            sb.append('[');
+            for (int i = 0; i < node.size(); i++) {
+                if (i > 0) sb.append(',');
+                appendNode(sb, node.get(i));
+            }
+            sb.append(']');
+        } else if (node.isTextual()) {
+            appendString(sb, node.textValue());
+        } else if (node.isIntegralNumber()) {
+            sb.append(node.bigIntegerValue());
+        } else if (node.isNumber()) {
+            appendNumber(sb, node.isBigDecimal() ? node.decimalValue() : node.numberValue());
+        } else if (node.isBoolean()) {
+            sb.append(node.booleanValue());
+        } else if (node.isBinary()) {
+            try {
+                appendString(sb, Base64.getEncoder().encodeToString(node.binaryValue()));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        } else if (node.isPojo()) {
+            append(sb, ((POJONode) node).getPojo());
+        } else {
+            sb.append("null");
+        }
+    }
+
+    // 1, 1.5 and 1000 rather than 1.0, 1.50 or 1E+3; JSON has no NaN or infinity, so those become strings
+    private static void appendNumber(StringBuilder sb, Number number) {
+        if (number instanceof Integer || number instanceof Long || number instanceof Short || number instanceof Byte
+                || number instanceof BigInteger) {
+            sb.append(number);
+            return;
+        }
+        BigDecimal decimal;
+        if (number instanceof BigDecimal) {
+            decimal = (BigDecimal) number;
+        } else if (number instanceof Double || number instanceof Float) {
+            double d = number.doubleValue();
+            if (Double.isNaN(d) || Double.isInfinite(d)) {
+                appendString(sb, number.toString());
+                return;
+            }
+            // Float.toString keeps the short spelling a float was written with, 0.1f stays 0.1
+            decimal = new BigDecimal(number instanceof Float ? number.toString() : Double.toString(d));
+        } else {
+            decimal = new BigDecimal(number.toString());
+        }
+        // BigDecimal.ZERO.stripTrailingZeros() keeps the scale of 0.00 on Java 8
+        sb.append(decimal.signum() == 0 ? "0" : decimal.stripTrailingZeros().toPlainString());
+    }
+
+    private static String unquoted(Object value) {
+        if (value instanceof Date) {
+            // date-only examples are parsed to midnight UTC; anything else keeps its instant
+            long millis = ((Date) value).getTime();
+            Instant instant = Instant.ofEpochMilli(millis);
+            return Math.floorMod(millis, MILLIS_PER_DAY) == 0 ? DateTimeFormatter.ISO_LOCAL_DATE.format(instant.atOffset(ZoneOffset.UTC))
+                    : instant.toString();
+        }
+        if (value instanceof OffsetDateTime) {
+            return DateTimeFormatter.ISO_INSTANT.format((OffsetDateTime) value);
+        }
+        return value.toString();
+    }
+}
@@ -0,0 +1,218 @@
+import io.swagger.v3.oas.models.media.Discriminator;
+import io.swagger.v3.oas.models.media.Schema;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+public class Constraints {
+
+    static final Constraints NONE = new Constraints();
+
+    String format;
+    String pattern;
+    Integer minLength;
+    Integer maxLength;
+    BigDecimal minimum;
+    BigDecimal maximum;
+    boolean exclusiveMinimum;
+    boolean exclusiveMaximum;
+    BigDecimal multipleOf;
+    Integer minItems;
+    Integer maxItems;
+    boolean uniqueItems;
+    Integer minProperties;
+    Integer maxProperties;
+    List<Object> enumValues;
+    Object defaultValue;
+    boolean nullable;
+    boolean readOnly;
+    boolean writeOnly;
+    String discriminator;
+    Map<String, String> discriminatorMapping;
+    // null when unspecified, otherwise "true", "false" or "schema"
+    String additionalProperties;
+    Set<String> required = Collections.emptySet();
+    private volatile String description;
+
+    private Constraints() {
+    }
+
+    static Constraints of(Schema<?> schema) {
+        Constraints c = new Constraints();
+        c.format = schema.getFormat();
+        c.pattern = schema.getPattern();
+        c.minLength = schema.getMinLength();
+        c.maxLength = schema.getMaxLength();
+        c.minimum = schema.getMinimum();
+        c.maximum = schema.getMaximum();
+        c.exclusiveMinimum = Boolean.TRUE.equals(schema.getExclusiveMinimum());
+        c.exclusiveMaximum = Boolean.TRUE.equals(schema.getExclusiveMaximum());
+        // OpenAPI 3.1 carries the exclusive bound as a number instead of a flag
+        if (schema.getExclusiveMinimumValue() != null) {
+            c.minimum = schema.getExclusiveMinimumValue();
+            c.exclusiveMinimum = true;
+        }
+        if (schema.getExclusiveMaximumValue() != null) {
+            c.maximum = schema.getExclusiveMaximumValue();
+            c.exclusiveMaximum = true;
+        }
+        c.multipleOf = schema.getMultipleOf();
+        c.minItems = schema.getMinItems();
+        c.maxItems = schema.getMaxItems();
+        c.uniqueItems = Boolean.TRUE.equals(schema.getUniqueItems());
+        c.minProperties = schema.getMinProperties();
+        c.maxProperties = schema.getMaxProperties();
+        c.enumValues = schema.getEnum() != null ? Collections.unmodifiableList(new ArrayList<Object>(schema.getEnum())) : null;
+        c.defaultValue = schema.getDefault();
+        c.nullable = Boolean.TRUE.equals(schema.getNullable());
+        c.readOnly = Boolean.TRUE.equals(schema.getReadOnly());
+        c.writeOnly = Boolean.TRUE.equals(schema.getWriteOnly());
+        Discriminator discriminator = schema.getDiscriminator();
+        if (discriminator != null) {
+            c.discriminator = discriminator.getPropertyName();
+            c.discriminatorMapping = discriminator.getMapping() != null
+                    ? Collections.unmodifiableMap(new LinkedHashMap<>(discriminator.getMapping())) : null;
+        }
+        Object additional = schema.getAdditionalProperties();
+        if (additional instanceof Boolean) {
+            c.additionalProperties = additional.toString();
+        } else if (additional instanceof Schema) {
+            c.additionalProperties = "schema";
+        }
+        if (schema.getRequired() != null) {
+            c.required = Collections.unmodifiableSet(new LinkedHashSet<>(schema.getRequired()));
+        }
+        return c;
+    }
+
+    // allOf semantics: every branch applies, so keep the tightest bound and union the flags
+    Constraints and(Constraints other) {
+        if (other == NONE) return this;
+        Constraints c = copy();
+        if (c.format == null) c.format = other.format;
+        if (c.pattern == null) c.pattern = other.pattern;
+        c.minLength = max(c.minLength, other.minLength);
+        c.maxLength = min(c.maxLength, other.maxLength);
+        if (other.minimum != null && (c.minimum == null || other.minimum.compareTo(c.minimum) > 0
+                || (other.minimum.compareTo(c.minimum) == 0 && other.exclusiveMinimum))) {
+            c.minimum = other.minimum;
+            c.exclusiveMinimum = other.exclusiveMinimum;
+        }
+        if (other.maximum != null && (c.maximum == null || other.maximum.compareTo(c.maximum) < 0
+                || (other.maximum.compareTo(c.maximum) == 0 && other.exclusiveMaximum))) {
+            c.maximum = other.maximum;
+            c.exclusiveMaximum = other.exclusiveMaximum;
+        }
+        if (c.multipleOf == null) c.multipleOf = other.multipleOf;
+        c.minItems = max(c.minItems, other.minItems);
+        c.maxItems = min(c.maxItems, other.maxItems);
+        c.uniqueItems |= other.uniqueItems;
+        c.minProperties = max(c.minProperties, other.minProperties);
+        c.maxProperties = min(c.maxProperties, other.maxProperties);
+        if (c.enumValues == null) c.enumValues = other.enumValues;
+        if (c.defaultValue == null) c.defaultValue = other.defaultValue;
+        c.nullable &= other.nullable;
+        c.readOnly |= other.readOnly;
+        c.writeOnly |= other.writeOnly;
+        if (c.discriminator == null) {
+            c.discriminator = other.discriminator;
+            c.discriminatorMapping = other.discriminatorMapping;
+        }
+        if (!"false".equals(c.additionalProperties) && other.additionalProperties != null) {
+            c.additionalProperties = other.additionalProperties;
+        }
+        if (!other.required.isEmpty()) {
+            Set<String> required = new LinkedHashSet<>(c.required);
+            required.addAll(other.required);
+            c.required = Collections.unmodifiableSet(required);
+        }
+        return c;
+    }
+
+    public boolean isEmpty() {
+        return describe().isEmpty();
+    }
+
+    // Compact "key: value" list shared by every prompt renderer.
+    public String describe() {
+        String d = description;
+        if (d == null) {
+            d = render();
+            description = d;
+        }
+        return d;
+    }
+
+    private String render() {
+        StringBuilder sb = new StringBuilder();
+        add(sb, "format", format);
+        if (enumValues != null) add(sb, "enum", CanonicalJson.render(enumValues));
+        if (defaultValue != null) add(sb, "default", CanonicalJson.text(defaultValue));
+        add(sb, "pattern", pattern);
+        add(sb, "minLength", minLength);
+        add(sb, "maxLength", maxLength);
+        if (minimum != null) add(sb, exclusiveMinimum ? "exclusiveMinimum" : "minimum", CanonicalJson.number(minimum));
+        if (maximum != null) add(sb, exclusiveMaximum ? "exclusiveMaximum" : "maximum", CanonicalJson.number(maximum));
+        if (multipleOf != null) add(sb, "multipleOf", CanonicalJson.number(multipleOf));
+        add(sb, "minItems", minItems);
+        add(sb, "maxItems", maxItems);
+        if (uniqueItems) add(sb, "uniqueItems", true);
+        add(sb, "minProperties", minProperties);
+        add(sb, "maxProperties", maxProperties);
+        if (nullable) add(sb, "nullable", true);
+        if (readOnly) add(sb, "readOnly", true);
+        if (writeOnly) add(sb, "writeOnly", true);
+        if (discriminator != null) {
+            add(sb, "discriminator", discriminatorMapping != null && !discriminatorMapping.isEmpty()
+                    ? discriminator + " " + discriminatorMapping.keySet() : discriminator);
+        }
+        add(sb, "additionalProperties", additionalProperties);
+        return sb.toString();
+    }
+
+    private static void add(StringBuilder sb, String key, Object value) {
+        if (value == null) return;
+        if (sb.length() > 0) sb.append(", ");
+        sb.append(key).append(": ").append(value);
+    }
+
+    private Constraints copy() {
+        Constraints c = new Constraints();
+        c.format = format;
+        c.pattern = pattern;
+        c.minLength = minLength;
+        c.maxLength = maxLength;
+        c.minimum = minimum;
+        c.maximum = maximum;
+        c.exclusiveMinimum = exclusiveMinimum;
+        c.exclusiveMaximum = exclusiveMaximum;
+        c.multipleOf = multipleOf;
+        c.minItems = minItems;
+        c.maxItems = maxItems;
+        c.uniqueItems = uniqueItems;
+        c.minProperties = minProperties;
+        c.maxProperties = maxProperties;
+        c.enumValues = enumValues;
+        c.defaultValue = defaultValue;
+        c.nullable = nullable;
+        c.readOnly = readOnly;
+        c.writeOnly = writeOnly;
+        c.discriminator = discriminator;
+        c.discriminatorMapping = discriminatorMapping;
+        c.additionalProperties = additionalProperties;
+        c.required = required;
+        return c;
+    }
+
+    private static Integer max(Integer a, Integer b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        return Math.max(a, b);
+    }
+
+    private static Integer min(Integer a, Integer b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        return Math.min(a, b);
+    }
+}
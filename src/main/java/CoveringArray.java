@@ -0,0 +1,214 @@
+import java.util.*;
+
+// Rows over factors with sizes[i] levels each such that every combination of `strength` levels (every pair for
+// strength 2) appears in at least one row, far fewer rows than the full cross product.
+public class CoveringArray implements Iterable<int[]> {
+
+    private final int[] sizes;
+    private final int strength;
+
+    public CoveringArray(int[] sizes) {
+        this(sizes, 2);
+    }
+
+    public CoveringArray(int[] sizes, int strength) {
+        if (strength < 1) throw new IllegalArgumentException("strength must be at least 1 but was " + strength);
+        this.sizes = sizes.clone();
+        this.strength = Math.min(strength, sizes.length);
+    }
+
+    public int strength() {
+        return strength;
+    }
+
+    @Override
+    public Iterator<int[]> iterator() {
+        return strength == 2 ? new PairwiseRows() : new TupleRows();
+    }
+
+    // Greedy pairwise rows, generated one at a time; memory is bounded by the pair table, not the cross product.
+    private class PairwiseRows implements Iterator<int[]> {
+        private final int n = sizes.length;
+        private final BitSet[][] uncovered = new BitSet[n][n];
+        private long remaining;
+
+        PairwiseRows() {
+            for (int i = 0; i < n; i++) {
+                for (int j = i + 1; j < n; j++) {
+                    int cells = sizes[i] * sizes[j];
+                    BitSet bits = new BitSet(cells);
+                    bits.set(0, cells);
+                    uncovered[i][j] = bits;
+                    remaining += cells;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        @Override
+        public int[] next() {
+            if (!hasNext()) throw new NoSuchElementException();
+
+            int[] row = new int[n];
+            Arrays.fill(row, -1);
+
+            // seed the row with the first uncovered pair
+            outer:
+            for (int i = 0; i < n; i++) {
+                for (int j = i + 1; j < n; j++) {
+                    int cell = uncovered[i][j].nextSetBit(0);
+                    if (cell >= 0) {
+                        row[i] = cell / sizes[j];
+                        row[j] = cell % sizes[j];
+                        break outer;
+                    }
+                }
+            }
+
+            for (int f = 0; f < n; f++) {
+                if (row[f] >= 0) continue;
+                int best = 0;
+                int bestGain = -1;
+                for (int v = 0; v < sizes[f]; v++) {
+                    int gain = 0;
+                    for (int g = 0; g < n; g++) {
+                        if (g == f || row[g] < 0) continue;
+                        if (isUncovered(f, v, g, row[g])) gain++;
+                    }
+                    if (gain > bestGain) {
+                        bestGain = gain;
+                        best = v;
+                    }
+                }
+                row[f] = best;
+            }
+
+            for (int i = 0; i < n; i++) {
+                for (int j = i + 1; j < n; j++) {
+                    int cell = row[i] * sizes[j] + row[j];
+                    if (uncovered[i][j].get(cell)) {
+                        uncovered[i][j].clear(cell);
+                        remaining--;
+                    }
+                }
+            }
+            return row;
+        }
+
+        private boolean isUncovered(int f, int v, int g, int w) {
+            return f < g ? uncovered[f][g].get(v * sizes[g] + w) : uncovered[g][f].get(w * sizes[f] + v);
+        }
+    }
+
+    // The same greedy construction for any strength: one bit table per combination of `strength` factors, and each free
+    // factor takes the level that covers most uncovered tuples whose other factors are already set in the row.
+    private class TupleRows implements Iterator<int[]> {
+        private final int n = sizes.length;
+        private final int[][] combos;
+        private final BitSet[] uncovered;
+        // combinations each factor takes part in
+        private final int[][] byFactor;
+        private long remaining;
+
+        TupleRows() {
+            List<int[]> all = new ArrayList<>();
+            if (strength > 0) collect(new int[strength], 0, 0, all);
+            combos = all.toArray(new int[0][]);
+            uncovered = new BitSet[combos.length];
+            List<List<Integer>> membership = new ArrayList<>();
+            for (int f = 0; f < n; f++) membership.add(new ArrayList<Integer>());
+            for (int c = 0; c < combos.length; c++) {
+                int cells = 1;
+                for (int f : combos[c]) {
+                    cells *= sizes[f];
+                    membership.get(f).add(c);
+                }
+                uncovered[c] = new BitSet(cells);
+                uncovered[c].set(0, cells);
+                remaining += cells;
+            }
+            byFactor = new int[n][];
+            for (int f = 0; f < n; f++) {
+                byFactor[f] = new int[membership.get(f).size()];
+                for (int i = 0; i < byFactor[f].length; i++) byFactor[f][i] = membership.get(f).get(i);
+            }
+        }
+
+        private void collect(int[] combo, int depth, int from, List<int[]> out) {
+            if (depth == combo.length) {
+                out.add(combo.clone());
+                return;
+            }
+            for (int f = from; f <= n - (combo.length - depth); f++) {
+                combo[depth] = f;
+                collect(combo, depth + 1, f + 1, out);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        @Override
+        public int[] next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            int[] row = new int[n];
+            Arrays.fill(row, -1);
+
+            // seed the row with the first uncovered tuple
+            for (int c = 0; c < combos.length; c++) {
+                int cell = uncovered[c].nextSetBit(0);
+                if (cell < 0) continue;
+                for (int k = combos[c].length - 1; k >= 0; k--) {
+                    int f = combos[c][k];
+                    row[f] = cell % sizes[f];
+                    cell /= sizes[f];
+                }
+                break;
+            }
+
+            for (int f = 0; f < n; f++) {
+                if (row[f] >= 0) continue;
+                int best = 0;
+                int bestGain = -1;
+                for (int v = 0; v < sizes[f]; v++) {
+                    row[f] = v;
+                    int gain = 0;
+                    for (int c : byFactor[f]) {
+                        int cell = cell(c, row);
+                        if (cell >= 0 && uncovered[c].get(cell)) gain++;
+                    }
+                    if (gain > bestGain) {
+                        bestGain = gain;
+                        best = v;
+                    }
+                }
+                row[f] = best;
+            }
+
+            for (int c = 0; c < combos.length; c++) {
+                int cell = cell(c, row);
+                if (uncovered[c].get(cell)) {
+                    uncovered[c].clear(cell);
+                    remaining--;
+                }
+            }
+            return row;
+        }
+
+        // mixed-radix index of the row's levels in the combination; -1 while one of its factors is unset
+        private int cell(int c, int[] row) {
+            int cell = 0;
+            for (int f : combos[c]) {
+                if (row[f] < 0) return -1;
+                cell = cell * sizes[f] + row[f];
+            }
+            return cell;
+        }
+    }
+}
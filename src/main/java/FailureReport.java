@@ -0,0 +1,218 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import io.swagger.v3.core.util.Json;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Collects per-operation failures of one run so a batch finishes and reports precisely instead of dying on the first
+// Error or printing "null". The report is written as JSON next to the generated output.
+public class FailureReport {
+
+    static final int EXIT_FAILURES = 2;
+    static final String FILE_NAME = "failure-report.json";
+
+    private static final ThreadLocal<String> PHASE = ThreadLocal.withInitial(() -> "render");
+
+    public interface Step {
+        void run() throws Exception;
+    }
+
+    public static class Failure {
+        final String operation;
+        final String phase;
+        final List<String> refChain;
+        final String exception;
+        final String message;
+        final String at;
+
+        Failure(String operation, String phase, List<String> refChain, Throwable error) {
+            this.operation = operation;
+            this.phase = phase;
+            this.refChain = refChain;
+            this.exception = error.getClass().getName();
+            this.message = error.getMessage();
+            StackTraceElement[] trace = error.getStackTrace();
+            this.at = trace.length > 0 ? trace[0].toString() : null;
+        }
+    }
+
+    private final String tool;
+    private final SchemaGraph schemas;
+    private final List<Failure> failures = Collections.synchronizedList(new ArrayList<>());
+    private final Set<String> failed = Collections.synchronizedSet(new HashSet<>());
+    private final AtomicInteger operations = new AtomicInteger();
+
+    public FailureReport(String tool, ApiModel model) {
+        this.tool = tool;
+        this.schemas = model.getSchemas();
+    }
+
+    // names the step the current thread is in, so a failure can say whether rendering, emitting or writing broke
+    public static void phase(String phase) {
+        PHASE.set(phase);
+    }
+
+    static String currentPhase() {
+        return PHASE.get();
+    }
+
+    void started(ApiModel.Endpoint ep) {
+        operations.incrementAndGet();
+        phase("render");
+    }
+
+    // Runs one step in isolation: any Throwable, including StackOverflowError, is recorded instead of propagated.
+    public boolean run(ApiModel.Endpoint ep, String phase, Step step) {
+        phase(phase);
+        try {
+            step.run();
+            return true;
+        } catch (Throwable t) {
+            record(ep, phase, t);
+            return false;
+        }
+    }
+
+    public void record(ApiModel.Endpoint ep, String phase, Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof java.util.concurrent.CompletionException
+                || cause instanceof java.util.concurrent.ExecutionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        Failure failure = new Failure(ep.label(), phase, refChain(ep, cause instanceof StackOverflowError), cause);
+        failures.add(failure);
+        failed.add(ep.label());
+        System.err.println("⚠ " + failure.operation + " failed during " + failure.phase + ": " + failure.exception
+                + (failure.message != null ? ": " + failure.message : "") + (failure.refChain.isEmpty() ? "" : " (ref chain: " + String.join(" -> ", failure.refChain) + ")"));
+    }
+
+    public boolean hasFailures() {
+        return !failures.isEmpty();
+    }
+
+    // Writes the JSON report when something failed (and removes a stale one otherwise); returns the process exit status.
+    public int finish(Path report) throws IOException {
+        int total = operations.get();
+        if (failures.isEmpty()) {
+            Files.deleteIfExists(report);
+            System.out.println("✅ " + tool + ": " + total + " operations rendered without failures");
+            return 0;
+        }
+        List<Map<String, Object>> entries = new ArrayList<>();
+        synchronized (failures) {
+            for (Failure failure : failures) {
+                Map<String, Object> entry = new LinkedHashMap<>();
+                entry.put("operation", failure.operation);
+                entry.put("phase", failure.phase);
+                entry.put("refChain", failure.refChain);
+                entry.put("exception", failure.exception);
+                entry.put("message", failure.message);
+                entry.put("at", failure.at);
+                entries.add(entry);
+            }
+        }
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("tool", tool);
+        json.put("operations", total);
+        json.put("failedOperations", failed.size());
+        json.put("failures", entries);
+        PromptOutput.write(report, SamplePayloadSynthesizer.toJson(json) + "\n");
+        System.err.println("❌ " + tool + ": " + failed.size() + " of " + total + " operations failed, see " + report);
+        return EXIT_FAILURES;
+    }
+
+    // Combines the reports of a sharded run: shards without failures wrote none. Failures are listed in spec order;
+    // returns the exit status of the run as a whole.
+    static int merge(Path report, List<Path> fragments, int operations, Map<String, Integer> specOrder) throws IOException {
+        String tool = null;
+        int failedOperations = 0;
+        List<JsonNode> failures = new ArrayList<>();
+        for (Path fragment : fragments) {
+            if (!Files.exists(fragment)) continue;
+            JsonNode json = Json.mapper().readTree(fragment.toFile());
+            tool = json.path("tool").asText();
+            failedOperations += json.path("failedOperations").asInt();
+            for (JsonNode failure : json.path("failures")) failures.add(failure);
+        }
+        for (Path fragment : fragments) Files.deleteIfExists(fragment);
+        if (tool == null) {
+            Files.deleteIfExists(report);
+            return 0;
+        }
+        failures.sort(Comparator.comparingInt(f -> specOrder.getOrDefault(f.path("operation").asText(), Integer.MAX_VALUE)));
+
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("tool", tool);
+        json.put("operations", operations);
+        json.put("failedOperations", failedOperations);
+        List<Object> entries = new ArrayList<>();
+        for (JsonNode failure : failures) entries.add(Json.mapper().convertValue(failure, LinkedHashMap.class));
+        json.put("failures", entries);
+        PromptOutput.write(report, SamplePayloadSynthesizer.toJson(json) + "\n");
+        System.err.println("❌ " + tool + ": " + failedOperations + " of " + operations + " operations failed, see " + report);
+        return EXIT_FAILURES;
+    }
+
+    // Best-effort pointer to the schema that broke: the first $ref path that ends unresolved, or, for a stack
+    // overflow, the first path that loops back into a component already on the path.
+    private List<String> refChain(ApiModel.Endpoint ep, boolean preferCycle) {
+        List<Integer> roots = new ArrayList<>();
+        for (ApiModel.Param p : ep.params) roots.add(p.schema);
+        for (ApiModel.Body body : ep.bodies) roots.add(body.schema);
+        for (ApiModel.Response response : ep.responses) {
+            if (response.content == null) continue;
+            for (ApiModel.Body body : response.content) roots.add(body.schema);
+        }
+        List<String> fallback = Collections.emptyList();
+        for (int root : roots) {
+            Deque<String> path = new ArrayDeque<>();
+            List<String> cycle = new ArrayList<>();
+            List<String> unresolved = walk(root, path, new HashSet<Integer>(), cycle);
+            if (unresolved != null && !preferCycle) return unresolved;
+            if (!cycle.isEmpty() && preferCycle) return cycle;
+            if (fallback.isEmpty()) fallback = unresolved != null ? unresolved : cycle;
+        }
+        return fallback;
+    }
+
+    private List<String> walk(int id, Deque<String> path, Set<Integer> visited, List<String> cycle) {
+        SchemaGraph.Node node = schemas.node(id);
+        if (node == null) return null;
+        if (node.isRef()) {
+            if (node.target == SchemaGraph.NONE) {
+                List<String> chain = new ArrayList<>(path);
+                chain.add(node.ref + " (unresolved)");
+                return chain;
+            }
+            String name = schemas.node(node.target).component;
+            if (path.contains(name)) {
+                if (cycle.isEmpty()) {
+                    cycle.addAll(path);
+                    cycle.add(name);
+                }
+                return null;
+            }
+            path.addLast(name);
+            try {
+                return walk(node.target, path, visited, cycle);
+            } finally {
+                path.removeLast();
+            }
+        }
+        if (!visited.add(id)) return null;
+        List<Integer> children = new ArrayList<>();
+        if (node.items != SchemaGraph.NONE) children.add(node.items);
+        for (int child : node.allOf) children.add(child);
+        for (int child : node.oneOf) children.add(child);
+        for (int child : node.anyOf) children.add(child);
+        for (int child : node.properties) children.add(child);
+        for (int child : children) {
+            List<String> chain = walk(child, path, visited, cycle);
+            if (chain != null) return chain;
+        }
+        return null;
+    }
+}
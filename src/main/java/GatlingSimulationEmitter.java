@@ -0,0 +1,239 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+public class GatlingSimulationEmitter {
+
+    private final ApiModel model;
+    private final SamplePayloadSynthesizer synthesizer;
+    private final KarateFeatureEmitter featureEmitter;
+    private final LoadProfile profile;
+    // simulations/<class>.scala must be unique too: /users/{id} and /users/byId both read GetUsersById
+    private final Map<ApiModel.Endpoint, String> classNames = new IdentityHashMap<>();
+
+    public GatlingSimulationEmitter(ApiModel model, SamplePayloadSynthesizer synthesizer, LoadProfile profile) {
+        this.model = model;
+        this.synthesizer = synthesizer;
+        this.featureEmitter = new KarateFeatureEmitter(model, synthesizer, true);
+        this.profile = profile;
+        Set<String> taken = new HashSet<>();
+        for (ApiModel.Endpoint ep : model.getEndpoints()) {
+            String base = className(ep.path, ep.method);
+            String name = base;
+            for (int i = 2; !taken.add(name.toLowerCase(Locale.ROOT)); i++) name = base + i;
+            classNames.put(ep, name);
+        }
+    }
+
+    public String emit(String outputDir, ApiModel.Endpoint ep) throws IOException {
+        String path = ep.path;
+        String method = ep.method;
+        String baseName = model.getOutputNames().name(ep);
+        String className = classNames.get(ep);
+        List<ApiModel.Param> params = ep.params;
+        int bodySchema = jsonBodySchema(ep);
+
+        String feature = featureEmitter.emit(ep);
+        write(Paths.get(outputDir, "features", baseName + ".feature"), feature);
+
+        // the json feeder carries the params next to the body, so only one of the two is ever read
+        String feederFile = null;
+        if (bodySchema != SchemaGraph.NONE) {
+            feederFile = "feeders/" + baseName + ".json";
+            write(Paths.get(outputDir, feederFile), jsonFeeder(params, bodySchema));
+        } else if (!params.isEmpty()) {
+            feederFile = "feeders/" + baseName + ".csv";
+            write(Paths.get(outputDir, feederFile), csvFeeder(params));
+        }
+
+        String simulation = simulation(className, path, method, baseName, feederFile);
+        Path output = Paths.get(outputDir, "simulations", className + ".scala");
+        write(output, simulation);
+        System.out.println("✅ Saved: " + output);
+        return simulation;
+    }
+
+    private String simulation(String className, String path, String method, String baseName, String feederFile) {
+        StringBuilder out = new StringBuilder();
+        out.append("import com.intuit.karate.gatling.PreDef._\n")
+                .append("import io.gatling.core.Predef._\n")
+                .append("import scala.concurrent.duration._\n\n")
+                .append("class ").append(className).append(" extends Simulation {\n\n")
+                .append("  val protocol = karateProtocol(\n")
+                .append("    \"").append(path).append("\" -> Nil\n")
+                .append("  )\n\n");
+
+        if (feederFile != null) {
+            String reader = feederFile.endsWith(".json") ? "jsonFile" : "csv";
+            out.append("  val feeder = ").append(reader).append("(\"").append(feederFile).append("\").circular\n\n");
+        }
+
+        out.append("  val scn = scenario(\"").append(method.toUpperCase(Locale.ROOT)).append(' ').append(path).append("\")\n");
+        if (feederFile != null) {
+            out.append("    .feed(feeder)\n");
+        }
+        out.append("    .exec(karateFeature(\"classpath:features/").append(baseName).append(".feature\", \"@happy\"))\n\n");
+
+        appendSetUp(out);
+        return out.toString();
+    }
+
+    public String emitJourneys(String outputDir, List<JourneyGraph.Journey> journeys) throws IOException {
+        StringBuilder out = new StringBuilder();
+        out.append("import com.intuit.karate.gatling.PreDef._\n")
+                .append("import io.gatling.core.Predef._\n")
+                .append("import scala.concurrent.duration._\n\n")
+                .append("class JourneySimulation extends Simulation {\n\n")
+                .append("  val protocol = karateProtocol(\n");
+        Set<String> paths = new TreeSet<>();
+        for (JourneyGraph.Journey journey : journeys) {
+            for (JourneyGraph.Node step : journey.steps) paths.add(step.path);
+        }
+        int i = 0;
+        for (String path : paths) {
+            out.append("    \"").append(path).append("\" -> Nil").append(++i < paths.size() ? ",\n" : "\n");
+        }
+        out.append("  )\n\n");
+
+        for (JourneyGraph.Journey journey : journeys) {
+            out.append("  val ").append(journey.name).append(" = ");
+            for (int s = 0; s < journey.steps.size(); s++) {
+                JourneyGraph.Node step = journey.steps.get(s);
+                if (s > 0) out.append("\n    .");
+                out.append("exec(karateFeature(\"classpath:features/").append(model.getOutputNames().name(step.endpoint))
+                        .append(".feature\", \"@happy\"))");
+            }
+            out.append("\n\n");
+        }
+
+        out.append("  val scn = scenario(\"journeys\").randomSwitch(\n");
+        for (int j = 0; j < journeys.size(); j++) {
+            out.append("    ").append(journeys.get(j).weight).append(" -> ").append(journeys.get(j).name)
+                    .append(j + 1 < journeys.size() ? ",\n" : "\n");
+        }
+        out.append("  )\n\n");
+        appendSetUp(out);
+
+        String simulation = out.toString();
+        Path output = Paths.get(outputDir, "simulations", "JourneySimulation.scala");
+        write(output, simulation);
+        System.out.println("✅ Saved: " + output);
+        return simulation;
+    }
+
+    private void appendSetUp(StringBuilder out) {
+        out.append("  setUp(\n")
+                .append("    scn.inject(\n")
+                .append("      rampUsers(").append(profile.rampUsers).append(").during(").append(profile.rampSeconds).append(".seconds),\n")
+                .append("      constantUsersPerSec(").append(profile.constantUsersPerSec).append(").during(").append(profile.constantSeconds).append(".seconds),\n")
+                .append("      rampUsersPerSec(").append(profile.constantUsersPerSec).append(").to(0).during(").append(profile.rampDownSeconds).append(".seconds)\n")
+                .append("    ).protocols(protocol)\n")
+                .append("  ).assertions(\n")
+                .append("    global.responseTime.percentile(95).lt(").append(profile.p95Millis).append("),\n")
+                .append("    global.responseTime.percentile(99).lt(").append(profile.p99Millis).append("),\n")
+                .append("    global.failedRequests.percent.lte(").append(profile.maxErrorPercent).append(")\n")
+                .append("  )\n")
+                .append("}\n");
+    }
+
+    private String csvFeeder(List<ApiModel.Param> params) {
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < params.size(); i++) {
+            if (i > 0) out.append(',');
+            out.append(csv(params.get(i).name));
+        }
+        out.append('\n');
+        for (int row = 0; row < profile.feederRows; row++) {
+            for (int i = 0; i < params.size(); i++) {
+                if (i > 0) out.append(',');
+                out.append(csv(String.valueOf(vary(params.get(i), row))));
+            }
+            out.append('\n');
+        }
+        return out.toString();
+    }
+
+    private String jsonFeeder(List<ApiModel.Param> params, int bodySchema) {
+        SchemaVariantEngine engine = new SchemaVariantEngine(model.getSchemas(), SchemaVariantEngine.Strategy.EXHAUSTIVE, profile.feederRows, 0L);
+        List<Object> bodies = new ArrayList<>();
+        Iterator<SchemaVariantEngine.Variant> variants = engine.variants(bodySchema);
+        while (variants.hasNext()) {
+            bodies.add(synthesizer.sample(bodySchema, variants.next()));
+        }
+
+        List<Object> records = new ArrayList<>();
+        for (int row = 0; row < profile.feederRows; row++) {
+            Map<String, Object> record = new LinkedHashMap<>();
+            for (ApiModel.Param p : params) {
+                record.put(p.name, vary(p, row));
+            }
+            record.put("body", bodies.get(row % bodies.size()));
+            records.add(record);
+        }
+        return SamplePayloadSynthesizer.toJson(records) + "\n";
+    }
+
+    // Spreads feeder values across rows so load is not concentrated on one key.
+    private Object vary(ApiModel.Param p, int row) {
+        Constraints constraints = model.getSchemas().constraints(p.schema);
+        if (constraints.enumValues != null && !constraints.enumValues.isEmpty()) {
+            return constraints.enumValues.get(row % constraints.enumValues.size());
+        }
+        Object sample = featureEmitter.sampleOf(p);
+        if (sample instanceof Long || sample instanceof Integer) {
+            long step = constraints.multipleOf != null && constraints.multipleOf.signum() > 0 ? Math.max(1, constraints.multipleOf.longValue()) : 1;
+            long value = ((Number) sample).longValue() + row * step;
+            if (constraints.maximum != null && (value > constraints.maximum.longValue()
+                    || (constraints.exclusiveMaximum && value >= constraints.maximum.longValue()))) {
+                value = ((Number) sample).longValue();
+            }
+            return value;
+        }
+        if (sample instanceof String && constraints.format == null && constraints.pattern == null
+                && (constraints.maxLength == null || ((String) sample).length() + 4 <= constraints.maxLength)) {
+            return sample + "-" + row;
+        }
+        return sample;
+    }
+
+    private int jsonBodySchema(ApiModel.Endpoint ep) {
+        for (ApiModel.Body body : ep.bodies) {
+            if (body.mediaType.contains("json") && body.schema != SchemaGraph.NONE) {
+                return body.schema;
+            }
+        }
+        return SchemaGraph.NONE;
+    }
+
+    private static String csv(String value) {
+        if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0) {
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+        return value;
+    }
+
+    private static String className(String path, String method) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(Character.toUpperCase(method.charAt(0))).append(method.substring(1).toLowerCase(Locale.ROOT));
+        for (String segment : path.split("/")) {
+            if (segment.isEmpty()) continue;
+            boolean param = segment.startsWith("{");
+            if (param) sb.append("By");
+            boolean upper = true;
+            for (char c : segment.toCharArray()) {
+                if (!Character.isLetterOrDigit(c)) {
+                    upper = true;
+                    continue;
+                }
+                sb.append(upper ? Character.toUpperCase(c) : c);
+                upper = false;
+            }
+        }
+        return sb.append("Simulation").toString();
+    }
+
+    private static void write(Path output, String content) throws IOException {
+        PromptOutput.write(output, content);
+    }
+}
@@ -0,0 +1,252 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import io.swagger.v3.core.util.Json;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.*;
+
+public class JiraBulkExporter {
+
+    // a Retry-After of hours would stall the whole export; wait this long at most and let the attempt count decide
+    static final long MAX_RETRY_AFTER_MILLIS = 60_000;
+
+    public static class Story {
+        final String group;
+        final String summary;
+        final Path descriptionFile;
+        final List<String> labels;
+        final String epicKey;
+
+        public Story(String group, String summary, Path descriptionFile, List<String> labels, String epicKey) {
+            this.group = group;
+            this.summary = summary;
+            this.descriptionFile = descriptionFile;
+            this.labels = labels;
+            this.epicKey = epicKey;
+        }
+    }
+
+    public static class Result {
+        final List<String> createdKeys = new ArrayList<>();
+        // stories that were not created, with the reason
+        final Map<Story, String> failures = new LinkedHashMap<>();
+        int requests;
+    }
+
+    // what one bulk call created, and the stories Jira rejected
+    private static class BatchResult {
+        final List<String> keys = new ArrayList<>();
+        final Map<Story, String> failures = new LinkedHashMap<>();
+    }
+
+    private final String baseUrl;
+    private final String projectKey;
+    private final String authorization;
+    private final int batchSize;
+    private final int concurrency;
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+
+    public JiraBulkExporter(String baseUrl, String projectKey, String authorization, int batchSize, int concurrency,
+                            int maxAttempts, long initialBackoffMillis) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.projectKey = projectKey;
+        this.authorization = authorization;
+        this.batchSize = batchSize;
+        this.concurrency = concurrency;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = initialBackoffMillis;
+    }
+
+    // Stories are grouped first so every bulk call carries a single epic/tag; at most `concurrency` calls are in flight.
+    public Result export(List<Story> stories) throws InterruptedException {
+        Map<String, List<Story>> groups = new LinkedHashMap<>();
+        for (Story story : stories) {
+            groups.computeIfAbsent(story.group, k -> new ArrayList<>()).add(story);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(concurrency);
+        List<Future<BatchResult>> futures = new ArrayList<>();
+        List<List<Story>> batches = new ArrayList<>();
+        try {
+            for (List<Story> group : groups.values()) {
+                for (int from = 0; from < group.size(); from += batchSize) {
+                    List<Story> batch = group.subList(from, Math.min(group.size(), from + batchSize));
+                    batches.add(batch);
+                    futures.add(pool.submit(() -> send(batch)));
+                }
+            }
+
+            Result result = new Result();
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    BatchResult batch = futures.get(i).get();
+                    result.createdKeys.addAll(batch.keys);
+                    result.failures.putAll(batch.failures);
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    for (Story story : batches.get(i)) {
+                        result.failures.put(story, String.valueOf(cause.getMessage()));
+                    }
+                }
+            }
+            result.requests = batches.size();
+            return result;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // Bulk create is not idempotent, so a call is only repeated when Jira cannot have seen it (the connection was never
+    // established or a gateway answered 502/503/504) or has said so (429/5xx with Retry-After). Any other failure once
+    // the payload went out, a read timeout included, may already have created issues and is reported instead.
+    private BatchResult send(List<Story> batch) throws IOException, InterruptedException {
+        byte[] payload = payload(batch).getBytes(StandardCharsets.UTF_8);
+        long backoff = initialBackoffMillis;
+        long wait = 0;
+        IOException last = null;
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            if (attempt > 1) Thread.sleep(wait);
+            wait = backoff;
+            backoff *= 2;
+            HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + "/rest/api/2/issue/bulk").openConnection();
+            try {
+                connection.setRequestMethod("POST");
+                connection.setDoOutput(true);
+                // a buffered body is silently re-posted by HttpURLConnection when the response is lost; streaming is not
+                connection.setFixedLengthStreamingMode(payload.length);
+                connection.setConnectTimeout(10000);
+                connection.setReadTimeout(30000);
+                connection.setRequestProperty("Content-Type", "application/json; charset=UTF-8");
+                connection.setRequestProperty("Accept", "application/json");
+                if (authorization != null) connection.setRequestProperty("Authorization", authorization);
+                try {
+                    connection.connect();
+                } catch (IOException e) {
+                    last = e;
+                    continue;
+                }
+                try (OutputStream out = connection.getOutputStream()) {
+                    out.write(payload);
+                }
+
+                int status = connection.getResponseCode();
+                if (status >= 200 && status < 300) {
+                    return result(batch, read(connection.getInputStream()));
+                }
+                String error = connection.getErrorStream() != null ? read(connection.getErrorStream()) : "";
+                last = new IOException("HTTP " + status + " " + error);
+                Long retryAfter = retryAfterMillis(connection.getHeaderField("Retry-After"));
+                boolean unavailable = status == 502 || status == 503 || status == 504;
+                if (!unavailable && ((status != 429 && status < 500) || retryAfter == null)) throw last;
+                wait = retryWait(wait, retryAfter);
+            } finally {
+                connection.disconnect();
+            }
+        }
+        throw last;
+    }
+
+    // Jira answers 201 even when some issues failed: `issues` lists the created ones and `errors` the rejected ones by
+    // their index in the request.
+    private static BatchResult result(List<Story> batch, String body) throws IOException {
+        JsonNode response = Json.mapper().readTree(body);
+        BatchResult result = new BatchResult();
+        for (JsonNode issue : response.path("issues")) {
+            if (issue.hasNonNull("key")) result.keys.add(issue.get("key").asText());
+        }
+        for (JsonNode error : response.path("errors")) {
+            int element = error.path("failedElementNumber").asInt(-1);
+            String message = "HTTP " + error.path("status").asText("?") + " " + message(error.path("elementErrors"));
+            // an error Jira does not pin to an element is taken to cover the whole call
+            List<Story> failed = element >= 0 && element < batch.size() ? batch.subList(element, element + 1) : batch;
+            for (Story story : failed) result.failures.put(story, message);
+        }
+        return result;
+    }
+
+    private static String message(JsonNode elementErrors) {
+        List<String> messages = new ArrayList<>();
+        for (JsonNode message : elementErrors.path("errorMessages")) messages.add(message.asText());
+        Iterator<Map.Entry<String, JsonNode>> fields = elementErrors.path("errors").fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            messages.add(field.getKey() + ": " + field.getValue().asText());
+        }
+        return String.join("; ", messages);
+    }
+
+    // the exponential backoff, or Retry-After when Jira asks for longer, but never more than MAX_RETRY_AFTER_MILLIS
+    static long retryWait(long backoff, Long retryAfter) {
+        if (retryAfter == null) return backoff;
+        return Math.max(backoff, Math.min(retryAfter, MAX_RETRY_AFTER_MILLIS));
+    }
+
+    // Retry-After is either delay-seconds or an HTTP-date; null when absent or unreadable
+    static Long retryAfterMillis(String retryAfter) {
+        if (retryAfter == null) return null;
+        String value = retryAfter.trim();
+        if (value.matches("\\d+")) return Long.parseLong(value) * 1000L;
+        try {
+            ZonedDateTime at = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME);
+            return Math.max(0, Duration.between(ZonedDateTime.now(at.getZone()), at).toMillis());
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private String payload(List<Story> batch) throws IOException {
+        StringBuilder sb = new StringBuilder("{\"issueUpdates\":[");
+        for (int i = 0; i < batch.size(); i++) {
+            Story story = batch.get(i);
+            if (i > 0) sb.append(',');
+            sb.append("{\"fields\":{\"project\":{\"key\":");
+            json(sb, projectKey);
+            sb.append("},\"issuetype\":{\"name\":\"Story\"},\"summary\":");
+            json(sb, story.summary);
+            sb.append(",\"description\":");
+            json(sb, new String(Files.readAllBytes(story.descriptionFile), StandardCharsets.UTF_8));
+            sb.append(",\"labels\":[");
+            for (int l = 0; l < story.labels.size(); l++) {
+                if (l > 0) sb.append(',');
+                json(sb, story.labels.get(l));
+            }
+            sb.append(']');
+            if (story.epicKey != null) {
+                sb.append(",\"parent\":{\"key\":");
+                json(sb, story.epicKey);
+                sb.append('}');
+            }
+            sb.append("}}");
+        }
+        return sb.append("]}").toString();
+    }
+
+    private static void json(StringBuilder sb, String value) {
+        sb.append(SamplePayloadSynthesizer.toJson(value));
+    }
+
+    private static String read(InputStream in) throws IOException {
+        try (InputStream input = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = input.read(buffer)) > 0) {
+                out.write(buffer, 0, n);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -1,168 +1,106 @@
-import io.swagger.v3.oas.models.*;
-import io.swagger.v3.oas.models.media.*;
-import io.swagger.v3.oas.models.parameters.*;
-import io.swagger.v3.oas.models.responses.*;
-import io.swagger.v3.parser.OpenAPIV3Parser;
-import io.swagger.v3.parser.core.models.SwaggerParseResult;
-
-import java.io.*;
-import java.nio.file.*;
-import java.nio.file.Paths;
-
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 
-public class JiraStoryPromptBuilder {
+public class JiraStoryPromptBuilder implements PromptTarget {
 
     private static final String OUTPUT_DIR = "generated-prompts3";
-    private static final String inputYamlPath = "src/main/resources/openapi.yaml";
-    private static final boolean INCLUDE_GLOBAL_RESPONSES = true;
-
-    public static void main(String[] args) throws IOException {
-
-        SwaggerParseResult parseResult = new OpenAPIV3Parser().readLocation(inputYamlPath, null, null);
-        OpenAPI openAPI = parseResult.getOpenAPI();
-
-        if (openAPI == null || openAPI.getPaths() == null) {
-            System.err.println("❌ Failed to parse OpenAPI YAML: " + parseResult.getMessages());
-            return;
-        }
-
-        Map<String, Schema> schemaMap = Optional.ofNullable(openAPI.getComponents()).map(Components::getSchemas).orElse(Collections.emptyMap());
-
-        for (Map.Entry<String, PathItem> entry : openAPI.getPaths().entrySet()) {
-            String path = entry.getKey();
-            PathItem pathItem = entry.getValue();
-
-            for (Map.Entry<PathItem.HttpMethod, Operation> opEntry : pathItem.readOperationsMap().entrySet()) {
-                PathItem.HttpMethod method = opEntry.getKey();
-                Operation op = opEntry.getValue();
-
-                try {
-                    String prompt = buildPrompt(openAPI, schemaMap, path, method.name(), op);
-                    savePromptToFile(path, method.name(), prompt);
-                } catch (Exception e) {
-                    System.err.println("⚠ Error building prompt for " + method + " " + path + ": " + e.getMessage());
-                }
-            }
-        }
+    // stories are only exported when a Jira instance is configured with -Djira.baseUrl
+    private static final String JIRA_BASE_URL = System.getProperty("jira.baseUrl");
+    private static final boolean EXPORT_TO_JIRA = JIRA_BASE_URL != null && !JIRA_BASE_URL.trim().isEmpty();
+    // the LLM's answer to each prompt, saved as <prompt file name>.md; only these are exported, never the prompts
+    private static final String STORIES_DIR = System.getProperty("jira.storiesDir", "generated-stories");
+    private static final String STORY_EXTENSION = ".md";
+    private static final String JIRA_AUTHORIZATION = System.getenv("JIRA_AUTHORIZATION");
+    private static final String JIRA_PROJECT_KEY = "API";
+    private static final int JIRA_BATCH_SIZE = 50;
+    private static final int JIRA_CONCURRENCY = 4;
+    private static final int JIRA_MAX_ATTEMPTS = 4;
+    private static final long JIRA_BACKOFF_MILLIS = 500;
+
+    public static void main(String[] args) throws Exception {
+        PromptEngine.main(new JiraStoryPromptBuilder());
     }
 
-    private static String repeat(String str, int count) {
-        StringBuilder sb = new StringBuilder(str.length() * count);
-        for (int i = 0; i < count; i++) {
-            sb.append(str);
-        }
-        return sb.toString();
+    @Override
+    public String name() {
+        return "jira";
     }
 
-    private static String buildPrompt(OpenAPI openAPI, Map<String, Schema> schemaMap,
-                                      String path, String method, Operation op) {
-        StringBuilder prompt = new StringBuilder();
-        prompt.append("Generate description for Jira user story for this OpenAPI endpoint \n\n")
-                .append("Path: ").append(path).append("\n")
-                .append("Method: ").append(method.toUpperCase()).append("\n")
-                .append("Summary: ").append(op.getSummary() != null ? op.getSummary() : "(no summary provided)").append("\n\n");
-
-        List<Parameter> params = new ArrayList<>();
-        PathItem pathItem = openAPI.getPaths().get(path);
+    @Override
+    public String outputDir() {
+        return OUTPUT_DIR;
+    }
 
-        if (pathItem.getParameters() != null) {
-            for (Parameter p : pathItem.getParameters()) {
-                params.add(resolveParameter(openAPI, p));
-            }
-        }
+    @Override
+    public String header() {
+        return "Generate description for Jira user story for this OpenAPI endpoint ";
+    }
 
-        if (op.getParameters() != null) {
-            for (Parameter p : op.getParameters()) {
-                params.add(resolveParameter(openAPI, p));
-            }
+    @Override
+    public void finish(PromptEngine.Run run) throws Exception {
+        if (!EXPORT_TO_JIRA) return;
+        Map<JiraBulkExporter.Story, ApiModel.Endpoint> stories = stories(run);
+        if (!stories.isEmpty()) {
+            exportStories(run, stories);
         }
+    }
 
-        if (!params.isEmpty()) {
-            prompt.append("Parameters:\n");
-            for (Parameter p : params) {
-                Schema<?> schema = p.getSchema();
-                prompt.append("- ").append(p.getName()).append(" (in: ").append(p.getIn())
-                        .append(", required: ").append(p.getRequired())
-                        .append(", type: ").append(schema != null ? schema.getType() : "unknown").append(")\n");
+    // An operation whose story has not been generated yet is reported and left out, so the run exits non-zero
+    // instead of creating an issue from the prompt.
+    static Map<JiraBulkExporter.Story, ApiModel.Endpoint> stories(PromptEngine.Run run) throws IOException {
+        Path dir = run.resolve(STORIES_DIR);
+        Map<JiraBulkExporter.Story, ApiModel.Endpoint> stories = new LinkedHashMap<>();
+        for (Map.Entry<ApiModel.Endpoint, Path> output : run.outputs().entrySet()) {
+            ApiModel.Endpoint ep = output.getKey();
+            Path story = dir.resolve(storyName(output.getValue()));
+            if (!Files.isRegularFile(story) || Files.size(story) == 0) {
+                run.report.record(ep, "export", new IOException("No generated story " + story + " for " + ep.label()));
+                continue;
             }
-        } else {
-            prompt.append("Parameters: none\n");
+            stories.put(toStory(ep, story), ep);
         }
+        return stories;
+    }
 
-        if (op.getRequestBody() != null && op.getRequestBody().getContent() != null) {
-            Content content = op.getRequestBody().getContent();
-            for (Map.Entry<String, MediaType> mediaEntry : content.entrySet()) {
-                String mediaTypeKey = mediaEntry.getKey();
-                MediaType mediaType = mediaEntry.getValue();
-
-                prompt.append("\n-- Media Type: ").append(mediaTypeKey).append(" --\n");
-
-                if (mediaTypeKey.contains("multipart/form-data")) {
-                    prompt.append("jHandle as multipart upload with file and form fields\n");
-                }
-
-                if (mediaType != null && mediaType.getSchema() != null) {
-                    prompt.append("Sample request body:\n");
-                    appendSchemaFields(prompt, mediaType.getSchema(), schemaMap, 1);
-                    if (mediaType.getExample() != null) {
-                        prompt.append(indent(1)).append("Example: ").append(mediaType.getExample().toString()).append("\n");
-                    } else if (mediaType.getExamples() != null) {
-                        mediaType.getExamples().forEach((k, v) -> {
-                            if (v.getValue() != null) {
-                                prompt.append(indent(1)).append("Example - ").append(k).append(": ")
-                                        .append(v.getValue().toString()).append("\n");
-                            }
-                        });
-                    }
-                }
-            }
+    private static String storyName(Path prompt) {
+        String name = prompt.getFileName().toString();
+        if (name.endsWith(PromptEngine.PROMPT_EXTENSION)) {
+            name = name.substring(0, name.length() - PromptEngine.PROMPT_EXTENSION.length());
         }
+        return name + STORY_EXTENSION;
+    }
 
-        ApiResponses responses = op.getResponses();
-        Set<String> presentCode = responses != null ? responses.keySet() : new HashSet<>();
-
-        if (INCLUDE_GLOBAL_RESPONSES && openAPI.getComponents() != null && openAPI.getComponents().getResponses() != null) {
-            for (Map.Entry<String, ApiResponse> globalEntry : openAPI.getComponents().getResponses().entrySet()) {
-                String code = globalEntry.getKey();
-                if (!presentCode.contains(code)) {
-                    if (responses == null) responses = new ApiResponses();
-                    responses.addApiResponse(code, globalEntry.getValue());
-                }
-            }
+    private static JiraBulkExporter.Story toStory(ApiModel.Endpoint ep, Path storyFile) {
+        List<String> labels = new ArrayList<>();
+        labels.add("api");
+        for (String tag : ep.tags) {
+            labels.add(tag.trim().replaceAll("\\s+", "-"));
         }
+        Object epic = ep.extensions.get("x-jira-epic");
+        String group = epic != null ? epic.toString() : labels.size() > 1 ? labels.get(1) : "untagged";
+        String summary = (ep.summary != null ? ep.summary : ep.label()) + " (" + ep.label() + ")";
+        return new JiraBulkExporter.Story(group, summary, storyFile, labels, epic != null ? epic.toString() : null);
+    }
 
-
-        if (responses != null) {
-            for (Map.Entry<String, ApiResponse> responseEntry : responses.entrySet()) {
-                String statuscode = responseEntry.getKey();
-                ApiResponse response = responseEntry.getValue();
-                if (response.get$ref() != null) {
-                    String ref = response.get$ref().replace("#/components/responses", "");
-                    response = openAPI.getComponents().getResponses().get(ref);
-                }
-
-                prompt.append("\nSample :").append(statuscode).append(" responses:\n");
-                Content content = response.getContent();
-                if (content != null) {
-                    for (Map.Entry<String, MediaType> mediaEntry : content.entrySet()) {
-                        String mediaTypeKey = mediaEntry.getKey();
-                        MediaType mediaType = mediaEntry.getValue();
-                        prompt.append(indent(1)).append("Content-Type: ").append(mediaTypeKey).append("\n");
-                        if (mediaType.getSchema() != null) {
-                            appendSchemaFields(prompt, mediaType.getSchema(), schemaMap, 1);
-                            if (mediaType.getSchema().getExample() != null) {
-                                prompt.append(indent(1)).append("Example: ").append(mediaType.getSchema().getExample().toString()).append("\n");
-                            }
-                        }
-                    }
-                } else {
-                    prompt.append(" - No Schema defined \n");
-                }
-            }
+    // stories Jira did not create land in the failure report under their operation, so the run exits non-zero
+    private static void exportStories(PromptEngine.Run run, Map<JiraBulkExporter.Story, ApiModel.Endpoint> stories)
+            throws InterruptedException {
+        JiraBulkExporter exporter = new JiraBulkExporter(JIRA_BASE_URL, JIRA_PROJECT_KEY, JIRA_AUTHORIZATION,
+                JIRA_BATCH_SIZE, JIRA_CONCURRENCY, JIRA_MAX_ATTEMPTS, JIRA_BACKOFF_MILLIS);
+        JiraBulkExporter.Result result = exporter.export(new ArrayList<>(stories.keySet()));
+        System.out.println((result.failures.isEmpty() ? "✅" : "❌") + " Jira export to " + JIRA_BASE_URL + ": "
+                + result.createdKeys.size() + " of " + stories.size() + " stories in " + result.requests
+                + " bulk requests " + result.createdKeys);
+        for (Map.Entry<JiraBulkExporter.Story, String> failure : result.failures.entrySet()) {
+            run.report.record(stories.get(failure.getKey()), "export",
+                    new IOException("Jira did not create \"" + failure.getKey().summary + "\": " + failure.getValue()));
         }
+    }
 
-
+    @Override
+    public void appendInstructions(StringBuilder prompt, ApiModel.Endpoint ep, String artifact) {
         prompt.append("\nInstructions:\n")
                 .append("- Generate User story description for Jira\n")
                 .append("- Include user interaction and goal\n")
@@ -176,151 +114,11 @@ public class JiraStoryPromptBuilder {
                 .append("- Add validation rules for required/optional fields and error handling\n")
                 .append("- Add expected error scenarios and error codes\n")
                 .append("- Add business logic or domain-specific rules if applicable\n");
-//        prompt.append("\nInstructions:\n")
-//                .append("- Generate a detailed Jira user story for this API endpoint\n")
-//                .append("- Include the end-user interaction and business goal\n")
-//                .append("- Add endpoint details: path, HTTP method, and summary\n")
-//                .append("- Document path, query, and header parameters including type, required/optional, patterns, min/max length, and invalid value handling\n")
-//                .append("- Include request examples and sample payloads\n")
-//                .append("- Include response examples and expected status codes\n")
-//                .append("- Describe response body fields for successful (2xx) responses with types, nested objects, and enums\n")
-//                .append("- Document oneOf / anyOf / allOf schema combinations and how they affect response structure\n")
-//                .append("- Include handling for multipart/form-data and different media types\n")
-//                .append("- Resolve and explain any $ref references used in request or response schemas\n")
-//                .append("- Add validation rules for required/optional fields, format checks, and business logic constraints\n")
-//                .append("- Document expected error scenarios, status codes, and corresponding messages\n")
-//                .append("- Include notes on domain-specific rules, dependencies, or workflow considerations\n")
-//                .append("- Suggest test ideas for both positive and negative scenarios\n")
-//                .append("- Highlight any rate limits, authentication, or authorization considerations\n")
-//                .append("- Optionally include links to related endpoints or workflow steps for context\n");
-
-
-
-
-        return prompt.toString();
-
-    }
-
-    private static Parameter resolveParameter(OpenAPI openAPI, Parameter p) {
-        if (p.get$ref() != null) {
-            String ref = p.get$ref();
-            String name = ref.substring(ref.lastIndexOf('/') + 1);
-            return openAPI.getComponents().getParameters().get(name);
-        }
-        return p;
-    }
-
-    private static void appendSchemaFields(StringBuilder prompt, Schema<?> schema, Map<String, Schema> schemaMap, int indent) {
-        if (schema == null) return;
-
-        if (schema.get$ref() != null) {
-            String ref = schema.get$ref().replace("#/components/schemas/", "");
-            Schema<?> refSchema = schemaMap.get(ref);
-            if (refSchema != null) {
-                appendSchemaFields(prompt, refSchema, schemaMap, indent);
-            } else {
-                prompt.append(indent(indent)).append("- unknown schema (unresolved ref: ").append(ref).append(")\n");
+        if (ep.security.isRequired()) {
+            prompt.append("- Add authentication requirements from Security and acceptance criteria for 401 responses\n");
+            if (ep.security.hasScopes()) {
+                prompt.append("- Add authorization rules for the required scopes and acceptance criteria for 403 responses\n");
             }
-            return;
-        }
-
-        if (schema.getAllOf() != null && !schema.getAllOf().isEmpty()) {
-            prompt.append(indent(indent)).append("allOf:\n");
-            for (Schema<?> s : schema.getAllOf()) {
-                appendSchemaFields(prompt, s, schemaMap, indent + 1);
-            }
-            return;
-        }
-
-        if (schema.getOneOf() != null && !schema.getOneOf().isEmpty()) {
-            prompt.append(indent(indent)).append("oneOf:\n");
-            for (Schema<?> s : schema.getOneOf()) {
-                appendSchemaFields(prompt, s, schemaMap, indent + 1);
-            }
-            return;
-        }
-
-        if (schema.getAnyOf() != null && !schema.getAnyOf().isEmpty()) {
-            prompt.append(indent(indent)).append("anyOf:\n");
-            for (Schema<?> s : schema.getAnyOf()) {
-                appendSchemaFields(prompt, s, schemaMap, indent + 1);
-            }
-            return;
-        }
-
-// Handle array
-
-        if ("array" .equals(schema.getType()) || schema instanceof ArraySchema) {
-            Schema<?> items = schema instanceof ArraySchema ? ((ArraySchema) schema).getItems() : schema.getItems();
-            prompt.append(indent(indent)).append("- array\n");
-            if (items != null) {
-                prompt.append(indent(indent + 1)).append("items:\n");
-                appendSchemaFields(prompt, items, schemaMap, indent + 2);
-            } else {
-                prompt.append(indent(indent + 1)).append(" unknown items schema\n");
-            }
-            return;
-        }
-
-// Handle object
-
-        if ("object" .equals(schema.getType()) || schema.getProperties() != null) {
-            Map<String, Schema> props = schema.getProperties();
-            if (props != null && !props.isEmpty()) {
-                for (Map.Entry<String, Schema> entry : props.entrySet()) {
-                    String key = entry.getKey();
-                    Schema<?> prop = entry.getValue();
-                    String type = prop.getType() != null ? prop.getType() : "object";
-                    prompt.append(indent(indent)).append("- ").append(key)
-                            .append(" (type: ").append(type);
-
-                    if (prop.getFormat() != null) prompt.append(", format: ").append(prop.getFormat());
-                    if (prop.getEnum() != null) prompt.append(", enum: ").append(prop.getEnum());
-                    if (prop.getDefault() != null) prompt.append(", default: ").append(prop.getDefault());
-                    if (prop.getPattern() != null) prompt.append(", pattern: ").append(prop.getPattern());
-                    if (prop.getMinLength() != null) prompt.append(", minlength: ").append(prop.getMinLength());
-                    if (prop.getMaxLength() != null) prompt.append(", maxLength: ").append(prop.getMaxLength());
-                    prompt.append("\n");
-                    appendSchemaFields(prompt, prop, schemaMap, indent + 1);
-                }
-
-            } else {
-                prompt.append(indent(indent)).append("-object (no properties)\n");
-
-
-            }
-            return;
-        }
-        String type = schema.getType();
-        if (type != null) {
-            prompt.append(indent(indent)).append("- ").append(type);
-
-            if (schema.getFormat() != null) prompt.append(" (format: ").append(schema.getFormat()).append(")");
-            if (schema.getEnum() != null) prompt.append(" (enum: ").append(schema.getEnum()).append(")");
-            if (schema.getPattern() != null) prompt.append(" (pattern: ").append(schema.getPattern()).append(")");
-            if (schema.getMinLength() != null) prompt.append(" (minlength: ").append(schema.getMinLength()).append(")");
-            if (schema.getMaxLength() != null) prompt.append(" (maxLength: ").append(schema.getMaxLength()).append(")");
-            prompt.append("\n");
-        } else {
-            prompt.append(indent(indent)).append("- unknown Schema");
         }
     }
-
-    private static String indent(int level) {
-        StringBuilder sb = new StringBuilder(level * 2);
-        for (int i = 0; i < level; i++) {
-            sb.append("  ");
-        }
-        return sb.toString();
-    }
-
-    private static void savePromptToFile(String path, String method, String prompt) throws IOException {
-        String safeName = (method + "_" + path.replaceAll("[/{}/]", "_")).replaceAll("_+", "_")
-                .replaceAll("[\\\\:*?\"<>|]", "_") + ".txt";
-        Path output = Paths.get(OUTPUT_DIR, safeName);
-        Files.createDirectories(output.getParent());
-        Files.write(output, prompt.getBytes());
-        System.out.println("✅ Saved: " + output);
-    }
-
 }
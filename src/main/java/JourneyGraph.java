@@ -0,0 +1,314 @@
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+public class JourneyGraph {
+
+    private static final int MAX_GLOBAL_FAN_OUT = 16;
+    private static final Pattern NON_IDENTIFIER = Pattern.compile("[^A-Za-z0-9_]");
+    private static final Map<String, Double> DEFAULT_METHOD_WEIGHTS = new HashMap<>();
+
+    static {
+        DEFAULT_METHOD_WEIGHTS.put("GET", 60.0);
+        DEFAULT_METHOD_WEIGHTS.put("POST", 20.0);
+        DEFAULT_METHOD_WEIGHTS.put("PUT", 10.0);
+        DEFAULT_METHOD_WEIGHTS.put("PATCH", 10.0);
+        DEFAULT_METHOD_WEIGHTS.put("DELETE", 5.0);
+    }
+
+    public static class Node {
+        final int id;
+        final String path;
+        final String method;
+        final ApiModel.Endpoint endpoint;
+        final Set<String> pathParams;
+        final Set<String> responseFields;
+
+        Node(int id, ApiModel.Endpoint endpoint, Set<String> pathParams, Set<String> responseFields) {
+            this.id = id;
+            this.path = endpoint.path;
+            this.method = endpoint.method;
+            this.endpoint = endpoint;
+            this.pathParams = pathParams;
+            this.responseFields = responseFields;
+        }
+
+        public String label() {
+            return method + " " + path;
+        }
+    }
+
+    public static class Edge {
+        final int from;
+        final int to;
+        final String reason;
+
+        Edge(int from, int to, String reason) {
+            this.from = from;
+            this.to = to;
+            this.reason = reason;
+        }
+    }
+
+    public static class Journey {
+        final String name;
+        final List<Node> steps;
+        final List<Edge> links;
+        double weight;
+
+        Journey(String name, List<Node> steps, List<Edge> links) {
+            this.name = name;
+            this.steps = steps;
+            this.links = links;
+        }
+    }
+
+    private final List<Node> nodes = new ArrayList<>();
+    private final List<List<Edge>> outgoing = new ArrayList<>();
+    private final int[] incoming;
+    private final SchemaGraph schemas;
+    private final OutputNames names;
+    private final Map<String, Integer> byPathMethod = new HashMap<>();
+
+    public JourneyGraph(ApiModel model) {
+        this.schemas = model.getSchemas();
+        this.names = model.getOutputNames();
+        Map<String, Integer> byOperationId = new HashMap<>();
+        Map<String, List<Integer>> byPathParam = new HashMap<>();
+        Map<String, List<Integer>> byParentPath = new HashMap<>();
+        TreeMap<String, List<Integer>> byPath = new TreeMap<>();
+
+        for (ApiModel.Endpoint ep : model.getEndpoints()) {
+            Node node = new Node(nodes.size(), ep, pathParams(ep), responseFields(ep));
+            nodes.add(node);
+            outgoing.add(new ArrayList<>());
+            if (ep.operationId != null) byOperationId.put(ep.operationId, node.id);
+            for (String param : node.pathParams) {
+                byPathParam.computeIfAbsent(param.toLowerCase(Locale.ROOT), k -> new ArrayList<>()).add(node.id);
+            }
+            byPath.computeIfAbsent(node.path, k -> new ArrayList<>()).add(node.id);
+            byPathMethod.put(node.path + " " + node.method, node.id);
+            String parent = parentPath(node.path);
+            if (parent != null) byParentPath.computeIfAbsent(parent, k -> new ArrayList<>()).add(node.id);
+        }
+
+        incoming = new int[nodes.size()];
+        Set<Long> seen = new HashSet<>();
+        for (Node from : nodes) {
+            for (ApiModel.Response response : from.endpoint.responses) {
+                if (!response.code.startsWith("2")) continue;
+                for (ApiModel.Link link : response.links) {
+                    Integer to = linkTarget(link, byOperationId);
+                    if (to != null) addEdge(seen, from.id, to, "link " + link.name);
+                }
+            }
+
+            for (String field : from.responseFields) {
+                if ("id".equalsIgnoreCase(field)) {
+                    // a bare "id" only identifies resources below the producing collection
+                    String prefix = collectionPath(from.path) + "/";
+                    for (List<Integer> below : byPath.subMap(prefix, prefix.substring(0, prefix.length() - 1) + "0").values()) {
+                        for (int to : below) {
+                            if (containsIgnoreCase(nodes.get(to).pathParams, field)) {
+                                addEdge(seen, from.id, to, "response." + field + " -> {" + field + "}");
+                            }
+                        }
+                    }
+                    continue;
+                }
+                List<Integer> targets = byPathParam.get(field.toLowerCase(Locale.ROOT));
+                if (targets == null) continue;
+                // prefer consumers under the same root resource; a field shared by many resources is too generic to link globally
+                String root = rootSegment(from.path);
+                boolean local = false;
+                for (int to : targets) {
+                    if (rootSegment(nodes.get(to).path).equals(root)) {
+                        addEdge(seen, from.id, to, "response." + field + " -> {" + field + "}");
+                        local = true;
+                    }
+                }
+                if (!local && targets.size() <= MAX_GLOBAL_FAN_OUT) {
+                    for (int to : targets) {
+                        addEdge(seen, from.id, to, "response." + field + " -> {" + field + "}");
+                    }
+                }
+            }
+
+            if ("POST".equals(from.method)) {
+                List<Integer> children = byParentPath.get(from.path);
+                if (children != null) {
+                    for (int to : children) {
+                        addEdge(seen, from.id, to, "shared resource " + from.path);
+                    }
+                }
+            }
+        }
+    }
+
+    private void addEdge(Set<Long> seen, int from, int to, String reason) {
+        if (from == to || !seen.add(((long) from << 32) | to)) return;
+        outgoing.get(from).add(new Edge(from, to, reason));
+        incoming[to]++;
+    }
+
+    public List<Node> getNodes() {
+        return nodes;
+    }
+
+    public int edgeCount() {
+        int count = 0;
+        for (List<Edge> edges : outgoing) count += edges.size();
+        return count;
+    }
+
+    // One journey per producer: the producer followed by its dependents, reads before writes before deletes.
+    public List<Journey> journeys(int maxSteps, Map<String, Double> methodWeights) {
+        Map<String, Double> weights = methodWeights != null ? methodWeights : DEFAULT_METHOD_WEIGHTS;
+        List<Journey> journeys = new ArrayList<>();
+        for (Node root : nodes) {
+            if (outgoing.get(root.id).isEmpty()) continue;
+            if (incoming[root.id] > 0 && !"POST".equals(root.method)) continue;
+
+            List<Node> steps = new ArrayList<>();
+            List<Edge> links = new ArrayList<>();
+            Set<Integer> visited = new HashSet<>();
+            Deque<Integer> queue = new ArrayDeque<>();
+            queue.add(root.id);
+            visited.add(root.id);
+            steps.add(root);
+            while (!queue.isEmpty() && steps.size() < maxSteps) {
+                List<Edge> next = new ArrayList<>(outgoing.get(queue.poll()));
+                next.sort(Comparator.comparingInt((Edge e) -> methodRank(nodes.get(e.to).method)).thenComparing(e -> nodes.get(e.to).path));
+                for (Edge edge : next) {
+                    if (steps.size() >= maxSteps || !visited.add(edge.to)) continue;
+                    steps.add(nodes.get(edge.to));
+                    links.add(edge);
+                    if (!"DELETE".equals(nodes.get(edge.to).method)) queue.add(edge.to);
+                }
+            }
+            // deletes always close the journey
+            steps.sort(Comparator.comparingInt(n -> n == root ? -1 : "DELETE".equals(n.method) ? 1 : 0));
+
+            Journey journey = new Journey(journeyName(root), steps, links);
+            double sum = 0;
+            for (Node step : steps) {
+                sum += weights.getOrDefault(step.method, 1.0);
+            }
+            journey.weight = sum / steps.size();
+            journeys.add(journey);
+        }
+
+        percentages(journeys);
+        return journeys;
+    }
+
+    // Gatling's randomSwitch rejects weights summing above 100, which rounding each share on its own can do
+    // (6 x 16.67): shares are floored to hundredths and the leftover hundredths go to the largest remainders.
+    static void percentages(List<Journey> journeys) {
+        double total = 0;
+        for (Journey journey : journeys) total += journey.weight;
+        if (total <= 0) {
+            for (Journey journey : journeys) journey.weight = 0;
+            return;
+        }
+        long[] units = new long[journeys.size()];
+        double[] remainders = new double[journeys.size()];
+        long left = 10000;
+        for (int i = 0; i < units.length; i++) {
+            double exact = journeys.get(i).weight * 10000.0 / total;
+            units[i] = (long) Math.floor(exact);
+            remainders[i] = exact - units[i];
+            left -= units[i];
+        }
+        Integer[] order = new Integer[units.length];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, (x, y) -> Double.compare(remainders[y], remainders[x]));
+        for (int i = 0; i < order.length && left > 0; i++, left--) units[order[i]]++;
+        // the shares now add up to 10000 hundredths, but Gatling adds the weights as doubles
+        double sum = 0;
+        for (long unit : units) sum += unit / 100.0;
+        for (int i = units.length - 1; sum > 100 && i >= 0; i--) {
+            if (units[i] == 0) continue;
+            units[i]--;
+            sum = 0;
+            for (long unit : units) sum += unit / 100.0;
+        }
+        for (int i = 0; i < units.length; i++) journeys.get(i).weight = units[i] / 100.0;
+    }
+
+    private static int methodRank(String method) {
+        switch (method) {
+            case "GET": return 0;
+            case "PUT": case "PATCH": return 1;
+            case "DELETE": return 3;
+            default: return 2;
+        }
+    }
+
+    private Integer linkTarget(ApiModel.Link link, Map<String, Integer> byOperationId) {
+        if (link.operationId != null) return byOperationId.get(link.operationId);
+        String ref = link.operationRef;
+        if (ref == null || !ref.startsWith("#/paths/")) return null;
+        String[] parts = ref.substring("#/paths/".length()).split("/");
+        if (parts.length != 2) return null;
+        String path = parts[0].replace("~1", "/").replace("~0", "~");
+        return byPathMethod.get(path + " " + parts[1].toUpperCase(Locale.ROOT));
+    }
+
+    private static boolean containsIgnoreCase(Set<String> values, String value) {
+        for (String v : values) {
+            if (v.equalsIgnoreCase(value)) return true;
+        }
+        return false;
+    }
+
+    private static Set<String> pathParams(ApiModel.Endpoint ep) {
+        Set<String> params = new LinkedHashSet<>();
+        for (ApiModel.Param p : ep.params) {
+            if ("path".equals(p.in)) params.add(p.name);
+        }
+        String path = ep.path;
+        int start = path.indexOf('{');
+        while (start >= 0) {
+            int end = path.indexOf('}', start);
+            if (end < 0) break;
+            params.add(path.substring(start + 1, end));
+            start = path.indexOf('{', end);
+        }
+        return params;
+    }
+
+    private Set<String> responseFields(ApiModel.Endpoint ep) {
+        Set<String> fields = new LinkedHashSet<>();
+        for (ApiModel.Response response : ep.responses) {
+            if (!response.code.startsWith("2") || response.content == null) continue;
+            for (ApiModel.Body body : response.content) {
+                SchemaGraph.Node schema = schemas.effective(body.schema);
+                if (schema != null) fields.addAll(Arrays.asList(schema.propertyNames));
+            }
+        }
+        return fields;
+    }
+
+    private static String parentPath(String path) {
+        int slash = path.lastIndexOf('/');
+        if (slash <= 0 || !path.substring(slash + 1).startsWith("{")) return null;
+        return path.substring(0, slash);
+    }
+
+    private static String rootSegment(String path) {
+        int end = path.indexOf('/', 1);
+        return end > 0 ? path.substring(0, end) : path;
+    }
+
+    private static String collectionPath(String path) {
+        String parent = parentPath(path);
+        return parent != null ? parent : path;
+    }
+
+    // doubles as a Scala identifier in the journey simulation
+    private String journeyName(Node root) {
+        String base = NON_IDENTIFIER.matcher(names.name(root.endpoint)).replaceAll("_");
+        return (Character.isDigit(base.charAt(0)) ? "_" : "") + base + "_journey";
+    }
+}
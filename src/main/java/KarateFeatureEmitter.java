@@ -0,0 +1,515 @@
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+public class KarateFeatureEmitter {
+
+    private static final String DEFAULT_BASE_URL = "http://localhost:8080";
+
+    private enum Credentials { VALID, MISSING, INSUFFICIENT }
+
+    private final ApiModel model;
+    private final SchemaGraph schemas;
+    private final SamplePayloadSynthesizer synthesizer;
+    private final boolean feederAware;
+    private final int matrixStrength;
+
+    public KarateFeatureEmitter(ApiModel model, SamplePayloadSynthesizer synthesizer) {
+        this(model, synthesizer, false, 0);
+    }
+
+    // feederAware features read parameter values and bodies from a Karate-Gatling feeder record when one is present
+    public KarateFeatureEmitter(ApiModel model, SamplePayloadSynthesizer synthesizer, boolean feederAware) {
+        this(model, synthesizer, feederAware, 0);
+    }
+
+    // a matrixStrength above 0 adds a Scenario Outline over the ParameterMatrix of operations with varying parameters
+    public KarateFeatureEmitter(ApiModel model, SamplePayloadSynthesizer synthesizer, boolean feederAware, int matrixStrength) {
+        this.model = model;
+        this.schemas = model.getSchemas();
+        this.synthesizer = synthesizer;
+        this.feederAware = feederAware;
+        this.matrixStrength = matrixStrength;
+    }
+
+    public String emit(ApiModel.Endpoint ep) {
+        String path = ep.path;
+        String method = ep.method;
+        StringBuilder out = new StringBuilder();
+        out.append("Feature: ").append(method.toUpperCase(Locale.ROOT)).append(' ').append(path);
+        if (ep.summary != null) out.append(" - ").append(ep.summary);
+        out.append("\n\n");
+
+        out.append("  Background:\n")
+                .append("    * url karate.properties['baseUrl'] || '").append(baseUrl()).append("'\n");
+        if (feederAware) {
+            out.append("    * def feeder = karate.get('__gatling') || {}\n");
+        }
+
+        List<ApiModel.Param> params = ep.params;
+        for (ApiModel.Param p : params) {
+            if ("path".equals(p.in)) {
+                out.append("    * def ").append(identifier(p.name)).append(" = ").append(value(p)).append('\n');
+            }
+        }
+        List<ApiModel.Auth> auth = ep.security.primary();
+        appendAuthSetup(out, auth);
+        out.append('\n');
+
+        List<ApiModel.Body> bodies = ep.bodies;
+        boolean secured = ep.security.isRequired();
+        for (ApiModel.Response response : ep.responses) {
+            String status = response.code;
+            boolean success = status.startsWith("2");
+            // a default response is an error the happy-path body cannot trigger, so it sends a malformed body too
+            boolean invalidBody = "400".equals(status) || "422".equals(status) || "default".equals(status);
+            Credentials credentials = !secured ? Credentials.VALID
+                    : "401".equals(status) ? Credentials.MISSING : "403".equals(status) ? Credentials.INSUFFICIENT : Credentials.VALID;
+
+            if ("default".equals(status) && invalidSample(status, bodies.isEmpty() ? null : bodies.get(0)) == null) {
+                // nothing this operation can send is known to fail
+                continue;
+            }
+            if (bodies.isEmpty()) {
+                appendScenario(out, path, method, status, response, params, null, invalidBody, null, auth, credentials);
+            } else if (success) {
+                for (ApiModel.Body body : bodies) {
+                    appendScenario(out, path, method, status, response, params, body, false, null, auth, credentials);
+                }
+            } else {
+                SamplePayloadSynthesizer.NamedSample invalid = invalidBody ? invalidSample(status, bodies.get(0)) : null;
+                // a 422 or default that can only send the body of the 400 scenario adds nothing
+                if (("422".equals(status) || "default".equals(status)) && ep.response("400") != null
+                        && Objects.equals(name(invalid), name(invalidSample("400", bodies.get(0))))) {
+                    continue;
+                }
+                appendScenario(out, path, method, status, response, params, bodies.get(0), invalidBody, invalid, auth, credentials);
+            }
+        }
+
+        // secured operations always get auth negatives, even when the spec does not declare 401/403
+        ApiModel.Body body = bodies.isEmpty() ? null : bodies.get(0);
+        if (secured && ep.response("401") == null) {
+            appendScenario(out, path, method, "401", null, params, body, false, null, auth, Credentials.MISSING);
+        }
+        if (secured && ep.security.hasScopes() && ep.response("403") == null) {
+            appendScenario(out, path, method, "403", null, params, body, false, null, auth, Credentials.INSUFFICIENT);
+        }
+
+        ParameterMatrix matrix = matrixStrength > 0 && !feederAware
+                ? ParameterMatrix.of(ep, schemas, synthesizer, matrixStrength) : null;
+        if (matrix != null) appendMatrixOutline(out, ep, matrix, auth);
+        return out.toString();
+    }
+
+    // credentials come from karate.properties so CI can inject real ones; only the first alternative is wired up
+    private void appendAuthSetup(StringBuilder out, List<ApiModel.Auth> auth) {
+        if (auth.isEmpty()) return;
+        Map<String, String> headers = new LinkedHashMap<>();
+        Map<String, String> params = new LinkedHashMap<>();
+        Map<String, String> cookies = new LinkedHashMap<>();
+        for (ApiModel.Auth a : auth) {
+            String variable = identifier(a.name);
+            out.append("    # ").append(a.describe()).append('\n');
+            if (a.isBearer()) {
+                out.append("    * def ").append(variable).append(" = karate.properties['").append(a.name)
+                        .append("'] || 'test-token'\n");
+                headers.put("Authorization", "'Bearer ' + " + variable);
+            } else if ("http".equals(a.type) && "basic".equals(a.scheme)) {
+                out.append("    * def ").append(variable).append(" = karate.properties['").append(a.name)
+                        .append("'] || 'dXNlcjpwYXNzd29yZA=='\n");
+                headers.put("Authorization", "'Basic ' + " + variable);
+            } else if ("apiKey".equals(a.type) && a.parameter != null) {
+                out.append("    * def ").append(variable).append(" = karate.properties['").append(a.name)
+                        .append("'] || 'test-api-key'\n");
+                Map<String, String> target = "query".equals(a.in) ? params : "cookie".equals(a.in) ? cookies : headers;
+                target.put(a.parameter, variable);
+            } else {
+                out.append("    # TODO: configure ").append(a.type != null ? a.type : "credentials").append(" for ")
+                        .append(a.name).append('\n');
+            }
+        }
+        appendAuthMap(out, "authHeaders", headers);
+        appendAuthMap(out, "authParams", params);
+        appendAuthMap(out, "authCookies", cookies);
+    }
+
+    private static void appendAuthMap(StringBuilder out, String name, Map<String, String> entries) {
+        if (entries.isEmpty()) return;
+        out.append("    * def ").append(name).append(" = ({ ");
+        int i = 0;
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            if (i++ > 0) out.append(", ");
+            out.append('\'').append(entry.getKey()).append("': ").append(entry.getValue());
+        }
+        out.append(" })\n");
+    }
+
+    private static void appendCredentials(StringBuilder out, List<ApiModel.Auth> auth, Credentials credentials) {
+        if (auth.isEmpty()) return;
+        if (credentials == Credentials.MISSING) {
+            out.append("    # no credentials sent\n");
+            return;
+        }
+        boolean headers = false;
+        boolean params = false;
+        boolean cookies = false;
+        boolean bearer = false;
+        List<String> scopes = new ArrayList<>();
+        for (ApiModel.Auth a : auth) {
+            boolean apiKey = "apiKey".equals(a.type) && a.parameter != null;
+            headers |= a.isBearer() || "basic".equals(a.scheme) || apiKey && !"query".equals(a.in) && !"cookie".equals(a.in);
+            params |= apiKey && "query".equals(a.in);
+            cookies |= apiKey && "cookie".equals(a.in);
+            bearer |= a.isBearer();
+            scopes.addAll(a.scopes);
+        }
+        if (headers) out.append("    And headers authHeaders\n");
+        if (params) out.append("    And params authParams\n");
+        if (cookies) out.append("    And cookies authCookies\n");
+        if (credentials == Credentials.INSUFFICIENT) {
+            out.append("    # credentials lacking the required scopes").append(scopes.isEmpty() ? "" : ": " + String.join(", ", scopes)).append('\n');
+            if (bearer) {
+                out.append("    And header Authorization = 'Bearer ' + (karate.properties['limitedToken'] || 'limited-token')\n");
+            }
+        }
+    }
+
+    public Path write(String outputDir, ApiModel.Endpoint ep, String feature) throws IOException {
+        Path output = Paths.get(outputDir, model.getOutputNames().name(ep) + ".feature");
+        return PromptOutput.write(output, feature);
+    }
+
+    private void appendScenario(StringBuilder out, String path, String method, String status, ApiModel.Response response,
+                                List<ApiModel.Param> params, ApiModel.Body body, boolean invalidBody,
+                                SamplePayloadSynthesizer.NamedSample invalid, List<ApiModel.Auth> auth, Credentials credentials) {
+        String mediaTypeKey = body != null ? body.mediaType : null;
+        out.append("  ").append(status.startsWith("2") ? "@happy" : "@negative").append('\n');
+        out.append("  Scenario: ").append(method.toUpperCase(Locale.ROOT)).append(' ').append(path).append(" responds ").append(status);
+        if (mediaTypeKey != null) out.append(" (").append(mediaTypeKey).append(')');
+        if (invalidBody) out.append(" for invalid body");
+        if (!auth.isEmpty() && credentials == Credentials.MISSING) out.append(" without credentials");
+        if (!auth.isEmpty() && credentials == Credentials.INSUFFICIENT) out.append(" with insufficient scope");
+        out.append('\n');
+
+        out.append("    Given path ").append(pathSegments(path)).append('\n');
+        for (ApiModel.Param p : params) {
+            if ("query".equals(p.in)) {
+                out.append("    And param ").append(p.name).append(" = ").append(value(p)).append('\n');
+            } else if ("header".equals(p.in)) {
+                out.append("    And header ").append(p.name).append(" = ").append(value(p)).append('\n');
+            } else if ("cookie".equals(p.in)) {
+                out.append("    And cookie ").append(p.name).append(" = ").append(value(p)).append('\n');
+            }
+        }
+        appendCredentials(out, auth, credentials);
+
+        if (body != null && body.schema != SchemaGraph.NONE) {
+            appendBody(out, mediaTypeKey, body.schema, invalidBody, invalid);
+        }
+
+        out.append("    When method ").append(method.toLowerCase(Locale.ROOT)).append('\n');
+        if ("default".equals(status)) {
+            out.append("    Then assert responseStatus >= 400\n");
+        } else if (status.matches("[1-5]XX")) {
+            out.append("    Then assert responseStatus >= ").append(status.charAt(0)).append("00 && responseStatus < ")
+                    .append((char) (status.charAt(0) + 1)).append("00\n");
+        } else {
+            out.append("    Then status ").append(status).append('\n');
+        }
+
+        if (response != null && response.content != null) {
+            for (ApiModel.Body content : response.content) {
+                if (content.schema == SchemaGraph.NONE) continue;
+                if (content.mediaType.contains("json")) {
+                    out.append("    And match response == ").append(matcher(content.schema, true, new HashSet<>())).append('\n');
+                    break;
+                }
+                if (content.mediaType.contains("xml")) {
+                    out.append("    And match header Content-Type contains 'xml'\n");
+                    break;
+                }
+            }
+        }
+        out.append("    # TODO: business-logic steps for ").append(status).append('\n');
+        out.append('\n');
+    }
+
+    // one example row per matrix row; the other parameters keep their usual sample values
+    private void appendMatrixOutline(StringBuilder out, ApiModel.Endpoint ep, ParameterMatrix matrix, List<ApiModel.Auth> auth) {
+        List<ApiModel.Param> factors = matrix.factors();
+        Map<ApiModel.Param, String> columns = new IdentityHashMap<>();
+        Set<String> taken = new HashSet<>();
+        for (ApiModel.Param p : factors) {
+            String column = identifier(p.name);
+            for (int i = 2; !taken.add(column); i++) column = identifier(p.name) + "_" + i;
+            columns.put(p, column);
+        }
+
+        ApiModel.Response success = null;
+        for (ApiModel.Response response : ep.responses) {
+            if (response.code.startsWith("2")) {
+                success = response;
+                break;
+            }
+        }
+
+        out.append("  @matrix\n");
+        out.append("  Scenario Outline: ").append(ep.method.toUpperCase(Locale.ROOT)).append(' ').append(ep.path)
+                .append(" parameter matrix (").append(matrix.coverage()).append(")\n");
+        Map<String, String> params = new LinkedHashMap<>();
+        Map<String, String> headers = new LinkedHashMap<>();
+        Map<String, String> cookies = new LinkedHashMap<>();
+        for (ApiModel.Param p : ep.params) {
+            String column = columns.get(p);
+            String value = column != null ? "<" + column + ">" : value(p);
+            if ("path".equals(p.in)) {
+                if (column != null) out.append("    * def ").append(identifier(p.name)).append(" = ").append(value).append('\n');
+            } else if ("query".equals(p.in)) {
+                params.put(p.name, value);
+            } else if ("header".equals(p.in)) {
+                headers.put(p.name, value);
+            } else if ("cookie".equals(p.in)) {
+                cookies.put(p.name, value);
+            }
+        }
+        out.append("    Given path ").append(pathSegments(ep.path)).append('\n');
+        // Karate leaves out entries whose value is null, which is how a row omits a parameter
+        appendParamMap(out, "params", params);
+        appendParamMap(out, "headers", headers);
+        appendParamMap(out, "cookies", cookies);
+        appendCredentials(out, auth, Credentials.VALID);
+        ApiModel.Body body = ep.bodies.isEmpty() ? null : ep.bodies.get(0);
+        if (body != null && body.schema != SchemaGraph.NONE) {
+            appendBody(out, body.mediaType, body.schema, false, null);
+        }
+        out.append("    When method ").append(ep.method.toLowerCase(Locale.ROOT)).append('\n');
+        if (success != null && success.code.matches("2\\d\\d")) {
+            out.append("    Then status ").append(success.code).append('\n');
+        } else {
+            out.append("    Then assert responseStatus < 400\n");
+        }
+        out.append("    # TODO: assertions that depend on the parameter values\n");
+        out.append('\n');
+
+        List<String[]> table = new ArrayList<>();
+        String[] header = new String[factors.size()];
+        for (int f = 0; f < header.length; f++) header[f] = columns.get(factors.get(f));
+        table.add(header);
+        for (int r = 0; r < matrix.size(); r++) {
+            String[] row = new String[factors.size()];
+            for (int f = 0; f < row.length; f++) {
+                Object value = matrix.value(r, f);
+                row[f] = value == ParameterMatrix.OMITTED ? "null" : literal(value).replace("|", "\\|");
+            }
+            table.add(row);
+        }
+        int[] widths = new int[factors.size()];
+        for (String[] row : table) {
+            for (int f = 0; f < row.length; f++) widths[f] = Math.max(widths[f], row[f].length());
+        }
+        out.append("    Examples:\n");
+        for (String[] row : table) {
+            out.append("      |");
+            for (int f = 0; f < row.length; f++) {
+                out.append(' ').append(row[f]);
+                for (int pad = row[f].length(); pad < widths[f]; pad++) out.append(' ');
+                out.append(" |");
+            }
+            out.append('\n');
+        }
+        out.append('\n');
+    }
+
+    private static void appendParamMap(StringBuilder out, String keyword, Map<String, String> entries) {
+        if (entries.isEmpty()) return;
+        out.append("    And ").append(keyword).append(" ({ ");
+        int i = 0;
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            if (i++ > 0) out.append(", ");
+            out.append('\'').append(entry.getKey()).append("': ").append(entry.getValue());
+        }
+        out.append(" })\n");
+    }
+
+    // 400 sends a malformed body (a missing required field first), 422 a well-formed one that breaks a value constraint;
+    // either falls back to the other kind when the schema has none of its own
+    private SamplePayloadSynthesizer.NamedSample invalidSample(String status, ApiModel.Body body) {
+        if (body == null || body.schema == SchemaGraph.NONE) return null;
+        SamplePayloadSynthesizer.NamedSample malformed = null;
+        SamplePayloadSynthesizer.NamedSample violation = null;
+        for (SamplePayloadSynthesizer.NamedSample candidate : synthesizer.invalidSamples(body.schema, body.mediaType)) {
+            if (!candidate.malformed) {
+                if (violation == null) violation = candidate;
+            } else if (malformed == null || candidate.name.startsWith("missing required") && !malformed.name.startsWith("missing required")) {
+                malformed = candidate;
+            }
+        }
+        if ("422".equals(status)) return violation != null ? violation : malformed;
+        return malformed != null ? malformed : violation;
+    }
+
+    private static String name(SamplePayloadSynthesizer.NamedSample sample) {
+        return sample != null ? sample.name : null;
+    }
+
+    private void appendBody(StringBuilder out, String mediaTypeKey, int id, boolean invalidBody,
+                            SamplePayloadSynthesizer.NamedSample invalid) {
+        Object sample = synthesizer.sample(id);
+        if (invalidBody && invalid != null) {
+            out.append("    # ").append(invalid.name).append('\n');
+            sample = invalid.value;
+        }
+
+        if (mediaTypeKey.contains("multipart/form-data") || mediaTypeKey.contains("x-www-form-urlencoded")) {
+            boolean multipart = mediaTypeKey.contains("multipart");
+            SchemaGraph.Node resolved = schemas.effective(id);
+            Map<?, ?> fields = sample instanceof Map ? (Map<?, ?>) sample : Collections.emptyMap();
+            for (Map.Entry<?, ?> field : fields.entrySet()) {
+                String name = String.valueOf(field.getKey());
+                SchemaGraph.Node prop = resolved != null ? schemas.effective(resolved.property(name)) : null;
+                boolean binary = prop != null && ("binary".equals(prop.format) || "byte".equals(prop.format));
+                if (multipart && binary) {
+                    out.append("    And multipart file ").append(name).append(" = { read: 'classpath:sample.bin', filename: 'sample.bin', contentType: 'application/octet-stream' }\n");
+                } else if (multipart) {
+                    out.append("    And multipart field ").append(name).append(" = ").append(literal(field.getValue())).append('\n');
+                } else {
+                    out.append("    And form field ").append(name).append(" = ").append(literal(field.getValue())).append('\n');
+                }
+            }
+            return;
+        }
+
+        if (mediaTypeKey.contains("xml")) {
+            out.append("    And header Content-Type = '").append(mediaTypeKey).append("'\n");
+            out.append("    And request ").append(SamplePayloadSynthesizer.toXml(sample, synthesizer.rootName(id))).append('\n');
+        } else {
+            out.append("    And request ").append(feederAware && !invalidBody ? "feeder.body || " : "")
+                    .append(SamplePayloadSynthesizer.toJson(sample)).append('\n');
+        }
+    }
+
+    private String matcher(int id, boolean required, Set<Integer> visiting) {
+        String optional = required && !schemas.constraints(id).nullable ? "#" : "##";
+        SchemaGraph.Node schema = schemas.node(id);
+        if (schema == null) return "'" + optional + "present'";
+
+        if (schema.isRef()) {
+            if (schema.target == SchemaGraph.NONE || !visiting.add(schema.target)) return "'" + optional + "object'";
+            try {
+                return matcher(schema.target, required, visiting);
+            } finally {
+                visiting.remove(schema.target);
+            }
+        }
+
+        if (schema.allOf.length > 0) {
+            schema = schemas.effective(id);
+        }
+
+        if (schema.oneOf.length > 0 || schema.anyOf.length > 0) {
+            return "'" + optional + "object'";
+        }
+
+        if (schema.array) {
+            SchemaGraph.Node items = schemas.node(schemas.resolve(schema.items));
+            String item = items != null && items.type != null && !"object".equals(items.type) && !"array".equals(items.type)
+                    ? "#" + marker(items.type) : "#object";
+            return "'" + optional + "[] " + item + "'";
+        }
+
+        if (schema.hasProperties()) {
+            StringBuilder sb = new StringBuilder("{ ");
+            for (int i = 0; i < schema.properties.length; i++) {
+                if (i > 0) sb.append(", ");
+                key(sb, schema.propertyNames[i]);
+                sb.append(": ")
+                        .append(matcher(schema.properties[i], schema.required.contains(schema.propertyNames[i]), visiting));
+            }
+            sb.append(" }");
+            return sb.toString();
+        }
+
+        if (schema.enumValues != null && !schema.enumValues.isEmpty() && "string".equals(schema.type)) {
+            StringBuilder sb = new StringBuilder("'" + optional + "regex (");
+            for (int i = 0; i < schema.enumValues.size(); i++) {
+                if (i > 0) sb.append('|');
+                sb.append(CanonicalJson.text(schema.enumValues.get(i)).replaceAll("[\\\\.^$|?*+()\\[\\]{}']", "\\\\$0"));
+            }
+            return sb.append(")'").toString();
+        }
+
+        return "'" + optional + marker(schema.type) + "'";
+    }
+
+    // a key that is not a plain identifier, e.g. x-request-id, a.b or 1st, is quoted as a JSON string
+    private static void key(StringBuilder sb, String name) {
+        if (name.matches("[A-Za-z_$][A-Za-z0-9_$]*")) {
+            sb.append(name);
+        } else {
+            CanonicalJson.appendString(sb, name);
+        }
+    }
+
+    private static String marker(String type) {
+        if (type == null) return "present";
+        switch (type) {
+            case "integer":
+            case "number":
+                return "number";
+            case "boolean":
+                return "boolean";
+            case "object":
+                return "object";
+            case "array":
+                return "array";
+            default:
+                return "string";
+        }
+    }
+
+    private String value(ApiModel.Param p) {
+        String literal = literal(sampleOf(p));
+        return feederAware ? "feeder['" + p.name + "'] || " + literal : literal;
+    }
+
+    Object sampleOf(ApiModel.Param p) {
+        return ParameterMatrix.sample(p, schemas, synthesizer);
+    }
+
+    private static String literal(Object value) {
+        if (value instanceof Map || value instanceof Collection) return SamplePayloadSynthesizer.toJson(value);
+        if (value instanceof Number || value instanceof Boolean
+                || value instanceof JsonNode && !((JsonNode) value).isTextual()) {
+            return CanonicalJson.render(value);
+        }
+        return "'" + CanonicalJson.text(value).replace("\\", "\\\\").replace("'", "\\'") + "'";
+    }
+
+    private static String pathSegments(String path) {
+        StringBuilder sb = new StringBuilder();
+        for (String segment : path.split("/")) {
+            if (segment.isEmpty()) continue;
+            if (sb.length() > 0) sb.append(", ");
+            if (segment.startsWith("{") && segment.endsWith("}")) {
+                sb.append(identifier(segment.substring(1, segment.length() - 1)));
+            } else {
+                sb.append('\'').append(segment).append('\'');
+            }
+        }
+        return sb.length() > 0 ? sb.toString() : "''";
+    }
+
+    private static String identifier(String name) {
+        String id = name.replaceAll("[^A-Za-z0-9_]", "_");
+        return id.isEmpty() || Character.isDigit(id.charAt(0)) ? "_" + id : id;
+    }
+
+    private String baseUrl() {
+        String url = model.serverUrl;
+        return url != null && url.startsWith("http") ? url : DEFAULT_BASE_URL;
+    }
+}
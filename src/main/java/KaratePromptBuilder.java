@@ -1,169 +1,99 @@
-import io.swagger.v3.oas.models.*;
-import io.swagger.v3.oas.models.media.*;
-import io.swagger.v3.oas.models.parameters.*;
-import io.swagger.v3.oas.models.responses.*;
-import io.swagger.v3.oas.models.security.SecurityRequirement;
-import io.swagger.v3.parser.OpenAPIV3Parser;
-import io.swagger.v3.parser.core.models.SwaggerParseResult;
 
-import java.io.*;
-import java.nio.file.*;
-import java.nio.file.Paths;
+import java.nio.file.Path;
 
-import java.util.*;
-
-public class KaratePromptBuilder {
+public class KaratePromptBuilder implements PromptTarget {
 
     private static final String OUTPUT_DIR = "generated-prompts1";
-    private static final String inputYamlPath = "src/main/resources/openapi.yaml";
-    private static final boolean INCLUDE_GLOBAL_RESPONSES = true;
-
-    public static void main(String[] args) throws IOException {
-
-        SwaggerParseResult parseResult = new OpenAPIV3Parser().readLocation(inputYamlPath, null, null);
-        OpenAPI openAPI = parseResult.getOpenAPI();
-
-        if (openAPI == null || openAPI.getPaths() == null) {
-            System.err.println("❌ Failed to parse OpenAPI YAML: " + parseResult.getMessages());
-            return;
-        }
-
-        Map<String, Schema> schemaMap = Optional.ofNullable(openAPI.getComponents()).map(Components::getSchemas).orElse(Collections.emptyMap());
-
-        for (Map.Entry<String, PathItem> entry : openAPI.getPaths().entrySet()) {
-            String path = entry.getKey();
-            PathItem pathItem = entry.getValue();
-
-            for (Map.Entry<PathItem.HttpMethod, Operation> opEntry : pathItem.readOperationsMap().entrySet()) {
-                PathItem.HttpMethod method = opEntry.getKey();
-                Operation op = opEntry.getValue();
-
-                try {
-                    String prompt = buildPrompt(openAPI, schemaMap, path, method.name(), op);
-                    savePromptToFile(path, method.name(), prompt);
-                } catch (Exception e) {
-                    System.err.println("⚠ Error building prompt for " + method + " " + path + ": " + e.getMessage());
-                }
-            }
-        }
+    private static final String FEATURE_OUTPUT_DIR = "generated-features";
+    private static final boolean EMIT_FEATURE_SKELETON = true;
+    private static final SchemaVariantEngine.Strategy VARIANT_STRATEGY = SchemaVariantEngine.Strategy.EXHAUSTIVE;
+    private static final int VARIANT_LIMIT = 32;
+    private static final long VARIANT_SEED = 42L;
+    private static final int SPLIT_VARIANTS_AT = 8;
+    private static final int MATRIX_STRENGTH = 2;
+
+    private KarateFeatureEmitter emitter;
+
+    public static void main(String[] args) throws Exception {
+        PromptEngine.main(new KaratePromptBuilder());
     }
 
-    private static String repeat(String str, int count) {
-        StringBuilder sb = new StringBuilder(str.length() * count);
-        for (int i = 0; i < count; i++) {
-            sb.append(str);
-        }
-        return sb.toString();
+    @Override
+    public String name() {
+        return "karate";
     }
 
-    private static String buildPrompt(OpenAPI openAPI, Map<String, Schema> schemaMap,
-                                      String path, String method, Operation op) {
-        StringBuilder prompt = new StringBuilder();
-        prompt.append("Generate all possible Karate test scenario for this OpenAPI endpoint \n\n")
-                .append("Path: ").append(path).append("\n")
-                .append("Method: ").append(method.toUpperCase()).append("\n")
-                .append("Summary: ").append(op.getSummary() != null ? op.getSummary() : "(no summary provided)").append("\n\n");
-
-        List<Parameter> params = new ArrayList<>();
-        PathItem pathItem = openAPI.getPaths().get(path);
-
-        if (pathItem.getParameters() != null) {
-            for (Parameter p : pathItem.getParameters()) {
-                params.add(resolveParameter(openAPI, p));
-            }
-        }
-
-        if (op.getParameters() != null) {
-            for (Parameter p : op.getParameters()) {
-                params.add(resolveParameter(openAPI, p));
-            }
-        }
-
-        if (!params.isEmpty()) {
-            prompt.append("Parameters:\n");
-            for (Parameter p : params) {
-                Schema<?> schema = p.getSchema();
-                prompt.append("- ").append(p.getName()).append(" (in: ").append(p.getIn())
-                        .append(", required: ").append(p.getRequired())
-                        .append(", type: ").append(schema != null ? schema.getType() : "unknown").append(")\n");
-            }
-        } else {
-            prompt.append("Parameters: none\n");
-        }
+    @Override
+    public String outputDir() {
+        return OUTPUT_DIR;
+    }
 
-        if (op.getRequestBody() != null && op.getRequestBody().getContent() != null) {
-            Content content = op.getRequestBody().getContent();
-            for (Map.Entry<String, MediaType> mediaEntry : content.entrySet()) {
-                String mediaTypeKey = mediaEntry.getKey();
-                MediaType mediaType = mediaEntry.getValue();
+    @Override
+    public int matrixStrength() {
+        return MATRIX_STRENGTH;
+    }
 
-                prompt.append("\n-- Media Type: ").append(mediaTypeKey).append(" --\n");
+    @Override
+    public String header() {
+        return "Generate all possible Karate test scenario for this OpenAPI endpoint ";
+    }
 
-                if (mediaTypeKey.contains("multipart/form-data")) {
-                    prompt.append("jHandle as multipart upload with file and form fields\n");
-                }
+    @Override
+    public void start(PromptEngine.Run run) {
+        emitter = new KarateFeatureEmitter(run.model, run.synthesizer, false, MATRIX_STRENGTH);
+    }
 
-                if (mediaType != null && mediaType.getSchema() != null) {
-                    prompt.append("Sample request body:\n");
-                    appendSchemaFields(prompt, mediaType.getSchema(), schemaMap, 1);
-                    if (mediaType.getExample() != null) {
-                        prompt.append(indent(1)).append("Example: ").append(mediaType.getExample().toString()).append("\n");
-                    } else if (mediaType.getExamples() != null) {
-                        mediaType.getExamples().forEach((k, v) -> {
-                            if (v.getValue() != null) {
-                                prompt.append(indent(1)).append("Example - ").append(k).append(": ")
-                                        .append(v.getValue().toString()).append("\n");
-                            }
-                        });
-                    }
-                }
-            }
-        }
+    @Override
+    public String prepare(PromptEngine.Run run, ApiModel.Endpoint ep) throws Exception {
+        if (!EMIT_FEATURE_SKELETON) return null;
+        FailureReport.phase("feature");
+        String feature = emitter.emit(ep);
+        Path featureFile = emitter.write(run.resolve(FEATURE_OUTPUT_DIR).toString(), ep, feature);
+        System.out.println("✅ Saved: " + featureFile);
+        run.attach(ep, featureFile);
+        return feature;
+    }
 
-        ApiResponses responses = op.getResponses();
-        Set<String> presentCode = responses != null ? responses.keySet() : new HashSet<>();
+    @Override
+    public boolean includeResponses(String featureSkeleton) {
+        return featureSkeleton == null;
+    }
 
-        if (INCLUDE_GLOBAL_RESPONSES && openAPI.getComponents() != null && openAPI.getComponents().getResponses() != null) {
-            for (Map.Entry<String, ApiResponse> globalEntry : openAPI.getComponents().getResponses().entrySet()) {
-                String code = globalEntry.getKey();
-                if (!presentCode.contains(code)) {
-                    if (responses == null) responses = new ApiResponses();
-                    responses.addApiResponse(code, globalEntry.getValue());
-                }
-            }
+    @Override
+    public void appendPayloads(PromptEngine.Run run, StringBuilder prompt, String mediaType, int schema) {
+        // the skeleton already sends the sample and an invalid body, so only what it does not carry is listed
+        if (EMIT_FEATURE_SKELETON) {
+            PromptEngine.appendBoundaryPayloads(run, prompt, mediaType, schema);
+            PromptEngine.appendInvalidPayloadNames(run, prompt, mediaType, schema);
+            PromptEngine.appendVariants(run, prompt, mediaType, schema, VARIANT_STRATEGY, VARIANT_LIMIT, VARIANT_SEED,
+                    SPLIT_VARIANTS_AT, true);
+            return;
         }
+        PromptEngine.appendSamplePayload(run, prompt, mediaType, schema);
+        PromptEngine.appendBoundaryAndInvalidPayloads(run, prompt, mediaType, schema);
+        PromptEngine.appendVariants(run, prompt, mediaType, schema, VARIANT_STRATEGY, VARIANT_LIMIT, VARIANT_SEED, SPLIT_VARIANTS_AT);
+    }
 
-
-        if (responses != null) {
-            for (Map.Entry<String, ApiResponse> responseEntry : responses.entrySet()) {
-                String statuscode = responseEntry.getKey();
-                ApiResponse response = responseEntry.getValue();
-                if (response.get$ref() != null) {
-                    String ref = response.get$ref().replace("#/components/responses", "");
-                    response = openAPI.getComponents().getResponses().get(ref);
-                }
-
-                prompt.append("\nSample :").append(statuscode).append(" responses:\n");
-                Content content = response.getContent();
-                if (content != null) {
-                    for (Map.Entry<String, MediaType> mediaEntry : content.entrySet()) {
-                        String mediaTypeKey = mediaEntry.getKey();
-                        MediaType mediaType = mediaEntry.getValue();
-                        prompt.append(indent(1)).append("Content-Type: ").append(mediaTypeKey).append("\n");
-                        if (mediaType.getSchema() != null) {
-                            appendSchemaFields(prompt, mediaType.getSchema(), schemaMap, 1);
-                            if (mediaType.getSchema().getExample() != null) {
-                                prompt.append(indent(1)).append("Example: ").append(mediaType.getSchema().getExample().toString()).append("\n");
-                            }
-                        }
-                    }
-                } else {
-                    prompt.append(" - No Schema defined \n");
+    @Override
+    public void appendInstructions(StringBuilder prompt, ApiModel.Endpoint ep, String featureSkeleton) {
+        if (featureSkeleton != null) {
+            prompt.append("\nGenerated feature skeleton:\n").append(featureSkeleton);
+            prompt.append("\nInstructions:\n")
+                    .append(" Use Karate DSL syntax\n")
+                    .append("- Keep the generated Background, request wiring, status and match steps unchanged\n")
+                    .append("- Replace each TODO with business-logic steps and domain-specific assertions\n")
+                    .append("- Add scenarios for the listed oneOf/anyOf variants and boundary/invalid payloads, built like the skeleton's request bodies\n")
+                    .append("- Validate business logic and domain-specific rules\n");
+            if (ep.security.isRequired()) {
+                prompt.append("- Set up the credentials listed under Security in the Background\n")
+                        .append("- Add negative scenarios for 401 with missing or invalid credentials\n");
+                if (ep.security.hasScopes()) {
+                    prompt.append("- Add negative scenarios for 403 with credentials lacking the required scopes\n");
                 }
             }
+            return;
         }
 
-
         prompt.append("\nInstructions:\n")
                 .append(" Use Karate DSL syntax\n")
                 .append("- Include a scenario for successful response\n")
@@ -183,148 +113,12 @@ public class KaratePromptBuilder {
                 .append("- Validate business logic and domain-specific rules\n")
                 .append("- Include request and response examples in scenarios\n")
                 .append("- Validate enum values and required/optional fields\n");
-//        prompt.append("\nInstructions:\n")
-//                .append(" Generate Karate test scripts from the given OpenAPI specification.\n")
-//                .append(" - Create one `.feature` file per API operation.\n")
-//                .append(" - Each feature should include:\n")
-//                .append("     * A descriptive `Feature:` title based on the endpoint purpose.\n")
-//                .append("     * A `Background:` section that sets up the `baseUrl` and authentication if required.\n")
-//                .append("     * At least one `Scenario:` for the happy path (e.g., 200 OK).\n")
-//                .append("     * Negative test `Scenarios:` for errors (401, 400, 404, etc.) if defined.\n")
-//                .append(" - Use request payloads derived from schema examples, resolving `$ref` and nested schemas.\n")
-//                .append(" - Include path, query, and header parameters where defined.\n")
-//                .append(" - For request bodies, generate sample JSON based on schema properties (primitive values, enums, arrays, objects).\n")
-//                .append(" - For responses, validate essential fields using Karate matchers (e.g., `match response == {...}`, `#string`, `#number`).\n")
-//                .append(" - Organize `.feature` files into folders by tag if tags are available.\n")
-//                .append(" - Add comments (`#`) explaining important request and validation parts.\n")
-//                .append(" - If multiple auth flows exist, add reusable functions or background steps for token retrieval.\n")
-//                .append(" - Ensure consistent indentation, readable formatting, and clear separation between sections.\n");
-
-
-
-        return prompt.toString();
-
-    }
-
-    private static Parameter resolveParameter(OpenAPI openAPI, Parameter p) {
-        if (p.get$ref() != null) {
-            String ref = p.get$ref();
-            String name = ref.substring(ref.lastIndexOf('/') + 1);
-            return openAPI.getComponents().getParameters().get(name);
-        }
-        return p;
-    }
-
-    private static void appendSchemaFields(StringBuilder prompt, Schema<?> schema, Map<String, Schema> schemaMap, int indent) {
-        if (schema == null) return;
-
-        if (schema.get$ref() != null) {
-            String ref = schema.get$ref().replace("#/components/schemas/", "");
-            Schema<?> refSchema = schemaMap.get(ref);
-            if (refSchema != null) {
-                appendSchemaFields(prompt, refSchema, schemaMap, indent);
-            } else {
-                prompt.append(indent(indent)).append("- unknown schema (unresolved ref: ").append(ref).append(")\n");
-            }
-            return;
-        }
-
-        if (schema.getAllOf() != null && !schema.getAllOf().isEmpty()) {
-            prompt.append(indent(indent)).append("allOf:\n");
-            for (Schema<?> s : schema.getAllOf()) {
-                appendSchemaFields(prompt, s, schemaMap, indent + 1);
-            }
-            return;
-        }
-
-        if (schema.getOneOf() != null && !schema.getOneOf().isEmpty()) {
-            prompt.append(indent(indent)).append("oneOf:\n");
-            for (Schema<?> s : schema.getOneOf()) {
-                appendSchemaFields(prompt, s, schemaMap, indent + 1);
-            }
-            return;
-        }
-
-        if (schema.getAnyOf() != null && !schema.getAnyOf().isEmpty()) {
-            prompt.append(indent(indent)).append("anyOf:\n");
-            for (Schema<?> s : schema.getAnyOf()) {
-                appendSchemaFields(prompt, s, schemaMap, indent + 1);
-            }
-            return;
-        }
-
-// Handle array
-
-        if ("array" .equals(schema.getType()) || schema instanceof ArraySchema) {
-            Schema<?> items = schema instanceof ArraySchema ? ((ArraySchema) schema).getItems() : schema.getItems();
-            prompt.append(indent(indent)).append("- array\n");
-            if (items != null) {
-                prompt.append(indent(indent + 1)).append("items:\n");
-                appendSchemaFields(prompt, items, schemaMap, indent + 2);
-            } else {
-                prompt.append(indent(indent + 1)).append(" unknown items schema\n");
-            }
-            return;
-        }
-
-// Handle object
-
-        if ("object" .equals(schema.getType()) || schema.getProperties() != null) {
-            Map<String, Schema> props = schema.getProperties();
-            if (props != null && !props.isEmpty()) {
-                for (Map.Entry<String, Schema> entry : props.entrySet()) {
-                    String key = entry.getKey();
-                    Schema<?> prop = entry.getValue();
-                    String type = prop.getType() != null ? prop.getType() : "object";
-                    prompt.append(indent(indent)).append("- ").append(key)
-                            .append(" (type: ").append(type);
-
-                    if (prop.getFormat() != null) prompt.append(", format: ").append(prop.getFormat());
-                    if (prop.getEnum() != null) prompt.append(", enum: ").append(prop.getEnum());
-                    if (prop.getDefault() != null) prompt.append(", default: ").append(prop.getDefault());
-                    if (prop.getPattern() != null) prompt.append(", pattern: ").append(prop.getPattern());
-                    if (prop.getMinLength() != null) prompt.append(", minlength: ").append(prop.getMinLength());
-                    if (prop.getMaxLength() != null) prompt.append(", maxLength: ").append(prop.getMaxLength());
-                    prompt.append("\n");
-                    appendSchemaFields(prompt, prop, schemaMap, indent + 1);
-                }
-
-            } else {
-                prompt.append(indent(indent)).append("-object (no properties)\n");
-
-
+        if (ep.security.isRequired()) {
+            prompt.append("- Set up the credentials listed under Security in the Background\n")
+                    .append("- Add negative scenarios for 401 with missing or invalid credentials\n");
+            if (ep.security.hasScopes()) {
+                prompt.append("- Add negative scenarios for 403 with credentials lacking the required scopes\n");
             }
-            return;
-        }
-        String type = schema.getType();
-        if (type != null) {
-            prompt.append(indent(indent)).append("- ").append(type);
-
-            if (schema.getFormat() != null) prompt.append("(format: ").append(schema.getFormat()).append(")");
-            if (schema.getEnum() != null) prompt.append("(enum: ").append(schema.getEnum()).append(")");
-            if (schema.getPattern() != null) prompt.append("(pattern: ").append(schema.getPattern()).append(")");
-            if (schema.getMinLength() != null) prompt.append("(minlength: ").append(schema.getMinLength()).append(")");
-            if (schema.getMaxLength() != null) prompt.append("(maxLength: ").append(schema.getMaxLength()).append(")");
-            prompt.append("\n");
-        } else {
-            prompt.append(indent(indent)).append("- unknown Schema");
         }
     }
-
-    private static String indent(int level) {
-        StringBuilder sb = new StringBuilder(level * 2);
-        for (int i = 0; i < level; i++) {
-            sb.append("  ");
-        }
-        return sb.toString();
-    }
-
-    private static void savePromptToFile(String path, String method, String prompt) throws IOException {
-        String safeName = (method + "_" + path.replaceAll("[/{}/]", "_")).replaceAll("_+", "_")
-                .replaceAll("[\\\\:*?\"<>|]", "_") + ".txt";
-        Path output = Paths.get(OUTPUT_DIR, safeName);
-        Files.createDirectories(output.getParent());
-        Files.write(output, prompt.getBytes());
-        System.out.println("✅ Saved: " + output);
-    }
 }
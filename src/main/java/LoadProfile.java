@@ -0,0 +1,54 @@
+public class LoadProfile {
+
+    final int rampUsers;
+    final int rampSeconds;
+    final int constantUsersPerSec;
+    final int constantSeconds;
+    final int rampDownSeconds;
+    final int p95Millis;
+    final int p99Millis;
+    final double maxErrorPercent;
+    final int feederRows;
+
+    private LoadProfile(int rampUsers, int rampSeconds, int constantUsersPerSec, int constantSeconds,
+                        int rampDownSeconds, int p95Millis, int p99Millis, double maxErrorPercent, int feederRows) {
+        this.rampUsers = rampUsers;
+        this.rampSeconds = rampSeconds;
+        this.constantUsersPerSec = constantUsersPerSec;
+        this.constantSeconds = constantSeconds;
+        this.rampDownSeconds = rampDownSeconds;
+        this.p95Millis = p95Millis;
+        this.p99Millis = p99Millis;
+        this.maxErrorPercent = maxErrorPercent;
+        this.feederRows = feederRows;
+    }
+
+    public static LoadProfile defaults() {
+        return new LoadProfile(10, 30, 5, 60, 30, 800, 1500, 1.0, 10);
+    }
+
+    public LoadProfile rampUp(int users, int seconds) {
+        return new LoadProfile(users, seconds, constantUsersPerSec, constantSeconds, rampDownSeconds,
+                p95Millis, p99Millis, maxErrorPercent, feederRows);
+    }
+
+    public LoadProfile constant(int usersPerSec, int seconds) {
+        return new LoadProfile(rampUsers, rampSeconds, usersPerSec, seconds, rampDownSeconds,
+                p95Millis, p99Millis, maxErrorPercent, feederRows);
+    }
+
+    public LoadProfile rampDown(int seconds) {
+        return new LoadProfile(rampUsers, rampSeconds, constantUsersPerSec, constantSeconds, seconds,
+                p95Millis, p99Millis, maxErrorPercent, feederRows);
+    }
+
+    public LoadProfile sla(int p95Millis, int p99Millis, double maxErrorPercent) {
+        return new LoadProfile(rampUsers, rampSeconds, constantUsersPerSec, constantSeconds, rampDownSeconds,
+                p95Millis, p99Millis, maxErrorPercent, feederRows);
+    }
+
+    public LoadProfile feederRows(int rows) {
+        return new LoadProfile(rampUsers, rampSeconds, constantUsersPerSec, constantSeconds, rampDownSeconds,
+                p95Millis, p99Millis, maxErrorPercent, rows);
+    }
+}
@@ -0,0 +1,83 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+// One file name per operation, fixed for the whole spec so every target, emitter and shard agrees on it. The name is the
+// operationId when there is one, otherwise method and escaped path plus a short hash of the raw path, so /users/{id} and
+// /users/id no longer map to the same file. Names that still clash (duplicate or differently spelled operationIds, or
+// names differing only in case, which collide on case-insensitive file systems) get a _2, _3 ... suffix in spec order.
+public final class OutputNames {
+
+    public static final String INDEX_FILE = "index.tsv";
+
+    private static final Pattern UNSAFE = Pattern.compile("[^A-Za-z0-9._-]+");
+    private static final Pattern EDGE_UNDERSCORES = Pattern.compile("^_+|_+$");
+
+    private final Map<ApiModel.Endpoint, String> names = new IdentityHashMap<>();
+    private final Map<String, ApiModel.Endpoint> byKey = new HashMap<>();
+    private final Map<String, ApiModel.Endpoint> byOperation = new HashMap<>();
+    private final List<ApiModel.Endpoint> order;
+
+    OutputNames(List<ApiModel.Endpoint> endpoints) {
+        this.order = endpoints;
+        Map<String, Integer> nextSuffix = new HashMap<>();
+        for (ApiModel.Endpoint ep : endpoints) {
+            String base = baseName(ep);
+            String name = base;
+            String key = name.toLowerCase(Locale.ROOT);
+            while (byKey.containsKey(key)) {
+                int suffix = nextSuffix.merge(base.toLowerCase(Locale.ROOT), 2, (a, b) -> a + 1);
+                name = base + "_" + suffix;
+                key = name.toLowerCase(Locale.ROOT);
+            }
+            names.put(ep, name);
+            byKey.put(key, ep);
+            byOperation.put(ep.label(), ep);
+            if (ep.operationId != null) byOperation.putIfAbsent(ep.operationId, ep);
+        }
+    }
+
+    // file name without extension
+    public String name(ApiModel.Endpoint ep) {
+        String name = names.get(ep);
+        if (name == null) throw new IllegalArgumentException(ep.label() + " is not an operation of this spec");
+        return name;
+    }
+
+    // by "METHOD /path" or operationId
+    public ApiModel.Endpoint find(String operation) {
+        return byOperation.get(operation);
+    }
+
+    // operation, operationId and file of every operation, in spec order
+    public CharSequence index(String extension) {
+        StringBuilder index = new StringBuilder("operation\toperationId\tfile\n");
+        for (ApiModel.Endpoint ep : order) {
+            index.append(ep.label()).append('\t').append(ep.operationId != null ? ep.operationId : "").append('\t')
+                    .append(names.get(ep)).append(extension).append('\n');
+        }
+        return index;
+    }
+
+    public Path writeIndex(Path dir, String extension) throws IOException {
+        return PromptOutput.write(dir.resolve(INDEX_FILE), index(extension));
+    }
+
+    private static String baseName(ApiModel.Endpoint ep) {
+        if (ep.operationId != null) {
+            String id = EDGE_UNDERSCORES.matcher(UNSAFE.matcher(ep.operationId).replaceAll("_")).replaceAll("");
+            if (!id.isEmpty()) return id;
+        }
+        String path = EDGE_UNDERSCORES.matcher(UNSAFE.matcher(ep.path).replaceAll("_")).replaceAll("");
+        return ep.method + "_" + (path.isEmpty() ? "" : path + "_") + hash(ep.path);
+    }
+
+    private static String hash(String path) {
+        CRC32 crc = new CRC32();
+        crc.update(path.getBytes(StandardCharsets.UTF_8));
+        return String.format(Locale.ROOT, "%08x", crc.getValue());
+    }
+}
@@ -0,0 +1,148 @@
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.*;
+
+// Query, header, cookie and path parameter combinations worth testing for one operation. Every parameter contributes a
+// few levels (enum values, booleans, the bounds of a numeric range, otherwise one sample value, plus "omitted" when it is
+// optional) and a CoveringArray picks rows so that every pair (or t-tuple) of levels is sent together at least once.
+public final class ParameterMatrix {
+
+    // keeps long enums from dominating the row count
+    static final int MAX_LEVELS = 6;
+
+    public static final Object OMITTED = new Object() {
+        @Override
+        public String toString() {
+            return "(omitted)";
+        }
+    };
+
+    private final List<ApiModel.Param> factors;
+    private final List<List<Object>> levels;
+    private final List<int[]> rows = new ArrayList<>();
+    private final int strength;
+
+    private ParameterMatrix(List<ApiModel.Param> factors, List<List<Object>> levels, int strength) {
+        this.factors = factors;
+        this.levels = levels;
+        int[] sizes = new int[levels.size()];
+        for (int i = 0; i < sizes.length; i++) sizes[i] = levels.get(i).size();
+        CoveringArray array = new CoveringArray(sizes, strength);
+        this.strength = array.strength();
+        for (int[] row : array) rows.add(row);
+    }
+
+    // null when fewer than two parameters can vary, a single list of values says as much as a matrix
+    public static ParameterMatrix of(ApiModel.Endpoint ep, SchemaGraph schemas, SamplePayloadSynthesizer synthesizer,
+                                     int strength) {
+        List<ApiModel.Param> factors = new ArrayList<>();
+        List<List<Object>> levels = new ArrayList<>();
+        for (ApiModel.Param p : ep.params) {
+            List<Object> values = levels(p, schemas, synthesizer);
+            if (values.size() < 2) continue;
+            factors.add(p);
+            levels.add(values);
+        }
+        return factors.size() < 2 ? null : new ParameterMatrix(factors, levels, strength);
+    }
+
+    public List<ApiModel.Param> factors() {
+        return factors;
+    }
+
+    public int strength() {
+        return strength;
+    }
+
+    public int size() {
+        return rows.size();
+    }
+
+    // level of each factor in the given row, OMITTED when the parameter is not sent
+    public Object value(int row, int factor) {
+        return levels.get(factor).get(rows.get(row)[factor]);
+    }
+
+    // size of the full cross product the rows stand in for
+    public BigInteger combinations() {
+        BigInteger combinations = BigInteger.ONE;
+        for (List<Object> values : levels) combinations = combinations.multiply(BigInteger.valueOf(values.size()));
+        return combinations;
+    }
+
+    public String coverage() {
+        return (strength == 2 ? "pairwise" : strength + "-wise") + " over " + factors.size() + " parameters";
+    }
+
+    public void appendTo(StringBuilder prompt) {
+        BigInteger combinations = combinations();
+        prompt.append("\nParameter matrix (").append(coverage()).append(": ");
+        if (combinations.equals(BigInteger.valueOf(size()))) {
+            prompt.append("all ").append(size()).append(" combinations):\n");
+        } else {
+            prompt.append(size()).append(" rows instead of ").append(combinations).append(" combinations):\n");
+        }
+        prompt.append('|');
+        for (ApiModel.Param p : factors) prompt.append(' ').append(p.name).append(" |");
+        prompt.append('\n');
+        for (int r = 0; r < rows.size(); r++) {
+            prompt.append('|');
+            for (int f = 0; f < factors.size(); f++) {
+                Object value = value(r, f);
+                String cell = value == OMITTED ? value.toString() : CanonicalJson.render(value);
+                prompt.append(' ').append(cell.replace("|", "\\|")).append(" |");
+            }
+            prompt.append('\n');
+        }
+        prompt.append("Send one request per row; (omitted) means the parameter is left out.\n");
+    }
+
+    // the value used when a parameter is not varied: its example, else a schema-derived sample
+    static Object sample(ApiModel.Param p, SchemaGraph schemas, SamplePayloadSynthesizer synthesizer) {
+        if (p.example != null) return p.example;
+        Object value = p.schema != SchemaGraph.NONE ? synthesizer.sample(p.schema) : null;
+        return value != null ? value : "value";
+    }
+
+    private static List<Object> levels(ApiModel.Param p, SchemaGraph schemas, SamplePayloadSynthesizer synthesizer) {
+        Set<Object> values = new LinkedHashSet<>();
+        SchemaGraph.Node node = p.schema != SchemaGraph.NONE ? schemas.effective(p.schema) : null;
+        Constraints constraints = p.schema != SchemaGraph.NONE ? schemas.constraints(p.schema) : Constraints.NONE;
+        String type = node != null ? node.type : null;
+        List<Object> enumValues = constraints.enumValues != null ? constraints.enumValues
+                : node != null ? node.enumValues : null;
+
+        if (enumValues != null && !enumValues.isEmpty()) {
+            for (Object value : enumValues) {
+                if (value != null && values.size() < MAX_LEVELS) values.add(value);
+            }
+        } else if ("boolean".equals(type)) {
+            values.add(Boolean.TRUE);
+            values.add(Boolean.FALSE);
+        } else if ("integer".equals(type) || "number".equals(type)) {
+            boolean integer = "integer".equals(type);
+            Object min = bound(constraints.minimum, constraints.exclusiveMinimum, integer, true);
+            Object max = bound(constraints.maximum, constraints.exclusiveMaximum, integer, false);
+            if (min != null) values.add(min);
+            if (max != null) values.add(max);
+        }
+        if (values.isEmpty()) values.add(sample(p, schemas, synthesizer));
+        List<Object> levels = new ArrayList<>(values);
+        if (!p.isRequired() && !"path".equals(p.in)) levels.add(OMITTED);
+        return levels;
+    }
+
+    // the closest valid value to a bound; exclusive bounds only have one for integers
+    private static Object bound(BigDecimal bound, boolean exclusive, boolean integer, boolean lower) {
+        if (bound == null) return null;
+        if (!integer) return exclusive ? null : new BigDecimal(bound.stripTrailingZeros().toPlainString());
+        BigDecimal value = bound.setScale(0, lower ? RoundingMode.CEILING : RoundingMode.FLOOR);
+        if (exclusive && value.compareTo(bound) == 0) value = lower ? value.add(BigDecimal.ONE) : value.subtract(BigDecimal.ONE);
+        try {
+            return value.longValueExact();
+        } catch (ArithmeticException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+public class PractiTestCsvExporter implements Closeable {
+
+    static final String[] COLUMNS = {
+            "Key", "Name", "Automation state", "Status", "Priority", "Portfolio", "Product Group", "Product Team",
+            "Product", "Test Script (Step-by-Step) - Step", "Test Description",
+            "Test Script (Step-by-Step) Expected Result", "Test Script (BDD)"
+    };
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final SchemaGraph schemas;
+    private final SamplePayloadSynthesizer synthesizer;
+    private final String keyPrefix;
+    private final BufferedWriter writer;
+    private final String[] row = new String[COLUMNS.length];
+    private int testCount;
+    private long rowCount;
+
+    public PractiTestCsvExporter(Path output, ApiModel model, SamplePayloadSynthesizer synthesizer, String keyPrefix)
+            throws IOException {
+        this.schemas = model.getSchemas();
+        this.synthesizer = synthesizer;
+        this.keyPrefix = keyPrefix;
+        if (output.getParent() != null) Files.createDirectories(output.getParent());
+        this.writer = new BufferedWriter(Files.newBufferedWriter(output, StandardCharsets.UTF_8), BUFFER_SIZE);
+        writeRow(COLUMNS);
+    }
+
+    public void writeOperation(ApiModel.Endpoint ep) throws IOException {
+        String endpoint = ep.label();
+        String summary = ep.summary != null ? ep.summary : endpoint;
+        List<ApiModel.Param> params = ep.params;
+        ApiModel.Body body = ep.bodies.isEmpty() ? null : ep.bodies.get(0);
+        int bodySchema = body != null ? body.schema : SchemaGraph.NONE;
+
+        ApiModel.Response success = null;
+        for (ApiModel.Response response : ep.responses) {
+            if (response.code.startsWith("2")) {
+                success = response;
+                break;
+            }
+        }
+
+        String payload = bodySchema != SchemaGraph.NONE
+                ? SamplePayloadSynthesizer.render(synthesizer.sample(bodySchema), body.mediaType, synthesizer.rootName(bodySchema))
+                : null;
+
+        startTest(summary + " - successful request", "High");
+        authenticate(ep.security, false);
+        prepareSteps(endpoint, params, body, payload);
+        step("Send " + endpoint + " request", "Send the request with valid data",
+                "Response status " + (success != null ? success.code : "2xx"));
+        if (success != null && success.content != null && !success.content.isEmpty()) {
+            step("Verify response body", "Validate the response against the documented schema",
+                    "Response body matches " + success.content.get(0).mediaType + " schema");
+        }
+
+        for (ApiModel.Response response : ep.responses) {
+            String code = response.code;
+            if (code.startsWith("2")) continue;
+            String description = response.description != null ? response.description : "error response";
+            startTest(summary + " - " + code + " " + description, "Normal");
+            if (!"401".equals(code)) authenticate(ep.security, "403".equals(code));
+            prepareSteps(endpoint, params, body, payload);
+            step("Send " + endpoint + " request", "Send a request that triggers: " + description,
+                    "default".equals(code) ? "Response status is an error code" : "Response status " + code);
+        }
+
+        if (ep.security.isRequired() && ep.response("401") == null) {
+            startTest(summary + " - 401 without credentials", "Normal");
+            prepareSteps(endpoint, params, body, payload);
+            step("Send " + endpoint + " request", "Send the request without any credentials", "Response status 401");
+        }
+        if (ep.security.isRequired() && ep.security.hasScopes() && ep.response("403") == null) {
+            startTest(summary + " - 403 with insufficient scope", "Normal");
+            authenticate(ep.security, true);
+            prepareSteps(endpoint, params, body, payload);
+            step("Send " + endpoint + " request", "Send the request with credentials lacking the required scopes",
+                    "Response status 403");
+        }
+
+        if (bodySchema != SchemaGraph.NONE) {
+            for (SamplePayloadSynthesizer.NamedSample sample : synthesizer.invalidSamples(bodySchema, body.mediaType)) {
+                if (!sample.name.startsWith("missing required")) continue;
+                startTest(summary + " - " + sample.name, "Normal");
+                authenticate(ep.security, false);
+                step("Prepare request body without " + sample.name.substring("missing required ".length()),
+                        "Request body (" + body.mediaType + "): "
+                                + SamplePayloadSynthesizer.render(sample.value, body.mediaType, synthesizer.rootName(bodySchema)),
+                        "Request body prepared");
+                step("Send " + endpoint + " request", "Send the request with the incomplete body",
+                        "Response status " + (ep.response("422") != null ? "422" : "400") + " with a validation error");
+            }
+        }
+
+        for (ApiModel.Param p : params) {
+            if (!p.isRequired() || "path".equals(p.in)) continue;
+            startTest(summary + " - missing required " + p.in + " parameter " + p.name, "Normal");
+            authenticate(ep.security, false);
+            step("Send " + endpoint + " request without " + p.in + " parameter " + p.name,
+                    "Omit the required " + p.in + " parameter", "Response status 400");
+        }
+    }
+
+    public int getTestCount() {
+        return testCount;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    private void authenticate(ApiModel.Security security, boolean insufficientScope) throws IOException {
+        List<ApiModel.Auth> auth = security.primary();
+        if (auth.isEmpty()) return;
+        StringBuilder sb = new StringBuilder();
+        for (ApiModel.Auth a : auth) {
+            if (sb.length() > 0) sb.append(" + ");
+            sb.append(a.describe());
+        }
+        step("Obtain credentials", (insufficientScope ? "Credentials without the required scopes for " : "Valid credentials for ") + sb,
+                "Credentials are available");
+    }
+
+    private void prepareSteps(String endpoint, List<ApiModel.Param> params, ApiModel.Body body, String payload)
+            throws IOException {
+        if (!params.isEmpty()) {
+            StringBuilder sb = new StringBuilder();
+            for (ApiModel.Param p : params) {
+                if (sb.length() > 0) sb.append("; ");
+                String constraints = schemas.constraints(p.schema).describe();
+                sb.append(p.in).append(' ').append(p.name);
+                if (p.isRequired() || !constraints.isEmpty()) {
+                    sb.append(" (").append(p.isRequired() ? "required" : "")
+                            .append(p.isRequired() && !constraints.isEmpty() ? ", " : "").append(constraints).append(')');
+                }
+            }
+            step("Set parameters for " + endpoint, sb.toString(), "Parameters are set");
+        }
+        if (payload != null) {
+            step("Prepare request body", "Request body (" + body.mediaType + "): " + payload, "Request body prepared");
+        }
+    }
+
+    private void startTest(String name, String priority) {
+        Arrays.fill(row, "");
+        row[0] = keyPrefix + "-" + (++testCount);
+        row[1] = name;
+        row[2] = "Manual";
+        row[3] = "Ready";
+        row[4] = priority;
+        row[5] = "*NO PORTFOLIO*";
+        row[6] = "*NO GROUP*";
+        row[7] = "*NO TEAM*";
+        row[8] = "*NO PRODUCT*";
+    }
+
+    // the first step of a test shares the row with the test header; later steps leave the header columns empty
+    private void step(String step, String description, String expected) throws IOException {
+        row[9] = step;
+        row[10] = description;
+        row[11] = expected;
+        writeRow(row);
+        Arrays.fill(row, "");
+    }
+
+    private void writeRow(String[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) writer.write(',');
+            writeField(values[i]);
+        }
+        writer.write("\r\n");
+        rowCount++;
+    }
+
+    private void writeField(String value) throws IOException {
+        if (value == null || value.isEmpty()) return;
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') writer.write('"');
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+}
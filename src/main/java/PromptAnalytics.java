@@ -0,0 +1,319 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+// Measures every rendered prompt so the spec hot spots that drive LLM cost and latency become visible. Each builder
+// writes its rows to generated-analytics/<target>.csv; prompt-analytics.html is rebuilt from all CSVs in that directory
+// after every run, so it always shows every target that has been generated. Sharded runs write per-shard fragments
+// that ShardMerger combines back into the target's CSV.
+public class PromptAnalytics {
+
+    static final String OUTPUT_DIR = "generated-analytics";
+    static final String HTML_REPORT = "prompt-analytics.html";
+
+    // rough BPE average for English text mixed with identifiers; good enough to rank prompts, not to bill them
+    private static final int CHARS_PER_TOKEN = 4;
+    private static final long MAX_FAN_OUT = 64;
+    private static final String[] LOW_INFORMATION = {
+            "unknown schema", "unknown Schema", "unknown items schema", "-object (no properties)"
+    };
+    private static final String[] COLUMNS = {
+            "target", "operation", "chars", "lines", "estimatedTokens", "schemaDepth", "fanOut", "schemaNodes",
+            "unresolvedRefs", "lowInformationLines", "missingSummary", "missingExamples"
+    };
+    // columns from here up to the two yes/no flags at the end sort as numbers in the HTML table
+    private static final int FIRST_NUMERIC_COLUMN = 2;
+
+    private final String target;
+    private final Path dir;
+    private final SchemaGraph schemas;
+    private final Map<ApiModel.Endpoint, Integer> specIndex = new IdentityHashMap<>();
+    private final Map<Integer, String> rows = new ConcurrentSkipListMap<>();
+    private final Map<Integer, Integer> depths = new ConcurrentHashMap<>();
+
+    public PromptAnalytics(String target, ApiModel model, Path dir) {
+        this.target = target;
+        this.dir = dir;
+        this.schemas = model.getSchemas();
+        List<ApiModel.Endpoint> endpoints = model.getEndpoints();
+        for (int i = 0; i < endpoints.size(); i++) specIndex.put(endpoints.get(i), i);
+    }
+
+    public void record(ApiModel.Endpoint ep, CharSequence prompt) {
+        int lines = 0;
+        int lowInformation = 0;
+        int lineStart = 0;
+        for (int i = 0; i <= prompt.length(); i++) {
+            if (i < prompt.length() && prompt.charAt(i) != '\n') continue;
+            if (i > lineStart || i < prompt.length()) lines++;
+            for (String marker : LOW_INFORMATION) {
+                if (indexOf(prompt, marker, lineStart, i) >= 0) {
+                    lowInformation++;
+                    break;
+                }
+            }
+            lineStart = i + 1;
+        }
+
+        int depth = 0;
+        long fanOut = 1;
+        Set<Integer> reached = new HashSet<>();
+        Set<String> unresolved = new TreeSet<>();
+        for (int root : roots(ep)) {
+            depth = Math.max(depth, depth(root, new HashSet<Integer>()));
+            fanOut = Math.max(fanOut, walk(root, reached, unresolved));
+        }
+
+        Object[] values = {
+                target, ep.label(), prompt.length(), lines, (prompt.length() + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN,
+                depth, fanOut, reached.size(), unresolved.size(), lowInformation, isBlank(ep.summary), !hasExamples(ep)
+        };
+        StringBuilder row = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) row.append(',');
+            row.append(csv(String.valueOf(values[i])));
+        }
+        rows.put(specIndex.get(ep), row.toString());
+    }
+
+    // the target's CSV of a single run
+    public Path file() {
+        return dir.resolve(target + ".csv");
+    }
+
+    // Writes this target's rows (a per-shard fragment when sharded) and rebuilds the HTML report over all targets.
+    public Path write(ShardPlan shard) throws IOException {
+        StringBuilder out = new StringBuilder(String.join(",", COLUMNS)).append('\n');
+        for (String row : rows.values()) out.append(row).append('\n');
+        Path csv = shard.fragment(file());
+        PromptOutput.write(csv, out);
+        System.out.println("✅ Saved: " + csv + " (" + rows.size() + " prompts)");
+        if (!shard.isSharded()) {
+            Path html = writeHtml(dir);
+            System.out.println("✅ Saved: " + html);
+        }
+        return csv;
+    }
+
+    // Replays the rows of every shard fragment in spec order (by operation) into the target's CSV, then rebuilds the
+    // HTML report without the fragments.
+    static Path merge(Path csv, List<Path> fragments, Map<String, Integer> specOrder) throws IOException {
+        String header = null;
+        Map<Integer, String> merged = new TreeMap<>();
+        for (Path fragment : fragments) {
+            List<String> lines = Files.readAllLines(fragment, StandardCharsets.UTF_8);
+            if (lines.isEmpty()) continue;
+            header = lines.get(0);
+            for (int i = 1; i < lines.size(); i++) {
+                if (lines.get(i).isEmpty()) continue;
+                String operation = parseCsv(lines.get(i))[1];
+                Integer index = specOrder.get(operation);
+                if (index == null) throw new IllegalStateException(fragment + " has a row for unknown operation " + operation);
+                merged.put(index, lines.get(i));
+            }
+        }
+        StringBuilder out = new StringBuilder(header != null ? header : String.join(",", COLUMNS)).append('\n');
+        for (String row : merged.values()) out.append(row).append('\n');
+        PromptOutput.write(csv, out);
+        for (Path fragment : fragments) Files.delete(fragment);
+        System.out.println("✅ Saved: " + csv + " (" + merged.size() + " prompts)");
+        Path html = writeHtml(csv.getParent());
+        System.out.println("✅ Saved: " + html);
+        return csv;
+    }
+
+    static Path writeHtml(Path dir) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*.csv")) {
+            // shard fragments are left to the merge, which folds them into their target's CSV
+            for (Path file : stream) {
+                if (!file.getFileName().toString().contains(".shard-")) files.add(file);
+            }
+        }
+        Collections.sort(files);
+        List<String[]> table = new ArrayList<>();
+        for (Path file : files) {
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            for (int i = 1; i < lines.size(); i++) {
+                if (!lines.get(i).isEmpty()) table.add(parseCsv(lines.get(i)));
+            }
+        }
+        int tokens = FIRST_NUMERIC_COLUMN + 2;
+        table.sort((a, b) -> Long.compare(Long.parseLong(b[tokens]), Long.parseLong(a[tokens])));
+
+        StringBuilder html = new StringBuilder();
+        html.append("<!DOCTYPE html>\n<html>\n<head>\n<meta charset=\"utf-8\">\n<title>Prompt analytics</title>\n")
+                .append("<style>\n")
+                .append("body { font-family: sans-serif; font-size: 13px; }\n")
+                .append("table { border-collapse: collapse; }\n")
+                .append("th, td { border: 1px solid #ccc; padding: 3px 8px; }\n")
+                .append("th { background: #eee; cursor: pointer; }\n")
+                .append("td.n { text-align: right; }\n")
+                .append("tr.hot { background: #fde8e8; }\n")
+                .append("</style>\n</head>\n<body>\n")
+                .append("<h1>Prompt analytics</h1>\n<p>").append(table.size()).append(" prompts from ")
+                .append(files.size()).append(" target file(s). Click a column to sort; rows with unresolved refs or ")
+                .append("low-information lines are highlighted.</p>\n<table id=\"report\">\n<thead><tr>");
+        for (int c = 0; c < COLUMNS.length; c++) {
+            html.append("<th onclick=\"sortBy(").append(c).append(")\">").append(COLUMNS[c]).append("</th>");
+        }
+        html.append("</tr></thead>\n<tbody>\n");
+        int unresolvedRefs = FIRST_NUMERIC_COLUMN + 6;
+        int lowInformation = FIRST_NUMERIC_COLUMN + 7;
+        for (String[] row : table) {
+            boolean hot = !"0".equals(row[unresolvedRefs]) || !"0".equals(row[lowInformation]);
+            html.append(hot ? "<tr class=\"hot\">" : "<tr>");
+            for (int c = 0; c < row.length; c++) {
+                html.append(c >= FIRST_NUMERIC_COLUMN && c < COLUMNS.length - 2 ? "<td class=\"n\">" : "<td>")
+                        .append(escapeHtml(row[c])).append("</td>");
+            }
+            html.append("</tr>\n");
+        }
+        html.append("</tbody>\n</table>\n<script>\n")
+                .append("var direction = {};\n")
+                .append("function sortBy(c) {\n")
+                .append("  var body = document.querySelector('#report tbody');\n")
+                .append("  var rows = Array.prototype.slice.call(body.rows);\n")
+                .append("  var numeric = c >= ").append(FIRST_NUMERIC_COLUMN).append(" && c < ").append(COLUMNS.length - 2).append(";\n")
+                .append("  direction[c] = -(direction[c] || 1);\n")
+                .append("  rows.sort(function (a, b) {\n")
+                .append("    var x = a.cells[c].textContent, y = b.cells[c].textContent;\n")
+                .append("    return direction[c] * (numeric ? x - y : x.localeCompare(y));\n")
+                .append("  });\n")
+                .append("  rows.forEach(function (row) { body.appendChild(row); });\n")
+                .append("}\n</script>\n</body>\n</html>\n");
+        Path output = dir.resolve(HTML_REPORT);
+        PromptOutput.write(output, html);
+        return output;
+    }
+
+    private static List<Integer> roots(ApiModel.Endpoint ep) {
+        List<Integer> roots = new ArrayList<>();
+        for (ApiModel.Param p : ep.params) roots.add(p.schema);
+        for (ApiModel.Body body : ep.bodies) roots.add(body.schema);
+        for (ApiModel.Response response : ep.responses) {
+            if (response.content == null) continue;
+            for (ApiModel.Body body : response.content) roots.add(body.schema);
+        }
+        return roots;
+    }
+
+    // nesting levels below a schema; following a $ref does not add a level, and a cycle ends the count
+    private int depth(int id, Set<Integer> onPath) {
+        id = schemas.resolve(id);
+        if (id == SchemaGraph.NONE || !onPath.add(id)) return 0;
+        Integer cached = depths.get(id);
+        if (cached != null) {
+            onPath.remove(id);
+            return cached;
+        }
+        SchemaGraph.Node node = schemas.node(id);
+        int deepest = 0;
+        if (node.items != SchemaGraph.NONE) deepest = Math.max(deepest, depth(node.items, onPath));
+        for (int child : node.allOf) deepest = Math.max(deepest, depth(child, onPath) - 1);
+        for (int child : node.oneOf) deepest = Math.max(deepest, depth(child, onPath));
+        for (int child : node.anyOf) deepest = Math.max(deepest, depth(child, onPath));
+        for (int child : node.properties) deepest = Math.max(deepest, depth(child, onPath));
+        onPath.remove(id);
+        depths.putIfAbsent(id, deepest + 1);
+        return deepest + 1;
+    }
+
+    // collects reachable nodes and unresolved refs; returns the number of oneOf/anyOf branch combinations, capped like
+    // the variant engine caps its output
+    private long walk(int id, Set<Integer> reached, Set<String> unresolved) {
+        if (id == SchemaGraph.NONE) return 1;
+        SchemaGraph.Node node = schemas.node(id);
+        if (node.isRef() && node.target == SchemaGraph.NONE) {
+            unresolved.add(node.ref);
+            return 1;
+        }
+        id = schemas.resolve(id);
+        if (id == SchemaGraph.NONE || !reached.add(id)) return 1;
+        node = schemas.node(id);
+        // a sample picks one branch, so branches add up; independent parts of one sample multiply
+        long branches = 0;
+        for (int child : node.oneOf) branches = Math.min(MAX_FAN_OUT, branches + walk(child, reached, unresolved));
+        for (int child : node.anyOf) branches = Math.min(MAX_FAN_OUT, branches + walk(child, reached, unresolved));
+        long fanOut = Math.max(1, branches);
+        if (node.items != SchemaGraph.NONE) fanOut = multiply(fanOut, walk(node.items, reached, unresolved));
+        for (int child : node.allOf) fanOut = multiply(fanOut, walk(child, reached, unresolved));
+        for (int child : node.properties) fanOut = multiply(fanOut, walk(child, reached, unresolved));
+        return fanOut;
+    }
+
+    private static long multiply(long a, long b) {
+        return Math.min(MAX_FAN_OUT, a * b);
+    }
+
+    private boolean hasExamples(ApiModel.Endpoint ep) {
+        if (ep.params.isEmpty() && ep.bodies.isEmpty()) return true;
+        for (ApiModel.Param p : ep.params) {
+            if (p.example != null || hasExample(p.schema)) return true;
+        }
+        for (ApiModel.Body body : ep.bodies) {
+            if (body.example != null || (body.examples != null && !body.examples.isEmpty()) || hasExample(body.schema)) return true;
+        }
+        return false;
+    }
+
+    private boolean hasExample(int id) {
+        id = schemas.resolve(id);
+        return id != SchemaGraph.NONE && schemas.node(id).example != null;
+    }
+
+    private static int indexOf(CharSequence text, String marker, int from, int to) {
+        for (int i = from; i + marker.length() <= to; i++) {
+            int k = 0;
+            while (k < marker.length() && text.charAt(i + k) == marker.charAt(k)) k++;
+            if (k == marker.length()) return i;
+        }
+        return -1;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    private static String csv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) return value;
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    private static String[] parseCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields.toArray(new String[0]);
+    }
+
+    private static String escapeHtml(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+}
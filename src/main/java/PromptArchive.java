@@ -0,0 +1,437 @@
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// The prompts of one output directory as a single ZIP file: each prompt is its own deflated entry and the central
+// directory at the end records every entry's offset, so one prompt of an old release is read by seeking straight to it
+// (plain `unzip -p prompts.zip <file>` works too). The rendering workers compress their own prompt; the archive is
+// written in spec order with a fixed timestamp, so the same spec always yields the same bytes. The name index is stored
+// as index.tsv inside the archive. No ZIP64: at most 65535 entries and 4 GB.
+// Usage: java PromptArchive <archive.zip> [operation|file]            list the archive or print one prompt
+//        java PromptArchive <old.zip> <new.zip> [operation|file]      changed entries, or a line diff of one prompt
+public final class PromptArchive {
+
+    public static final String FILE_NAME = "prompts.zip";
+
+    private static final int LOCAL_HEADER = 0x04034b50;
+    private static final int CENTRAL_HEADER = 0x02014b50;
+    private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+    private static final int UTF8_NAMES = 0x0800;
+    private static final int DEFLATED = 8;
+    private static final int STORED = 0;
+    // 1980-01-01 00:00, the earliest DOS date
+    private static final int FIXED_DATE = (1 << 5) | 1;
+    private static final int MAX_ENTRIES = 0xFFFF;
+    private static final long MAX_OFFSET = 0xFFFFFFFFL;
+
+    private static final ThreadLocal<Deflater> DEFLATER = ThreadLocal.withInitial(() -> new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+
+    // one compressed entry; copied as is when archives are merged
+    static final class Entry {
+        final String name;
+        final int method;
+        final int crc;
+        final long size;
+        final byte[] data;
+
+        Entry(String name, int method, int crc, long size, byte[] data) {
+            this.name = name;
+            this.method = method;
+            this.crc = crc;
+            this.size = size;
+            this.data = data;
+        }
+    }
+
+    private final Entry[] slots;
+
+    public PromptArchive(int capacity) {
+        this.slots = new Entry[capacity];
+    }
+
+    // called by the worker that rendered the prompt; slots are written in order, whatever order they were filled in
+    public void put(int slot, String name, CharSequence text) {
+        slots[slot] = compress(name, text);
+    }
+
+    public Path write(Path output, CharSequence index) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        for (Entry entry : slots) {
+            if (entry != null) entries.add(entry);
+        }
+        if (index != null) entries.add(compress(OutputNames.INDEX_FILE, index));
+        return write(output, entries);
+    }
+
+    static Entry compress(String name, CharSequence text) {
+        byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        Deflater deflater = DEFLATER.get();
+        deflater.reset();
+        deflater.setInput(bytes);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4 + 64);
+        byte[] buffer = new byte[8192];
+        while (!deflater.finished()) {
+            out.write(buffer, 0, deflater.deflate(buffer));
+        }
+        return new Entry(name, DEFLATED, (int) crc.getValue(), bytes.length, out.toByteArray());
+    }
+
+    static Path write(Path output, List<Entry> entries) throws IOException {
+        if (entries.size() > MAX_ENTRIES) {
+            throw new IOException(output + " would hold " + entries.size() + " entries, above the " + MAX_ENTRIES + " a ZIP without ZIP64 allows");
+        }
+        if (output.getParent() != null) Files.createDirectories(output.getParent());
+        long[] offsets = new long[entries.size()];
+        try (LittleEndianOutput out = new LittleEndianOutput(Files.newOutputStream(output))) {
+            for (int i = 0; i < entries.size(); i++) {
+                Entry entry = entries.get(i);
+                byte[] name = entry.name.getBytes(StandardCharsets.UTF_8);
+                offsets[i] = out.written;
+                out.int32(LOCAL_HEADER);
+                out.int16(20);
+                out.int16(UTF8_NAMES);
+                out.int16(entry.method);
+                out.int16(0);
+                out.int16(FIXED_DATE);
+                out.int32(entry.crc);
+                out.int32(entry.data.length);
+                out.int32((int) entry.size);
+                out.int16(name.length);
+                out.int16(0);
+                out.bytes(name);
+                out.bytes(entry.data);
+            }
+            long directoryStart = out.written;
+            for (int i = 0; i < entries.size(); i++) {
+                Entry entry = entries.get(i);
+                byte[] name = entry.name.getBytes(StandardCharsets.UTF_8);
+                out.int32(CENTRAL_HEADER);
+                out.int16(20);
+                out.int16(20);
+                out.int16(UTF8_NAMES);
+                out.int16(entry.method);
+                out.int16(0);
+                out.int16(FIXED_DATE);
+                out.int32(entry.crc);
+                out.int32(entry.data.length);
+                out.int32((int) entry.size);
+                out.int16(name.length);
+                out.int16(0);
+                out.int16(0);
+                out.int16(0);
+                out.int16(0);
+                out.int32(0);
+                out.int32((int) offsets[i]);
+                out.bytes(name);
+            }
+            long directorySize = out.written - directoryStart;
+            if (out.written > MAX_OFFSET) throw new IOException(output + " exceeds 4 GB, which a ZIP without ZIP64 cannot address");
+            out.int32(END_OF_CENTRAL_DIRECTORY);
+            out.int16(0);
+            out.int16(0);
+            out.int16(entries.size());
+            out.int16(entries.size());
+            out.int32((int) directorySize);
+            out.int32((int) directoryStart);
+            out.int16(0);
+        }
+        return output;
+    }
+
+    // Random access to an archive: only the central directory is read up front; each prompt is one seek and one read.
+    public static final class Reader implements Closeable {
+
+        private static final class Location {
+            final int method;
+            final int crc;
+            final long compressedSize;
+            final long size;
+            final long headerOffset;
+
+            Location(int method, int crc, long compressedSize, long size, long headerOffset) {
+                this.method = method;
+                this.crc = crc;
+                this.compressedSize = compressedSize;
+                this.size = size;
+                this.headerOffset = headerOffset;
+            }
+        }
+
+        private final Path path;
+        private final FileChannel channel;
+        private final Map<String, Location> entries = new LinkedHashMap<>();
+        private Map<String, String> index;
+
+        public Reader(Path path) throws IOException {
+            this.path = path;
+            this.channel = FileChannel.open(path, StandardOpenOption.READ);
+            try {
+                readDirectory();
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        public Set<String> names() {
+            return Collections.unmodifiableSet(entries.keySet());
+        }
+
+        // the entry for a file name, "METHOD /path" or operationId; null when the archive has no such prompt
+        public String resolve(String key) throws IOException {
+            if (entries.containsKey(key)) return key;
+            if (index == null) {
+                index = new HashMap<>();
+                if (entries.containsKey(OutputNames.INDEX_FILE)) {
+                    for (String line : read(OutputNames.INDEX_FILE).split("\n")) {
+                        String[] fields = line.split("\t", -1);
+                        if (fields.length < 3) continue;
+                        index.put(fields[0], fields[2]);
+                        if (!fields[1].isEmpty()) index.putIfAbsent(fields[1], fields[2]);
+                    }
+                }
+            }
+            String name = index.get(key);
+            return name != null && entries.containsKey(name) ? name : null;
+        }
+
+        public String read(String name) throws IOException {
+            return new String(inflate(name), StandardCharsets.UTF_8);
+        }
+
+        // entries compare by CRC and size without decompressing either side
+        boolean same(String name, Reader other) {
+            Location a = entries.get(name);
+            Location b = other.entries.get(name);
+            return a != null && b != null && a.crc == b.crc && a.size == b.size;
+        }
+
+        Entry raw(String name) throws IOException {
+            Location location = location(name);
+            return new Entry(name, location.method, location.crc, location.size, data(location));
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+
+        private Location location(String name) throws IOException {
+            Location location = entries.get(name);
+            if (location == null) throw new IOException(path + " has no entry " + name);
+            return location;
+        }
+
+        private byte[] inflate(String name) throws IOException {
+            Location location = location(name);
+            byte[] data = data(location);
+            byte[] bytes;
+            if (location.method == STORED) {
+                bytes = data;
+            } else if (location.method == DEFLATED) {
+                Inflater inflater = new Inflater(true);
+                try {
+                    inflater.setInput(data);
+                    bytes = new byte[(int) location.size];
+                    int n = 0;
+                    while (n < bytes.length && !inflater.finished()) {
+                        int read = inflater.inflate(bytes, n, bytes.length - n);
+                        if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                        n += read;
+                    }
+                    if (n != bytes.length) throw new IOException(name + " in " + path + " is truncated");
+                } catch (DataFormatException e) {
+                    throw new IOException(name + " in " + path + " is corrupt: " + e.getMessage(), e);
+                } finally {
+                    inflater.end();
+                }
+            } else {
+                throw new IOException(name + " in " + path + " uses unsupported compression method " + location.method);
+            }
+            CRC32 crc = new CRC32();
+            crc.update(bytes);
+            if ((int) crc.getValue() != location.crc) throw new IOException(name + " in " + path + " fails its CRC check");
+            return bytes;
+        }
+
+        private byte[] data(Location location) throws IOException {
+            ByteBuffer header = readAt(location.headerOffset, 30);
+            if (header.getInt(0) != LOCAL_HEADER) throw new IOException(path + " has no local header at " + location.headerOffset);
+            long start = location.headerOffset + 30 + (header.getShort(26) & 0xFFFF) + (header.getShort(28) & 0xFFFF);
+            return readAt(start, (int) location.compressedSize).array();
+        }
+
+        private void readDirectory() throws IOException {
+            long size = channel.size();
+            int tail = (int) Math.min(size, 22 + 0xFFFF);
+            ByteBuffer end = readAt(size - tail, tail);
+            int eocd = -1;
+            for (int i = tail - 22; i >= 0; i--) {
+                if (end.getInt(i) == END_OF_CENTRAL_DIRECTORY) {
+                    eocd = i;
+                    break;
+                }
+            }
+            if (eocd < 0) throw new IOException(path + " is not a ZIP archive");
+            int count = end.getShort(eocd + 10) & 0xFFFF;
+            long directorySize = end.getInt(eocd + 12) & 0xFFFFFFFFL;
+            long directoryStart = end.getInt(eocd + 16) & 0xFFFFFFFFL;
+            ByteBuffer directory = readAt(directoryStart, (int) directorySize);
+            int at = 0;
+            for (int i = 0; i < count; i++) {
+                if (directory.getInt(at) != CENTRAL_HEADER) throw new IOException(path + " has a corrupt central directory");
+                int method = directory.getShort(at + 10) & 0xFFFF;
+                int crc = directory.getInt(at + 16);
+                long compressedSize = directory.getInt(at + 20) & 0xFFFFFFFFL;
+                long uncompressedSize = directory.getInt(at + 24) & 0xFFFFFFFFL;
+                int nameLength = directory.getShort(at + 28) & 0xFFFF;
+                int extraLength = directory.getShort(at + 30) & 0xFFFF;
+                int commentLength = directory.getShort(at + 32) & 0xFFFF;
+                long headerOffset = directory.getInt(at + 42) & 0xFFFFFFFFL;
+                String name = new String(directory.array(), at + 46, nameLength, StandardCharsets.UTF_8);
+                entries.put(name, new Location(method, crc, compressedSize, uncompressedSize, headerOffset));
+                at += 46 + nameLength + extraLength + commentLength;
+            }
+        }
+
+        private ByteBuffer readAt(long position, int length) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) throw new IOException(path + " is truncated");
+            }
+            return buffer;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: java PromptArchive <archive.zip> [operation|file]  |  java PromptArchive <old.zip> <new.zip> [operation|file]");
+            System.exit(2);
+        }
+        if (args.length >= 2 && args[1].endsWith(".zip")) {
+            System.exit(diff(Paths.get(args[0]), Paths.get(args[1]), args.length > 2 ? args[2] : null) ? 1 : 0);
+        }
+        try (Reader archive = new Reader(Paths.get(args[0]))) {
+            if (args.length == 1) {
+                for (String name : archive.names()) System.out.println(name);
+                return;
+            }
+            String name = archive.resolve(args[1]);
+            if (name == null) {
+                System.err.println("❌ " + args[0] + " has no prompt for " + args[1]);
+                System.exit(1);
+            }
+            System.out.print(archive.read(name));
+        }
+    }
+
+    // true when anything differs
+    static boolean diff(Path oldPath, Path newPath, String key) throws IOException {
+        try (Reader before = new Reader(oldPath); Reader after = new Reader(newPath)) {
+            if (key != null) {
+                String oldName = before.resolve(key);
+                String newName = after.resolve(key);
+                List<String> oldLines = oldName != null ? lines(before.read(oldName)) : Collections.<String>emptyList();
+                List<String> newLines = newName != null ? lines(after.read(newName)) : Collections.<String>emptyList();
+                System.out.println("--- " + oldPath + (oldName != null ? "!" + oldName : " (missing)"));
+                System.out.println("+++ " + newPath + (newName != null ? "!" + newName : " (missing)"));
+                return printLineDiff(oldLines, newLines);
+            }
+            boolean changed = false;
+            for (String name : before.names()) {
+                if (!after.entries.containsKey(name)) {
+                    System.out.println("- " + name);
+                    changed = true;
+                } else if (!before.same(name, after)) {
+                    System.out.println("M " + name);
+                    changed = true;
+                }
+            }
+            for (String name : after.names()) {
+                if (!before.entries.containsKey(name)) {
+                    System.out.println("+ " + name);
+                    changed = true;
+                }
+            }
+            return changed;
+        }
+    }
+
+    private static List<String> lines(String text) {
+        return Arrays.asList(text.split("\n", -1));
+    }
+
+    // longest common subsequence over lines; prompts are a few hundred lines, so the quadratic table is fine
+    private static boolean printLineDiff(List<String> a, List<String> b) {
+        int[][] lcs = new int[a.size() + 1][b.size() + 1];
+        for (int i = a.size() - 1; i >= 0; i--) {
+            for (int j = b.size() - 1; j >= 0; j--) {
+                lcs[i][j] = a.get(i).equals(b.get(j)) ? lcs[i + 1][j + 1] + 1 : Math.max(lcs[i + 1][j], lcs[i][j + 1]);
+            }
+        }
+        boolean changed = false;
+        int i = 0;
+        int j = 0;
+        while (i < a.size() || j < b.size()) {
+            if (i < a.size() && j < b.size() && a.get(i).equals(b.get(j))) {
+                i++;
+                j++;
+            } else if (j < b.size() && (i == a.size() || lcs[i][j + 1] >= lcs[i + 1][j])) {
+                System.out.println("+" + b.get(j++));
+                changed = true;
+            } else {
+                System.out.println("-" + a.get(i++));
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    private static final class LittleEndianOutput implements Closeable {
+        private final OutputStream out;
+        long written;
+
+        LittleEndianOutput(OutputStream out) {
+            this.out = new BufferedOutputStream(out, 64 * 1024);
+        }
+
+        void int16(int value) throws IOException {
+            out.write(value & 0xFF);
+            out.write((value >>> 8) & 0xFF);
+            written += 2;
+        }
+
+        void int32(int value) throws IOException {
+            int16(value & 0xFFFF);
+            int16((value >>> 16) & 0xFFFF);
+        }
+
+        void bytes(byte[] bytes) throws IOException {
+            out.write(bytes);
+            written += bytes.length;
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+}
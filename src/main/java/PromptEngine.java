@@ -0,0 +1,515 @@
+import io.swagger.v3.oas.models.OpenAPI;
+import io.swagger.v3.parser.OpenAPIV3Parser;
+import io.swagger.v3.parser.core.models.SwaggerParseResult;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+
+// The pipeline shared by every PromptTarget: parse and resolve the spec once, render each operation through the common
+// prompt skeleton with the target's hooks, and write prompts, analytics, shard manifests and the failure report.
+// Usage: java PromptEngine [target ...]   (every target on the classpath when none is named)
+public class PromptEngine {
+
+    private static final String inputYamlPath = "src/main/resources/openapi.yaml";
+    private static final boolean INCLUDE_GLOBAL_RESPONSES = true;
+    private static final boolean EMIT_ANALYTICS = true;
+    private static final long OPERATION_TIMEOUT_MILLIS = 60_000;
+    static final String PROMPT_EXTENSION = ".txt";
+    // -Doutput.format=archive packs each output directory into one PromptArchive instead of a file per prompt
+    private static final boolean ARCHIVE = "archive".equals(System.getProperty("output.format"));
+
+    // per-run state handed to the target hooks
+    public static final class Run {
+        public final PromptTarget target;
+        public final ApiModel model;
+        public final SamplePayloadSynthesizer synthesizer;
+        public final ShardPlan shard;
+        public final FailureReport report;
+        private final Path root;
+        private final List<ApiModel.Endpoint> endpoints;
+        private final Map<ApiModel.Endpoint, Long> rows = new ConcurrentHashMap<>();
+        private final Map<ApiModel.Endpoint, List<Path>> attachments = new ConcurrentHashMap<>();
+        private final Map<ApiModel.Endpoint, Path> outputs = new LinkedHashMap<>();
+        private final Map<String, String> manifestHeaders = new LinkedHashMap<>();
+
+        Run(PromptTarget target, ApiModel model, Path root, ShardPlan shard) {
+            this.target = target;
+            this.model = model;
+            this.synthesizer = new SamplePayloadSynthesizer(model.getSchemas());
+            this.shard = shard;
+            this.report = new FailureReport(target.getClass().getSimpleName(), model);
+            this.root = root;
+            this.endpoints = shard.select(model.getEndpoints());
+        }
+
+        // operations this process renders, in spec order
+        public List<ApiModel.Endpoint> endpoints() {
+            return endpoints;
+        }
+
+        // every output location of a target goes through here, so a run can be redirected as a whole
+        public Path resolve(String dir) {
+            return root.resolve(dir);
+        }
+
+        // rows the operation contributed to a shared bundle, so ShardMerger can stitch the bundle back together
+        public void rows(ApiModel.Endpoint ep, long count) {
+            rows.put(ep, count);
+            shard.record(ep, count);
+        }
+
+        // a side file written for the operation, listed next to its prompt in the shard manifest
+        public void attach(ApiModel.Endpoint ep, Path output) {
+            attachments.computeIfAbsent(ep, k -> Collections.synchronizedList(new ArrayList<Path>())).add(output);
+        }
+
+        public void manifestHeader(String key, String value) {
+            manifestHeaders.put(key, value);
+        }
+
+        // prompts written successfully, in spec order; filled before finish()
+        public Map<ApiModel.Endpoint, Path> outputs() {
+            return outputs;
+        }
+    }
+
+    // one operation's prompt between rendering and writing
+    private static final class Rendered {
+        final CharSequence prompt;
+        final long started;
+
+        Rendered(CharSequence prompt, long started) {
+            this.prompt = prompt;
+            this.started = started;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<PromptTarget> targets = targets(Arrays.asList(args));
+        RunManifest.Spec spec = parse();
+        if (spec == null) return;
+        int status = 0;
+        for (PromptTarget target : targets) {
+            status = Math.max(status, run(target, spec, Paths.get("")));
+        }
+        if (status != 0) System.exit(status);
+    }
+
+    // entry point of the classic one-target main methods
+    static void main(PromptTarget target) throws Exception {
+        RunManifest.Spec spec = parse();
+        if (spec == null) return;
+        int status = run(target, spec, Paths.get(""));
+        if (status != 0) System.exit(status);
+    }
+
+    static List<PromptTarget> targets(Collection<String> names) {
+        List<PromptTarget> targets = new ArrayList<>();
+        Set<String> unknown = new LinkedHashSet<>(names);
+        for (PromptTarget target : ServiceLoader.load(PromptTarget.class)) {
+            if (names.isEmpty() || unknown.remove(target.name())) targets.add(target);
+        }
+        if (!unknown.isEmpty()) throw new IllegalArgumentException("Unknown prompt target(s) " + unknown);
+        return targets;
+    }
+
+    static PromptTarget target(String name) {
+        return targets(Collections.singleton(name)).get(0);
+    }
+
+    private static RunManifest.Spec parse() {
+        long started = System.nanoTime();
+        String location;
+        Map<String, String> sources;
+        try (SpecBundler bundler = SpecBundler.fromSystemProperties()) {
+            location = bundler.bundle(inputYamlPath);
+            sources = bundler.sources(inputYamlPath);
+        } catch (IOException e) {
+            System.err.println("❌ Failed to bundle " + inputYamlPath + ": " + e);
+            return null;
+        }
+        SwaggerParseResult parseResult = new OpenAPIV3Parser().readLocation(location, null, null);
+        OpenAPI openAPI = parseResult.getOpenAPI();
+
+        if (openAPI == null || openAPI.getPaths() == null) {
+            System.err.println("❌ Failed to parse OpenAPI YAML: " + parseResult.getMessages());
+            return null;
+        }
+        ApiModel model = ApiModel.build(openAPI, INCLUDE_GLOBAL_RESPONSES);
+        return new RunManifest.Spec(model, inputYamlPath, location, sources, started);
+    }
+
+    static Run open(PromptTarget target, ApiModel model, Path root) {
+        return open(target, model, root, ShardPlan.fromSystemProperties());
+    }
+
+    static Run open(PromptTarget target, ApiModel model, Path root, ShardPlan shard) {
+        return new Run(target, model, root, shard);
+    }
+
+    // renders and writes every operation of the target; returns the process exit status
+    static int run(PromptTarget target, RunManifest.Spec spec, Path root) throws Exception {
+        return run(target, spec, root, ShardPlan.fromSystemProperties());
+    }
+
+    static int run(PromptTarget target, RunManifest.Spec spec, Path root, ShardPlan shard) throws Exception {
+        long started = System.nanoTime();
+        ApiModel model = spec.model;
+        Run run = open(target, model, root, shard);
+        Path outputDir = run.resolve(target.outputDir());
+        PromptAnalytics analytics = EMIT_ANALYTICS
+                ? new PromptAnalytics(target.name(), model, run.resolve(PromptAnalytics.OUTPUT_DIR)) : null;
+        PromptArchive archive = ARCHIVE ? new PromptArchive(run.endpoints.size()) : null;
+        Path archivePath = run.shard.fragment(outputDir.resolve(PromptArchive.FILE_NAME));
+        Map<ApiModel.Endpoint, Integer> slots = new IdentityHashMap<>();
+        for (ApiModel.Endpoint ep : run.endpoints) slots.put(ep, slots.size());
+        if (archive != null) run.manifestHeader("archive", outputDir.resolve(PromptArchive.FILE_NAME) + "\t" + archivePath);
+
+        RenderScheduler scheduler = new RenderScheduler(model, run.report, OPERATION_TIMEOUT_MILLIS);
+        if (scheduler.fallback() != null) System.out.println("ℹ️ " + scheduler.fallback());
+        RunManifest manifest = new RunManifest(target, spec, scheduler, run.shard);
+
+        long phase = System.nanoTime();
+        target.start(run);
+        manifest.phase("start", phase);
+        phase = System.nanoTime();
+        // prompts are rendered in memory and only written, archived and recorded by an operation that did not time out
+        List<Path> outputs = scheduler.map(run.endpoints, ep -> {
+            long operationStarted = System.nanoTime();
+            FailureReport.phase("prepare");
+            String artifact = target.prepare(run, ep);
+            FailureReport.phase("prompt");
+            return new Rendered(render(run, ep, artifact), operationStarted);
+        }, (ep, rendered) -> {
+            CharSequence prompt = rendered.prompt;
+            if (analytics != null) {
+                FailureReport.phase("analytics");
+                analytics.record(ep, prompt);
+            }
+            FailureReport.phase("write");
+            String fileName = model.getOutputNames().name(ep) + PROMPT_EXTENSION;
+            // in archive mode the file still serves finish(), e.g. the Jira export, and is removed afterwards
+            Path output = PromptOutput.write(outputDir.resolve(fileName), prompt);
+            System.out.println("✅ Saved: " + output);
+            if (archive != null) archive.put(slots.get(ep), fileName, prompt);
+            List<Path> recorded = new ArrayList<>();
+            recorded.add(archive != null ? archivePath : output);
+            List<Path> attached = run.attachments.get(ep);
+            if (attached != null) recorded.addAll(attached);
+            Long rows = run.rows.get(ep);
+            run.shard.record(ep, rows != null ? rows : 0, recorded.toArray(new Path[0]));
+            manifest.record(slots.get(ep), ep, fileName, prompt, attached, rendered.started);
+            return output;
+        }, ep -> {
+            List<Path> attached = run.attachments.remove(ep);
+            if (attached != null) {
+                for (Path file : attached) Files.deleteIfExists(file);
+            }
+        });
+        manifest.phase("render", phase);
+        for (int i = 0; i < outputs.size(); i++) {
+            if (outputs.get(i) != null) run.outputs.put(run.endpoints.get(i), outputs.get(i));
+        }
+
+        phase = System.nanoTime();
+        target.finish(run);
+        manifest.phase("finish", phase);
+        phase = System.nanoTime();
+        // names are fixed for the whole spec, so one shard can write the index for all
+        if (archive != null) {
+            CharSequence index = run.shard.isPrimary() ? model.getOutputNames().index(PROMPT_EXTENSION) : null;
+            System.out.println("✅ Saved: " + archive.write(archivePath, index) + " (" + run.outputs.size() + " prompts)");
+            for (Path output : run.outputs.values()) Files.deleteIfExists(output);
+        } else if (run.shard.isPrimary()) {
+            System.out.println("✅ Saved: " + model.getOutputNames().writeIndex(outputDir, PROMPT_EXTENSION));
+        }
+        if (analytics != null) {
+            Path csv = analytics.write(run.shard);
+            run.manifestHeader("analytics", analytics.file() + "\t" + csv);
+        }
+        Path failureReport = outputDir.resolve(FailureReport.FILE_NAME);
+        int status = run.report.finish(run.shard.fragment(failureReport));
+        // the merge needs every per-shard file and the shard's outcome, so the shard manifest is written last but one
+        Path runManifest = outputDir.resolve(RunManifest.FILE_NAME);
+        run.manifestHeader("failures", failureReport + "\t" + run.shard.fragment(failureReport));
+        run.manifestHeader("runManifest", runManifest + "\t" + run.shard.fragment(runManifest));
+        run.manifestHeader("status", String.valueOf(status));
+        run.shard.writeManifest(outputDir.toString(), run.manifestHeaders);
+        manifest.phase("write", phase);
+        manifest.phase("total", started);
+        manifest.write(run.shard.fragment(runManifest));
+        return status;
+    }
+
+    static CharSequence render(Run run, ApiModel.Endpoint ep, String artifact) {
+        PromptTarget target = run.target;
+        StringBuilder prompt = new StringBuilder();
+        prompt.append(target.header()).append("\n\n")
+                .append("Path: ").append(ep.path).append("\n")
+                .append("Method: ").append(ep.method).append("\n")
+                .append("Summary: ").append(ep.summary != null ? ep.summary : "(no summary provided)").append("\n\n");
+
+        SchemaGraph schemas = run.model.getSchemas();
+        if (!ep.params.isEmpty()) {
+            prompt.append("Parameters:\n");
+            for (ApiModel.Param p : ep.params) {
+                SchemaGraph.Node schema = schemas.effective(p.schema);
+                String constraints = schemas.constraints(p.schema).describe();
+                prompt.append("- ").append(p.name).append(" (in: ").append(p.in)
+                        .append(", required: ").append(p.required)
+                        .append(", type: ").append(schema != null ? schema.type : "unknown")
+                        .append(constraints.isEmpty() ? "" : ", " + constraints).append(")\n");
+            }
+        } else {
+            prompt.append("Parameters: none\n");
+        }
+        appendSecurity(prompt, ep.security);
+        if (target.matrixStrength() > 0) {
+            ParameterMatrix matrix = ParameterMatrix.of(ep, schemas, run.synthesizer, target.matrixStrength());
+            if (matrix != null) matrix.appendTo(prompt);
+        }
+
+        for (ApiModel.Body body : ep.bodies) {
+            String mediaTypeKey = body.mediaType;
+
+            prompt.append("\n-- Media Type: ").append(mediaTypeKey).append(" --\n");
+
+            if (mediaTypeKey.contains("multipart/form-data")) {
+                prompt.append("jHandle as multipart upload with file and form fields\n");
+            }
+
+            if (body.schema != SchemaGraph.NONE) {
+                prompt.append("Sample request body:\n");
+                appendSchemaFields(prompt, schemas, body.schema, 1);
+                if (body.example != null) {
+                    prompt.append(indent(1)).append("Example: ").append(CanonicalJson.text(body.example)).append("\n");
+                } else {
+                    body.examples.forEach((k, v) -> prompt.append(indent(1)).append("Example - ").append(k).append(": ")
+                            .append(CanonicalJson.text(v)).append("\n"));
+                }
+                target.appendPayloads(run, prompt, mediaTypeKey, body.schema);
+            }
+        }
+
+        if (!ep.responses.isEmpty() && target.includeResponses(artifact)) {
+            for (ApiModel.Response response : ep.responses) {
+                prompt.append("\nSample :").append(response.code).append(" responses:\n");
+                if (response.content != null) {
+                    for (ApiModel.Body body : response.content) {
+                        prompt.append(indent(1)).append("Content-Type: ").append(body.mediaType).append("\n");
+                        if (body.schema != SchemaGraph.NONE) {
+                            appendSchemaFields(prompt, schemas, body.schema, 1);
+                            Object example = schemas.node(body.schema).example;
+                            if (example != null) {
+                                prompt.append(indent(1)).append("Example: ").append(CanonicalJson.text(example)).append("\n");
+                            }
+                        }
+                    }
+                } else {
+                    prompt.append(" - No Schema defined \n");
+                }
+            }
+        }
+
+        target.appendInstructions(prompt, ep, artifact);
+        return prompt;
+    }
+
+    public static void appendSamplePayload(Run run, StringBuilder prompt, String mediaTypeKey, int schema) {
+        prompt.append(indent(1)).append("Sample payload: ")
+                .append(SamplePayloadSynthesizer.render(run.synthesizer.sample(schema), mediaTypeKey,
+                        run.synthesizer.rootName(schema))).append("\n");
+    }
+
+    public static void appendBoundaryAndInvalidPayloads(Run run, StringBuilder prompt, String mediaTypeKey, int schema) {
+        appendBoundaryPayloads(run, prompt, mediaTypeKey, schema);
+        String rootName = run.synthesizer.rootName(schema);
+        List<SamplePayloadSynthesizer.NamedSample> invalid = run.synthesizer.invalidSamples(schema, mediaTypeKey);
+        if (!invalid.isEmpty()) {
+            prompt.append(indent(1)).append("Invalid payloads:\n");
+            for (SamplePayloadSynthesizer.NamedSample sample : invalid) {
+                prompt.append(indent(2)).append("- ").append(sample.name).append(": ")
+                        .append(SamplePayloadSynthesizer.render(sample.value, mediaTypeKey, rootName)).append("\n");
+            }
+        }
+    }
+
+    // for a prompt whose feature skeleton already sends a sample body and an invalid one: the cases, without payloads
+    public static void appendInvalidPayloadNames(Run run, StringBuilder prompt, String mediaTypeKey, int schema) {
+        List<SamplePayloadSynthesizer.NamedSample> invalid = run.synthesizer.invalidSamples(schema, mediaTypeKey);
+        if (invalid.isEmpty()) return;
+        prompt.append(indent(1)).append("Invalid payloads (the sample with one change each): ");
+        for (int i = 0; i < invalid.size(); i++) {
+            prompt.append(i > 0 ? "; " : "").append(invalid.get(i).name);
+        }
+        prompt.append("\n");
+    }
+
+    public static void appendBoundaryPayloads(Run run, StringBuilder prompt, String mediaTypeKey, int schema) {
+        String rootName = run.synthesizer.rootName(schema);
+        List<SamplePayloadSynthesizer.NamedSample> boundary = run.synthesizer.boundarySamples(schema);
+        if (!boundary.isEmpty()) {
+            prompt.append(indent(1)).append("Boundary payloads:\n");
+            for (SamplePayloadSynthesizer.NamedSample sample : boundary) {
+                prompt.append(indent(2)).append("- ").append(sample.name).append(": ")
+                        .append(SamplePayloadSynthesizer.render(sample.value, mediaTypeKey, rootName)).append("\n");
+            }
+        }
+    }
+
+    public static void appendVariants(Run run, StringBuilder prompt, String mediaTypeKey, int schema,
+                                      SchemaVariantEngine.Strategy strategy, int limit, long seed, int splitAt) {
+        appendVariants(run, prompt, mediaTypeKey, schema, strategy, limit, seed, splitAt, false);
+    }
+
+    // omitSample leaves out the variant that renders as the plain sample, e.g. when a feature skeleton already sends it
+    public static void appendVariants(Run run, StringBuilder prompt, String mediaTypeKey, int schema,
+                                      SchemaVariantEngine.Strategy strategy, int limit, long seed, int splitAt,
+                                      boolean omitSample) {
+        Object sample = omitSample ? run.synthesizer.sample(schema) : null;
+        SchemaVariantEngine engine = new SchemaVariantEngine(run.model.getSchemas(), strategy, limit, seed);
+        String rootName = run.synthesizer.rootName(schema);
+        Iterator<SchemaVariantEngine.Variant> variants = engine.variants(schema);
+        List<Callable<String>> lines = new ArrayList<>();
+        while (variants.hasNext()) {
+            SchemaVariantEngine.Variant variant = variants.next();
+            if (variant.isEmpty()) break;
+            if (sample != null && sample.equals(run.synthesizer.sample(schema, variant))) continue;
+            int number = lines.size() + 1;
+            lines.add(() -> indent(2) + number + ". " + variant.describe() + ": "
+                    + SamplePayloadSynthesizer.render(run.synthesizer.sample(schema, variant), mediaTypeKey, rootName) + "\n");
+        }
+        if (lines.isEmpty()) return;
+        prompt.append(indent(1)).append("Variants (oneOf/anyOf combinations, strategy: ")
+                .append(strategy.name().toLowerCase(Locale.ROOT)).append(", limit: ").append(limit).append("):\n");
+        // a wide oneOf is the most expensive part of a prompt, so its samples are rendered as stealable subtasks
+        for (String line : RenderScheduler.forkAll(lines, splitAt)) {
+            prompt.append(line);
+        }
+    }
+
+    private static void appendSecurity(StringBuilder prompt, ApiModel.Security security) {
+        List<String> lines = security.describe();
+        if (lines.isEmpty()) {
+            prompt.append("Security: none\n");
+            return;
+        }
+        prompt.append(lines.size() > 1 ? "Security (any one of):\n" : "Security:\n");
+        for (String line : lines) {
+            prompt.append("- ").append(line).append("\n");
+        }
+    }
+
+    private static void appendSchemaFields(StringBuilder prompt, SchemaGraph schemas, int id, int indent) {
+        appendSchemaFields(prompt, schemas, id, indent, true);
+    }
+
+    // object-level constraints are skipped for property values, whose own line already lists them
+    private static void appendSchemaFields(StringBuilder prompt, SchemaGraph schemas, int id, int indent, boolean describe) {
+        SchemaGraph.Node schema = schemas.node(id);
+        if (schema == null) return;
+
+        if (schema.isRef()) {
+            if (schema.target != SchemaGraph.NONE) {
+                appendSchemaFields(prompt, schemas, schema.target, indent, describe);
+            } else {
+                prompt.append(indent(indent)).append("- unknown schema (unresolved ref: ").append(schema.ref).append(")\n");
+            }
+            return;
+        }
+
+        if (schema.allOf.length > 0) {
+            schema = schemas.effective(id);
+        }
+
+        if (describe) {
+            appendObjectConstraints(prompt, schemas, schema, indent);
+        }
+
+        if (schema.oneOf.length > 0 || schema.anyOf.length > 0) {
+            if (schema.hasProperties()) {
+                appendProperties(prompt, schemas, schema, indent);
+            }
+            if (schema.oneOf.length > 0) {
+                prompt.append(indent(indent)).append("oneOf:\n");
+                for (int s : schema.oneOf) {
+                    appendSchemaFields(prompt, schemas, s, indent + 1);
+                }
+            }
+            if (schema.anyOf.length > 0) {
+                prompt.append(indent(indent)).append("anyOf:\n");
+                for (int s : schema.anyOf) {
+                    appendSchemaFields(prompt, schemas, s, indent + 1);
+                }
+            }
+            return;
+        }
+
+        if (schema.array) {
+            prompt.append(indent(indent)).append("- array\n");
+            if (schema.items != SchemaGraph.NONE) {
+                prompt.append(indent(indent + 1)).append("items:\n");
+                appendSchemaFields(prompt, schemas, schema.items, indent + 2);
+            } else {
+                prompt.append(indent(indent + 1)).append(" unknown items schema\n");
+            }
+            return;
+        }
+
+        if (schema.object) {
+            if (schema.hasProperties()) {
+                appendProperties(prompt, schemas, schema, indent);
+            } else {
+                prompt.append(indent(indent)).append("-object (no properties)\n");
+            }
+            return;
+        }
+        String type = schema.type;
+        if (type != null) {
+            String constraints = schemas.constraints(id).describe();
+            prompt.append(indent(indent)).append("- ").append(type)
+                    .append(constraints.isEmpty() ? "" : " (" + constraints + ")").append("\n");
+        } else {
+            prompt.append(indent(indent)).append("- unknown Schema\n");
+        }
+    }
+
+    // discriminator, additionalProperties and property counts only apply to objects and compositions
+    private static void appendObjectConstraints(StringBuilder prompt, SchemaGraph schemas, SchemaGraph.Node schema, int indent) {
+        Constraints c = schemas.constraints(schema.id);
+        if (c.discriminator == null && c.additionalProperties == null && c.minProperties == null && c.maxProperties == null) return;
+        prompt.append(indent(indent)).append("- constraints: ").append(c.describe()).append("\n");
+    }
+
+    private static void appendProperties(StringBuilder prompt, SchemaGraph schemas, SchemaGraph.Node schema, int indent) {
+        for (int i = 0; i < schema.properties.length; i++) {
+            String key = schema.propertyNames[i];
+            int id = schema.properties[i];
+            SchemaGraph.Node prop = schemas.effective(id);
+            String type = prop != null && prop.type != null ? prop.type : prop != null && prop.array ? "array" : "object";
+            String constraints = schemas.constraints(id).describe();
+            prompt.append(indent(indent)).append("- ").append(key)
+                    .append(" (type: ").append(type);
+            if (schema.required.contains(key)) prompt.append(", required");
+            if (!constraints.isEmpty()) prompt.append(", ").append(constraints);
+            prompt.append(")\n");
+            // primitives are fully described by the property line; only nested structure is expanded
+            if (prop == null || prop.array || prop.object || prop.hasProperties() || prop.oneOf.length > 0 || prop.anyOf.length > 0) {
+                appendSchemaFields(prompt, schemas, id, indent + 1, false);
+            }
+        }
+    }
+
+    static String indent(int level) {
+        StringBuilder sb = new StringBuilder(level * 2);
+        for (int i = 0; i < level; i++) {
+            sb.append("  ");
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,87 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+public final class PromptOutput {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_POOLED_BUFFERS = 64;
+    // a single output beyond this is almost certainly a runaway expansion, not a prompt anyone can use
+    static final int MAX_OUTPUT_CHARS = 16 * 1024 * 1024;
+
+    private static final Queue<ByteBuffer> POOL = new ConcurrentLinkedQueue<>();
+    private static final ThreadLocal<CharsetEncoder> ENCODER = ThreadLocal.withInitial(() -> StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE));
+
+    private PromptOutput() {
+    }
+
+    // Encodes straight from the builder into pooled direct buffers and hands them to the channel in one gathering write,
+    // so a prompt is never copied into an intermediate String or byte[] on the heap.
+    public static Path write(Path output, CharSequence text) throws IOException {
+        if (text.length() > MAX_OUTPUT_CHARS) {
+            throw new IOException(output + " would be " + text.length() + " chars, above the " + MAX_OUTPUT_CHARS + " char limit");
+        }
+        if (output.getParent() != null) Files.createDirectories(output.getParent());
+        List<ByteBuffer> buffers = encode(text);
+        try (FileChannel channel = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer[] chunks = buffers.toArray(new ByteBuffer[0]);
+            long remaining = 0;
+            for (ByteBuffer chunk : chunks) remaining += chunk.remaining();
+            while (remaining > 0) {
+                remaining -= channel.write(chunks);
+            }
+        } finally {
+            for (ByteBuffer buffer : buffers) release(buffer);
+        }
+        return output;
+    }
+
+    private static List<ByteBuffer> encode(CharSequence text) {
+        CharsetEncoder encoder = ENCODER.get();
+        encoder.reset();
+        CharBuffer in = CharBuffer.wrap(text);
+        List<ByteBuffer> buffers = new ArrayList<>();
+        ByteBuffer out = acquire();
+        buffers.add(out);
+        boolean flushing = false;
+        while (true) {
+            CoderResult result = flushing ? encoder.flush(out) : encoder.encode(in, out, true);
+            if (result.isOverflow()) {
+                out = acquire();
+                buffers.add(out);
+            } else if (!flushing) {
+                flushing = true;
+            } else {
+                break;
+            }
+        }
+        for (ByteBuffer buffer : buffers) buffer.flip();
+        return buffers;
+    }
+
+    private static ByteBuffer acquire() {
+        ByteBuffer buffer = POOL.poll();
+        return buffer != null ? buffer : ByteBuffer.allocateDirect(BUFFER_SIZE);
+    }
+
+    // the pool is only a soft cap: concurrent releases may briefly exceed it, which is harmless
+    private static void release(ByteBuffer buffer) {
+        buffer.clear();
+        if (POOL.size() < MAX_POOLED_BUFFERS) POOL.offer(buffer);
+    }
+}
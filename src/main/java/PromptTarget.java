@@ -0,0 +1,45 @@
+// One kind of prompt. A target only declares what differs from the shared prompt skeleton; PromptEngine parses the spec,
+// resolves schemas, renders, schedules and writes. Targets are found with java.util.ServiceLoader: list the class in
+// META-INF/services/PromptTarget of any jar on the classpath. A target instance serves a single run, so it may keep
+// per-run helpers in fields it sets up in start().
+public interface PromptTarget {
+
+    // short id used on the command line, in analytics and in golden test directories
+    String name();
+
+    String outputDir();
+
+    // first line of every prompt, without the line break
+    String header();
+
+    // everything after the responses: generated artifacts, the instruction list and security instructions
+    void appendInstructions(StringBuilder prompt, ApiModel.Endpoint ep, String artifact);
+
+    // called once before any operation is rendered, e.g. to set up emitters or export a whole-spec bundle
+    default void start(PromptEngine.Run run) throws Exception {
+    }
+
+    // emits a per-operation artifact (feature skeleton, simulation) that the prompt embeds; null when there is none
+    default String prepare(PromptEngine.Run run, ApiModel.Endpoint ep) throws Exception {
+        return null;
+    }
+
+    // a prompt that embeds a generated artifact usually leaves the response listing to it
+    default boolean includeResponses(String artifact) {
+        return true;
+    }
+
+    // strength of the parameter matrix listed under the parameters (2 for pairwise); 0 leaves it out
+    default int matrixStrength() {
+        return 0;
+    }
+
+    // sample payloads printed under each request body; targets add variants or boundary and invalid payloads here
+    default void appendPayloads(PromptEngine.Run run, StringBuilder prompt, String mediaType, int schema) {
+        PromptEngine.appendSamplePayload(run, prompt, mediaType, schema);
+    }
+
+    // post-processing once every operation was written, e.g. exports or cross-operation prompts
+    default void finish(PromptEngine.Run run) throws Exception {
+    }
+}
@@ -0,0 +1,436 @@
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+public class RenderScheduler {
+
+    // oneOf/anyOf fan-out is multiplied into the cost, capped like the variant engine caps its output
+    private static final long MAX_FAN_OUT = 64;
+
+    private static final long POLL_MILLIS = 50;
+
+    private static final int PENDING = 0;
+    private static final int RUNNING = 1;
+    private static final int ABANDONED = 2;
+    private static final int TIMED_OUT = 3;
+    private static final int COMMITTING = 4;
+    private static final int DONE = 5;
+
+    private static final int IN_FLIGHT_PER_CPU = 16;
+
+    // Executors.newVirtualThreadPerTaskExecutor exists from Java 21 (a preview before); looked up reflectively to keep
+    // the Java 8 target, once per JVM
+    private static final Method VIRTUAL_EXECUTOR = virtualExecutor();
+
+    public interface Task<T> {
+        T render(ApiModel.Endpoint ep) throws Exception;
+    }
+
+    public interface Action {
+        void render(ApiModel.Endpoint ep) throws Exception;
+    }
+
+    // the second phase of an operation: writes what its Task rendered in memory, only while it has not timed out
+    public interface Commit<R, T> {
+        T commit(ApiModel.Endpoint ep, R rendered) throws Exception;
+    }
+
+    // undoes what a timed-out operation left behind before it could be stopped, e.g. side files written while rendering
+    public interface Discard {
+        void discard(ApiModel.Endpoint ep) throws Exception;
+    }
+
+    // forkjoin suits pure rendering; virtual and async suit pipelines that spend their time writing and dispatching
+    public enum Mode {
+        FORK_JOIN, VIRTUAL, ASYNC;
+
+        // -Dexecution=forkjoin|virtual|async, forkjoin when unset
+        static Mode fromSystemProperties() {
+            String mode = System.getProperty("execution", "forkjoin").trim().toLowerCase(Locale.ROOT);
+            switch (mode) {
+                case "forkjoin":
+                    return FORK_JOIN;
+                case "virtual":
+                    return VIRTUAL;
+                case "async":
+                    return ASYNC;
+                default:
+                    throw new IllegalArgumentException("Expected -Dexecution=forkjoin|virtual|async but got " + mode);
+            }
+        }
+    }
+
+    private final SchemaGraph schemas;
+    private final int parallelism;
+    private final FailureReport report;
+    private final long timeoutMillis;
+    private final Mode mode;
+    private final Mode requestedMode;
+    private final int maxInFlight;
+    private final Map<Integer, long[]> footprints = new ConcurrentHashMap<>();
+
+    public RenderScheduler(ApiModel model, FailureReport report, long timeoutMillis) {
+        this(model, Runtime.getRuntime().availableProcessors(), report, timeoutMillis);
+    }
+
+    public RenderScheduler(ApiModel model, int parallelism, FailureReport report, long timeoutMillis) {
+        this(model, parallelism, report, timeoutMillis, Mode.fromSystemProperties(),
+                Integer.getInteger("execution.inFlight", Math.max(1, parallelism) * IN_FLIGHT_PER_CPU));
+    }
+
+    // timeoutMillis <= 0 disables the per-operation time limit; maxInFlight bounds the virtual and async modes
+    public RenderScheduler(ApiModel model, int parallelism, FailureReport report, long timeoutMillis, Mode mode, int maxInFlight) {
+        this.schemas = model.getSchemas();
+        this.parallelism = Math.max(1, parallelism);
+        this.report = report;
+        this.timeoutMillis = timeoutMillis;
+        this.requestedMode = mode;
+        this.mode = mode == Mode.VIRTUAL && VIRTUAL_EXECUTOR == null ? Mode.ASYNC : mode;
+        this.maxInFlight = Math.max(1, maxInFlight);
+    }
+
+    public int parallelism() {
+        return parallelism;
+    }
+
+    // the mode operations actually run in, which is async when virtual threads were asked for but are not available
+    public Mode mode() {
+        return mode;
+    }
+
+    // what the caller should be told about a mode it asked for but does not get; null when it runs as asked
+    public String fallback() {
+        if (mode == requestedMode) return null;
+        return "Virtual threads are not available on Java " + System.getProperty("java.version")
+                + ", running async on platform threads";
+    }
+
+    // Rough rendering cost: schema nodes reached from parameters, bodies and responses, with request bodies weighted by
+    // their oneOf/anyOf fan-out because every branch combination is sampled and rendered.
+    public long cost(ApiModel.Endpoint ep) {
+        long cost = 1 + ep.params.size();
+        for (ApiModel.Body body : ep.bodies) {
+            long[] footprint = footprint(body.schema);
+            cost += footprint[0] * (1 + footprint[1]);
+        }
+        for (ApiModel.Response response : ep.responses) {
+            if (response.content == null) continue;
+            for (ApiModel.Body body : response.content) {
+                cost += footprint(body.schema)[0];
+            }
+        }
+        return cost;
+    }
+
+    public void forEach(List<ApiModel.Endpoint> endpoints, Action task) {
+        map(endpoints, ep -> {
+            task.render(ep);
+            return null;
+        });
+    }
+
+    // Submits the most expensive endpoints first, so a giant operation starts immediately instead of running alone at
+    // the tail. Results come back in spec order regardless of completion order; a failed or timed-out operation is
+    // recorded in the report and leaves a null result.
+    public <T> List<T> map(List<ApiModel.Endpoint> endpoints, Task<T> task) {
+        return map(endpoints, task, (ep, rendered) -> rendered, null);
+    }
+
+    // As map(endpoints, task), but in two phases: the task renders into memory and commit() writes the result only if
+    // the operation moves from running to done. A timed-out operation keeps running until it notices its interrupt, so
+    // whatever it rendered is dropped and discard() cleans up after it instead; a commit in progress cannot time out.
+    public <R, T> List<T> map(List<ApiModel.Endpoint> endpoints, Task<R> task, Commit<R, T> commit, Discard discard) {
+        int n = endpoints.size();
+        Integer[] order = new Integer[n];
+        long[] costs = new long[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+            costs[i] = cost(endpoints.get(i));
+        }
+        Arrays.sort(order, (a, b) -> costs[a] != costs[b] ? Long.compare(costs[b], costs[a]) : Integer.compare(a, b));
+
+        Run<R, T> run = new Run<>(endpoints, task, commit, discard);
+        ExecutorService executor = mode == Mode.FORK_JOIN ? null : pipelineExecutor();
+        if (executor == null) {
+            runForkJoin(run, order);
+        } else {
+            runPipelined(run, order, executor);
+        }
+
+        List<T> ordered = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) ordered.add(run.results.get(i));
+        return ordered;
+    }
+
+    // A timed-out operation keeps its worker thread, so everything not started yet moves to a fresh pool. The rounds
+    // left behind stay watched: their running operations can still time out, and map() returns only once every one of
+    // them has finished, so none keeps writing after its caller moved on.
+    private void runForkJoin(Run<?, ?> run, Integer[] order) {
+        List<Round> live = new ArrayList<>();
+        List<Integer> pending = new ArrayList<>(Arrays.asList(order));
+        try {
+            while (!pending.isEmpty() || !live.isEmpty()) {
+                if (!pending.isEmpty()) {
+                    // every round gets fresh states, so a copy left queued in an abandoned pool can never start the operation again
+                    Round round = new Round(run.endpoints.size(), new ForkJoinPool(parallelism));
+                    for (int i : pending) {
+                        round.submitted.put(i, round.executor.submit(() -> run.execute(i, round.state)));
+                    }
+                    pending.clear();
+                    live.add(round);
+                }
+
+                // the caller only watches; awaitQuiescence would let it run tasks itself and stop noticing timeouts
+                pause(run, live);
+                for (Iterator<Round> rounds = live.iterator(); rounds.hasNext(); ) {
+                    Round round = rounds.next();
+                    if (run.expire(round, null)) {
+                        for (Map.Entry<Integer, Future<?>> entry : round.submitted.entrySet()) {
+                            if (!round.state.compareAndSet(entry.getKey(), PENDING, ABANDONED)) continue;
+                            entry.getValue().cancel(false);
+                            pending.add(entry.getKey());
+                        }
+                    }
+                    if (allDone(round.submitted.values())) {
+                        round.executor.shutdown();
+                        rounds.remove();
+                    }
+                }
+            }
+        } finally {
+            for (Round round : live) round.executor.shutdown();
+        }
+    }
+
+    // One lightweight task per operation runs its whole pipeline (render, write, dispatch, record). At most maxInFlight
+    // are admitted at a time, so fast submission cannot pile up rendered prompts waiting for slow I/O; a timed-out task
+    // gives its slot back at once, and interrupting the caller cancels every task of the run.
+    private void runPipelined(Run<?, ?> run, Integer[] order, ExecutorService executor) {
+        Semaphore slots = new Semaphore(maxInFlight);
+        Round round = new Round(run.endpoints.size(), executor);
+        List<Round> live = Collections.singletonList(round);
+        try {
+            for (int i : order) {
+                while (!slots.tryAcquire(POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    run.expire(round, slots);
+                }
+                round.submitted.put(i, CompletableFuture.runAsync(() -> {
+                    if (run.execute(i, round.state)) slots.release();
+                }, executor));
+            }
+            while (!allDone(round.submitted.values())) {
+                pause(run, live);
+                run.expire(round, slots);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw cancel(run, live);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private ExecutorService pipelineExecutor() {
+        if (mode == Mode.VIRTUAL) {
+            try {
+                return (ExecutorService) VIRTUAL_EXECUTOR.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Cannot start virtual threads", e);
+            }
+        }
+        // unbounded because the semaphore bounds it; a timed-out task that ignores its interrupt cannot starve the rest
+        AtomicInteger threads = new AtomicInteger();
+        return Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "render-async-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // null when the factory is missing or, as on Java 19 and 20 without --enable-preview, refuses to run
+    private static Method virtualExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            ((ExecutorService) factory.invoke(null)).shutdown();
+            return factory;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static void pause(Run<?, ?> run, List<Round> live) {
+        try {
+            Thread.sleep(POLL_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw cancel(run, live);
+        }
+    }
+
+    // interrupting the caller cancels every operation of the run, including those still running in an earlier round
+    private static CancellationException cancel(Run<?, ?> run, List<Round> live) {
+        for (Round round : live) {
+            run.cancel(round);
+            round.executor.shutdownNow();
+        }
+        return new CancellationException("rendering interrupted");
+    }
+
+    private static boolean allDone(Collection<Future<?>> tasks) {
+        for (Future<?> task : tasks) {
+            if (!task.isDone()) return false;
+        }
+        return true;
+    }
+
+    // one submission of operations to an executor, with the states its copies of them start from
+    private static final class Round {
+        final AtomicIntegerArray state;
+        final ExecutorService executor;
+        final Map<Integer, Future<?>> submitted = new LinkedHashMap<>();
+
+        Round(int operations, ExecutorService executor) {
+            this.state = new AtomicIntegerArray(operations);
+            this.executor = executor;
+        }
+    }
+
+    // per-operation bookkeeping of one map() call, shared by both execution modes
+    private final class Run<R, T> {
+        final List<ApiModel.Endpoint> endpoints;
+        final Task<R> task;
+        final Commit<R, T> commit;
+        final Discard discard;
+        final AtomicReferenceArray<T> results;
+        final AtomicLongArray started;
+        final AtomicReferenceArray<Thread> workers;
+
+        Run(List<ApiModel.Endpoint> endpoints, Task<R> task, Commit<R, T> commit, Discard discard) {
+            int n = endpoints.size();
+            this.endpoints = endpoints;
+            this.task = task;
+            this.commit = commit;
+            this.discard = discard;
+            this.results = new AtomicReferenceArray<>(n);
+            this.started = new AtomicLongArray(n);
+            this.workers = new AtomicReferenceArray<>(n);
+        }
+
+        // returns false when the operation was abandoned or timed out, i.e. someone else already settled it
+        boolean execute(int i, AtomicIntegerArray state) {
+            if (!state.compareAndSet(i, PENDING, RUNNING)) return false;
+            ApiModel.Endpoint ep = endpoints.get(i);
+            workers.set(i, Thread.currentThread());
+            started.set(i, System.nanoTime());
+            report.started(ep);
+            try {
+                R rendered = task.render(ep);
+                if (state.compareAndSet(i, RUNNING, COMMITTING)) results.set(i, commit.commit(ep, rendered));
+            } catch (Throwable t) {
+                int settled = state.get(i);
+                if (settled == RUNNING || settled == COMMITTING) report.record(ep, FailureReport.currentPhase(), t);
+            } finally {
+                workers.set(i, null);
+                // a timeout interrupt that the task ignored must not fail the next operation run on this thread
+                Thread.interrupted();
+            }
+            if (state.get(i) == TIMED_OUT && discard != null) {
+                try {
+                    discard.discard(ep);
+                } catch (Exception e) {
+                    // already reported as timed out; what could not be removed is overwritten by the next run
+                }
+            }
+            return state.compareAndSet(i, RUNNING, DONE) || state.compareAndSet(i, COMMITTING, DONE);
+        }
+
+        // interrupts and records operations of the round running longer than the timeout; returns whether any did
+        boolean expire(Round round, Semaphore slots) {
+            if (timeoutMillis <= 0) return false;
+            AtomicIntegerArray state = round.state;
+            boolean timedOut = false;
+            for (Map.Entry<Integer, Future<?>> entry : round.submitted.entrySet()) {
+                int i = entry.getKey();
+                // a task that just became RUNNING may not have published its start time yet
+                if (entry.getValue().isDone() || state.get(i) != RUNNING || started.get(i) == 0) continue;
+                long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started.get(i));
+                if (elapsed > timeoutMillis && state.compareAndSet(i, RUNNING, TIMED_OUT)) {
+                    timedOut = true;
+                    Thread worker = workers.get(i);
+                    if (worker != null) worker.interrupt();
+                    report.record(endpoints.get(i), "timeout", new TimeoutException(
+                            "operation exceeded " + timeoutMillis + " ms"));
+                    if (slots != null) slots.release();
+                }
+            }
+            return timedOut;
+        }
+
+        void cancel(Round round) {
+            AtomicIntegerArray state = round.state;
+            for (Map.Entry<Integer, Future<?>> entry : round.submitted.entrySet()) {
+                int i = entry.getKey();
+                if (state.compareAndSet(i, PENDING, ABANDONED)) continue;
+                Thread worker = workers.get(i);
+                if (state.get(i) == RUNNING && worker != null) worker.interrupt();
+                entry.getValue().cancel(false);
+            }
+        }
+    }
+
+    // Splits one operation's work into subtasks when called from a scheduler worker and there are at least minParts
+    // parts; idle workers steal them. Results keep the order of parts.
+    public static <T> List<T> forkAll(List<Callable<T>> parts, int minParts) {
+        List<T> results = new ArrayList<>(parts.size());
+        if (!ForkJoinTask.inForkJoinPool() || parts.size() < Math.max(2, minParts)) {
+            for (Callable<T> part : parts) results.add(call(part));
+            return results;
+        }
+        List<ForkJoinTask<T>> forked = new ArrayList<>(parts.size());
+        for (Callable<T> part : parts) {
+            forked.add(ForkJoinTask.adapt(() -> call(part)).fork());
+        }
+        for (ForkJoinTask<T> task : forked) results.add(task.join());
+        return results;
+    }
+
+    private static <T> T call(Callable<T> part) {
+        try {
+            return part.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    // {reachable nodes, fan-out}; memoized per root so shared components are walked once
+    private long[] footprint(int id) {
+        if (id == SchemaGraph.NONE) return new long[]{0, 0};
+        long[] cached = footprints.get(id);
+        if (cached != null) return cached;
+        long[] footprint = new long[]{0, 1};
+        walk(id, new HashSet<Integer>(), footprint);
+        footprint[1] = footprint[1] > 1 ? footprint[1] : 0;
+        footprints.putIfAbsent(id, footprint);
+        return footprint;
+    }
+
+    private void walk(int id, Set<Integer> visited, long[] footprint) {
+        id = schemas.resolve(id);
+        if (id == SchemaGraph.NONE || !visited.add(id)) return;
+        SchemaGraph.Node node = schemas.node(id);
+        footprint[0]++;
+        int branches = node.oneOf.length + node.anyOf.length;
+        if (branches > 1) footprint[1] = Math.min(MAX_FAN_OUT, footprint[1] * branches);
+        if (node.items != SchemaGraph.NONE) walk(node.items, visited, footprint);
+        for (int child : node.allOf) walk(child, visited, footprint);
+        for (int child : node.oneOf) walk(child, visited, footprint);
+        for (int child : node.anyOf) walk(child, visited, footprint);
+        for (int child : node.properties) walk(child, visited, footprint);
+    }
+}
@@ -0,0 +1,103 @@
+import io.swagger.v3.oas.models.Components;
+import io.swagger.v3.oas.models.OpenAPI;
+import io.swagger.v3.oas.models.Operation;
+import io.swagger.v3.oas.models.PathItem;
+import io.swagger.v3.oas.models.Paths;
+import io.swagger.v3.oas.models.media.*;
+import io.swagger.v3.oas.models.parameters.RequestBody;
+import io.swagger.v3.oas.models.responses.ApiResponse;
+import io.swagger.v3.oas.models.responses.ApiResponses;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Compares spec-order FIFO rendering with cost-ordered work-stealing rendering on a skewed spec: many small operations
+// followed by one search operation whose request body is a wide oneOf. Usage: [smallOps] [branches] [threads] [rounds]
+public class RenderSchedulerBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int smallOps = args.length > 0 ? Integer.parseInt(args[0]) : 400;
+        int branches = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        int rounds = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+
+        ApiModel model = ApiModel.build(skewedSpec(smallOps, branches), true);
+        RenderScheduler scheduler = new RenderScheduler(model, threads, new FailureReport("RenderSchedulerBenchmark", model), 0);
+        List<ApiModel.Endpoint> endpoints = model.getEndpoints();
+        ApiModel.Endpoint giant = endpoints.get(endpoints.size() - 1);
+        System.out.println("✅ " + endpoints.size() + " operations, " + threads + " threads; estimated cost of "
+                + giant.label() + ": " + scheduler.cost(giant) + " vs " + scheduler.cost(endpoints.get(0)) + " for "
+                + endpoints.get(0).label());
+
+        long fifo = Long.MAX_VALUE;
+        long scheduled = Long.MAX_VALUE;
+        for (int round = 0; round < rounds; round++) {
+            fifo = Math.min(fifo, fifo(model, threads));
+            scheduled = Math.min(scheduled, scheduled(model, scheduler));
+        }
+        System.out.println("✅ spec order, fixed pool:        " + fifo / 1_000_000 + " ms");
+        System.out.println("✅ longest first, work stealing: " + scheduled / 1_000_000 + " ms");
+    }
+
+    private static long fifo(ApiModel model, int threads) throws Exception {
+        PromptEngine.Run run = PromptEngine.open(new KaratePromptBuilder(), model, java.nio.file.Paths.get(""));
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        try {
+            List<Future<CharSequence>> futures = new ArrayList<>();
+            for (ApiModel.Endpoint ep : model.getEndpoints()) {
+                futures.add(pool.submit(() -> PromptEngine.render(run, ep, null)));
+            }
+            for (Future<CharSequence> future : futures) future.get();
+            return System.nanoTime() - start;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static long scheduled(ApiModel model, RenderScheduler scheduler) {
+        PromptEngine.Run run = PromptEngine.open(new KaratePromptBuilder(), model, java.nio.file.Paths.get(""));
+        long start = System.nanoTime();
+        scheduler.map(model.getEndpoints(), ep -> PromptEngine.render(run, ep, null));
+        return System.nanoTime() - start;
+    }
+
+    private static OpenAPI skewedSpec(int smallOps, int branches) {
+        Map<String, Schema> schemas = new LinkedHashMap<>();
+        Paths paths = new Paths();
+        for (int i = 0; i < smallOps; i++) {
+            Schema<Object> item = new ObjectSchema().addProperty("id", new IntegerSchema()).addProperty("name", new StringSchema());
+            paths.addPathItem("/items" + i, new PathItem().post(operation(item)));
+        }
+
+        ComposedSchema search = new ComposedSchema();
+        for (int b = 0; b < branches; b++) {
+            ObjectSchema filter = new ObjectSchema();
+            filter.addProperty("kind", new StringSchema()._enum(Collections.singletonList("filter" + b)));
+            for (int p = 0; p < 20; p++) {
+                ObjectSchema nested = new ObjectSchema();
+                nested.addProperty("value", new StringSchema().minLength(1).maxLength(64));
+                nested.addProperty("weight", new NumberSchema().minimum(java.math.BigDecimal.ZERO));
+                filter.addProperty("field" + p, nested);
+            }
+            filter.setRequired(Collections.singletonList("kind"));
+            schemas.put("Filter" + b, filter);
+            search.addOneOfItem(new Schema<>().$ref("#/components/schemas/Filter" + b));
+        }
+        paths.addPathItem("/search", new PathItem().post(operation(search)));
+
+        OpenAPI openAPI = new OpenAPI();
+        openAPI.setPaths(paths);
+        openAPI.setComponents(new Components().schemas(schemas));
+        return openAPI;
+    }
+
+    private static Operation operation(Schema<?> body) {
+        return new Operation()
+                .summary("benchmark")
+                .requestBody(new RequestBody().content(new Content().addMediaType("application/json", new MediaType().schema(body))))
+                .responses(new ApiResponses().addApiResponse("200", new ApiResponse().description("ok")));
+    }
+}
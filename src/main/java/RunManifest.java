@@ -0,0 +1,383 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.swagger.v3.core.util.Json;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+
+// What produced a prompt set and how long it took: spec and template hashes, options, JVM, CPU and thread count, phase
+// timings and a hash of every output. Each run writes it as <outputDir>/run-manifest.json; comparing two manifests with
+// "java RunManifest <old.json> <new.json>" lists output drift and timing regressions between runs or machines.
+public class RunManifest {
+
+    static final String FILE_NAME = "run-manifest.json";
+    static final int FORMAT = 1;
+
+    // a timing only counts as a regression when it is both this much slower and at least MIN_REGRESSION_MICROS slower
+    static final double REGRESSION_RATIO = 1.25;
+    static final long MIN_REGRESSION_MICROS = 5_000;
+    static final int MAX_LISTED_OPERATIONS = 10;
+    private static final String[] OPTION_PROPERTIES = {
+            "shard", "output.format", "execution", "execution.inFlight", "spec.mirror", "jira.baseUrl"
+    };
+    // classes whose code decides the prompt text besides the target itself
+    private static final Class<?>[] TEMPLATE_CLASSES = {
+            PromptEngine.class, KarateFeatureEmitter.class, GatlingSimulationEmitter.class, SamplePayloadSynthesizer.class,
+            SchemaVariantEngine.class, ParameterMatrix.class, OutputNames.class
+    };
+
+    // the spec as read by the engine, shared by every target of one process
+    public static final class Spec {
+        final ApiModel model;
+        final String location;
+        final String parsed;
+        final Map<String, String> sources;
+        final long parseMicros;
+
+        Spec(ApiModel model, String location, String parsed, Map<String, String> sources, long parseStartNanos) {
+            this.model = model;
+            this.location = location;
+            this.parsed = parsed;
+            this.sources = sources;
+            this.parseMicros = micros(parseStartNanos);
+        }
+    }
+
+    private final PromptTarget target;
+    private final Spec spec;
+    private final String startedAt = Instant.now().toString();
+    private final Map<String, Object> options = new LinkedHashMap<>();
+    private final Map<String, Object> environment = new LinkedHashMap<>();
+    private final Map<String, Long> phases = new LinkedHashMap<>();
+    private final Map<Integer, Map<String, Object>> operations = new ConcurrentSkipListMap<>();
+
+    public RunManifest(PromptTarget target, Spec spec, RenderScheduler scheduler, ShardPlan shard) {
+        this.target = target;
+        this.spec = spec;
+        for (String property : OPTION_PROPERTIES) {
+            String value = System.getProperty(property);
+            if (value != null) options.put(property, value);
+        }
+        options.put("shard", shard.index + "/" + shard.count);
+        options.put("execution", scheduler.mode().name().replace("_", "").toLowerCase(Locale.ROOT));
+        options.put("matrixStrength", target.matrixStrength());
+
+        Runtime runtime = Runtime.getRuntime();
+        environment.put("java", System.getProperty("java.version"));
+        environment.put("vm", System.getProperty("java.vm.name") + " " + System.getProperty("java.vm.version"));
+        environment.put("vendor", System.getProperty("java.vendor"));
+        environment.put("os", System.getProperty("os.name") + " " + System.getProperty("os.version"));
+        environment.put("arch", System.getProperty("os.arch"));
+        environment.put("cpu", cpu());
+        environment.put("processors", runtime.availableProcessors());
+        environment.put("threads", scheduler.parallelism());
+        environment.put("maxHeapMB", runtime.maxMemory() / (1024 * 1024));
+        environment.put("defaultCharset", Charset.defaultCharset().name());
+        environment.put("locale", Locale.getDefault().toLanguageTag());
+    }
+
+    // time from startNanos until now, under the given phase name
+    public void phase(String name, long startNanos) {
+        phases.put(name, micros(startNanos));
+    }
+
+    public void record(int index, ApiModel.Endpoint ep, String file, CharSequence prompt, List<Path> attachments,
+                       long startNanos) throws IOException {
+        Map<String, Object> operation = new LinkedHashMap<>();
+        operation.put("operation", ep.label());
+        operation.put("file", file);
+        operation.put("sha256", sha256(prompt));
+        operation.put("chars", prompt.length());
+        operation.put("micros", micros(startNanos));
+        if (attachments != null && !attachments.isEmpty()) {
+            Map<String, String> hashes = new TreeMap<>();
+            for (Path attachment : attachments) hashes.put(attachment.toString(), sha256(Files.readAllBytes(attachment)));
+            operation.put("attachments", hashes);
+        }
+        operations.put(index, operation);
+    }
+
+    public Path write(Path file) throws IOException {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("format", FORMAT);
+        json.put("startedAt", startedAt);
+        json.put("target", target.name());
+        json.put("targetClass", target.getClass().getName());
+
+        Map<String, Object> specJson = new LinkedHashMap<>();
+        specJson.put("location", spec.location);
+        specJson.put("parsed", spec.parsed);
+        specJson.put("sources", spec.sources);
+        json.put("spec", specJson);
+
+        Map<String, String> templates = new TreeMap<>();
+        templates.put(target.getClass().getName(), classHash(target.getClass()));
+        for (Class<?> type : TEMPLATE_CLASSES) templates.put(type.getName(), classHash(type));
+        json.put("templates", templates);
+        json.put("options", options);
+        json.put("environment", environment);
+
+        Map<String, Long> timings = new LinkedHashMap<>();
+        timings.put("parse", spec.parseMicros);
+        timings.putAll(phases);
+        json.put("timingsMicros", timings);
+
+        List<Map<String, Object>> outputs = new ArrayList<>(operations.values());
+        MessageDigest all = digest();
+        for (Map<String, Object> operation : outputs) all.update(((String) operation.get("sha256")).getBytes(StandardCharsets.US_ASCII));
+        json.put("outputsSha256", hex(all.digest()));
+        json.put("operations", outputs);
+
+        PromptOutput.write(file, Json.mapper().writerWithDefaultPrettyPrinter().writeValueAsString(json) + "\n");
+        System.out.println("✅ Saved: " + file);
+        return file;
+    }
+
+    // Folds the manifests of a sharded run into the one a single run writes: the first shard's inputs and environment,
+    // the earliest start, per phase the slowest shard (shards run side by side), and the operations of all shards in
+    // spec order with their combined outputs hash.
+    static Path merge(Path file, List<Path> fragments, Map<String, Integer> specOrder) throws IOException {
+        if (fragments.isEmpty()) throw new IllegalStateException("no run manifests to merge into " + file);
+        ObjectNode merged = null;
+        String startedAt = null;
+        Map<String, Long> timings = new LinkedHashMap<>();
+        Map<Integer, JsonNode> operations = new TreeMap<>();
+        for (Path fragment : fragments) {
+            ObjectNode json = (ObjectNode) Json.mapper().readTree(fragment.toFile());
+            if (merged == null) merged = json;
+            String started = json.path("startedAt").asText();
+            if (startedAt == null || started.compareTo(startedAt) < 0) startedAt = started;
+            Iterator<Map.Entry<String, JsonNode>> phases = json.path("timingsMicros").fields();
+            while (phases.hasNext()) {
+                Map.Entry<String, JsonNode> phase = phases.next();
+                timings.merge(phase.getKey(), phase.getValue().asLong(), Math::max);
+            }
+            for (JsonNode operation : json.path("operations")) {
+                Integer index = specOrder.get(operation.path("operation").asText());
+                if (index == null) throw new IllegalStateException(fragment + " lists unknown operation " + operation.path("operation").asText());
+                operations.put(index, operation);
+            }
+        }
+
+        merged.put("startedAt", startedAt);
+        ((ObjectNode) merged.get("options")).put("shard", "all/" + fragments.size());
+        ObjectNode timingsJson = merged.putObject("timingsMicros");
+        for (Map.Entry<String, Long> timing : timings.entrySet()) timingsJson.put(timing.getKey(), timing.getValue());
+        MessageDigest all = digest();
+        for (JsonNode operation : operations.values()) all.update(operation.path("sha256").asText().getBytes(StandardCharsets.US_ASCII));
+        merged.put("outputsSha256", hex(all.digest()));
+        merged.putArray("operations").addAll(operations.values());
+        for (Path fragment : fragments) Files.delete(fragment);
+
+        PromptOutput.write(file, Json.mapper().writerWithDefaultPrettyPrinter().writeValueAsString(merged) + "\n");
+        System.out.println("✅ Saved: " + file);
+        return file;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: java RunManifest <old/run-manifest.json> <new/run-manifest.json>");
+            System.exit(2);
+        }
+        System.exit(diff(Paths.get(args[0]), Paths.get(args[1])) ? 1 : 0);
+    }
+
+    // Prints what changed between two runs; true when outputs drifted or timings regressed. Input and environment
+    // differences are listed first since they usually explain the rest.
+    static boolean diff(Path oldPath, Path newPath) throws IOException {
+        JsonNode before = Json.mapper().readTree(oldPath.toFile());
+        JsonNode after = Json.mapper().readTree(newPath.toFile());
+        System.out.println("--- " + oldPath + " (" + before.path("startedAt").asText() + ")");
+        System.out.println("+++ " + newPath + " (" + after.path("startedAt").asText() + ")");
+
+        compareFields("target", before, after, "target", "targetClass");
+        compareMap("spec source", before.path("spec").path("sources"), after.path("spec").path("sources"));
+        compareMap("template", before.path("templates"), after.path("templates"));
+        compareMap("option", before.path("options"), after.path("options"));
+        compareMap("environment", before.path("environment"), after.path("environment"));
+
+        Map<String, JsonNode> oldOperations = operations(before);
+        Map<String, JsonNode> newOperations = operations(after);
+        int drifted = 0;
+        for (Map.Entry<String, JsonNode> operation : oldOperations.entrySet()) {
+            JsonNode current = newOperations.get(operation.getKey());
+            if (current == null) {
+                System.out.println("❌ missing output: " + operation.getKey());
+                drifted++;
+            } else if (!current.path("sha256").equals(operation.getValue().path("sha256"))
+                    || !current.path("attachments").equals(operation.getValue().path("attachments"))) {
+                System.out.println("❌ output drift: " + operation.getKey() + " (" + current.path("file").asText() + ", "
+                        + operation.getValue().path("chars").asLong() + " -> " + current.path("chars").asLong() + " chars)");
+                drifted++;
+            }
+        }
+        for (String operation : newOperations.keySet()) {
+            if (!oldOperations.containsKey(operation)) {
+                System.out.println("❌ new output: " + operation);
+                drifted++;
+            }
+        }
+
+        int regressed = 0;
+        Iterator<Map.Entry<String, JsonNode>> timings = after.path("timingsMicros").fields();
+        while (timings.hasNext()) {
+            Map.Entry<String, JsonNode> timing = timings.next();
+            JsonNode previous = before.path("timingsMicros").get(timing.getKey());
+            if (previous != null && regressed(previous.asLong(), timing.getValue().asLong())) {
+                System.out.println("⚠ slower phase " + timing.getKey() + ": " + change(previous.asLong(), timing.getValue().asLong()));
+                regressed++;
+            }
+        }
+        List<String> slower = new ArrayList<>();
+        for (Map.Entry<String, JsonNode> operation : newOperations.entrySet()) {
+            JsonNode previous = oldOperations.get(operation.getKey());
+            if (previous == null) continue;
+            long oldMicros = previous.path("micros").asLong();
+            long newMicros = operation.getValue().path("micros").asLong();
+            if (regressed(oldMicros, newMicros)) slower.add(operation.getKey());
+        }
+        slower.sort(Comparator.comparingLong((String op) -> newOperations.get(op).path("micros").asLong()
+                - oldOperations.get(op).path("micros").asLong()).reversed());
+        for (int i = 0; i < Math.min(slower.size(), MAX_LISTED_OPERATIONS); i++) {
+            String op = slower.get(i);
+            System.out.println("⚠ slower operation " + op + ": "
+                    + change(oldOperations.get(op).path("micros").asLong(), newOperations.get(op).path("micros").asLong()));
+        }
+        if (slower.size() > MAX_LISTED_OPERATIONS) {
+            System.out.println("⚠ ... and " + (slower.size() - MAX_LISTED_OPERATIONS) + " more slower operations");
+        }
+        regressed += slower.size();
+
+        if (drifted == 0 && regressed == 0) {
+            System.out.println("✅ " + newOperations.size() + " outputs identical, no timing regressions");
+            return false;
+        }
+        System.out.println("❌ " + drifted + " outputs drifted, " + regressed + " timings regressed");
+        return true;
+    }
+
+    private static void compareFields(String label, JsonNode before, JsonNode after, String... fields) {
+        for (String field : fields) {
+            if (!before.path(field).equals(after.path(field))) {
+                System.out.println("≠ " + label + " " + field + ": " + before.path(field).asText() + " -> " + after.path(field).asText());
+            }
+        }
+    }
+
+    private static void compareMap(String label, JsonNode before, JsonNode after) {
+        Set<String> keys = new TreeSet<>();
+        before.fieldNames().forEachRemaining(keys::add);
+        after.fieldNames().forEachRemaining(keys::add);
+        for (String key : keys) {
+            JsonNode oldValue = before.get(key);
+            JsonNode newValue = after.get(key);
+            if (oldValue != null && oldValue.equals(newValue)) continue;
+            System.out.println("≠ " + label + " " + key + ": " + (oldValue != null ? oldValue.asText() : "(none)")
+                    + " -> " + (newValue != null ? newValue.asText() : "(none)"));
+        }
+    }
+
+    private static Map<String, JsonNode> operations(JsonNode manifest) {
+        Map<String, JsonNode> operations = new LinkedHashMap<>();
+        for (JsonNode operation : manifest.path("operations")) operations.put(operation.path("operation").asText(), operation);
+        return operations;
+    }
+
+    private static boolean regressed(long oldMicros, long newMicros) {
+        return newMicros - oldMicros >= MIN_REGRESSION_MICROS && newMicros > oldMicros * REGRESSION_RATIO;
+    }
+
+    private static String change(long oldMicros, long newMicros) {
+        return String.format(Locale.ROOT, "%.1f ms -> %.1f ms (+%d%%)", oldMicros / 1000.0, newMicros / 1000.0,
+                oldMicros > 0 ? Math.round(100.0 * (newMicros - oldMicros) / oldMicros) : 100);
+    }
+
+    private static long micros(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+    }
+
+    // model name from /proc/cpuinfo on Linux, PROCESSOR_IDENTIFIER on Windows, otherwise just the architecture
+    private static String cpu() {
+        Path cpuinfo = Paths.get("/proc/cpuinfo");
+        if (Files.isReadable(cpuinfo)) {
+            try {
+                for (String line : Files.readAllLines(cpuinfo, StandardCharsets.UTF_8)) {
+                    if (line.startsWith("model name")) return line.substring(line.indexOf(':') + 1).trim();
+                }
+            } catch (IOException ignored) {
+                // fall through to the less specific answers
+            }
+        }
+        String identifier = System.getenv("PROCESSOR_IDENTIFIER");
+        return identifier != null ? identifier : System.getProperty("os.arch");
+    }
+
+    private static String classHash(Class<?> type) throws IOException {
+        String resource = type.getName().replace('.', '/') + ".class";
+        try (InputStream in = type.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) return "unknown";
+            MessageDigest digest = digest();
+            byte[] buffer = new byte[8192];
+            for (int read; (read = in.read(buffer)) > 0; ) digest.update(buffer, 0, read);
+            return hex(digest.digest());
+        }
+    }
+
+    // hashes the UTF-8 encoding chunk by chunk, the same bytes PromptOutput writes, without copying the prompt
+    static String sha256(CharSequence text) {
+        CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        MessageDigest digest = digest();
+        CharBuffer in = CharBuffer.wrap(text);
+        ByteBuffer out = ByteBuffer.allocate(8192);
+        CoderResult result;
+        do {
+            result = encoder.encode(in, out, true);
+            out.flip();
+            digest.update(out);
+            out.clear();
+        } while (result.isOverflow());
+        do {
+            result = encoder.flush(out);
+            out.flip();
+            digest.update(out);
+            out.clear();
+        } while (result.isOverflow());
+        return hex(digest.digest());
+    }
+
+    static String sha256(byte[] content) {
+        return hex(digest().digest(content));
+    }
+
+    private static MessageDigest digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) hex.append(String.format(Locale.ROOT, "%02x", b));
+        return hex.toString();
+    }
+}
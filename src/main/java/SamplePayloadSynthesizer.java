@@ -0,0 +1,750 @@
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+public class SamplePayloadSynthesizer {
+
+    private static final Object MISSING = new Object();
+
+    private final SchemaGraph schemas;
+    private final Map<Integer, Object> componentSamples = new ConcurrentHashMap<>();
+    private final Map<Integer, Boolean> componentHasChoices = new ConcurrentHashMap<>();
+
+    public SamplePayloadSynthesizer(SchemaGraph schemas) {
+        this.schemas = schemas;
+    }
+
+    public static class NamedSample {
+        final String name;
+        final Object value;
+        // a missing field or a wrong type, which a parser rejects (400), rather than a broken value constraint (422)
+        final boolean malformed;
+
+        NamedSample(String name, Object value) {
+            this(name, value, false);
+        }
+
+        NamedSample(String name, Object value, boolean malformed) {
+            this.name = name;
+            this.value = value;
+            this.malformed = malformed;
+        }
+    }
+
+    // components on the current path; a sample the cycle guard cut short depends on that path, so it is not cached
+    private static class Visit {
+        final Set<Integer> components = new HashSet<>();
+        int cuts;
+    }
+
+    private static class Field {
+        final String path;
+        final SchemaGraph.Node schema;
+        final boolean required;
+
+        Field(String path, SchemaGraph.Node schema, boolean required) {
+            this.path = path;
+            this.schema = schema;
+            this.required = required;
+        }
+    }
+
+    public Object sample(int schema) {
+        return sample(schema, null);
+    }
+
+    public Object sample(int schema, SchemaVariantEngine.Variant variant) {
+        Object value = generate(schema, "", variant, new Visit());
+        return value == MISSING ? null : value;
+    }
+
+    public List<NamedSample> boundarySamples(int schema) {
+        Object base = sample(schema);
+        List<NamedSample> out = new ArrayList<>();
+        for (Field f : fields(schema)) {
+            SchemaGraph.Node s = f.schema;
+            String atMinLength = s.minLength != null ? atLength(s, s.minLength) : null;
+            if (atMinLength != null) {
+                out.add(new NamedSample(f.path + " at minLength " + s.minLength, with(base, f.path, atMinLength)));
+            }
+            String atMaxLength = s.maxLength != null ? atLength(s, s.maxLength) : null;
+            if (atMaxLength != null) {
+                out.add(new NamedSample(f.path + " at maxLength " + s.maxLength, with(base, f.path, atMaxLength)));
+            }
+            Constraints c = schemas.constraints(s.id);
+            if (c.minimum != null) {
+                out.add(new NamedSample(f.path + (c.exclusiveMinimum ? " just above exclusiveMinimum " : " at minimum ")
+                        + c.minimum.toPlainString(), with(base, f.path, number(s, lowest(s, c)))));
+            }
+            if (c.maximum != null) {
+                out.add(new NamedSample(f.path + (c.exclusiveMaximum ? " just below exclusiveMaximum " : " at maximum ")
+                        + c.maximum.toPlainString(), with(base, f.path, number(s, highest(s, c)))));
+            }
+            if (s.array && c.minItems != null) {
+                out.add(new NamedSample(f.path + " at minItems " + c.minItems, with(base, f.path, items(s, c.minItems))));
+            }
+            if (s.array && c.maxItems != null) {
+                out.add(new NamedSample(f.path + " at maxItems " + c.maxItems, with(base, f.path, items(s, c.maxItems))));
+            }
+        }
+        return out;
+    }
+
+    public List<NamedSample> invalidSamples(int schema) {
+        return invalidSamples(schema, "application/json");
+    }
+
+    // an XML element holds text whatever the schema type, so a string field gets a nested element as its wrong type
+    public List<NamedSample> invalidSamples(int schema, String mediaType) {
+        boolean xml = mediaType.contains("xml");
+        Object base = sample(schema);
+        List<NamedSample> out = new ArrayList<>();
+        for (Field f : fields(schema)) {
+            SchemaGraph.Node s = f.schema;
+            if (f.required) {
+                out.add(new NamedSample("missing required " + f.path, with(base, f.path, MISSING), true));
+            }
+            String type = s.type;
+            if ("string".equals(type)) {
+                Object wrong = xml ? Collections.singletonMap("unexpected", "element") : 12345;
+                out.add(new NamedSample(f.path + " wrong type", with(base, f.path, wrong), true));
+            } else if ("integer".equals(type) || "number".equals(type) || "boolean".equals(type)) {
+                out.add(new NamedSample(f.path + " wrong type", with(base, f.path, "not-a-" + type), true));
+            }
+            Object outsideEnum = outsideEnum(s);
+            if (outsideEnum != null) {
+                out.add(new NamedSample(f.path + " outside enum", with(base, f.path, outsideEnum)));
+            }
+            if ("email".equals(s.format)) {
+                out.add(new NamedSample(f.path + " invalid email", with(base, f.path, "not-an-email")));
+            }
+            if (s.maxLength != null) {
+                out.add(new NamedSample(f.path + " above maxLength", with(base, f.path, fill(s.maxLength + 1))));
+            }
+            if (s.minLength != null && s.minLength > 0) {
+                out.add(new NamedSample(f.path + " below minLength", with(base, f.path, fill(s.minLength - 1))));
+            }
+            Constraints c = schemas.constraints(s.id);
+            if (c.minimum != null) {
+                out.add(new NamedSample(f.path + " below minimum", with(base, f.path,
+                        number(s, c.exclusiveMinimum ? c.minimum : c.minimum.subtract(BigDecimal.ONE)))));
+            }
+            if (c.maximum != null) {
+                out.add(new NamedSample(f.path + " above maximum", with(base, f.path,
+                        number(s, c.exclusiveMaximum ? c.maximum : c.maximum.add(BigDecimal.ONE)))));
+            }
+            if (c.multipleOf != null && c.multipleOf.signum() > 0 && ("integer".equals(type) || "number".equals(type))) {
+                BigDecimal offset = "integer".equals(type) && c.multipleOf.compareTo(BigDecimal.ONE) > 0
+                        ? BigDecimal.ONE : c.multipleOf.divide(new BigDecimal(2));
+                out.add(new NamedSample(f.path + " not a multipleOf " + c.multipleOf.toPlainString(), with(base, f.path,
+                        number(s, lowest(s, c).add(offset)))));
+            }
+            if (s.array && c.maxItems != null) {
+                out.add(new NamedSample(f.path + " above maxItems", with(base, f.path, items(s, c.maxItems + 1))));
+            }
+        }
+        return out;
+    }
+
+    private Object generate(int id, String path, SchemaVariantEngine.Variant variant, Visit visit) {
+        SchemaGraph.Node schema = schemas.node(id);
+        if (schema == null) return MISSING;
+
+        if (schema.isRef()) {
+            int ref = schema.target;
+            if (ref == SchemaGraph.NONE) return MISSING;
+            if (!visit.components.add(ref)) {
+                visit.cuts++;
+                return MISSING;
+            }
+            try {
+                if (variant == null || !hasChoices(ref)) {
+                    Object cached = componentSamples.get(ref);
+                    if (cached != null) return copy(cached);
+                    int cuts = visit.cuts;
+                    Object value = generate(ref, path, null, visit);
+                    // operations render in parallel, so only a sample that is the same from every path may be shared
+                    if (visit.cuts == cuts) componentSamples.putIfAbsent(ref, value);
+                    return copy(value);
+                }
+                return generate(ref, path, variant, visit);
+            } finally {
+                visit.components.remove(ref);
+            }
+        }
+
+        if (schema.example != null) return schema.example;
+        if (schema.enumValues != null && !schema.enumValues.isEmpty()) return schema.enumValues.get(0);
+        if (schema.defaultValue != null) return schema.defaultValue;
+
+        Object composed = MISSING;
+
+        for (int s : schema.allOf) {
+            composed = mergeInto(composed, generate(s, path, variant, visit));
+        }
+
+        if (schema.oneOf.length > 0) {
+            int[] branches = schema.oneOf;
+            int index = pick(variant, SchemaVariantEngine.point(path, id, "oneOf"), branches.length);
+            composed = mergeInto(composed, generate(branches[index], path, variant, visit));
+        }
+
+        if (schema.anyOf.length > 0) {
+            int[] branches = schema.anyOf;
+            int index = pick(variant, SchemaVariantEngine.point(path, id, "anyOf"), branches.length > 1 ? branches.length + 1 : 1);
+            if (index < branches.length) {
+                composed = mergeInto(composed, generate(branches[index], path, variant, visit));
+            } else {
+                for (int s : branches) {
+                    composed = mergeInto(composed, generate(s, path, variant, visit));
+                }
+            }
+        }
+
+        if (schema.array) {
+            Integer minItems = schemas.constraints(id).minItems;
+            int size = minItems != null ? Math.max(1, minItems) : 1;
+            List<Object> list = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                Object item = generate(schema.items, path + "[]", variant, visit);
+                if (item != MISSING) list.add(item);
+            }
+            return list;
+        }
+
+        if (schema.hasProperties()) {
+            Map<String, Object> merged = new LinkedHashMap<>();
+            for (int i = 0; i < schema.properties.length; i++) {
+                String name = schema.propertyNames[i];
+                String childPath = path.isEmpty() ? name : path + "." + name;
+                Object value = generate(schema.properties[i], childPath, variant, visit);
+                if (value != MISSING) merged.put(name, value);
+            }
+            composed = mergeInto(composed, merged);
+        }
+
+        if (composed != MISSING) return composed;
+        return primitive(schema);
+    }
+
+    private Object primitive(SchemaGraph.Node schema) {
+        String type = schema.type;
+        Constraints c = schemas.constraints(schema.id);
+        // an untyped node counts as an object when it declares (possibly empty) properties or additionalProperties
+        if (type == null) return schema.object || c.additionalProperties != null ? new LinkedHashMap<>() : "string";
+        switch (type) {
+            case "integer":
+            case "number":
+                return number(schema, lowest(schema, c));
+            case "boolean":
+                return Boolean.TRUE;
+            case "object":
+                return new LinkedHashMap<>();
+            default:
+                return string(schema);
+        }
+    }
+
+    // smallest valid value honouring exclusive bounds and multipleOf; without a minimum a small typical value is used
+    private static BigDecimal lowest(SchemaGraph.Node schema, Constraints c) {
+        boolean integer = "integer".equals(schema.type);
+        BigDecimal step = c.multipleOf != null && c.multipleOf.signum() > 0 ? c.multipleOf
+                : integer ? BigDecimal.ONE : new BigDecimal("0.5");
+        BigDecimal value;
+        if (c.minimum != null) {
+            value = c.exclusiveMinimum ? c.minimum.add(step) : c.minimum;
+        } else {
+            value = integer ? BigDecimal.ONE : new BigDecimal("1.5");
+            if (c.maximum != null) value = value.min(c.exclusiveMaximum ? c.maximum.subtract(step) : c.maximum);
+        }
+        if (c.multipleOf != null && c.multipleOf.signum() > 0) {
+            value = value.divide(c.multipleOf, 0, RoundingMode.CEILING).multiply(c.multipleOf);
+            // rounding up may pass an upper bound that no minimum holds back, e.g. multipleOf 10 with maximum 5
+            if (c.minimum == null && c.maximum != null && !below(value, c)) value = highest(schema, c);
+        }
+        return value;
+    }
+
+    private static boolean below(BigDecimal value, Constraints c) {
+        int cmp = value.compareTo(c.maximum);
+        return c.exclusiveMaximum ? cmp < 0 : cmp <= 0;
+    }
+
+    private static BigDecimal highest(SchemaGraph.Node schema, Constraints c) {
+        boolean integer = "integer".equals(schema.type);
+        BigDecimal step = c.multipleOf != null && c.multipleOf.signum() > 0 ? c.multipleOf
+                : integer ? BigDecimal.ONE : new BigDecimal("0.5");
+        BigDecimal value = c.exclusiveMaximum ? c.maximum.subtract(step) : c.maximum;
+        if (c.multipleOf != null && c.multipleOf.signum() > 0) {
+            value = value.divide(c.multipleOf, 0, RoundingMode.FLOOR).multiply(c.multipleOf);
+        }
+        return value;
+    }
+
+    private static Object number(SchemaGraph.Node schema, BigDecimal value) {
+        if ("integer".equals(schema.type)) {
+            return value.setScale(0, RoundingMode.CEILING).longValueExact();
+        }
+        return value;
+    }
+
+    private static String string(SchemaGraph.Node schema) {
+        String value;
+        String format = schema.format;
+        if (format != null) {
+            switch (format) {
+                case "email": return "user@example.com";
+                case "date-time": return "2024-01-01T00:00:00Z";
+                case "date": return "2024-01-01";
+                case "time": return "00:00:00";
+                case "uuid": return "3fa85f64-5717-4562-b3fc-2c963f66afa6";
+                case "uri": case "url": return "https://example.com/resource";
+                case "hostname": return "example.com";
+                case "ipv4": return "192.168.0.1";
+                case "ipv6": return "2001:db8::1";
+                case "byte": return "U2FtcGxl";
+                case "binary": return "<binary>";
+                case "password": value = "P@ssw0rd1"; break;
+                default: value = "string"; break;
+            }
+        } else if (schema.pattern != null) {
+            value = RegexSampler.generate(schema.pattern, schema.minLength, schema.maxLength);
+        } else {
+            value = "string";
+        }
+        if (schema.minLength != null && value.length() < schema.minLength) {
+            value = value + fill(schema.minLength - value.length());
+        }
+        if (schema.maxLength != null && value.length() > schema.maxLength) {
+            value = value.substring(0, schema.maxLength);
+        }
+        return value;
+    }
+
+    // a string of exactly `length` that keeps the pattern; null when the sampler cannot produce one
+    private static String atLength(SchemaGraph.Node schema, int length) {
+        if (schema.pattern == null) return fill(length);
+        String value = RegexSampler.generate(schema.pattern, length, length);
+        try {
+            return value.length() == length && Pattern.compile(schema.pattern).matcher(value).find() ? value : null;
+        } catch (PatternSyntaxException e) {
+            return null;
+        }
+    }
+
+    // a value of the enum's own type that is not one of its values, so the sample breaks the enum and nothing else
+    private static Object outsideEnum(SchemaGraph.Node schema) {
+        List<Object> values = schema.enumValues;
+        if (values == null || values.isEmpty()) return null;
+        boolean numeric = true;
+        boolean bool = true;
+        for (Object value : values) {
+            numeric &= value instanceof Number;
+            bool &= value instanceof Boolean;
+        }
+        if (numeric) {
+            BigDecimal max = null;
+            for (Object value : values) {
+                BigDecimal number = new BigDecimal(value.toString());
+                if (max == null || number.compareTo(max) > 0) max = number;
+            }
+            return number(schema, max.add(BigDecimal.ONE));
+        }
+        if (bool) {
+            return values.contains(Boolean.TRUE) ? values.contains(Boolean.FALSE) ? null : Boolean.FALSE : Boolean.TRUE;
+        }
+        String value = "INVALID_ENUM_VALUE";
+        while (values.contains(value)) value = "_" + value;
+        return value;
+    }
+
+    private static String fill(int length) {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append((char) ('a' + i % 26));
+        }
+        return sb.toString();
+    }
+
+    private Object items(SchemaGraph.Node schema, int count) {
+        Object item = sample(schema.items);
+        List<Object> list = new ArrayList<>();
+        for (int i = 0; i < count && item != null; i++) {
+            list.add(copy(item));
+        }
+        return list;
+    }
+
+    private static int pick(SchemaVariantEngine.Variant variant, String point, int count) {
+        Integer index = variant != null ? variant.branchAt(point) : null;
+        return index != null && index < count ? index : 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object mergeInto(Object target, Object value) {
+        if (value == MISSING) return target;
+        if (target instanceof Map && value instanceof Map) {
+            ((Map<String, Object>) target).putAll((Map<String, Object>) value);
+            return target;
+        }
+        return value instanceof Map ? new LinkedHashMap<>((Map<String, Object>) value) : value;
+    }
+
+    private boolean hasChoices(int component) {
+        Boolean cached = componentHasChoices.get(component);
+        if (cached == null) {
+            cached = new SchemaVariantEngine(schemas, SchemaVariantEngine.Strategy.EXHAUSTIVE, 1, 0L).hasChoices(component);
+            componentHasChoices.put(component, cached);
+        }
+        return cached;
+    }
+
+    private List<Field> fields(int schema) {
+        List<Field> out = new ArrayList<>();
+        collectFields(schema, "", false, Collections.emptySet(), out, new HashSet<Integer>());
+        return out;
+    }
+
+    private void collectFields(int id, String path, boolean required, Set<String> inheritedRequired,
+                               List<Field> out, Set<Integer> visiting) {
+        SchemaGraph.Node schema = schemas.node(id);
+        if (schema == null) return;
+
+        if (schema.isRef()) {
+            if (schema.target != SchemaGraph.NONE && visiting.add(schema.target)) {
+                collectFields(schema.target, path, required, inheritedRequired, out, visiting);
+                visiting.remove(schema.target);
+            }
+            return;
+        }
+
+        if (!path.isEmpty() && (isLeaf(schema) || schema.array)) {
+            out.add(new Field(path, schema, required));
+            return;
+        }
+
+        // required names declared on one allOf branch apply to properties declared on its siblings
+        Set<String> requiredHere = new HashSet<>(inheritedRequired);
+        requiredHere.addAll(schema.required);
+        for (int s : schema.allOf) {
+            SchemaGraph.Node resolved = schemas.node(schemas.resolve(s));
+            if (resolved != null) requiredHere.addAll(resolved.required);
+        }
+        for (int s : schema.allOf) {
+            collectFields(s, path, required, requiredHere, out, visiting);
+        }
+        if (schema.oneOf.length > 0) {
+            collectFields(schema.oneOf[0], path, required, Collections.emptySet(), out, visiting);
+        }
+        if (schema.anyOf.length > 0) {
+            collectFields(schema.anyOf[0], path, required, Collections.emptySet(), out, visiting);
+        }
+
+        for (int i = 0; i < schema.properties.length; i++) {
+            String name = schema.propertyNames[i];
+            String childPath = path.isEmpty() ? name : path + "." + name;
+            boolean childRequired = requiredHere.contains(name);
+            SchemaGraph.Node child = schemas.node(schemas.resolve(schema.properties[i]));
+            if (child != null && !isLeaf(child) && !child.array) {
+                out.add(new Field(childPath, child, childRequired));
+            }
+            collectFields(schema.properties[i], childPath, childRequired, Collections.emptySet(), out, visiting);
+        }
+    }
+
+    private static boolean isLeaf(SchemaGraph.Node schema) {
+        return !schema.hasProperties() && schema.allOf.length == 0 && schema.oneOf.length == 0
+                && schema.anyOf.length == 0 && !schema.array;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object with(Object base, String path, Object value) {
+        Object root = copy(base);
+        String[] segments = path.replace("[]", ".[]").split("\\.");
+        Object current = root;
+        for (int i = 0; i < segments.length - 1; i++) {
+            current = child(current, segments[i]);
+            if (current == null) return root;
+        }
+        String last = segments[segments.length - 1];
+        if (current instanceof Map) {
+            if (value == MISSING) {
+                ((Map<String, Object>) current).remove(last);
+            } else {
+                ((Map<String, Object>) current).put(last, value);
+            }
+        } else if (current instanceof List && "[]".equals(last) && !((List<Object>) current).isEmpty()) {
+            if (value == MISSING) {
+                ((List<Object>) current).remove(0);
+            } else {
+                ((List<Object>) current).set(0, value);
+            }
+        }
+        return root;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object child(Object node, String segment) {
+        if ("[]".equals(segment)) {
+            return node instanceof List && !((List<Object>) node).isEmpty() ? ((List<Object>) node).get(0) : null;
+        }
+        return node instanceof Map ? ((Map<String, Object>) node).get(segment) : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object copy(Object value) {
+        if (value instanceof Map) {
+            Map<String, Object> out = new LinkedHashMap<>();
+            for (Map.Entry<String, Object> e : ((Map<String, Object>) value).entrySet()) {
+                out.put(e.getKey(), copy(e.getValue()));
+            }
+            return out;
+        }
+        if (value instanceof List) {
+            List<Object> out = new ArrayList<>();
+            for (Object o : (List<Object>) value) {
+                out.add(copy(o));
+            }
+            return out;
+        }
+        return value;
+    }
+
+    public static String render(Object value, String mediaType, String rootName) {
+        return mediaType.contains("xml") ? toXml(value, rootName) : toJson(value);
+    }
+
+    public static String toJson(Object value) {
+        StringBuilder sb = new StringBuilder();
+        writeJson(sb, value);
+        return sb.toString();
+    }
+
+    // synthesized objects keep schema property order; everything that came from the spec is rendered canonically
+    @SuppressWarnings("unchecked")
+    private static void writeJson(StringBuilder sb, Object value) {
+        if (value instanceof Map) {
+            sb.append('{');
+            boolean first = true;
+            for (Map.Entry<String, Object> e : ((Map<String, Object>) value).entrySet()) {
+                if (!first) sb.append(',');
+                first = false;
+                CanonicalJson.appendString(sb, e.getKey());
+                sb.append(':');
+                writeJson(sb, e.getValue());
+            }
+            sb.append('}');
+        } else if (value instanceof Collection) {
+            sb.append('[');
+            boolean first = true;
+            for (Object o : (Collection<Object>) value) {
+                if (!first) sb.append(',');
+                first = false;
+                writeJson(sb, o);
+            }
+            sb.append(']');
+        } else {
+            CanonicalJson.append(sb, value);
+        }
+    }
+
+    // a document has one root, so a root array becomes a wrapper element with one <item> per entry
+    @SuppressWarnings("unchecked")
+    public static String toXml(Object value, String rootName) {
+        StringBuilder sb = new StringBuilder();
+        if (value instanceof Collection) {
+            sb.append('<').append(rootName).append('>');
+            for (Object o : (Collection<Object>) value) {
+                writeXml(sb, "item", o);
+            }
+            sb.append("</").append(rootName).append('>');
+        } else {
+            writeXml(sb, rootName, value);
+        }
+        return sb.toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void writeXml(StringBuilder sb, String name, Object value) {
+        if (value instanceof Collection) {
+            for (Object o : (Collection<Object>) value) {
+                writeXml(sb, name, o);
+            }
+            return;
+        }
+        sb.append('<').append(name).append('>');
+        if (value instanceof Map) {
+            for (Map.Entry<String, Object> e : ((Map<String, Object>) value).entrySet()) {
+                writeXml(sb, e.getKey(), e.getValue());
+            }
+        } else if (value != null) {
+            String text = value instanceof BigDecimal ? ((BigDecimal) value).toPlainString() : value.toString();
+            sb.append(text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;"));
+        }
+        sb.append("</").append(name).append('>');
+    }
+
+    public String rootName(int id) {
+        SchemaGraph.Node schema = schemas.node(id);
+        if (schema == null) return "root";
+        if (schema.xmlName != null) return schema.xmlName;
+        if (schema.isRef()) return schema.ref.substring(schema.ref.lastIndexOf('/') + 1);
+        return "root";
+    }
+
+    // Produces one short string matching a (simple) regular expression: literals, escapes, classes, groups, quantifiers.
+    private static class RegexSampler {
+        private final String pattern;
+        // repetitions added to every open-ended quantifier, raised until the sample reaches minLength
+        private final int extra;
+        private int pos;
+
+        RegexSampler(String pattern, int extra) {
+            this.pattern = pattern;
+            this.extra = extra;
+        }
+
+        // the shortest sample of at least minLength; the caller pads or cuts when the pattern cannot get there
+        static String generate(String pattern, Integer minLength, Integer maxLength) {
+            String value = new RegexSampler(pattern, 0).generate();
+            int min = minLength != null ? minLength : 0;
+            for (int extra = 1; value.length() < min && extra <= min; extra++) {
+                String longer = new RegexSampler(pattern, extra).generate();
+                if (longer.length() == value.length()) break;
+                if (maxLength != null && longer.length() > maxLength) break;
+                value = longer;
+            }
+            return value;
+        }
+
+        String generate() {
+            try {
+                StringBuilder sb = new StringBuilder();
+                alternation(sb);
+                return sb.toString();
+            } catch (RuntimeException e) {
+                return "string";
+            }
+        }
+
+        private void alternation(StringBuilder sb) {
+            sequence(sb);
+            while (pos < pattern.length() && pattern.charAt(pos) == '|') {
+                pos++;
+                StringBuilder ignored = new StringBuilder();
+                sequence(ignored);
+            }
+        }
+
+        private void sequence(StringBuilder sb) {
+            while (pos < pattern.length()) {
+                char c = pattern.charAt(pos);
+                if (c == '|' || c == ')') return;
+                if (c == '^' || c == '$') {
+                    pos++;
+                    continue;
+                }
+                StringBuilder atom = new StringBuilder();
+                atom(atom);
+                int repeat = quantifier();
+                for (int i = 0; i < repeat; i++) {
+                    sb.append(atom);
+                }
+            }
+        }
+
+        private void atom(StringBuilder sb) {
+            char c = pattern.charAt(pos++);
+            switch (c) {
+                case '(':
+                    if (pattern.startsWith("?:", pos)) pos += 2;
+                    alternation(sb);
+                    pos++;
+                    break;
+                case '[':
+                    sb.append(charClass());
+                    break;
+                case '\\':
+                    sb.append(escape(pattern.charAt(pos++)));
+                    break;
+                case '.':
+                    sb.append('a');
+                    break;
+                default:
+                    sb.append(c);
+            }
+        }
+
+        private char charClass() {
+            int start = pos - 1;
+            boolean negated = pos < pattern.length() && pattern.charAt(pos) == '^';
+            if (negated) pos++;
+            Character first = null;
+            while (pattern.charAt(pos) != ']') {
+                char c = pattern.charAt(pos++);
+                if (c == '\\') c = escape(pattern.charAt(pos++));
+                if (first == null) first = c;
+                if (pattern.charAt(pos) == '-' && pattern.charAt(pos + 1) != ']') {
+                    pos += 2;
+                }
+            }
+            pos++;
+            if (negated) return outside(pattern.substring(start, pos));
+            return first != null ? first : 'a';
+        }
+
+        // the first plain character the negated class accepts
+        private static char outside(String negatedClass) {
+            Pattern accepts = Pattern.compile(negatedClass);
+            for (char c : "aA0-_ .xyzXYZ9~!".toCharArray()) {
+                if (accepts.matcher(String.valueOf(c)).matches()) return c;
+            }
+            for (char c = 0x21; c < 0x7F; c++) {
+                if (accepts.matcher(String.valueOf(c)).matches()) return c;
+            }
+            throw new IllegalArgumentException("no printable character outside " + negatedClass);
+        }
+
+        private static char escape(char c) {
+            switch (c) {
+                case 'd': return '1';
+                case 'w': return 'a';
+                case 's': return ' ';
+                case 'D': case 'W': case 'S': return '-';
+                default: return c;
+            }
+        }
+
+        private int quantifier() {
+            if (pos >= pattern.length()) return 1;
+            char c = pattern.charAt(pos);
+            int repeat = 1;
+            if (c == '?') {
+                pos++;
+                repeat = Math.min(1, extra);
+            } else if (c == '*') {
+                pos++;
+                repeat = extra;
+            } else if (c == '+') {
+                pos++;
+                repeat = 1 + extra;
+            } else if (c == '{') {
+                int end = pattern.indexOf('}', pos);
+                String[] bounds = pattern.substring(pos + 1, end).split(",", -1);
+                int min = Integer.parseInt(bounds[0].trim());
+                repeat = min;
+                if (bounds.length > 1) {
+                    repeat = bounds[1].trim().isEmpty() ? min + extra : Math.min(min + extra, Integer.parseInt(bounds[1].trim()));
+                }
+                pos = end + 1;
+            } else {
+                return 1;
+            }
+            if (pos < pattern.length() && (pattern.charAt(pos) == '?' || pattern.charAt(pos) == '+')) pos++;
+            return repeat;
+        }
+    }
+}
@@ -0,0 +1,296 @@
+import io.swagger.v3.oas.models.media.ArraySchema;
+import io.swagger.v3.oas.models.media.Schema;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class SchemaGraph {
+
+    static final int NONE = -1;
+    private static final int[] NO_IDS = new int[0];
+    private static final String[] NO_NAMES = new String[0];
+
+    public static class Node {
+        final int id;
+        final String component;
+        final String ref;
+        final int target;
+        final String type;
+        final String format;
+        final String pattern;
+        final Integer minLength;
+        final Integer maxLength;
+        final List<Object> enumValues;
+        final Object defaultValue;
+        final Object example;
+        final boolean array;
+        final boolean object;
+        final int items;
+        final int[] allOf;
+        final int[] oneOf;
+        final int[] anyOf;
+        final String[] propertyNames;
+        final int[] properties;
+        final Set<String> required;
+        final String title;
+        final String xmlName;
+        // this node's own keywords; SchemaGraph.constraints(id) adds those of its allOf branches
+        final Constraints constraints;
+
+        private Node(int id, String component, Schema<?> schema, int target, int items, int[] allOf, int[] oneOf,
+                     int[] anyOf, String[] propertyNames, int[] properties) {
+            this.id = id;
+            this.component = component;
+            this.ref = schema.get$ref() != null ? schema.get$ref().replace("#/components/schemas/", "") : null;
+            this.target = target;
+            this.type = schema.getType();
+            this.format = schema.getFormat();
+            this.pattern = schema.getPattern();
+            this.minLength = schema.getMinLength();
+            this.maxLength = schema.getMaxLength();
+            this.enumValues = schema.getEnum() != null ? Collections.unmodifiableList(new ArrayList<Object>(schema.getEnum())) : null;
+            this.defaultValue = schema.getDefault();
+            this.example = schema.getExample();
+            this.array = "array".equals(schema.getType()) || schema instanceof ArraySchema;
+            this.object = "object".equals(schema.getType()) || schema.getProperties() != null;
+            this.items = items;
+            this.allOf = allOf;
+            this.oneOf = oneOf;
+            this.anyOf = anyOf;
+            this.propertyNames = propertyNames;
+            this.properties = properties;
+            this.required = schema.getRequired() != null
+                    ? Collections.unmodifiableSet(new LinkedHashSet<>(schema.getRequired())) : Collections.<String>emptySet();
+            this.title = schema.getTitle();
+            this.xmlName = schema.getXml() != null ? schema.getXml().getName() : null;
+            this.constraints = Constraints.of(schema);
+        }
+
+        // merged allOf view: same id as the original node, no allOf branches left
+        private Node(Node origin, Merge merge) {
+            this.id = origin.id;
+            this.component = origin.component;
+            this.ref = null;
+            this.target = NONE;
+            this.type = merge.type;
+            this.format = merge.format;
+            this.pattern = merge.pattern;
+            this.minLength = merge.minLength;
+            this.maxLength = merge.maxLength;
+            this.enumValues = merge.enumValues;
+            this.defaultValue = merge.defaultValue;
+            this.example = origin.example;
+            this.array = merge.array;
+            this.object = merge.object;
+            this.items = merge.items;
+            this.allOf = NO_IDS;
+            this.oneOf = merge.oneOf;
+            this.anyOf = merge.anyOf;
+            this.propertyNames = merge.properties.keySet().toArray(new String[0]);
+            this.properties = new int[propertyNames.length];
+            for (int i = 0; i < propertyNames.length; i++) {
+                this.properties[i] = merge.properties.get(propertyNames[i]);
+            }
+            this.required = Collections.unmodifiableSet(merge.required);
+            this.title = origin.title;
+            this.xmlName = origin.xmlName;
+            this.constraints = origin.constraints;
+        }
+
+        public boolean isRef() {
+            return ref != null;
+        }
+
+        public boolean hasProperties() {
+            return properties.length > 0;
+        }
+
+        public int property(String name) {
+            for (int i = 0; i < propertyNames.length; i++) {
+                if (propertyNames[i].equals(name)) return properties[i];
+            }
+            return NONE;
+        }
+    }
+
+    private static class Merge {
+        String type;
+        String format;
+        String pattern;
+        Integer minLength;
+        Integer maxLength;
+        List<Object> enumValues;
+        Object defaultValue;
+        boolean array;
+        boolean object;
+        int items = NONE;
+        int[] oneOf = NO_IDS;
+        int[] anyOf = NO_IDS;
+        final Map<String, Integer> properties = new LinkedHashMap<>();
+        final Set<String> required = new LinkedHashSet<>();
+    }
+
+    private final List<Node> nodes;
+    private final Map<String, Integer> components;
+    private final Map<Integer, Node> effective = new ConcurrentHashMap<>();
+    private final Map<Integer, Constraints> constraints = new ConcurrentHashMap<>();
+
+    private SchemaGraph(List<Node> nodes, Map<String, Integer> components) {
+        this.nodes = Collections.unmodifiableList(nodes);
+        this.components = Collections.unmodifiableMap(components);
+    }
+
+    public Node node(int id) {
+        return id == NONE ? null : nodes.get(id);
+    }
+
+    public int component(String name) {
+        Integer id = components.get(name);
+        return id != null ? id : NONE;
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+
+    // Follows a $ref chain to the first non-ref node; unresolved or cyclic chains end at NONE.
+    public int resolve(int id) {
+        int steps = 0;
+        while (id != NONE && nodes.get(id).isRef()) {
+            id = nodes.get(id).target;
+            if (++steps > nodes.size()) return NONE;
+        }
+        return id;
+    }
+
+    // Resolves refs and merges allOf branches into one object node; computed once per node and shared across threads.
+    public Node effective(int id) {
+        id = resolve(id);
+        if (id == NONE) return null;
+        Node node = nodes.get(id);
+        if (node.allOf.length == 0) return node;
+        Node merged = effective.get(id);
+        if (merged == null) {
+            Merge merge = new Merge();
+            merge(node, merge, new HashSet<Integer>());
+            merged = new Node(node, merge);
+            effective.putIfAbsent(id, merged);
+        }
+        return merged;
+    }
+
+    // Constraints of the resolved schema with every allOf branch applied; computed once per node.
+    public Constraints constraints(int id) {
+        return constraints(id, new HashSet<Integer>());
+    }
+
+    private Constraints constraints(int id, Set<Integer> visiting) {
+        id = resolve(id);
+        if (id == NONE || !visiting.add(id)) return Constraints.NONE;
+        Constraints cached = constraints.get(id);
+        if (cached != null) return cached;
+        Node node = nodes.get(id);
+        Constraints c = node.constraints;
+        for (int branch : node.allOf) {
+            c = c.and(constraints(branch, visiting));
+        }
+        constraints.putIfAbsent(id, c);
+        return c;
+    }
+
+    private void merge(Node node, Merge merge, Set<Integer> visiting) {
+        if (!visiting.add(node.id)) return;
+        for (int branch : node.allOf) {
+            int resolved = resolve(branch);
+            if (resolved != NONE) merge(nodes.get(resolved), merge, visiting);
+        }
+        if (merge.type == null) merge.type = node.type;
+        if (merge.format == null) merge.format = node.format;
+        if (merge.pattern == null) merge.pattern = node.pattern;
+        if (merge.enumValues == null) merge.enumValues = node.enumValues;
+        if (merge.defaultValue == null) merge.defaultValue = node.defaultValue;
+        if (node.minLength != null && (merge.minLength == null || node.minLength > merge.minLength)) merge.minLength = node.minLength;
+        if (node.maxLength != null && (merge.maxLength == null || node.maxLength < merge.maxLength)) merge.maxLength = node.maxLength;
+        merge.array |= node.array;
+        merge.object |= node.object || node.properties.length > 0;
+        if (merge.items == NONE) merge.items = node.items;
+        if (merge.oneOf.length == 0) merge.oneOf = node.oneOf;
+        if (merge.anyOf.length == 0) merge.anyOf = node.anyOf;
+        for (int i = 0; i < node.properties.length; i++) {
+            merge.properties.put(node.propertyNames[i], node.properties[i]);
+        }
+        merge.required.addAll(node.required);
+    }
+
+    // Components are interned first so every $ref becomes a plain int edge; inline schemas are added as they are reached.
+    static class Builder {
+        private final List<Node> nodes = new ArrayList<>();
+        private final Map<String, Integer> components = new LinkedHashMap<>();
+        private final Map<Schema<?>, Integer> ids = new IdentityHashMap<>();
+
+        Builder(Map<String, Schema> schemaMap) {
+            for (String name : schemaMap.keySet()) {
+                components.put(name, nodes.size());
+                nodes.add(null);
+            }
+            for (Map.Entry<String, Schema> entry : schemaMap.entrySet()) {
+                Schema<?> schema = entry.getValue();
+                if (schema == null) schema = new Schema<>();
+                int id = components.get(entry.getKey());
+                ids.put(schema, id);
+                nodes.set(id, create(id, entry.getKey(), schema));
+            }
+        }
+
+        int add(Schema<?> schema) {
+            if (schema == null) return NONE;
+            Integer existing = ids.get(schema);
+            if (existing != null) return existing;
+            int id = nodes.size();
+            ids.put(schema, id);
+            nodes.add(null);
+            nodes.set(id, create(id, null, schema));
+            return id;
+        }
+
+        private Node create(int id, String component, Schema<?> schema) {
+            int target = NONE;
+            if (schema.get$ref() != null) {
+                String ref = schema.get$ref();
+                Integer resolved = components.get(ref.substring(ref.lastIndexOf('/') + 1));
+                if (resolved != null && ref.startsWith("#/components/schemas/")) target = resolved;
+            }
+            Schema<?> itemSchema = schema instanceof ArraySchema ? ((ArraySchema) schema).getItems() : schema.getItems();
+            int items = add(itemSchema);
+            int[] allOf = addAll(schema.getAllOf());
+            int[] oneOf = addAll(schema.getOneOf());
+            int[] anyOf = addAll(schema.getAnyOf());
+
+            String[] propertyNames = NO_NAMES;
+            int[] properties = NO_IDS;
+            if (schema.getProperties() != null && !schema.getProperties().isEmpty()) {
+                propertyNames = new String[schema.getProperties().size()];
+                properties = new int[propertyNames.length];
+                int i = 0;
+                for (Map.Entry<String, Schema> entry : schema.getProperties().entrySet()) {
+                    propertyNames[i] = entry.getKey();
+                    properties[i++] = add(entry.getValue() != null ? entry.getValue() : new Schema<>());
+                }
+            }
+            return new Node(id, component, schema, target, items, allOf, oneOf, anyOf, propertyNames, properties);
+        }
+
+        private int[] addAll(List<Schema> schemas) {
+            if (schemas == null || schemas.isEmpty()) return NO_IDS;
+            int[] out = new int[schemas.size()];
+            for (int i = 0; i < out.length; i++) {
+                out[i] = add(schemas.get(i) != null ? schemas.get(i) : new Schema<>());
+            }
+            return out;
+        }
+
+        SchemaGraph build() {
+            return new SchemaGraph(new ArrayList<>(nodes), new LinkedHashMap<>(components));
+        }
+    }
+}
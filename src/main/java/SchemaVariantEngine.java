@@ -0,0 +1,344 @@
+import java.util.*;
+
+public class SchemaVariantEngine {
+
+    public enum Strategy { EXHAUSTIVE, PAIRWISE, SAMPLE }
+
+    private final SchemaGraph schemas;
+    private final Strategy strategy;
+    private final int limit;
+    private final long seed;
+
+    public SchemaVariantEngine(SchemaGraph schemas, Strategy strategy, int limit, long seed) {
+        this.schemas = schemas;
+        this.strategy = strategy;
+        this.limit = limit;
+        this.seed = seed;
+    }
+
+    public static class Choice {
+        final String path;
+        final String kind;
+        // the choice point: one per oneOf/anyOf keyword of one schema node at one payload path
+        final String point;
+        final int index;
+        final int count;
+        final String label;
+
+        Choice(String path, String kind, String point, int index, int count, String label) {
+            this.path = path;
+            this.kind = kind;
+            this.point = point;
+            this.index = index;
+            this.count = count;
+            this.label = label;
+        }
+    }
+
+    public static class Variant {
+        private final List<Choice> choices;
+        private final Map<String, Integer> byPoint = new HashMap<>();
+
+        Variant(List<Choice> choices) {
+            this.choices = Collections.unmodifiableList(choices);
+            for (Choice c : choices) {
+                byPoint.put(c.point, c.index);
+            }
+        }
+
+        public List<Choice> getChoices() {
+            return choices;
+        }
+
+        public boolean isEmpty() {
+            return choices.isEmpty();
+        }
+
+        // branch picked at the given point(...), null when the variant never reached it
+        public Integer branchAt(String point) {
+            return byPoint.get(point);
+        }
+
+        String signature() {
+            StringBuilder sb = new StringBuilder();
+            for (Choice c : choices) {
+                sb.append(c.point).append('=').append(c.index).append(';');
+            }
+            return sb.toString();
+        }
+
+        public String describe() {
+            StringBuilder sb = new StringBuilder();
+            for (Choice c : choices) {
+                if (sb.length() > 0) sb.append(", ");
+                sb.append(c.path.isEmpty() ? "(root)" : c.path).append('=').append(c.kind).append(':').append(c.label);
+            }
+            return sb.toString();
+        }
+    }
+
+    private interface Decider {
+        int decide(String point, int count);
+    }
+
+    // A path alone does not identify a choice: one node may carry both oneOf and anyOf, and a branch may itself be a
+    // oneOf at the same path. The node id tells those apart and is the same in every walk of the graph.
+    static String point(String path, int node, String kind) {
+        return path + '@' + node + ':' + kind;
+    }
+
+    public Iterator<Variant> variants(int root) {
+        switch (strategy) {
+            case PAIRWISE:
+                return new PairwiseIterator(root);
+            case SAMPLE:
+                return new SampleIterator(root);
+            default:
+                return new ExhaustiveIterator(root);
+        }
+    }
+
+    public boolean hasChoices(int root) {
+        List<Choice> out = new ArrayList<>();
+        walk(root, "", (p, c) -> 0, out, new HashSet<>());
+        return !out.isEmpty();
+    }
+
+    // Walks the schema following one branch per oneOf/anyOf as picked by the decider, recording each choice.
+    private void walk(int id, String path, Decider decider, List<Choice> out, Set<Integer> visiting) {
+        SchemaGraph.Node schema = schemas.node(id);
+        if (schema == null) return;
+
+        if (schema.isRef()) {
+            if (schema.target != SchemaGraph.NONE && visiting.add(schema.target)) {
+                walk(schema.target, path, decider, out, visiting);
+                visiting.remove(schema.target);
+            }
+            return;
+        }
+
+        for (int s : schema.allOf) {
+            walk(s, path, decider, out, visiting);
+        }
+
+        if (schema.oneOf.length > 0) {
+            int[] branches = schema.oneOf;
+            String point = point(path, schema.id, "oneOf");
+            int index = decider.decide(point, branches.length);
+            out.add(new Choice(path, "oneOf", point, index, branches.length, branchLabel(branches[index], index)));
+            walk(branches[index], path, decider, out, visiting);
+        }
+
+        if (schema.anyOf.length > 0) {
+            int[] branches = schema.anyOf;
+            int count = branches.length > 1 ? branches.length + 1 : 1;
+            String point = point(path, schema.id, "anyOf");
+            int index = decider.decide(point, count);
+            if (index < branches.length) {
+                out.add(new Choice(path, "anyOf", point, index, count, branchLabel(branches[index], index)));
+                walk(branches[index], path, decider, out, visiting);
+            } else {
+                out.add(new Choice(path, "anyOf", point, index, count, "all"));
+                for (int s : branches) {
+                    walk(s, path, decider, out, visiting);
+                }
+            }
+        }
+
+        if (schema.array) {
+            walk(schema.items, path + "[]", decider, out, visiting);
+            return;
+        }
+
+        for (int i = 0; i < schema.properties.length; i++) {
+            String name = schema.propertyNames[i];
+            walk(schema.properties[i], path.isEmpty() ? name : path + "." + name, decider, out, visiting);
+        }
+    }
+
+    // Visits every branch once to find the distinct choice points reachable under any selection.
+    private void discover(int id, String path, Map<String, Integer> factors, Set<Integer> visiting) {
+        SchemaGraph.Node schema = schemas.node(id);
+        if (schema == null) return;
+
+        if (schema.isRef()) {
+            if (schema.target != SchemaGraph.NONE && visiting.add(schema.target)) {
+                discover(schema.target, path, factors, visiting);
+                visiting.remove(schema.target);
+            }
+            return;
+        }
+
+        List<Integer> branches = new ArrayList<>();
+        for (int s : schema.allOf) branches.add(s);
+        if (schema.oneOf.length > 0) {
+            factors.put(point(path, schema.id, "oneOf"), schema.oneOf.length);
+            for (int s : schema.oneOf) branches.add(s);
+        }
+        if (schema.anyOf.length > 0) {
+            int n = schema.anyOf.length;
+            factors.put(point(path, schema.id, "anyOf"), n > 1 ? n + 1 : 1);
+            for (int s : schema.anyOf) branches.add(s);
+        }
+        for (int s : branches) {
+            discover(s, path, factors, visiting);
+        }
+
+        if (schema.array) {
+            discover(schema.items, path + "[]", factors, visiting);
+            return;
+        }
+
+        for (int i = 0; i < schema.properties.length; i++) {
+            String name = schema.propertyNames[i];
+            discover(schema.properties[i], path.isEmpty() ? name : path + "." + name, factors, visiting);
+        }
+    }
+
+    private Variant resolve(int root, Decider decider) {
+        List<Choice> out = new ArrayList<>();
+        walk(root, "", decider, out, new HashSet<>());
+        return new Variant(out);
+    }
+
+    private String branchLabel(int id, int index) {
+        SchemaGraph.Node branch = schemas.node(id);
+        if (branch.isRef()) return branch.ref.substring(branch.ref.lastIndexOf('/') + 1);
+        if (branch.title != null) return branch.title;
+        return "#" + index;
+    }
+
+    // Depth-first odometer over the decision tree: only the current path of decisions is held in memory.
+    private class ExhaustiveIterator implements Iterator<Variant> {
+        private final int root;
+        private Variant next;
+        private int produced;
+
+        ExhaustiveIterator(int root) {
+            this.root = root;
+            this.next = resolve(root, (p, c) -> 0);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null && produced < limit;
+        }
+
+        @Override
+        public Variant next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            Variant current = next;
+            produced++;
+            next = advance(current);
+            return current;
+        }
+
+        private Variant advance(Variant current) {
+            List<Choice> choices = current.getChoices();
+            for (int i = choices.size() - 1; i >= 0; i--) {
+                if (choices.get(i).index + 1 < choices.get(i).count) {
+                    final int[] prefix = new int[i + 1];
+                    for (int k = 0; k < i; k++) {
+                        prefix[k] = choices.get(k).index;
+                    }
+                    prefix[i] = choices.get(i).index + 1;
+                    final int[] position = {0};
+                    return resolve(root, (p, c) -> {
+                        int at = position[0]++;
+                        return at < prefix.length ? prefix[at] : 0;
+                    });
+                }
+            }
+            return null;
+        }
+    }
+
+    private class PairwiseIterator implements Iterator<Variant> {
+        private final int root;
+        private final List<String> points = new ArrayList<>();
+        private final Iterator<int[]> rows;
+        private final Set<String> seen = new HashSet<>();
+        private Variant next;
+        private int produced;
+
+        PairwiseIterator(int root) {
+            this.root = root;
+            Map<String, Integer> factors = new LinkedHashMap<>();
+            discover(root, "", factors, new HashSet<>());
+            int[] sizes = new int[factors.size()];
+            int i = 0;
+            for (Map.Entry<String, Integer> entry : factors.entrySet()) {
+                points.add(entry.getKey());
+                sizes[i++] = entry.getValue();
+            }
+            this.rows = new CoveringArray(sizes).iterator();
+            this.next = sizes.length == 0 ? resolve(root, (p, c) -> 0) : fetch();
+        }
+
+        private Variant fetch() {
+            while (rows.hasNext()) {
+                int[] row = rows.next();
+                Map<String, Integer> picks = new HashMap<>();
+                for (int i = 0; i < row.length; i++) {
+                    picks.put(points.get(i), row[i]);
+                }
+                Variant v = resolve(root, (p, c) -> Math.min(picks.getOrDefault(p, 0), c - 1));
+                if (seen.add(v.signature())) {
+                    return v;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null && produced < limit;
+        }
+
+        @Override
+        public Variant next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            Variant current = next;
+            produced++;
+            next = produced < limit ? fetch() : null;
+            return current;
+        }
+    }
+
+    private class SampleIterator implements Iterator<Variant> {
+        private final int root;
+        private final Random random = new Random(seed);
+        private final Set<String> seen = new HashSet<>();
+        private Variant next;
+        private int produced;
+
+        SampleIterator(int root) {
+            this.root = root;
+            this.next = fetch();
+        }
+
+        private Variant fetch() {
+            for (int attempt = 0; attempt < limit * 10; attempt++) {
+                Variant v = resolve(root, (p, c) -> random.nextInt(c));
+                if (seen.add(v.signature())) {
+                    return v;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null && produced < limit;
+        }
+
+        @Override
+        public Variant next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            Variant current = next;
+            produced++;
+            next = produced < limit ? fetch() : null;
+            return current;
+        }
+    }
+}
@@ -0,0 +1,244 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+// Combines the per-shard manifests of each output directory after all workers finished. It fails when a shard or an
+// operation is missing, re-assembles shared bundles (the PractiTest CSV, the archive) and the per-shard failure
+// report, run manifest and analytics in spec order with single-run test keys, and removes the shard bookkeeping so
+// the directory matches a single-process run. The exit status is the worst of the shards'.
+// Usage: java ShardMerger [outputDir ...]
+public class ShardMerger {
+
+    private static final String[] DEFAULT_OUTPUT_DIRS = {
+            "generated-prompts1", "generated-prompts2", "generated-prompts3", "generated-prompts4"
+    };
+
+    private static class Manifest {
+        final Map<String, String> headers = new LinkedHashMap<>();
+        final Map<Integer, Long> csvRows = new LinkedHashMap<>();
+        final Map<Integer, String> operations = new LinkedHashMap<>();
+        final List<String> outputs = new ArrayList<>();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int status = 0;
+        for (String dir : args.length > 0 ? args : DEFAULT_OUTPUT_DIRS) {
+            Path shards = Paths.get(dir, ShardPlan.MANIFEST_DIR);
+            if (!Files.isDirectory(shards)) continue;
+            try {
+                status = Math.max(status, merge(dir, shards));
+            } catch (IOException | IllegalStateException e) {
+                System.err.println("❌ Failed to merge shards of " + dir + ": " + e.getMessage());
+                status = Math.max(status, 1);
+            }
+        }
+        if (status != 0) System.exit(status);
+    }
+
+    // returns the exit status of the sharded run as a whole
+    static int merge(String dir, Path shards) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(shards, "manifest-*.tsv")) {
+            for (Path file : stream) files.add(file);
+        }
+        Collections.sort(files);
+        if (files.isEmpty()) throw new IllegalStateException("no manifests in " + shards);
+
+        Map<Integer, Manifest> manifests = new TreeMap<>();
+        int count = -1;
+        int operations = -1;
+        for (Path file : files) {
+            Manifest manifest = read(file);
+            String[] shard = manifest.headers.get("shard").split("/");
+            int shardCount = Integer.parseInt(shard[1]);
+            int ops = Integer.parseInt(manifest.headers.get("operations"));
+            if (count != -1 && (count != shardCount || operations != ops)) {
+                throw new IllegalStateException(file + " belongs to a different run (" + shard[1] + " shards, " + ops + " operations)");
+            }
+            count = shardCount;
+            operations = ops;
+            manifests.put(Integer.parseInt(shard[0]), manifest);
+        }
+        for (int shard = 0; shard < count; shard++) {
+            if (!manifests.containsKey(shard)) throw new IllegalStateException("manifest of shard " + shard + "/" + count + " is missing");
+        }
+
+        // every operation must be claimed by exactly one shard
+        Map<Integer, Integer> claimedBy = new HashMap<>();
+        for (Map.Entry<Integer, Manifest> entry : manifests.entrySet()) {
+            for (int op : entry.getValue().csvRows.keySet()) {
+                Integer previous = claimedBy.put(op, entry.getKey());
+                if (previous != null) throw new IllegalStateException("operation " + op + " rendered by shards " + previous + " and " + entry.getKey());
+            }
+            for (String output : entry.getValue().outputs) {
+                if (!Files.exists(Paths.get(output))) throw new IllegalStateException("output " + output + " of shard " + entry.getKey() + " is missing");
+            }
+        }
+        if (claimedBy.size() != operations) {
+            throw new IllegalStateException((operations - claimedBy.size()) + " of " + operations + " operations have no shard");
+        }
+
+        String csv = manifests.get(0).headers.get("csv");
+        if (csv != null) {
+            mergeCsv(csv, manifests, claimedBy);
+        }
+        String archive = manifests.get(0).headers.get("archive");
+        if (archive != null) {
+            mergeArchive(archive, manifests);
+        }
+
+        Map<String, Integer> specOrder = new HashMap<>();
+        for (Manifest manifest : manifests.values()) {
+            for (Map.Entry<Integer, String> operation : manifest.operations.entrySet()) {
+                specOrder.put(operation.getValue(), operation.getKey());
+            }
+        }
+        if (manifests.get(0).headers.containsKey("analytics")) {
+            PromptAnalytics.merge(target(manifests, "analytics"), fragments(manifests, "analytics"), specOrder);
+        }
+        int status = 0;
+        for (Manifest manifest : manifests.values()) {
+            String shardStatus = manifest.headers.get("status");
+            if (shardStatus != null) status = Math.max(status, Integer.parseInt(shardStatus));
+        }
+        if (manifests.get(0).headers.containsKey("failures")) {
+            status = Math.max(status, FailureReport.merge(target(manifests, "failures"), fragments(manifests, "failures"),
+                    operations, specOrder));
+        }
+        if (manifests.get(0).headers.containsKey("runManifest")) {
+            RunManifest.merge(target(manifests, "runManifest"), fragments(manifests, "runManifest"), specOrder);
+        }
+
+        for (Path file : files) Files.delete(file);
+        Files.deleteIfExists(shards);
+        System.out.println((status == 0 ? "✅" : "❌") + " Merged " + count + " shards of " + dir + " (" + operations
+                + " operations" + (status == 0 ? ")" : ", exit status " + status + ")"));
+        return status;
+    }
+
+    // headers of per-shard files read "<single-run file><TAB><this shard's fragment>"
+    private static Path target(Map<Integer, Manifest> manifests, String header) {
+        return Paths.get(manifests.get(0).headers.get(header).split("\t")[0]);
+    }
+
+    private static List<Path> fragments(Map<Integer, Manifest> manifests, String header) {
+        List<Path> fragments = new ArrayList<>();
+        for (Map.Entry<Integer, Manifest> entry : manifests.entrySet()) {
+            String value = entry.getValue().headers.get(header);
+            if (value == null) throw new IllegalStateException("manifest of shard " + entry.getKey() + " has no " + header);
+            fragments.add(Paths.get(value.split("\t")[1]));
+        }
+        return fragments;
+    }
+
+    // Test keys restart in every fragment, so records are re-keyed while they are replayed in spec order.
+    private static void mergeCsv(String csvHeader, Map<Integer, Manifest> manifests, Map<Integer, Integer> claimedBy)
+            throws IOException {
+        String[] parts = csvHeader.split("\t");
+        Path target = Paths.get(parts[0]);
+        String keyPrefix = parts[1];
+
+        Map<Integer, List<String>> records = new HashMap<>();
+        Map<Integer, Integer> cursor = new HashMap<>();
+        List<Path> fragments = new ArrayList<>();
+        for (Map.Entry<Integer, Manifest> entry : manifests.entrySet()) {
+            Path fragment = Paths.get(entry.getValue().headers.get("csv").split("\t")[2]);
+            fragments.add(fragment);
+            records.put(entry.getKey(), records(new String(Files.readAllBytes(fragment), StandardCharsets.UTF_8)));
+            cursor.put(entry.getKey(), 1);
+        }
+
+        StringBuilder out = new StringBuilder(records.get(0).get(0));
+        int key = 0;
+        for (int op = 0; op < claimedBy.size(); op++) {
+            int shard = claimedBy.get(op);
+            List<String> shardRecords = records.get(shard);
+            long rows = manifests.get(shard).csvRows.get(op);
+            int from = cursor.get(shard);
+            for (int r = from; r < from + rows; r++) {
+                String record = shardRecords.get(r);
+                if (record.startsWith(keyPrefix + "-")) {
+                    record = keyPrefix + "-" + (++key) + record.substring(record.indexOf(','));
+                }
+                out.append(record);
+            }
+            cursor.put(shard, (int) (from + rows));
+        }
+        PromptOutput.write(target, out);
+        for (Path fragment : fragments) Files.delete(fragment);
+        System.out.println("✅ Saved: " + target + " (" + key + " tests)");
+    }
+
+    // Entries are copied still compressed, in the spec order of the index that only the first shard writes.
+    private static void mergeArchive(String archiveHeader, Map<Integer, Manifest> manifests) throws IOException {
+        Path target = Paths.get(archiveHeader.split("\t")[0]);
+        List<Path> fragments = fragments(manifests, "archive");
+        List<PromptArchive.Reader> readers = new ArrayList<>();
+        try {
+            for (Path fragment : fragments) readers.add(new PromptArchive.Reader(fragment));
+            if (!readers.get(0).names().contains(OutputNames.INDEX_FILE)) {
+                throw new IllegalStateException(fragments.get(0) + " has no " + OutputNames.INDEX_FILE);
+            }
+            String index = readers.get(0).read(OutputNames.INDEX_FILE);
+            List<PromptArchive.Entry> entries = new ArrayList<>();
+            for (String line : index.split("\n")) {
+                String[] fields = line.split("\t", -1);
+                if (fields.length < 3 || line.startsWith("operation\t")) continue;
+                for (PromptArchive.Reader reader : readers) {
+                    if (reader.names().contains(fields[2])) {
+                        entries.add(reader.raw(fields[2]));
+                        break;
+                    }
+                }
+            }
+            entries.add(readers.get(0).raw(OutputNames.INDEX_FILE));
+            PromptArchive.write(target, entries);
+            System.out.println("✅ Saved: " + target + " (" + (entries.size() - 1) + " prompts)");
+        } finally {
+            for (PromptArchive.Reader reader : readers) reader.close();
+        }
+        for (Path fragment : fragments) Files.delete(fragment);
+    }
+
+    // splits CSV text into records including their CRLF; line breaks inside quoted fields stay within the record
+    private static List<String> records(String text) {
+        List<String> records = new ArrayList<>();
+        boolean quoted = false;
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (c == '\n' && !quoted) {
+                records.add(text.substring(start, i + 1));
+                start = i + 1;
+            }
+        }
+        if (start < text.length()) records.add(text.substring(start));
+        return records;
+    }
+
+    private static Manifest read(Path file) throws IOException {
+        Manifest manifest = new Manifest();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            if (line.isEmpty()) continue;
+            if (line.startsWith("#")) {
+                int tab = line.indexOf('\t');
+                manifest.headers.put(line.substring(1, tab), line.substring(tab + 1));
+                continue;
+            }
+            String[] fields = line.split("\t", -1);
+            manifest.csvRows.put(Integer.parseInt(fields[0]), Long.parseLong(fields[3]));
+            manifest.operations.put(Integer.parseInt(fields[0]), fields[1] + " " + fields[2]);
+            if (!fields[4].isEmpty()) manifest.outputs.addAll(Arrays.asList(fields[4].split(",")));
+        }
+        if (!manifest.headers.containsKey("shard") || !manifest.headers.containsKey("operations")) {
+            throw new IllegalStateException(file + " has no shard header");
+        }
+        return manifest;
+    }
+}
@@ -0,0 +1,141 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+// Splits the endpoints of one spec across worker processes. Started with -Dshard=<index>/<count> (0-based), a worker
+// renders only the endpoints it owns and records them in <outputDir>/.shards/manifest-<index>-of-<count>.tsv so that
+// ShardMerger can check coverage and stitch shared bundles back together.
+public class ShardPlan {
+
+    static final String MANIFEST_DIR = ".shards";
+
+    private static final int VIRTUAL_NODES = 128;
+
+    final int index;
+    final int count;
+    private final long[] ring;
+    private final int[] owners;
+    private final Map<ApiModel.Endpoint, Integer> specIndex = new IdentityHashMap<>();
+    private final Map<Integer, String> entries = new ConcurrentSkipListMap<>();
+
+    ShardPlan(int index, int count) {
+        if (count < 1 || index < 0 || index >= count) {
+            throw new IllegalArgumentException("Invalid shard " + index + "/" + count);
+        }
+        this.index = index;
+        this.count = count;
+
+        // virtual nodes keep shards balanced and keep most assignments stable when the shard count changes
+        TreeMap<Long, Integer> points = new TreeMap<>();
+        for (int shard = 0; shard < count; shard++) {
+            for (int v = 0; v < VIRTUAL_NODES; v++) {
+                points.put(hash("shard-" + shard + "#" + v), shard);
+            }
+        }
+        this.ring = new long[points.size()];
+        this.owners = new int[points.size()];
+        int i = 0;
+        for (Map.Entry<Long, Integer> point : points.entrySet()) {
+            ring[i] = point.getKey();
+            owners[i++] = point.getValue();
+        }
+    }
+
+    // a fresh plan per run: the plan records what its run selected and rendered, so it is never shared between runs
+    public static ShardPlan fromSystemProperties() {
+        String shard = System.getProperty("shard");
+        if (shard == null || shard.trim().isEmpty()) return new ShardPlan(0, 1);
+        String[] parts = shard.trim().split("/");
+        if (parts.length != 2) throw new IllegalArgumentException("Expected -Dshard=<index>/<count> but got " + shard);
+        return new ShardPlan(Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+    }
+
+    public boolean isSharded() {
+        return count > 1;
+    }
+
+    // cross-endpoint outputs such as journeys are produced once, by the first shard
+    public boolean isPrimary() {
+        return index == 0;
+    }
+
+    public int owner(ApiModel.Endpoint ep) {
+        if (count == 1) return 0;
+        int slot = Arrays.binarySearch(ring, hash(ep.path + " " + ep.method));
+        if (slot < 0) slot = -slot - 1;
+        return owners[slot == ring.length ? 0 : slot];
+    }
+
+    // Ownership depends only on path+method, never on position, so every worker agrees on the split no matter how the
+    // spec orders its paths. The selection keeps spec order, which keeps rendering output order-independent.
+    public List<ApiModel.Endpoint> select(List<ApiModel.Endpoint> endpoints) {
+        List<ApiModel.Endpoint> selected = new ArrayList<>();
+        for (int i = 0; i < endpoints.size(); i++) {
+            ApiModel.Endpoint ep = endpoints.get(i);
+            specIndex.put(ep, i);
+            if (owner(ep) == index) selected.add(ep);
+        }
+        // owned operations are listed even if they later fail, so the merge sees them as covered rather than missing
+        for (ApiModel.Endpoint ep : selected) record(ep, 0);
+        return selected;
+    }
+
+    public void record(ApiModel.Endpoint ep, long csvRows, Path... outputs) {
+        if (!isSharded()) return;
+        StringBuilder line = new StringBuilder();
+        line.append(specIndex.get(ep)).append('\t').append(ep.method).append('\t').append(ep.path).append('\t').append(csvRows)
+                .append('\t');
+        for (int i = 0; i < outputs.length; i++) {
+            if (i > 0) line.append(',');
+            line.append(outputs[i]);
+        }
+        entries.put(specIndex.get(ep), line.toString());
+    }
+
+    // header lines are "#key<TAB>value"; ShardMerger understands operations, shard, status, csv, archive and the
+    // per-shard files failures, runManifest and analytics
+    public Path writeManifest(String outputDir, Map<String, String> headers) throws IOException {
+        if (!isSharded()) return null;
+        StringBuilder out = new StringBuilder();
+        out.append("#operations\t").append(specIndex.size()).append('\n');
+        out.append("#shard\t").append(index).append('/').append(count).append('\n');
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            out.append('#').append(header.getKey()).append('\t').append(header.getValue()).append('\n');
+        }
+        for (String entry : entries.values()) {
+            out.append(entry).append('\n');
+        }
+        Path manifest = Paths.get(outputDir, MANIFEST_DIR, "manifest-" + index + "-of-" + count + ".tsv");
+        PromptOutput.write(manifest, out);
+        System.out.println("✅ Saved: " + manifest + " (" + entries.size() + " of " + specIndex.size() + " operations)");
+        return manifest;
+    }
+
+    // a shared bundle such as the PractiTest CSV gets a per-shard name so workers on one machine never clash
+    public Path fragment(Path bundle) {
+        if (!isSharded()) return bundle;
+        String name = bundle.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String shardName = (dot > 0 ? name.substring(0, dot) : name) + ".shard-" + index + "-of-" + count
+                + (dot > 0 ? name.substring(dot) : "");
+        return bundle.resolveSibling(shardName);
+    }
+
+    private static long hash(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(key.getBytes(StandardCharsets.UTF_8));
+            long h = 0;
+            for (int i = 0; i < 8; i++) {
+                h = (h << 8) | (digest[i] & 0xff);
+            }
+            return h;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,338 @@
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.swagger.v3.core.util.Yaml;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Turns a spec split over several files (relative paths or http(s) URLs in $ref) into one self-contained document, so
+// the parser only ever sees local refs. Every referenced document is fetched as soon as a ref to it is seen, on a small
+// pool, so a whole ref tree loads in parallel. Documents are cached by canonical location and their parsed trees by
+// content hash for the lifetime of the bundler, so specs of one batch that share files read and parse them once.
+// Schemas, parameters, responses etc. are hoisted into components under the name of their pointer or file; anything
+// else (path items) is inlined. With -Dspec.mirror=<dir>, https://host/a/b.yaml is read from <dir>/host/a/b.yaml instead.
+// Usage: java SpecBundler spec.yaml [spec.yaml ...]
+public class SpecBundler implements AutoCloseable {
+
+    private static final String OUTPUT_DIR = "generated-bundle";
+    private static final int FETCH_THREADS = 8;
+    private static final Pattern COMPONENT_POINTER = Pattern.compile("^/components/(\\w+)/[^/]+$");
+    private static final Pattern SCHEME = Pattern.compile("^[a-zA-Z][a-zA-Z0-9+.-]*://.*");
+    private static final Set<String> SCHEMA_KEYS = new HashSet<>(Arrays.asList("schema", "items", "additionalProperties", "not"));
+    private static final Set<String> SCHEMA_PARENTS = new HashSet<>(Arrays.asList("properties", "allOf", "oneOf", "anyOf", "schemas"));
+    private static final Set<String> COMPONENT_PARENTS = new HashSet<>(Arrays.asList(
+            "parameters", "responses", "headers", "examples", "links", "callbacks", "securitySchemes", "requestBodies"));
+
+    private final Path outputDir;
+    private final Path mirror;
+    private final ExecutorService pool = Executors.newFixedThreadPool(FETCH_THREADS, r -> {
+        Thread thread = new Thread(r, "spec-bundler");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Map<URI, CompletableFuture<JsonNode>> documents = new ConcurrentHashMap<>();
+    private final Map<String, JsonNode> trees = new ConcurrentHashMap<>();
+    private final Map<URI, String> hashes = new ConcurrentHashMap<>();
+
+    public SpecBundler(Path outputDir, Path mirror) {
+        this.outputDir = outputDir;
+        this.mirror = mirror;
+    }
+
+    public static SpecBundler fromSystemProperties() {
+        String mirror = System.getProperty("spec.mirror");
+        return new SpecBundler(Paths.get(OUTPUT_DIR), mirror == null || mirror.trim().isEmpty() ? null : Paths.get(mirror.trim()));
+    }
+
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.err.println("Usage: java SpecBundler spec.yaml [spec.yaml ...]");
+            System.exit(2);
+        }
+        boolean ok = true;
+        try (SpecBundler bundler = fromSystemProperties()) {
+            for (String spec : args) {
+                try {
+                    bundler.bundle(spec);
+                } catch (IOException e) {
+                    System.err.println("❌ Failed to bundle " + spec + ": " + e);
+                    ok = false;
+                }
+            }
+            System.out.println("✅ " + args.length + " specs: " + bundler.documentsRead() + " documents read, "
+                    + bundler.documentsParsed() + " parsed");
+        }
+        if (!ok) System.exit(1);
+    }
+
+    // the location to hand to the parser: the spec itself when it has no external refs, otherwise the written bundle
+    public String bundle(String location) throws IOException {
+        URI rootUri = canonical(toUri(location));
+        Bundle bundle = new Bundle(rootUri, (ObjectNode) document(rootUri).deepCopy());
+        bundle.rewrite(bundle.root, rootUri, null, null);
+        if (bundle.hoisted.isEmpty() && !bundle.inlined) return location;
+        for (Map.Entry<String, ObjectNode> added : bundle.added.entrySet()) {
+            child(child(bundle.root, "components"), added.getKey()).setAll(added.getValue());
+        }
+
+        String name = Paths.get(rootUri.getPath()).getFileName().toString().replaceFirst("\\.(ya?ml|json)$", "");
+        Path output = PromptOutput.write(outputDir.resolve(name + ".bundled.yaml"), Yaml.mapper().writeValueAsString(bundle.root));
+        System.out.println("✅ Saved: " + output + " (" + bundle.hoisted.size() + " external refs)");
+        return output.toString();
+    }
+
+    public int documentsRead() {
+        return documents.size();
+    }
+
+    public int documentsParsed() {
+        return trees.size();
+    }
+
+    // SHA-256 of every document read so far, keyed by its location relative to the spec's directory when it lies below
+    // it, so the same spec checked out on another machine yields the same keys
+    public Map<String, String> sources(String location) {
+        URI base = canonical(toUri(location)).resolve(".");
+        Map<String, String> sources = new TreeMap<>();
+        for (Map.Entry<URI, String> source : hashes.entrySet()) {
+            sources.put(base.relativize(source.getKey()).toString(), source.getValue());
+        }
+        return sources;
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+
+    private class Bundle {
+        final URI rootUri;
+        final ObjectNode root;
+        // "<document uri>#<pointer>" -> local ref it was hoisted to
+        final Map<String, String> hoisted = new HashMap<>();
+        // kept apart from root until the walk is done, since the walk iterates root's own components
+        final Map<String, ObjectNode> added = new LinkedHashMap<>();
+        final Set<String> taken = new HashSet<>();
+        final Set<String> inlining = new HashSet<>();
+        boolean inlined;
+
+        Bundle(URI rootUri, ObjectNode root) {
+            this.rootUri = rootUri;
+            this.root = root;
+        }
+
+        // key is the field holding node (null for array elements), parentKey the field holding its container; together
+        // they tell which kind of component a $ref at this position points to
+        JsonNode rewrite(JsonNode node, URI base, String key, String parentKey) throws IOException {
+            if (node.isArray()) {
+                ArrayNode array = (ArrayNode) node;
+                for (int i = 0; i < array.size(); i++) array.set(i, rewrite(array.get(i), base, null, key));
+                return array;
+            }
+            if (!node.isObject()) return node;
+            ObjectNode object = (ObjectNode) node;
+            JsonNode ref = object.get("$ref");
+            if (ref != null && ref.isTextual()) {
+                if (base.equals(rootUri) && ref.asText().startsWith("#")) return object;
+                return resolve(object, base, ref.asText(), key, parentKey);
+            }
+            Iterator<Map.Entry<String, JsonNode>> fields = object.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                field.setValue(rewrite(field.getValue(), base, field.getKey(), key));
+            }
+            return object;
+        }
+
+        private JsonNode resolve(ObjectNode refNode, URI base, String ref, String key, String parentKey) throws IOException {
+            int hash = ref.indexOf('#');
+            URI target = hash == 0 ? base : canonical(base.resolve(hash < 0 ? ref : ref.substring(0, hash)));
+            String pointer = hash < 0 ? "" : ref.substring(hash + 1);
+            if (target.equals(rootUri)) {
+                refNode.put("$ref", "#" + pointer);
+                return refNode;
+            }
+            String kind = kindOf(pointer, key, parentKey);
+            String id = target + "#" + pointer;
+            if (kind != null) {
+                refNode.put("$ref", hoist(kind, id, target, pointer));
+                return refNode;
+            }
+            if (!inlining.add(id)) throw new IOException("Circular $ref " + ref + " in " + base + " cannot be inlined");
+            try {
+                inlined = true;
+                return rewrite(lookup(target, pointer, ref), target, key, parentKey);
+            } finally {
+                inlining.remove(id);
+            }
+        }
+
+        private String hoist(String kind, String id, URI target, String pointer) throws IOException {
+            String local = hoisted.get(id);
+            if (local != null) return local;
+            String name = uniqueName(kind, baseName(target, pointer));
+            local = "#/components/" + kind + "/" + name;
+            // registered before the walk so recursive schemas point back at themselves
+            hoisted.put(id, local);
+            JsonNode component = rewrite(lookup(target, pointer, id), target, name, kind);
+            added.computeIfAbsent(kind, k -> root.objectNode()).set(name, component);
+            return local;
+        }
+
+        private String uniqueName(String kind, String name) {
+            JsonNode existing = root.path("components").path(kind);
+            String candidate = name;
+            for (int i = 1; existing.has(candidate) || !taken.add(kind + "/" + candidate); i++) {
+                candidate = name + "_" + i;
+            }
+            return candidate;
+        }
+    }
+
+    private static ObjectNode child(ObjectNode parent, String name) {
+        JsonNode child = parent.get(name);
+        return child instanceof ObjectNode ? (ObjectNode) child : parent.putObject(name);
+    }
+
+    private static String kindOf(String pointer, String key, String parentKey) {
+        Matcher matcher = COMPONENT_POINTER.matcher(pointer);
+        if (matcher.matches()) return matcher.group(1);
+        if (pointer.startsWith("/definitions/")) return "schemas";
+        if (SCHEMA_KEYS.contains(key) || SCHEMA_PARENTS.contains(parentKey)) return "schemas";
+        if (COMPONENT_PARENTS.contains(parentKey)) return parentKey;
+        if ("requestBody".equals(key)) return "requestBodies";
+        return null;
+    }
+
+    private static String baseName(URI target, String pointer) {
+        String name;
+        if (pointer.isEmpty() || pointer.equals("/")) {
+            name = Paths.get(target.getPath()).getFileName().toString().replaceFirst("\\.[^.]*$", "");
+        } else {
+            name = pointer.substring(pointer.lastIndexOf('/') + 1).replace("~1", "/").replace("~0", "~");
+        }
+        name = name.replaceAll("[^A-Za-z0-9._-]", "_");
+        return name.isEmpty() ? "Component" : name;
+    }
+
+    private JsonNode lookup(URI target, String pointer, String ref) throws IOException {
+        JsonNode node = pointer.isEmpty() ? document(target) : document(target).at(JsonPointer.compile(pointer));
+        if (node.isMissingNode()) throw new IOException("Unresolved $ref " + ref);
+        return node.deepCopy();
+    }
+
+    private JsonNode document(URI uri) throws IOException {
+        try {
+            return load(uri).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof UncheckedIOException) throw ((UncheckedIOException) cause).getCause();
+            throw new IOException("Failed to load " + uri + ": " + cause.getMessage(), cause);
+        }
+    }
+
+    // starts fetching the document and, once it is parsed, every document it refers to
+    private CompletableFuture<JsonNode> load(URI uri) {
+        return documents.computeIfAbsent(uri, u -> CompletableFuture.supplyAsync(() -> {
+            try {
+                byte[] content = fetch(u);
+                String hash = sha256(content);
+                hashes.put(u, hash);
+                JsonNode tree = trees.computeIfAbsent(hash, h -> parse(u, content));
+                prefetch(tree, u);
+                return tree;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, pool));
+    }
+
+    private void prefetch(JsonNode node, URI base) {
+        if (node.isObject() && node.get("$ref") != null && node.get("$ref").isTextual()) {
+            String ref = node.get("$ref").asText();
+            if (!ref.startsWith("#")) {
+                int hash = ref.indexOf('#');
+                load(canonical(base.resolve(hash < 0 ? ref : ref.substring(0, hash))));
+            }
+            return;
+        }
+        for (JsonNode child : node) prefetch(child, base);
+    }
+
+    private byte[] fetch(URI uri) throws IOException {
+        if ("file".equals(uri.getScheme())) return Files.readAllBytes(Paths.get(uri));
+        if (mirror != null) {
+            return Files.readAllBytes(mirror.resolve(uri.getHost()).resolve(uri.getPath().replaceFirst("^/", "")));
+        }
+        HttpURLConnection connection = (HttpURLConnection) uri.toURL().openConnection();
+        try {
+            connection.setConnectTimeout(10000);
+            connection.setReadTimeout(30000);
+            int status = connection.getResponseCode();
+            if (status < 200 || status >= 300) throw new IOException("HTTP " + status + " fetching " + uri);
+            try (InputStream in = connection.getInputStream()) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] buffer = new byte[8192];
+                for (int n; (n = in.read(buffer)) > 0; ) out.write(buffer, 0, n);
+                return out.toByteArray();
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static JsonNode parse(URI uri, byte[] content) {
+        try {
+            JsonNode tree = Yaml.mapper().readTree(content);
+            if (tree == null) throw new IOException(uri + " is empty");
+            return tree;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static URI toUri(String location) {
+        return SCHEME.matcher(location).matches() ? URI.create(location) : Paths.get(location).toAbsolutePath().toUri();
+    }
+
+    // one key per document however it is spelled: ./a/../b.yaml, symlinks and the absolute path all map to the same file
+    private static URI canonical(URI uri) {
+        if ("file".equals(uri.getScheme())) {
+            try {
+                return Paths.get(uri).toRealPath().toUri();
+            } catch (IOException e) {
+                return uri.normalize();
+            }
+        }
+        return uri.normalize();
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            StringBuilder hex = new StringBuilder();
+            for (byte b : MessageDigest.getInstance("SHA-256").digest(content)) hex.append(String.format(Locale.ROOT, "%02x", b));
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+// Every combination of `strength` factors must see every tuple of their levels in some row, which is checked here by
+// brute force against the cross product of each factor combination.
+public class CoveringArrayTest {
+
+    private static final int[][] SIZES = {
+            {2},
+            {3, 3},
+            {2, 2, 2},
+            {2, 3, 4},
+            {4, 4, 4, 4},
+            {2, 2, 2, 2, 2, 2, 2, 2, 2, 2},
+            {5, 1, 3, 2, 6, 2},
+            {3, 2, 2, 3, 2, 3, 2, 4},
+    };
+
+    @Test
+    public void pairwiseCoversEveryPair() {
+        for (int[] sizes : SIZES) assertCovers(sizes, 2);
+    }
+
+    @Test
+    public void tWiseCoversEveryTuple() {
+        for (int strength = 1; strength <= 4; strength++) {
+            for (int[] sizes : SIZES) assertCovers(sizes, strength);
+        }
+    }
+
+    @Test
+    public void strengthIsCappedAtFactorCount() {
+        CoveringArray array = new CoveringArray(new int[]{2, 3}, 4);
+        assertEquals(2, array.strength());
+        assertEquals(6, rows(array).size());
+    }
+
+    @Test
+    public void staysWellBelowTheCrossProduct() {
+        int[] sizes = new int[12];
+        Arrays.fill(sizes, 3);
+        int pairwise = rows(new CoveringArray(sizes)).size();
+        assertTrue("pairwise over 3^12 took " + pairwise + " rows", pairwise <= 30);
+        int threeWise = rows(new CoveringArray(sizes, 3)).size();
+        assertTrue("3-wise over 3^12 took " + threeWise + " rows", threeWise <= 150);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsStrengthBelowOne() {
+        new CoveringArray(new int[]{2, 2}, 0);
+    }
+
+    private static void assertCovers(int[] sizes, int strength) {
+        CoveringArray array = new CoveringArray(sizes, strength);
+        List<int[]> rows = rows(array);
+        for (int[] row : rows) {
+            assertEquals(sizes.length, row.length);
+            for (int f = 0; f < row.length; f++) {
+                assertTrue("level " + row[f] + " out of range for factor " + f, row[f] >= 0 && row[f] < sizes[f]);
+            }
+        }
+        int t = array.strength();
+        for (int[] factors : combinations(sizes.length, t)) {
+            Set<List<Integer>> seen = new HashSet<>();
+            for (int[] row : rows) {
+                List<Integer> tuple = new ArrayList<>();
+                for (int f : factors) tuple.add(row[f]);
+                seen.add(tuple);
+            }
+            int expected = 1;
+            for (int f : factors) expected *= sizes[f];
+            if (seen.size() != expected) {
+                fail(Arrays.toString(sizes) + " strength " + strength + ": factors " + Arrays.toString(factors)
+                        + " cover " + seen.size() + " of " + expected + " tuples in " + rows.size() + " rows");
+            }
+        }
+    }
+
+    private static List<int[]> combinations(int n, int t) {
+        List<int[]> out = new ArrayList<>();
+        combinations(new int[t], 0, 0, n, out);
+        return out;
+    }
+
+    private static void combinations(int[] combo, int depth, int from, int n, List<int[]> out) {
+        if (depth == combo.length) {
+            out.add(combo.clone());
+            return;
+        }
+        for (int f = from; f < n; f++) {
+            combo[depth] = f;
+            combinations(combo, depth + 1, f + 1, n, out);
+        }
+    }
+
+    private static List<int[]> rows(CoveringArray array) {
+        List<int[]> rows = new ArrayList<>();
+        for (int[] row : array) rows.add(row);
+        return rows;
+    }
+}
@@ -0,0 +1,59 @@
+import io.swagger.v3.parser.OpenAPIV3Parser;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+// A simulation reads one feeder at most, and that is the only feeder written for it.
+public class GatlingSimulationEmitterTest {
+
+    private static final String SPEC = String.join("\n",
+            "openapi: 3.0.3",
+            "info: {title: feeders, version: '1'}",
+            "paths:",
+            "  /items/{id}:",
+            "    parameters: [{name: id, in: path, required: true, schema: {type: integer}}]",
+            "    get:",
+            "      responses: {'200': {description: ok}}",
+            "    put:",
+            "      requestBody: {content: {application/json: {schema: {type: object, properties: {name: {type: string}}}}}}",
+            "      responses: {'200': {description: ok}}",
+            "  /health:",
+            "    get:",
+            "      responses: {'200': {description: ok}}",
+            "");
+
+    @Rule
+    public TemporaryFolder scratch = new TemporaryFolder();
+
+    @Test
+    public void writesOnlyTheReferencedFeeder() throws Exception {
+        ApiModel model = ApiModel.build(new OpenAPIV3Parser().readContents(SPEC, null, null).getOpenAPI(), true);
+        GatlingSimulationEmitter emitter = new GatlingSimulationEmitter(model,
+                new SamplePayloadSynthesizer(model.getSchemas()), LoadProfile.defaults().feederRows(3));
+        String root = scratch.getRoot().getPath();
+        Map<String, String> simulations = new TreeMap<>();
+        for (ApiModel.Endpoint ep : model.getEndpoints()) {
+            simulations.put(model.getOutputNames().name(ep), emitter.emit(root, ep));
+        }
+
+        String[] written = new File(root, "feeders").list();
+        Arrays.sort(written);
+        List<String> expected = new ArrayList<>();
+        for (Map.Entry<String, String> simulation : simulations.entrySet()) {
+            for (String extension : new String[]{".csv", ".json"}) {
+                String feeder = simulation.getKey() + extension;
+                if (simulation.getValue().contains("\"feeders/" + feeder + "\"")) expected.add(feeder);
+            }
+        }
+        Collections.sort(expected);
+        assertEquals(expected, Arrays.asList(written));
+        assertEquals(2, written.length);
+        assertTrue(Arrays.toString(written), written[0].endsWith(".csv") && written[1].endsWith(".json"));
+    }
+}
@@ -0,0 +1,182 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+// Renders every operation of every corpus spec with all four builders and compares the text with the goldens under
+// src/test/resources/golden/<spec>/<builder>/. After an intended change to the prompts, regenerate them with
+//   mvn test -Dtest=GoldenOutputTest -Dgolden.update=true
+// and review the golden diff like any other change.
+@RunWith(Parameterized.class)
+public class GoldenOutputTest {
+
+    private static final Path GOLDEN_DIR = Paths.get("src/test/resources/golden");
+    private static final Path CHECKED_IN_DIR = Paths.get("generated-prompts");
+    private static final String CHECKED_IN_OPERATION = "POST /users";
+    private static final boolean UPDATE = Boolean.getBoolean("golden.update");
+
+    @Rule
+    public TemporaryFolder scratch = new TemporaryFolder();
+
+    private final String spec;
+    private final Path specFile;
+
+    public GoldenOutputTest(String spec, Path specFile) {
+        this.spec = spec;
+        this.specFile = specFile;
+    }
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> specs() throws IOException {
+        List<Object[]> specs = new ArrayList<>();
+        for (Map.Entry<String, Path> entry : PromptCorpus.specs().entrySet()) {
+            specs.add(new Object[]{entry.getKey(), entry.getValue()});
+        }
+        return specs;
+    }
+
+    @Test
+    public void karatePrompts() throws Exception {
+        verify("karate");
+    }
+
+    @Test
+    public void practiTestPrompts() throws Exception {
+        verify("practitest");
+    }
+
+    @Test
+    public void jiraPrompts() throws Exception {
+        verify("jira");
+    }
+
+    @Test
+    public void gatlingPrompts() throws Exception {
+        verify("gatling");
+    }
+
+    @Test
+    public void practiTestCsv() throws Exception {
+        ApiModel model = PromptCorpus.load(specFile);
+        Path csv = scratch.getRoot().toPath().resolve("practitest-import.csv");
+        try (PractiTestCsvExporter exporter = new PractiTestCsvExporter(csv, model,
+                new SamplePayloadSynthesizer(model.getSchemas()), "API")) {
+            for (ApiModel.Endpoint ep : model.getEndpoints()) exporter.writeOperation(ep);
+        }
+        Map<String, String> actual = new TreeMap<>();
+        actual.put("practitest-import.csv", new String(Files.readAllBytes(csv), StandardCharsets.UTF_8));
+        compare(GOLDEN_DIR.resolve(spec).resolve("practitest-csv"), actual);
+    }
+
+    // the same spec must give the same bytes on every host: the goldens also hold under a locale with its own case
+    // mapping (Turkish dotless i) and a time zone far from UTC
+    @Test
+    public void promptsIgnoreLocaleAndTimeZone() throws Exception {
+        if (UPDATE) return;
+        Locale locale = Locale.getDefault();
+        TimeZone zone = TimeZone.getDefault();
+        Locale.setDefault(new Locale("tr", "TR"));
+        TimeZone.setDefault(TimeZone.getTimeZone("Pacific/Chatham"));
+        try {
+            for (String builder : PromptCorpus.BUILDERS) verify(builder);
+        } finally {
+            Locale.setDefault(locale);
+            TimeZone.setDefault(zone);
+        }
+    }
+
+    // the sample prompt checked in at the top level is the Karate prompt of the default spec and must not go stale
+    @Test
+    public void checkedInExample() throws Exception {
+        if (!"default".equals(spec)) return;
+        ApiModel model = PromptCorpus.load(specFile);
+        PromptCorpus.Renderer renderer = PromptCorpus.renderer("karate", model, scratch.getRoot().toPath());
+        ApiModel.Endpoint ep = model.getOutputNames().find(CHECKED_IN_OPERATION);
+        if (ep == null) fail("The default spec has no operation " + CHECKED_IN_OPERATION);
+        Path example = CHECKED_IN_DIR.resolve(PromptCorpus.fileName(model, ep));
+        String actual = renderer.render(ep).toString();
+        if (UPDATE) {
+            PromptOutput.write(example, actual);
+            return;
+        }
+        assertEquals(example.toString(), read(example), actual);
+    }
+
+    private void verify(String builder) throws Exception {
+        ApiModel model = PromptCorpus.load(specFile);
+        PromptCorpus.Renderer renderer = PromptCorpus.renderer(builder, model, scratch.getRoot().toPath());
+        Map<String, String> actual = new TreeMap<>();
+        for (ApiModel.Endpoint ep : model.getEndpoints()) {
+            actual.put(PromptCorpus.fileName(model, ep), renderer.render(ep).toString());
+        }
+        compare(GOLDEN_DIR.resolve(spec).resolve(builder), actual);
+    }
+
+    private static void compare(Path goldenDir, Map<String, String> actual) throws IOException {
+        if (UPDATE) {
+            for (Path stale : list(goldenDir)) {
+                if (!actual.containsKey(stale.getFileName().toString())) Files.delete(stale);
+            }
+            for (Map.Entry<String, String> file : actual.entrySet()) {
+                PromptOutput.write(goldenDir.resolve(file.getKey()), file.getValue());
+            }
+            return;
+        }
+
+        List<String> problems = new ArrayList<>();
+        Set<String> expectedNames = new TreeSet<>();
+        for (Path golden : list(goldenDir)) expectedNames.add(golden.getFileName().toString());
+        for (String name : expectedNames) {
+            if (!actual.containsKey(name)) problems.add(name + ": golden exists but nothing was rendered");
+        }
+        for (Map.Entry<String, String> file : actual.entrySet()) {
+            if (!expectedNames.contains(file.getKey())) {
+                problems.add(file.getKey() + ": rendered but has no golden");
+                continue;
+            }
+            String difference = firstDifference(read(goldenDir.resolve(file.getKey())), file.getValue());
+            if (difference != null) problems.add(file.getKey() + ": " + difference);
+        }
+        if (!problems.isEmpty()) {
+            fail(problems.size() + " output(s) differ from " + goldenDir + " (rerun with -Dgolden.update=true if intended):\n  "
+                    + String.join("\n  ", problems));
+        }
+    }
+
+    private static String firstDifference(String expected, String actual) {
+        if (expected.equals(actual)) return null;
+        String[] expectedLines = expected.split("\n", -1);
+        String[] actualLines = actual.split("\n", -1);
+        int line = 0;
+        while (line < expectedLines.length && line < actualLines.length && expectedLines[line].equals(actualLines[line])) {
+            line++;
+        }
+        return "line " + (line + 1) + " expected <" + (line < expectedLines.length ? expectedLines[line] : "end of file")
+                + "> but was <" + (line < actualLines.length ? actualLines[line] : "end of file") + ">";
+    }
+
+    private static List<Path> list(Path dir) throws IOException {
+        List<Path> files = new ArrayList<>();
+        if (!Files.isDirectory(dir)) return files;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path file : stream) files.add(file);
+        }
+        return files;
+    }
+
+    private static String read(Path file) throws IOException {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,171 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import io.swagger.v3.core.util.Json;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+// Bulk create against MockJiraServer: batches per group, partially failed calls, which failures are retried, and
+// that only generated stories, never the prompts, are exported.
+public class JiraBulkExporterTest {
+
+    @Rule
+    public TemporaryFolder scratch = new TemporaryFolder();
+
+    @Test
+    public void batchesEachGroupSeparately() throws Exception {
+        try (MockJiraServer jira = new MockJiraServer(0, 0)) {
+            List<JiraBulkExporter.Story> stories = stories("a", 7);
+            stories.addAll(stories("b", 3));
+            JiraBulkExporter.Result result = exporter(jira.getBaseUrl(), 4).export(stories);
+
+            assertEquals(4, result.requests);
+            assertEquals(10, result.createdKeys.size());
+            assertTrue(result.failures.isEmpty());
+            List<Integer> sizes = new ArrayList<>(jira.getBatchSizes());
+            Collections.sort(sizes);
+            assertEquals(Arrays.asList(1, 3, 3, 3), sizes);
+        }
+    }
+
+    @Test
+    public void reportsIssuesJiraRejectedInASuccessfulCall() throws Exception {
+        try (MockJiraServer jira = new MockJiraServer(0, 0).reject("a-1").reject("a-4")) {
+            List<JiraBulkExporter.Story> stories = stories("a", 5);
+            JiraBulkExporter.Result result = exporter(jira.getBaseUrl(), 4).export(stories);
+
+            assertEquals(3, result.createdKeys.size());
+            assertEquals(new HashSet<>(Arrays.asList(stories.get(1), stories.get(4))), result.failures.keySet());
+            assertEquals("HTTP 400 summary: rejected", result.failures.get(stories.get(1)));
+        }
+    }
+
+    @Test
+    public void retriesWhenJiraAsksToRetryLater() throws Exception {
+        try (MockJiraServer jira = new MockJiraServer(0, 2).failWith(429, "0")) {
+            JiraBulkExporter.Result result = exporter(jira.getBaseUrl(), 4).export(stories("a", 2));
+
+            assertEquals(3, jira.getRequests());
+            assertEquals(2, result.createdKeys.size());
+            assertTrue(result.failures.isEmpty());
+        }
+    }
+
+    @Test
+    public void retriesAnUnavailableJiraWithBackoff() throws Exception {
+        for (int status : new int[]{502, 503, 504}) {
+            try (MockJiraServer jira = new MockJiraServer(0, 2).failWith(status, null)) {
+                JiraBulkExporter.Result result = exporter(jira.getBaseUrl(), 4).export(stories("s" + status, 2));
+
+                assertEquals(3, jira.getRequests());
+                assertEquals(2, result.createdKeys.size());
+                assertTrue(result.failures.isEmpty());
+            }
+        }
+    }
+
+    @Test
+    public void doesNotRetryAServerErrorWithoutRetryAfter() throws Exception {
+        try (MockJiraServer jira = new MockJiraServer(0, 1).failWith(500, null)) {
+            List<JiraBulkExporter.Story> stories = stories("a", 2);
+            JiraBulkExporter.Result result = exporter(jira.getBaseUrl(), 4).export(stories);
+
+            assertEquals(1, jira.getRequests());
+            assertEquals(0, result.createdKeys.size());
+            assertEquals(new HashSet<>(stories), result.failures.keySet());
+            assertTrue(result.failures.get(stories.get(0)), result.failures.get(stories.get(0)).startsWith("HTTP 500"));
+        }
+    }
+
+    @Test
+    public void capsAnOversizedRetryAfter() {
+        assertEquals(400, JiraBulkExporter.retryWait(400, null));
+        assertEquals(400, JiraBulkExporter.retryWait(400, 0L));
+        assertEquals(3000, JiraBulkExporter.retryWait(400, 3000L));
+        assertEquals(JiraBulkExporter.MAX_RETRY_AFTER_MILLIS, JiraBulkExporter.retryWait(400, JiraBulkExporter.retryAfterMillis("86400")));
+    }
+
+    @Test
+    public void exportsGeneratedStoriesAndReportsOperationsWithoutOne() throws Exception {
+        ApiModel model = PromptCorpus.load(Paths.get("src/test/resources/specs/crud.yaml"));
+        Path root = scratch.newFolder("run").toPath();
+        PromptTarget target = PromptEngine.target("jira");
+        PromptEngine.Run run = PromptEngine.open(target, model, root, new ShardPlan(0, 1));
+        for (ApiModel.Endpoint ep : model.getEndpoints()) {
+            run.outputs().put(ep, run.resolve(target.outputDir()).resolve(PromptCorpus.fileName(model, ep)));
+        }
+        ApiModel.Endpoint written = model.getEndpoints().get(0);
+        String name = PromptCorpus.fileName(model, written);
+        Path story = Files.createDirectories(root.resolve("generated-stories"))
+                .resolve(name.substring(0, name.length() - PromptEngine.PROMPT_EXTENSION.length()) + ".md");
+        Files.write(story, "As a client I want to create a user".getBytes(StandardCharsets.UTF_8));
+
+        Map<JiraBulkExporter.Story, ApiModel.Endpoint> stories = JiraStoryPromptBuilder.stories(run);
+        assertEquals(Collections.singletonList(written), new ArrayList<>(stories.values()));
+        assertEquals(story, stories.keySet().iterator().next().descriptionFile);
+
+        Path report = root.resolve(FailureReport.FILE_NAME);
+        assertEquals(FailureReport.EXIT_FAILURES, run.report.finish(report));
+        JsonNode failures = Json.mapper().readTree(report.toFile()).get("failures");
+        assertEquals(model.getEndpoints().size() - 1, failures.size());
+        for (JsonNode failure : failures) {
+            assertEquals("export", failure.get("phase").asText());
+            assertTrue(failure.get("message").asText(), failure.get("message").asText().startsWith("No generated story "));
+        }
+    }
+
+    @Test
+    public void doesNotRetryOnceThePayloadWasSent() throws Exception {
+        try (MockJiraServer jira = new MockJiraServer(0, 1).failWith(0, null)) {
+            List<JiraBulkExporter.Story> stories = stories("a", 2);
+            JiraBulkExporter.Result result = exporter(jira.getBaseUrl(), 4).export(stories);
+
+            assertEquals(1, jira.getRequests());
+            assertEquals(new HashSet<>(stories), result.failures.keySet());
+        }
+    }
+
+    @Test
+    public void givesUpAfterRepeatedConnectFailures() throws Exception {
+        String baseUrl;
+        try (MockJiraServer jira = new MockJiraServer(0, 0)) {
+            baseUrl = jira.getBaseUrl();
+        }
+        List<JiraBulkExporter.Story> stories = stories("a", 2);
+        JiraBulkExporter.Result result = exporter(baseUrl, 3).export(stories);
+
+        assertEquals(new HashSet<>(stories), result.failures.keySet());
+        assertTrue(result.createdKeys.isEmpty());
+    }
+
+    @Test
+    public void readsRetryAfterAsSecondsOrDate() {
+        assertEquals(Long.valueOf(3000), JiraBulkExporter.retryAfterMillis("3"));
+        assertEquals(Long.valueOf(0), JiraBulkExporter.retryAfterMillis("Wed, 21 Oct 2015 07:28:00 GMT"));
+        assertNull(JiraBulkExporter.retryAfterMillis(null));
+        assertNull(JiraBulkExporter.retryAfterMillis("soon"));
+    }
+
+    private JiraBulkExporter exporter(String baseUrl, int maxAttempts) {
+        return new JiraBulkExporter(baseUrl, "API", null, 3, 2, maxAttempts, 1);
+    }
+
+    private List<JiraBulkExporter.Story> stories(String group, int count) throws Exception {
+        List<JiraBulkExporter.Story> stories = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Path description = scratch.newFile(group + "-" + i + ".txt").toPath();
+            Files.write(description, ("story " + group + " " + i).getBytes(StandardCharsets.UTF_8));
+            stories.add(new JiraBulkExporter.Story(group, group + "-" + i, description, Collections.singletonList("api"), null));
+        }
+        return stories;
+    }
+}
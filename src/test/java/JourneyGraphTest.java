@@ -0,0 +1,225 @@
+import io.swagger.v3.parser.OpenAPIV3Parser;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+// Journeys are inferred from links, from response fields that fill path parameters and from shared resource paths;
+// their weights feed Gatling's randomSwitch, which rejects a total above 100.
+public class JourneyGraphTest {
+
+    @Test
+    public void crudJourneyCreatesReadsUpdatesThenDeletes() throws Exception {
+        JourneyGraph graph = new JourneyGraph(PromptCorpus.load(Paths.get("src/test/resources/specs/crud.yaml")));
+        List<JourneyGraph.Journey> journeys = graph.journeys(10, null);
+
+        assertEquals(1, journeys.size());
+        JourneyGraph.Journey journey = journeys.get(0);
+        assertEquals("createUser_journey", journey.name);
+        assertEquals(Arrays.asList("POST /users", "GET /users/{id}", "GET /users/{userId}/orders", "PUT /users/{id}", "DELETE /users/{id}"),
+                labels(journey.steps));
+        // the link wins over the userId field that points at the same operation
+        assertEquals(Arrays.asList("response.id -> {id} -> GET /users/{id}", "link orders -> GET /users/{userId}/orders",
+                "response.id -> {id} -> PUT /users/{id}", "response.id -> {id} -> DELETE /users/{id}"), links(graph, journey));
+        assertEquals(4, graph.edgeCount());
+        assertEquals(100.0, journey.weight, 0);
+    }
+
+    @Test
+    public void followsLinksByOperationRef() {
+        JourneyGraph graph = graph(
+                "  /items:",
+                "    get:",
+                "      responses:",
+                "        '200':",
+                "          description: ok",
+                "          links:",
+                "            first: {operationRef: '#/paths/~1items~1{itemId}/get'}",
+                "            missing: {operationRef: '#/paths/~1nothing/get'}",
+                "  /items/{itemId}:",
+                "    get: {responses: {'200': {description: ok}}}");
+        List<JourneyGraph.Journey> journeys = graph.journeys(10, null);
+        assertEquals(1, journeys.size());
+        assertEquals(Arrays.asList("GET /items", "GET /items/{itemId}"), labels(journeys.get(0).steps));
+        assertEquals(Collections.singletonList("link first -> GET /items/{itemId}"), links(graph, journeys.get(0)));
+    }
+
+    @Test
+    public void bareIdOnlyReachesResourcesBelowItsCollection() {
+        JourneyGraph graph = graph(
+                "  /users:",
+                "    get:",
+                "      responses: {'200': {description: ok, content: {application/json: {schema: {type: object, properties: {id: {type: string}}}}}}}",
+                "  /users/{id}:",
+                "    get: {parameters: [{name: id, in: path, required: true, schema: {type: string}}], responses: {'200': {description: ok}}}",
+                "  /orders/{id}:",
+                "    get: {parameters: [{name: id, in: path, required: true, schema: {type: string}}], responses: {'200': {description: ok}}}");
+        assertEquals(1, graph.edgeCount());
+        assertEquals(Arrays.asList("GET /users", "GET /users/{id}"), labels(graph.journeys(10, null).get(0).steps));
+    }
+
+    @Test
+    public void genericFieldsLinkLocallyOrWithinTheFanOutLimit() {
+        // tenantId is consumed under 16 other roots: linked to all of them
+        assertEquals(16, tenantGraph(16, false).edgeCount());
+        // one consumer too many and the field is too generic to link at all
+        assertEquals(0, tenantGraph(17, false).edgeCount());
+        // a consumer under the producer's own root is preferred over the others
+        JourneyGraph local = tenantGraph(17, true);
+        assertEquals(1, local.edgeCount());
+        assertEquals(Arrays.asList("GET /tenants", "GET /tenants/{tenantId}"), labels(local.journeys(10, null).get(0).steps));
+    }
+
+    @Test
+    public void postLeadsToTheResourcesOfItsCollection() {
+        JourneyGraph graph = graph(
+                "  /things:",
+                "    post: {responses: {'201': {description: created}}}",
+                "  /things/{thingId}:",
+                "    parameters: [{name: thingId, in: path, required: true, schema: {type: string}}]",
+                "    delete: {responses: {'204': {description: gone}}}",
+                "    patch: {responses: {'200': {description: ok}}}",
+                "    get: {responses: {'200': {description: ok}}}");
+        List<JourneyGraph.Journey> journeys = graph.journeys(10, null);
+        assertEquals(1, journeys.size());
+        assertEquals(Arrays.asList("POST /things", "GET /things/{thingId}", "PATCH /things/{thingId}", "DELETE /things/{thingId}"),
+                labels(journeys.get(0).steps));
+        assertEquals("shared resource /things -> GET /things/{thingId}", links(graph, journeys.get(0)).get(0));
+    }
+
+    @Test
+    public void scalesToThousandsOfOperations() {
+        int resources = 1000;
+        int consumers = 500;
+        List<String> paths = new ArrayList<>();
+        for (int i = 0; i < resources; i++) {
+            paths.add("  /r" + i + ":");
+            paths.add("    post: {responses: {'201': {description: created, content: {application/json: {schema: {type: object, "
+                    + "properties: {id: {type: string}, tenantId: {type: string}}}}}}}}");
+            paths.add("  /r" + i + "/{id}:");
+            paths.add("    parameters: [{name: id, in: path, required: true, schema: {type: string}}]");
+            paths.add("    get: {responses: {'200': {description: ok}}}");
+            paths.add("    delete: {responses: {'204': {description: gone}}}");
+        }
+        // a field every resource returns and hundreds of operations consume
+        for (int i = 0; i < consumers; i++) {
+            paths.add("  /t" + i + "/{tenantId}:");
+            paths.add("    get: {parameters: [{name: tenantId, in: path, required: true, schema: {type: string}}], responses: {'200': {description: ok}}}");
+        }
+        ApiModel model = model(paths.toArray(new String[0]));
+        assertEquals(3 * resources + consumers, model.getEndpoints().size());
+
+        long started = System.nanoTime();
+        JourneyGraph graph = new JourneyGraph(model);
+        List<JourneyGraph.Journey> journeys = graph.journeys(10, null);
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+        assertTrue("inferring journeys took " + millis + " ms", millis < 2000);
+        assertEquals(2 * resources, graph.edgeCount());
+        assertEquals(resources, journeys.size());
+        double sum = 0;
+        for (JourneyGraph.Journey journey : journeys) sum += journey.weight;
+        assertTrue(sum + "", sum <= 100 && sum > 99.9);
+    }
+
+    @Test
+    public void equalSharesAddUpToExactlyOneHundred() {
+        for (int n = 1; n <= 40; n++) {
+            double[] raw = new double[n];
+            Arrays.fill(raw, 1.0);
+            assertTotal(raw);
+        }
+        List<JourneyGraph.Journey> six = percentages(1, 1, 1, 1, 1, 1);
+        for (JourneyGraph.Journey journey : six) {
+            assertTrue(journey.weight + "", journey.weight == 16.66 || journey.weight == 16.67);
+        }
+    }
+
+    @Test
+    public void leftoverGoesToTheLargestRemainders() {
+        List<JourneyGraph.Journey> journeys = percentages(1, 1, 1);
+        assertEquals(Arrays.asList(33.34, 33.33, 33.33), weights(journeys));
+        assertEquals(Arrays.asList(50.0, 33.33, 16.67), weights(percentages(3, 2, 1)));
+    }
+
+    @Test
+    public void unevenWeightsStayWithinOneHundred() {
+        Random random = new Random(7);
+        for (int run = 0; run < 500; run++) {
+            double[] raw = new double[1 + random.nextInt(25)];
+            for (int i = 0; i < raw.length; i++) raw[i] = 0.1 + random.nextDouble() * 3;
+            assertTotal(raw);
+        }
+    }
+
+    private static JourneyGraph tenantGraph(int otherRoots, boolean local) {
+        List<String> paths = new ArrayList<>(Arrays.asList(
+                "  /tenants:",
+                "    get:",
+                "      responses: {'200': {description: ok, content: {application/json: {schema: {type: object, properties: {tenantId: {type: string}}}}}}}"));
+        if (local) {
+            paths.add("  /tenants/{tenantId}:");
+            paths.add("    get: {parameters: [{name: tenantId, in: path, required: true, schema: {type: string}}], responses: {'200': {description: ok}}}");
+        }
+        for (int i = 0; i < otherRoots; i++) {
+            paths.add("  /other" + i + "/{tenantId}:");
+            paths.add("    get: {parameters: [{name: tenantId, in: path, required: true, schema: {type: string}}], responses: {'200': {description: ok}}}");
+        }
+        return new JourneyGraph(model(paths.toArray(new String[0])));
+    }
+
+    private static JourneyGraph graph(String... paths) {
+        return new JourneyGraph(model(paths));
+    }
+
+    private static ApiModel model(String... paths) {
+        String yaml = "openapi: 3.0.3\ninfo: {title: journeys, version: '1'}\npaths:\n" + String.join("\n", paths) + "\n";
+        return ApiModel.build(new OpenAPIV3Parser().readContents(yaml, null, null).getOpenAPI(), true);
+    }
+
+    private static List<String> labels(List<JourneyGraph.Node> steps) {
+        List<String> labels = new ArrayList<>();
+        for (JourneyGraph.Node step : steps) labels.add(step.label());
+        return labels;
+    }
+
+    private static List<String> links(JourneyGraph graph, JourneyGraph.Journey journey) {
+        List<String> links = new ArrayList<>();
+        for (JourneyGraph.Edge edge : journey.links) links.add(edge.reason + " -> " + graph.getNodes().get(edge.to).label());
+        return links;
+    }
+
+    private static void assertTotal(double... raw) {
+        List<JourneyGraph.Journey> journeys = percentages(raw);
+        double sum = 0;
+        BigDecimal exact = BigDecimal.ZERO;
+        for (JourneyGraph.Journey journey : journeys) {
+            sum += journey.weight;
+            exact = exact.add(BigDecimal.valueOf(journey.weight));
+        }
+        assertTrue(weights(journeys) + " sum to " + sum, sum <= 100);
+        assertTrue(weights(journeys) + " sum to " + exact, exact.compareTo(new BigDecimal("99.99")) >= 0);
+    }
+
+    private static List<JourneyGraph.Journey> percentages(double... raw) {
+        List<JourneyGraph.Journey> journeys = new ArrayList<>();
+        for (int i = 0; i < raw.length; i++) {
+            JourneyGraph.Journey journey = new JourneyGraph.Journey("j" + i, Collections.emptyList(), Collections.emptyList());
+            journey.weight = raw[i];
+            journeys.add(journey);
+        }
+        JourneyGraph.percentages(journeys);
+        return journeys;
+    }
+
+    private static List<Double> weights(List<JourneyGraph.Journey> journeys) {
+        List<Double> out = new ArrayList<>();
+        for (JourneyGraph.Journey journey : journeys) out.add(journey.weight);
+        return out;
+    }
+}
@@ -0,0 +1,56 @@
+import io.swagger.v3.parser.OpenAPIV3Parser;
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+// Generated features must be valid Karate and every scenario must be able to pass against a correct API.
+public class KarateFeatureEmitterTest {
+
+    private static final String SPEC = String.join("\n",
+            "openapi: 3.0.3",
+            "info: {title: features, version: '1'}",
+            "paths:",
+            "  /items:",
+            "    get:",
+            "      responses:",
+            "        '200':",
+            "          description: ok",
+            "          content:",
+            "            application/json:",
+            "              schema:",
+            "                type: object",
+            "                required: [x-request-id]",
+            "                properties: {x-request-id: {type: string}, a.b: {type: integer}, 1st: {type: boolean}, plain_$1: {type: string}}",
+            "        default: {description: error}",
+            "    post:",
+            "      requestBody: {content: {application/json: {schema: {type: object, required: [name], properties: {name: {type: string}}}}}}",
+            "      responses:",
+            "        '201': {description: created}",
+            "        default: {description: error}",
+            "");
+
+    @Test
+    public void quotesMatchKeysThatAreNotIdentifiers() {
+        String feature = emit(0);
+        assertTrue(feature, feature.contains("And match response == { \"x-request-id\": '#string', \"a.b\": '##number', \"1st\": '##boolean', plain_$1: '##string' }"));
+    }
+
+    @Test
+    public void defaultResponseSendsAnInvalidBodyOrIsLeftOut() {
+        // nothing a GET without parameters sends is known to fail
+        assertFalse(emit(0), emit(0).contains("responds default"));
+
+        String post = emit(1);
+        int scenario = post.indexOf("Scenario: POST /items responds default (application/json) for invalid body");
+        assertTrue(post, scenario >= 0);
+        String steps = post.substring(scenario);
+        assertTrue(steps, steps.contains("# missing required name\n    And request {}\n"));
+        assertTrue(steps, steps.contains("Then assert responseStatus >= 400"));
+    }
+
+    private static String emit(int endpoint) {
+        ApiModel model = ApiModel.build(new OpenAPIV3Parser().readContents(SPEC, null, null).getOpenAPI(), true);
+        return new KarateFeatureEmitter(model, new SamplePayloadSynthesizer(model.getSchemas())).emit(model.getEndpoints().get(endpoint));
+    }
+}
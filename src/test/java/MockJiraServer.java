@@ -0,0 +1,152 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Stands in for Jira's bulk create endpoint. The first `failFirstRequests` calls fail with `failureStatus` (0 drops the
+// connection once the request was read), and summaries passed to reject() come back in `errors` next to the created
+// issues, as Jira does for a partially failed bulk call.
+public class MockJiraServer implements AutoCloseable {
+
+    private static final Pattern ISSUE_UPDATE = Pattern.compile("\"fields\"\\s*:");
+    private static final Pattern SUMMARY = Pattern.compile("\"summary\"\\s*:\\s*\"((?:[^\"\\\\]|\\\\.)*)\"");
+    private static final Pattern PROJECT_KEY = Pattern.compile("\"project\"\\s*:\\s*\\{\\s*\"key\"\\s*:\\s*\"([^\"]+)\"");
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    private final AtomicInteger nextIssue = new AtomicInteger(1);
+    private final AtomicInteger bulkCalls = new AtomicInteger();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger failuresLeft;
+    private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+    private final Set<String> rejected = Collections.synchronizedSet(new HashSet<>());
+    private volatile int failureStatus = 503;
+    private volatile String retryAfter = "0";
+
+    public MockJiraServer(int port, int failFirstRequests) throws IOException {
+        this.failuresLeft = new AtomicInteger(failFirstRequests);
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        this.server.createContext("/rest/api/2/issue/bulk", this::handleBulk);
+        this.server.setExecutor(executor);
+        this.server.start();
+    }
+
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public MockJiraServer failWith(int status, String retryAfter) {
+        this.failureStatus = status;
+        this.retryAfter = retryAfter;
+        return this;
+    }
+
+    public MockJiraServer reject(String summary) {
+        rejected.add(summary);
+        return this;
+    }
+
+    // every call that reached the server, failed ones included
+    public int getRequests() {
+        return requests.get();
+    }
+
+    public List<Integer> getBatchSizes() {
+        return batchSizes;
+    }
+
+    public int getBulkCalls() {
+        return bulkCalls.get();
+    }
+
+    public int getCreatedIssues() {
+        return nextIssue.get() - 1;
+    }
+
+    private void handleBulk(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                respond(exchange, 405, "{\"errorMessages\":[\"Method not allowed\"]}");
+                return;
+            }
+            String body = read(exchange.getRequestBody());
+            requests.incrementAndGet();
+            if (failuresLeft.getAndDecrement() > 0) {
+                if (failureStatus == 0) return;
+                if (retryAfter != null) exchange.getResponseHeaders().add("Retry-After", retryAfter);
+                respond(exchange, failureStatus, "{\"errorMessages\":[\"Service temporarily unavailable\"]}");
+                return;
+            }
+            bulkCalls.incrementAndGet();
+
+            Matcher project = PROJECT_KEY.matcher(body);
+            String key = project.find() ? project.group(1) : "MOCK";
+            Matcher updates = ISSUE_UPDATE.matcher(body);
+            Matcher summaries = SUMMARY.matcher(body);
+            StringBuilder issues = new StringBuilder();
+            StringBuilder errors = new StringBuilder();
+            int element = 0;
+            while (updates.find()) {
+                String summary = summaries.find() ? summaries.group(1) : "";
+                if (rejected.contains(summary)) {
+                    if (errors.length() > 0) errors.append(',');
+                    errors.append("{\"status\":400,\"elementErrors\":{\"errorMessages\":[],\"errors\":{\"summary\":\"rejected\"}},")
+                            .append("\"failedElementNumber\":").append(element).append('}');
+                } else {
+                    int id = nextIssue.getAndIncrement();
+                    if (issues.length() > 0) issues.append(',');
+                    issues.append("{\"id\":\"").append(10000 + id).append("\",\"key\":\"").append(key).append('-').append(id)
+                            .append("\",\"self\":\"").append(getBaseUrl()).append("/rest/api/2/issue/").append(10000 + id).append("\"}");
+                }
+                element++;
+            }
+            batchSizes.add(element);
+            respond(exchange, 201, "{\"issues\":[" + issues + "],\"errors\":[" + errors + "]}");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static String read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            out.write(buffer, 0, n);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8089;
+        MockJiraServer server = new MockJiraServer(port, 0);
+        System.out.println("✅ Mock Jira listening on " + server.getBaseUrl());
+    }
+}
@@ -0,0 +1,120 @@
+import io.swagger.v3.parser.OpenAPIV3Parser;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+// Every operation gets its own file name, stable in spec order: paths that escape alike, repeated or differently
+// spelled operationIds and names that only differ in case never share a file, and the index maps them back.
+public class OutputNamesTest {
+
+    private static final String OK = "responses: {'200': {description: ok}}";
+
+    @Rule
+    public TemporaryFolder scratch = new TemporaryFolder();
+
+    @Test
+    public void pathsThatEscapeAlikeKeepTheirOwnFiles() {
+        ApiModel model = model(
+                "  /users/{id}: {get: {" + OK + "}}",
+                "  /users/id: {get: {" + OK + "}}");
+        List<String> names = names(model);
+        assertEquals(2, new HashSet<>(names).size());
+        for (String name : names) assertTrue(name, name.matches("GET_users_id_[0-9a-f]{8}"));
+        // the hash is of the raw path, so a name does not depend on the other operations
+        assertEquals(names.get(1), names(model("  /users/id: {get: {" + OK + "}}")).get(0));
+    }
+
+    @Test
+    public void repeatedOperationIdsAreNumberedInSpecOrder() {
+        ApiModel model = model(
+                "  /a: {get: {operationId: getThing, " + OK + "}}",
+                "  /b: {get: {operationId: getThing, " + OK + "}}",
+                "  /c: {get: {operationId: getThing, " + OK + "}}");
+        assertEquals(Arrays.asList("getThing", "getThing_2", "getThing_3"), names(model));
+        // the first operation keeps the operationId for lookups
+        assertEquals("/a", model.getOutputNames().find("getThing").path);
+    }
+
+    @Test
+    public void namesDifferingOnlyInCaseDoNotShareAFile() {
+        assertEquals(Arrays.asList("getUser", "GetUser_2", "GETUSER_3"), names(model(
+                "  /a: {get: {operationId: getUser, " + OK + "}}",
+                "  /b: {get: {operationId: GetUser, " + OK + "}}",
+                "  /c: {get: {operationId: GETUSER, " + OK + "}}")));
+    }
+
+    @Test
+    public void anOperationIdLikeAGeneratedSuffixGetsItsOwnName() {
+        assertEquals(Arrays.asList("x", "x_2", "x_2_2"), names(model(
+                "  /a: {get: {operationId: x, " + OK + "}}",
+                "  /b: {get: {operationId: x, " + OK + "}}",
+                "  /c: {get: {operationId: x_2, " + OK + "}}")));
+        assertEquals(Arrays.asList("x_2", "x", "x_3"), names(model(
+                "  /a: {get: {operationId: x_2, " + OK + "}}",
+                "  /b: {get: {operationId: x, " + OK + "}}",
+                "  /c: {get: {operationId: x, " + OK + "}}")));
+    }
+
+    @Test
+    public void findsOperationsByLabelOrOperationId() {
+        ApiModel model = model(
+                "  /users: {get: {operationId: listUsers, " + OK + "}, post: {" + OK + "}}",
+                "  /users/{id}: {get: {operationId: 'get user!', " + OK + "}}");
+        OutputNames names = model.getOutputNames();
+        List<ApiModel.Endpoint> endpoints = model.getEndpoints();
+        for (ApiModel.Endpoint ep : endpoints) {
+            assertSame(ep, names.find(ep.label()));
+            if (ep.operationId != null) assertSame(ep, names.find(ep.operationId));
+        }
+        assertEquals("get_user", names.name(names.find("get user!")));
+        assertNull(names.find("get_user"));
+        assertNull(names.find("DELETE /users"));
+    }
+
+    @Test
+    public void rejectsAnOperationOfAnotherSpec() {
+        ApiModel other = model("  /a: {get: {" + OK + "}}");
+        try {
+            model("  /a: {get: {" + OK + "}}").getOutputNames().name(other.getEndpoints().get(0));
+            fail("named an operation of another spec");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("GET /a "));
+        }
+    }
+
+    @Test
+    public void indexListsEveryOperationInSpecOrder() throws Exception {
+        ApiModel model = model(
+                "  /users: {get: {operationId: listUsers, " + OK + "}}",
+                "  /users/{id}: {delete: {" + OK + "}}",
+                "  /orders: {get: {operationId: listUsers, " + OK + "}}");
+        String id = names(model).get(1);
+        String expected = "operation\toperationId\tfile\n"
+                + "GET /users\tlistUsers\tlistUsers.txt\n"
+                + "DELETE /users/{id}\t\t" + id + ".txt\n"
+                + "GET /orders\tlistUsers\tlistUsers_2.txt\n";
+        assertEquals(expected, model.getOutputNames().index(PromptEngine.PROMPT_EXTENSION).toString());
+
+        Path index = model.getOutputNames().writeIndex(scratch.getRoot().toPath(), PromptEngine.PROMPT_EXTENSION);
+        assertEquals(OutputNames.INDEX_FILE, index.getFileName().toString());
+        assertEquals(expected, new String(Files.readAllBytes(index), StandardCharsets.UTF_8));
+    }
+
+    private static List<String> names(ApiModel model) {
+        List<String> names = new ArrayList<>();
+        for (ApiModel.Endpoint ep : model.getEndpoints()) names.add(model.getOutputNames().name(ep));
+        return names;
+    }
+
+    private static ApiModel model(String... paths) {
+        String yaml = "openapi: 3.0.3\ninfo: {title: names, version: '1'}\npaths:\n" + String.join("\n", paths) + "\n";
+        return ApiModel.build(new OpenAPIV3Parser().readContents(yaml, null, null).getOpenAPI(), true);
+    }
+}
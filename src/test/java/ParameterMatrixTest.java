@@ -0,0 +1,117 @@
+import io.swagger.v3.parser.OpenAPIV3Parser;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+// The levels each parameter contributes to the matrix, and that operations with many optional parameters stay fast
+// and get a handful of rows instead of the cross product.
+public class ParameterMatrixTest {
+
+    @Test
+    public void longEnumsAreCappedAtMaxLevels() {
+        ParameterMatrix matrix = matrix(
+                "{name: color, in: query, schema: {type: string, enum: [c1, c2, c3, c4, c5, c6, c7, c8, c9, c10]}}",
+                "{name: flag, in: query, required: true, schema: {type: boolean}}");
+        assertEquals(6, ParameterMatrix.MAX_LEVELS);
+        assertEquals(set("c1", "c2", "c3", "c4", "c5", "c6", ParameterMatrix.OMITTED), levels(matrix, 0));
+        assertEquals(set(true, false), levels(matrix, 1));
+        assertEquals(BigInteger.valueOf(14), matrix.combinations());
+        assertEquals(14, matrix.size());
+    }
+
+    @Test
+    public void numericRangesContributeTheirClosestValidBounds() {
+        ParameterMatrix matrix = matrix(
+                "{name: page, in: query, required: true, schema: {type: integer, minimum: 0, exclusiveMinimum: true, maximum: 10, exclusiveMaximum: true}}",
+                "{name: size, in: query, required: true, schema: {type: integer, minimum: 0.5, maximum: 20.5}}",
+                "{name: ratio, in: query, required: true, schema: {type: number, minimum: 0.25, maximum: 1.0}}",
+                "{name: weight, in: query, schema: {type: number, minimum: 0, exclusiveMinimum: true, maximum: 5}}");
+        assertEquals(set(1L, 9L), levels(matrix, 0));
+        assertEquals(set(1L, 20L), levels(matrix, 1));
+        assertEquals(2, levels(matrix, 2).size());
+        assertTrue(levels(matrix, 2).toString(), levels(matrix, 2).toString().matches("\\[0\\.25, 1]|\\[1, 0\\.25]"));
+        // an exclusive bound of a number has no closest value, so only the inclusive one is used
+        assertEquals(2, levels(matrix, 3).size());
+        assertTrue(levels(matrix, 3).contains(ParameterMatrix.OMITTED));
+        assertEquals("5", levels(matrix, 3).stream().filter(v -> v != ParameterMatrix.OMITTED).findFirst().get().toString());
+    }
+
+    @Test
+    public void onlyOptionalNonPathParametersCanBeOmitted() {
+        ParameterMatrix matrix = matrix(
+                "{name: id, in: path, required: true, schema: {type: integer, minimum: 1, maximum: 9}}",
+                "{name: verbose, in: query, required: true, schema: {type: boolean}}",
+                "{name: X-Trace, in: header, schema: {type: boolean}}",
+                "{name: session, in: cookie, schema: {type: string, enum: [a, b]}}");
+        assertEquals(set(1L, 9L), levels(matrix, 0));
+        assertEquals(set(true, false), levels(matrix, 1));
+        assertEquals(set(true, false, ParameterMatrix.OMITTED), levels(matrix, 2));
+        assertEquals(set("a", "b", ParameterMatrix.OMITTED), levels(matrix, 3));
+    }
+
+    @Test
+    public void fewerThanTwoVaryingParametersGiveNoMatrix() {
+        assertNull(matrix());
+        assertNull(matrix("{name: verbose, in: query, schema: {type: boolean}}"));
+        // a required parameter with a single value does not vary
+        assertNull(matrix(
+                "{name: verbose, in: query, schema: {type: boolean}}",
+                "{name: q, in: query, required: true, schema: {type: string}}"));
+        assertNotNull(matrix(
+                "{name: verbose, in: query, schema: {type: boolean}}",
+                "{name: q, in: query, schema: {type: string}}"));
+    }
+
+    @Test
+    public void manyOptionalParametersStayFastAndSmall() {
+        String[] params = new String[25];
+        for (int i = 0; i < params.length; i++) {
+            params[i] = i % 2 == 0
+                    ? "{name: p" + i + ", in: query, schema: {type: boolean}}"
+                    : "{name: p" + i + ", in: query, schema: {type: string, enum: [x, y, z]}}";
+        }
+        ApiModel model = model(params);
+
+        long started = System.nanoTime();
+        ParameterMatrix matrix = ParameterMatrix.of(model.getEndpoints().get(0), model.getSchemas(),
+                new SamplePayloadSynthesizer(model.getSchemas()), 2);
+        StringBuilder prompt = new StringBuilder();
+        matrix.appendTo(prompt);
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+        assertTrue("building the matrix took " + millis + " ms", millis < 1000);
+        assertEquals(25, matrix.factors().size());
+        assertEquals("pairwise over 25 parameters", matrix.coverage());
+        // 3 and 4 levels per factor: at least 16 rows for the pairs of two 4-level factors, out of about 10^13 combinations
+        assertTrue(matrix.size() + " rows", matrix.size() >= 16 && matrix.size() <= 64);
+        assertTrue(prompt.toString(), prompt.toString().contains(matrix.size() + " rows instead of " + matrix.combinations()));
+        for (int f = 0; f < 25; f++) assertEquals("p" + f, f % 2 == 0 ? 3 : 4, levels(matrix, f).size());
+    }
+
+    // distinct values of the factor across all rows, which pairwise coverage guarantees to be all of its levels
+    private static Set<Object> levels(ParameterMatrix matrix, int factor) {
+        Set<Object> levels = new HashSet<>();
+        for (int row = 0; row < matrix.size(); row++) levels.add(matrix.value(row, factor));
+        return levels;
+    }
+
+    private static Set<Object> set(Object... values) {
+        return new HashSet<>(Arrays.asList(values));
+    }
+
+    private static ParameterMatrix matrix(String... params) {
+        ApiModel model = model(params);
+        return ParameterMatrix.of(model.getEndpoints().get(0), model.getSchemas(), new SamplePayloadSynthesizer(model.getSchemas()), 2);
+    }
+
+    private static ApiModel model(String... params) {
+        String yaml = "openapi: 3.0.3\ninfo: {title: matrix, version: '1'}\npaths:\n  /things/{id}:\n    get:\n"
+                + (params.length > 0 ? "      parameters: [" + String.join(", ", params) + "]\n" : "")
+                + "      responses: {'200': {description: ok}}\n";
+        return ApiModel.build(new OpenAPIV3Parser().readContents(yaml, null, null).getOpenAPI(), true);
+    }
+}
@@ -0,0 +1,120 @@
+import io.swagger.v3.parser.OpenAPIV3Parser;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+// One CSV row per prompt over a spec with known hot spots: unresolved refs, a oneOf, nested arrays, operations without
+// summary or examples, and names that need CSV quoting; the HTML report lists every target's rows, largest first.
+public class PromptAnalyticsTest {
+
+    private static final ApiModel MODEL = ApiModel.build(new OpenAPIV3Parser().readContents(String.join("\n",
+            "openapi: 3.0.3",
+            "info: {title: analytics, version: '1'}",
+            "paths:",
+            "  /orders,v2:",
+            "    post:",
+            "      summary: Create order",
+            "      requestBody: {content: {application/json: {schema: {$ref: '#/components/schemas/Order'}}}}",
+            "      responses: {'201': {description: created}}",
+            "  /ping:",
+            "    get:",
+            "      responses: {'200': {description: ok}}",
+            "  /pets:",
+            "    get:",
+            "      summary: ' '",
+            "      parameters: [{name: kind, in: query, schema: {type: string}}]",
+            "      responses: {'200': {description: ok, content: {application/json: {schema: {$ref: '#/components/schemas/Missing'}}}}}",
+            "components:",
+            "  schemas:",
+            "    Order:",
+            "      type: object",
+            "      example: {lines: []}",
+            "      properties:",
+            "        lines: {type: array, items: {$ref: '#/components/schemas/Line'}}",
+            "        payment: {oneOf: [{$ref: '#/components/schemas/Card'}, {$ref: '#/components/schemas/Cash'}]}",
+            "    Line: {type: object, properties: {sku: {type: string}, extra: {$ref: '#/components/schemas/Gone'}}}",
+            "    Card: {type: object, properties: {number: {type: string}}}",
+            "    Cash: {type: object, properties: {amount: {type: number}}}",
+            ""), null, null).getOpenAPI(), true);
+
+    private static final String HEADER = "target,operation,chars,lines,estimatedTokens,schemaDepth,fanOut,schemaNodes,"
+            + "unresolvedRefs,lowInformationLines,missingSummary,missingExamples";
+
+    @Rule
+    public TemporaryFolder scratch = new TemporaryFolder();
+
+    @Test
+    public void measuresEachPromptAndItsSchemas() throws Exception {
+        Path dir = scratch.getRoot().toPath();
+        PromptAnalytics analytics = new PromptAnalytics("karate", MODEL, dir);
+        List<ApiModel.Endpoint> endpoints = MODEL.getEndpoints();
+        // recorded out of order, as parallel workers finish
+        analytics.record(endpoints.get(2), "Parameters:\n- kind: unknown schema\n- filter -object (no properties)\nunknown Schema\nend");
+        analytics.record(endpoints.get(0), "Sample request body:\n  lines\n  payment\n");
+        analytics.record(endpoints.get(1), "");
+
+        Path csv = analytics.write(new ShardPlan(0, 1));
+        assertEquals(dir.resolve("karate.csv"), csv);
+        assertEquals(Arrays.asList(
+                HEADER,
+                // depth 4: Order > lines > Line > sku; two payment branches; Gone is unresolved
+                "karate,\"POST /orders,v2\",39,3,10,4,2,9,1,0,false,false",
+                // no parameters or body, so there is nothing to give an example for
+                "karate,GET /ping,0,0,0,0,1,0,0,0,true,false",
+                "karate,GET /pets,86,5,22,1,1,1,1,3,true,true"), lines(csv));
+    }
+
+    @Test
+    public void quotesTargetsAndOperationsForCsv() throws Exception {
+        Path dir = scratch.getRoot().toPath();
+        PromptAnalytics analytics = new PromptAnalytics("say \"hi\", twice", MODEL, dir);
+        analytics.record(MODEL.getEndpoints().get(0), "x");
+        List<String> lines = lines(analytics.write(new ShardPlan(0, 1)));
+        assertEquals("\"say \"\"hi\"\", twice\",\"POST /orders,v2\",1,1,1,4,2,9,1,0,false,false", lines.get(1));
+        String html = new String(Files.readAllBytes(dir.resolve(PromptAnalytics.HTML_REPORT)), StandardCharsets.UTF_8);
+        assertTrue(html, html.contains("<td>say &quot;hi&quot;, twice</td><td>POST /orders,v2</td>"));
+    }
+
+    @Test
+    public void reportListsEveryTargetLargestPromptFirst() throws Exception {
+        Path dir = scratch.getRoot().toPath();
+        PromptAnalytics karate = new PromptAnalytics("karate", MODEL, dir);
+        karate.record(MODEL.getEndpoints().get(0), repeat('k', 400));
+        karate.record(MODEL.getEndpoints().get(1), repeat('k', 40));
+        karate.write(new ShardPlan(0, 1));
+        PromptAnalytics jira = new PromptAnalytics("jira", MODEL, dir);
+        jira.record(MODEL.getEndpoints().get(1), repeat('j', 4000));
+        jira.write(new ShardPlan(0, 1));
+        // a shard fragment waiting for the merge is left out
+        Files.write(dir.resolve("gatling.shard-0-of-2.csv"), (HEADER + "\ngatling,GET /ping,1,1,99999,0,1,0,0,0,false,false\n")
+                .getBytes(StandardCharsets.UTF_8));
+
+        String html = new String(Files.readAllBytes(PromptAnalytics.writeHtml(dir)), StandardCharsets.UTF_8);
+        assertTrue(html, html.contains("<p>3 prompts from 2 target file(s)."));
+        assertFalse(html, html.contains("gatling"));
+        int jiraPing = html.indexOf("<td>jira</td><td>GET /ping</td>");
+        int karateOrders = html.indexOf("<td>karate</td><td>POST /orders,v2</td>");
+        int karatePing = html.indexOf("<td>karate</td><td>GET /ping</td>");
+        assertTrue(html, jiraPing > 0 && jiraPing < karateOrders && karateOrders < karatePing);
+        // the unresolved ref of POST /orders,v2 highlights its row; GET /ping has none
+        assertTrue(html, html.contains("<tr class=\"hot\"><td>karate</td><td>POST /orders,v2</td>"));
+        assertTrue(html, html.contains("<tr><td>karate</td><td>GET /ping</td><td class=\"n\">40</td>"));
+    }
+
+    private static List<String> lines(Path file) throws Exception {
+        return Files.readAllLines(file, StandardCharsets.UTF_8);
+    }
+
+    private static String repeat(char c, int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+}
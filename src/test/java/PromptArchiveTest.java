@@ -0,0 +1,127 @@
+import io.swagger.v3.parser.OpenAPIV3Parser;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.junit.Assert.*;
+
+// Writing an archive and reading prompts back: slot order, lookups through the index, random access and byte-for-byte
+// reproducible output that any ZIP reader understands.
+public class PromptArchiveTest {
+
+    private static final ApiModel MODEL = ApiModel.build(new OpenAPIV3Parser().readContents(String.join("\n",
+            "openapi: 3.0.3",
+            "info: {title: archive, version: '1'}",
+            "paths:",
+            "  /users: {get: {operationId: listUsers, responses: {'200': {description: ok}}}}",
+            "  /users/{id}: {delete: {parameters: [{name: id, in: path, required: true, schema: {type: string}}], responses: {'204': {description: gone}}}}",
+            "  /café: {post: {operationId: orderCoffee, responses: {'201': {description: created}}}}",
+            ""), null, null).getOpenAPI(), true);
+
+    @Rule
+    public TemporaryFolder scratch = new TemporaryFolder();
+
+    @Test
+    public void readsBackEveryPromptInSlotOrder() throws Exception {
+        Map<String, String> prompts = prompts();
+        Path zip = write(scratch.getRoot().toPath().resolve("prompts.zip"), prompts);
+
+        try (PromptArchive.Reader archive = new PromptArchive.Reader(zip)) {
+            List<String> expected = new ArrayList<>(prompts.keySet());
+            expected.add(OutputNames.INDEX_FILE);
+            assertEquals(expected, new ArrayList<>(archive.names()));
+            // any order, each entry on its own
+            List<String> names = new ArrayList<>(prompts.keySet());
+            Collections.reverse(names);
+            for (String name : names) assertEquals(name, prompts.get(name), archive.read(name));
+            assertEquals(MODEL.getOutputNames().index(PromptEngine.PROMPT_EXTENSION).toString(), archive.read(OutputNames.INDEX_FILE));
+        }
+    }
+
+    @Test
+    public void resolvesOperationsAndOperationIdsThroughTheIndex() throws Exception {
+        Map<String, String> prompts = prompts();
+        Path zip = write(scratch.getRoot().toPath().resolve("prompts.zip"), prompts);
+
+        try (PromptArchive.Reader archive = new PromptArchive.Reader(zip)) {
+            for (ApiModel.Endpoint ep : MODEL.getEndpoints()) {
+                String name = PromptCorpus.fileName(MODEL, ep);
+                assertEquals(name, archive.resolve(name));
+                assertEquals(name, archive.resolve(ep.label()));
+                if (ep.operationId != null) assertEquals(name, archive.resolve(ep.operationId));
+            }
+            assertNull(archive.resolve("PATCH /users"));
+        }
+    }
+
+    @Test
+    public void sameSlotsGiveTheSameBytesAndAPlainZip() throws Exception {
+        Map<String, String> prompts = prompts();
+        Path first = write(scratch.getRoot().toPath().resolve("first.zip"), prompts);
+        Path second = write(scratch.getRoot().toPath().resolve("second.zip"), prompts);
+        assertArrayEquals(Files.readAllBytes(first), Files.readAllBytes(second));
+
+        try (ZipFile zip = new ZipFile(first.toFile(), StandardCharsets.UTF_8)) {
+            assertEquals(prompts.size() + 1, zip.size());
+            for (Map.Entry<String, String> prompt : prompts.entrySet()) {
+                ZipEntry entry = zip.getEntry(prompt.getKey());
+                assertNotNull(prompt.getKey(), entry);
+                try (InputStream in = zip.getInputStream(entry)) {
+                    assertEquals(prompt.getValue(), new String(readAll(in), StandardCharsets.UTF_8));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void rejectsAnEntryThatFailsItsCrc() throws Exception {
+        Path zip = scratch.getRoot().toPath().resolve("prompts.zip");
+        PromptArchive.Entry good = PromptArchive.compress("a.txt", "the prompt");
+        PromptArchive.write(zip, Collections.singletonList(new PromptArchive.Entry(good.name, good.method, good.crc + 1, good.size, good.data)));
+
+        try (PromptArchive.Reader archive = new PromptArchive.Reader(zip)) {
+            archive.read("a.txt");
+            fail("a corrupt entry was read");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("CRC"));
+        }
+    }
+
+    // file name -> prompt, in spec order; large enough that deflate spans several buffers
+    private static Map<String, String> prompts() {
+        Map<String, String> prompts = new LinkedHashMap<>();
+        for (ApiModel.Endpoint ep : MODEL.getEndpoints()) {
+            StringBuilder prompt = new StringBuilder();
+            for (int line = 0; line < 2000; line++) prompt.append(ep.label()).append(" line ").append(line).append(" ✅\n");
+            prompts.put(PromptCorpus.fileName(MODEL, ep), prompt.toString());
+        }
+        return prompts;
+    }
+
+    // slots are filled last to first, as workers finishing out of order would
+    private static Path write(Path output, Map<String, String> prompts) throws IOException {
+        List<Map.Entry<String, String>> entries = new ArrayList<>(prompts.entrySet());
+        PromptArchive archive = new PromptArchive(entries.size());
+        for (int slot = entries.size() - 1; slot >= 0; slot--) {
+            archive.put(slot, entries.get(slot).getKey(), entries.get(slot).getValue());
+        }
+        return archive.write(output, MODEL.getOutputNames().index(PromptEngine.PROMPT_EXTENSION));
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        for (int n; (n = in.read(buffer)) > 0; ) out.write(buffer, 0, n);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,79 @@
+import io.swagger.v3.oas.models.OpenAPI;
+import io.swagger.v3.parser.OpenAPIV3Parser;
+import io.swagger.v3.parser.core.models.SwaggerParseResult;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+// The specs the regression tests render, and per builder a renderer producing exactly the prompt that builder writes
+// for one operation.
+final class PromptCorpus {
+
+    static final Path DEFAULT_SPEC = Paths.get("src/main/resources/openapi.yaml");
+    static final Path SPEC_DIR = Paths.get("src/test/resources/specs");
+    // stands in for the http(s) hosts that split specs refer to
+    static final Path MIRROR_DIR = SPEC_DIR.resolve("mirror");
+    static final String[] BUILDERS = {"karate", "practitest", "jira", "gatling"};
+
+    // shared by every spec of the test run, as one bundler is across a batch of specs
+    private static final SpecBundler BUNDLER = new SpecBundler(Paths.get("target/bundles"), MIRROR_DIR);
+
+    interface Renderer {
+        CharSequence render(ApiModel.Endpoint ep) throws Exception;
+    }
+
+    private PromptCorpus() {
+    }
+
+    // the bundled spec of the application itself comes first, then every spec under src/test/resources/specs
+    static Map<String, Path> specs() throws IOException {
+        Map<String, Path> specs = new LinkedHashMap<>();
+        specs.put("default", DEFAULT_SPEC);
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(SPEC_DIR, "*.yaml")) {
+            for (Path file : stream) files.add(file);
+        }
+        Collections.sort(files);
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            specs.put(name.substring(0, name.length() - ".yaml".length()), file);
+        }
+        return specs;
+    }
+
+    static ApiModel load(Path spec) throws IOException {
+        SwaggerParseResult parseResult = new OpenAPIV3Parser().readLocation(BUNDLER.bundle(spec.toString()), null, null);
+        OpenAPI openAPI = parseResult.getOpenAPI();
+        if (openAPI == null || openAPI.getPaths() == null) {
+            throw new IllegalStateException("Failed to parse " + spec + ": " + parseResult.getMessages());
+        }
+        return ApiModel.build(openAPI, true);
+    }
+
+    // the target's own hooks through the shared engine, exactly as its main renders; side files such as feature
+    // skeletons and Gatling feeders go under scratch
+    static Renderer renderer(String builder, ApiModel model, Path scratch) throws Exception {
+        PromptTarget target = PromptEngine.target(builder);
+        PromptEngine.Run run = PromptEngine.open(target, model, scratch);
+        target.start(run);
+        return ep -> PromptEngine.render(run, ep, target.prepare(run, ep));
+    }
+
+    // Only the prompt text: every artifact is prepared up front, so rendering writes no files and prints nothing
+    static Renderer promptRenderer(String builder, ApiModel model, Path scratch) throws Exception {
+        PromptTarget target = PromptEngine.target(builder);
+        PromptEngine.Run run = PromptEngine.open(target, model, scratch);
+        target.start(run);
+        Map<ApiModel.Endpoint, String> artifacts = new IdentityHashMap<>();
+        for (ApiModel.Endpoint ep : model.getEndpoints()) artifacts.put(ep, target.prepare(run, ep));
+        return ep -> PromptEngine.render(run, ep, artifacts.get(ep));
+    }
+
+    static String fileName(ApiModel model, ApiModel.Endpoint ep) {
+        return model.getOutputNames().name(ep) + PromptEngine.PROMPT_EXTENSION;
+    }
+}
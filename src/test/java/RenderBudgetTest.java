@@ -0,0 +1,152 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+// Per-operation cost budgets for each builder over the corpus: the operation that allocates most and the longest
+// prompt, measured on prompt rendering alone (side files are prepared beforehand) as the best of several rounds after
+// warm-up. A measurement may exceed its recorded baseline by the threshold in render-budgets.properties. Wall time
+// depends on the machine and its load, so the slowest operation is only checked on request:
+//   mvn test -Dtest=RenderBudgetTest -Dbudgets.time=true
+// After an intended change, record new baselines with
+//   mvn test -Dtest=RenderBudgetTest -Dbudgets.update=true
+@RunWith(Parameterized.class)
+public class RenderBudgetTest {
+
+    private static final Path BUDGETS = Paths.get("src/test/resources/render-budgets.properties");
+    private static final boolean UPDATE = Boolean.getBoolean("budgets.update");
+    private static final boolean CHECK_TIME = Boolean.getBoolean("budgets.time");
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 5;
+
+    @Rule
+    public TemporaryFolder scratch = new TemporaryFolder();
+
+    private final String builder;
+
+    public RenderBudgetTest(String builder) {
+        this.builder = builder;
+    }
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> builders() {
+        List<Object[]> builders = new ArrayList<>();
+        for (String builder : PromptCorpus.BUILDERS) builders.add(new Object[]{builder});
+        return builders;
+    }
+
+    @Test
+    public void staysWithinBudget() throws Exception {
+        Map<ApiModel.Endpoint, PromptCorpus.Renderer> operations = new LinkedHashMap<>();
+        for (Path spec : PromptCorpus.specs().values()) {
+            ApiModel model = PromptCorpus.load(spec);
+            PromptCorpus.Renderer renderer = PromptCorpus.promptRenderer(builder, model, scratch.getRoot().toPath());
+            for (ApiModel.Endpoint ep : model.getEndpoints()) operations.put(ep, renderer);
+        }
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            for (Map.Entry<ApiModel.Endpoint, PromptCorpus.Renderer> op : operations.entrySet()) op.getValue().render(op.getKey());
+        }
+
+        com.sun.management.ThreadMXBean threads = allocationCounter();
+        long maxNanos = 0;
+        long maxBytes = 0;
+        long maxChars = 0;
+        String slowest = null;
+        String hungriest = null;
+        String longest = null;
+        for (Map.Entry<ApiModel.Endpoint, PromptCorpus.Renderer> op : operations.entrySet()) {
+            long nanos = Long.MAX_VALUE;
+            long bytes = Long.MAX_VALUE;
+            long chars = 0;
+            for (int round = 0; round < MEASURED_ROUNDS; round++) {
+                long allocatedBefore = threads != null ? threads.getThreadAllocatedBytes(Thread.currentThread().getId()) : 0;
+                long start = System.nanoTime();
+                chars = op.getValue().render(op.getKey()).length();
+                nanos = Math.min(nanos, System.nanoTime() - start);
+                if (threads != null) {
+                    bytes = Math.min(bytes, threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - allocatedBefore);
+                }
+            }
+            if (nanos > maxNanos) {
+                maxNanos = nanos;
+                slowest = op.getKey().label();
+            }
+            if (threads != null && bytes > maxBytes) {
+                maxBytes = bytes;
+                hungriest = op.getKey().label();
+            }
+            if (chars > maxChars) {
+                maxChars = chars;
+                longest = op.getKey().label();
+            }
+        }
+        System.out.println("✅ " + builder + ": slowest operation " + slowest + " " + maxNanos / 1000 + " µs"
+                + (threads != null ? ", most allocating " + hungriest + " " + maxBytes / 1024 + " KB" : "")
+                + ", longest prompt " + longest + " " + maxChars + " chars");
+
+        if (UPDATE) {
+            Map<String, String> measured = new LinkedHashMap<>();
+            measured.put(builder + ".maxNanosPerOperation", String.valueOf(maxNanos));
+            if (threads != null) measured.put(builder + ".maxBytesPerOperation", String.valueOf(maxBytes));
+            measured.put(builder + ".maxCharsPerOperation", String.valueOf(maxChars));
+            updateBudgets(measured);
+            return;
+        }
+
+        Properties budgets = loadBudgets();
+        check(budgets, builder + ".maxCharsPerOperation", "chars.threshold", maxChars, longest);
+        if (threads != null) check(budgets, builder + ".maxBytesPerOperation", "bytes.threshold", maxBytes, hungriest);
+        if (CHECK_TIME) check(budgets, builder + ".maxNanosPerOperation", "time.threshold", maxNanos, slowest);
+    }
+
+    private static void check(Properties budgets, String key, String thresholdKey, long measured, String operation) {
+        String baseline = budgets.getProperty(key);
+        if (baseline == null) fail("No baseline for " + key + " in " + BUDGETS + "; record one with -Dbudgets.update=true");
+        double threshold = Double.parseDouble(budgets.getProperty(thresholdKey));
+        long limit = (long) (Long.parseLong(baseline) * (1 + threshold));
+        assertTrue(key + " regressed: " + operation + " took " + measured + " against a baseline of " + baseline
+                + " (limit " + limit + ")", measured <= limit);
+    }
+
+    // allocation is only measurable on HotSpot-style JVMs; elsewhere only time is checked
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) return null;
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadAllocatedMemorySupported() || !threads.isThreadAllocatedMemoryEnabled()) return null;
+        return threads;
+    }
+
+    private static Properties loadBudgets() throws IOException {
+        Properties budgets = new Properties();
+        try (java.io.Reader reader = Files.newBufferedReader(BUDGETS, StandardCharsets.UTF_8)) {
+            budgets.load(reader);
+        }
+        return budgets;
+    }
+
+    // rewrites only the given keys so comments, thresholds and the other builders' baselines survive
+    private static synchronized void updateBudgets(Map<String, String> measured) throws IOException {
+        List<String> lines = new ArrayList<>(Files.readAllLines(BUDGETS, StandardCharsets.UTF_8));
+        Set<String> pending = new LinkedHashSet<>(measured.keySet());
+        for (int i = 0; i < lines.size(); i++) {
+            int eq = lines.get(i).indexOf('=');
+            if (eq < 0 || lines.get(i).startsWith("#")) continue;
+            String key = lines.get(i).substring(0, eq).trim();
+            if (pending.remove(key)) lines.set(i, key + "=" + measured.get(key));
+        }
+        for (String key : pending) lines.add(key + "=" + measured.get(key));
+        Files.write(BUDGETS, lines, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,265 @@
+import io.swagger.v3.parser.OpenAPIV3Parser;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+// Timeouts, interrupts, cancellation and back-pressure in every execution mode: every operation map() started is
+// settled, i.e. finished, timed out or cancelled, by the time it returns, including those left running in a fork-join
+// pool abandoned after a timeout, and no more operations run at once than the mode admits.
+@RunWith(Parameterized.class)
+public class RenderSchedulerTest {
+
+    // operations of equal cost, so they are submitted in spec order
+    private static final ApiModel MODEL = ApiModel.build(new OpenAPIV3Parser().readContents(String.join("\n",
+            "openapi: 3.0.3",
+            "info: {title: scheduler, version: '1'}",
+            "paths:",
+            "  /a: {get: {responses: {'200': {description: ok}}}}",
+            "  /b: {get: {responses: {'200': {description: ok}}}}",
+            "  /c: {get: {responses: {'200': {description: ok}}}}",
+            "  /d: {get: {responses: {'200': {description: ok}}}}",
+            "  /e: {get: {responses: {'200': {description: ok}}}}",
+            ""), null, null).getOpenAPI(), true);
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> modes() {
+        List<Object[]> modes = new ArrayList<>();
+        for (RenderScheduler.Mode mode : RenderScheduler.Mode.values()) modes.add(new Object[]{mode});
+        return modes;
+    }
+
+    private final RenderScheduler.Mode mode;
+
+    public RenderSchedulerTest(RenderScheduler.Mode mode) {
+        this.mode = mode;
+    }
+
+    @Test
+    public void keepsWatchingOperationsRunningWhenAnotherTimesOut() {
+        Recorder report = new Recorder();
+        CountDownLatch interrupted = new CountDownLatch(1);
+        List<String> results = scheduler(2, 1000, report).map(MODEL.getEndpoints(), ep -> {
+            switch (ep.path) {
+                case "/a":
+                    try {
+                        Thread.sleep(20000);
+                    } catch (InterruptedException e) {
+                        interrupted.countDown();
+                    }
+                    return "a";
+                case "/b":
+                    Thread.sleep(600);
+                    return "b";
+                case "/c":
+                    // starts around 600 ms and is still running when /a times out at about 1000 ms
+                    assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+                    Thread.sleep(200);
+                    return "c";
+                default:
+                    return ep.path.substring(1);
+            }
+        });
+
+        assertEquals(Arrays.asList(null, "b", "c", "d", "e"), results);
+        assertEquals(Collections.singletonList("GET /a timeout"), report.failures);
+    }
+
+    @Test
+    public void waitsForAnOperationThatIgnoresItsInterrupt() {
+        Recorder report = new Recorder();
+        AtomicBoolean stubbornFinished = new AtomicBoolean();
+        AtomicInteger running = new AtomicInteger();
+        List<String> results = scheduler(1, 200, report).map(MODEL.getEndpoints(), ep -> {
+            running.incrementAndGet();
+            try {
+                if ("/a".equals(ep.path)) {
+                    long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(700);
+                    while (System.nanoTime() < end) {
+                        try {
+                            Thread.sleep(20);
+                        } catch (InterruptedException ignored) {
+                            // keeps going, as a task stuck in uninterruptible I/O would
+                        }
+                    }
+                    stubbornFinished.set(true);
+                }
+                return ep.path.substring(1);
+            } finally {
+                running.decrementAndGet();
+            }
+        });
+
+        assertTrue(stubbornFinished.get());
+        assertEquals(0, running.get());
+        assertEquals(Arrays.asList(null, "b", "c", "d", "e"), results);
+        assertEquals(Collections.singletonList("GET /a timeout"), report.failures);
+    }
+
+    @Test
+    public void aTimedOutOperationCommitsNothing() {
+        Recorder report = new Recorder();
+        List<String> committed = Collections.synchronizedList(new ArrayList<>());
+        List<String> discarded = Collections.synchronizedList(new ArrayList<>());
+        List<String> results = scheduler(2, 200, report).map(MODEL.getEndpoints(), ep -> {
+            if ("/a".equals(ep.path)) {
+                long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(600);
+                while (System.nanoTime() < end) {
+                    try {
+                        Thread.sleep(20);
+                    } catch (InterruptedException ignored) {
+                        // finishes rendering anyway
+                    }
+                }
+            }
+            return ep.path.substring(1);
+        }, (ep, rendered) -> {
+            committed.add(rendered);
+            return rendered.toUpperCase(Locale.ROOT);
+        }, ep -> discarded.add(ep.path));
+
+        assertEquals(Arrays.asList(null, "B", "C", "D", "E"), results);
+        assertEquals(new HashSet<>(Arrays.asList("b", "c", "d", "e")), new HashSet<>(committed));
+        assertEquals(Collections.singletonList("/a"), discarded);
+        assertEquals(Collections.singletonList("GET /a timeout"), report.failures);
+    }
+
+    @Test
+    public void admitsNoMoreOperationsThanAllowedAtOnce() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        List<String> results = scheduler(2, 2, 0, new Recorder()).map(MODEL.getEndpoints(), ep -> {
+            peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(150);
+                return ep.path.substring(1);
+            } finally {
+                running.decrementAndGet();
+            }
+        });
+
+        assertEquals(Arrays.asList("a", "b", "c", "d", "e"), results);
+        assertEquals(2, peak.get());
+    }
+
+    @Test
+    public void aTimedOutOperationGivesUpItsSlot() {
+        Recorder report = new Recorder();
+        AtomicBoolean stubbornFinished = new AtomicBoolean();
+        List<String> finishedBefore = Collections.synchronizedList(new ArrayList<>());
+        List<String> results = scheduler(1, 1, 200, report).map(MODEL.getEndpoints(), ep -> {
+            if ("/a".equals(ep.path)) {
+                long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(1500);
+                while (System.nanoTime() < end) {
+                    try {
+                        Thread.sleep(20);
+                    } catch (InterruptedException ignored) {
+                        // keeps its thread well past the timeout
+                    }
+                }
+                stubbornFinished.set(true);
+            } else if (!stubbornFinished.get()) {
+                finishedBefore.add(ep.path);
+            }
+            return ep.path.substring(1);
+        });
+
+        assertEquals(Arrays.asList(null, "b", "c", "d", "e"), results);
+        assertEquals(Arrays.asList("/b", "/c", "/d", "/e"), finishedBefore);
+        assertEquals(Collections.singletonList("GET /a timeout"), report.failures);
+    }
+
+    @Test
+    public void fallsBackToAsyncOnlyWhenVirtualThreadsAreMissing() {
+        RenderScheduler scheduler = scheduler(2, 1000, new Recorder());
+        if (mode == RenderScheduler.Mode.VIRTUAL && scheduler.mode() == RenderScheduler.Mode.ASYNC) {
+            assertTrue(scheduler.fallback(), scheduler.fallback().startsWith("Virtual threads are not available"));
+        } else {
+            assertEquals(mode, scheduler.mode());
+            assertNull(scheduler.fallback());
+        }
+    }
+
+    @Test
+    public void interruptingTheCallerCancelsEveryRound() throws Exception {
+        Recorder report = new Recorder();
+        CountDownLatch timedOut = new CountDownLatch(1);
+        CountDownLatch lateStarted = new CountDownLatch(1);
+        CountDownLatch lateInterrupted = new CountDownLatch(1);
+        AtomicReference<Throwable> thrown = new AtomicReference<>();
+
+        Thread caller = new Thread(() -> {
+            try {
+                scheduler(2, 1000, report).map(MODEL.getEndpoints(), ep -> {
+                    switch (ep.path) {
+                        case "/a":
+                            try {
+                                Thread.sleep(20000);
+                            } catch (InterruptedException e) {
+                                timedOut.countDown();
+                            }
+                            return null;
+                        case "/b":
+                            Thread.sleep(600);
+                            return null;
+                        case "/c":
+                            // in fork-join mode left running in the first round, which the timeout of /a abandons
+                            lateStarted.countDown();
+                            try {
+                                Thread.sleep(20000);
+                            } catch (InterruptedException e) {
+                                lateInterrupted.countDown();
+                            }
+                            return null;
+                        default:
+                            // in fork-join mode the second round: blocks until cancelled
+                            Thread.sleep(20000);
+                            return null;
+                    }
+                });
+            } catch (Throwable t) {
+                thrown.set(t);
+            }
+        });
+        caller.start();
+        assertTrue(lateStarted.await(5, TimeUnit.SECONDS));
+        assertTrue(timedOut.await(5, TimeUnit.SECONDS));
+        caller.interrupt();
+        caller.join(5000);
+
+        assertFalse(caller.isAlive());
+        assertTrue(String.valueOf(thrown.get()), thrown.get() instanceof CancellationException);
+        assertTrue("the first round's running operation was not interrupted", lateInterrupted.await(5, TimeUnit.SECONDS));
+        assertTrue(report.failures.toString(), report.failures.contains("GET /a timeout"));
+    }
+
+    // as many operations in flight as fork-join runs at once, so every mode starts them at the same moments
+    private RenderScheduler scheduler(int parallelism, long timeoutMillis, FailureReport report) {
+        return scheduler(parallelism, parallelism, timeoutMillis, report);
+    }
+
+    // parallelism bounds fork-join mode, maxInFlight the virtual and async modes
+    private RenderScheduler scheduler(int parallelism, int maxInFlight, long timeoutMillis, FailureReport report) {
+        return new RenderScheduler(MODEL, parallelism, report, timeoutMillis, mode, maxInFlight);
+    }
+
+    private static final class Recorder extends FailureReport {
+        final List<String> failures = Collections.synchronizedList(new ArrayList<>());
+
+        Recorder() {
+            super("test", MODEL);
+        }
+
+        @Override
+        public void record(ApiModel.Endpoint ep, String phase, Throwable error) {
+            failures.add(ep.label() + " " + phase);
+        }
+    }
+}
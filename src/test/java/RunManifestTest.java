@@ -0,0 +1,192 @@
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.swagger.v3.core.util.Json;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+// Comparing two run manifests: which outputs drifted, went missing or are new, and which phases and operations count
+// as slower under REGRESSION_RATIO and MIN_REGRESSION_MICROS.
+public class RunManifestTest {
+
+    @Rule
+    public TemporaryFolder scratch = new TemporaryFolder();
+
+    @Test
+    public void identicalRunsAreNotADifference() throws Exception {
+        ObjectNode run = manifest();
+        operation(run, "GET /a", "aaa", 100, 10_000);
+        operation(run, "GET /b", "bbb", 200, 20_000);
+
+        Diff diff = diff(run, run.deepCopy());
+        assertFalse(diff.output, diff.changed);
+        assertEquals(Collections.singletonList("✅ 2 outputs identical, no timing regressions"), diff.verdicts());
+    }
+
+    @Test
+    public void listsDriftedMissingAndNewOutputs() throws Exception {
+        ObjectNode before = manifest();
+        operation(before, "GET /same", "s", 10, 1000);
+        operation(before, "GET /changed", "old", 10, 1000);
+        operation(before, "GET /feature", "f", 10, 1000).putObject("attachments").put("a.feature", "one");
+        operation(before, "GET /gone", "g", 10, 1000);
+        ObjectNode after = manifest();
+        operation(after, "GET /same", "s", 10, 1000);
+        operation(after, "GET /changed", "new", 12, 1000);
+        operation(after, "GET /feature", "f", 10, 1000).putObject("attachments").put("a.feature", "two");
+        operation(after, "GET /added", "n", 10, 1000);
+
+        Diff diff = diff(before, after);
+        assertTrue(diff.output, diff.changed);
+        assertEquals(Arrays.asList(
+                "❌ output drift: GET /changed (GET_changed.txt, 10 -> 12 chars)",
+                "❌ output drift: GET /feature (GET_feature.txt, 10 -> 10 chars)",
+                "❌ missing output: GET /gone",
+                "❌ new output: GET /added",
+                "❌ 4 outputs drifted, 0 timings regressed"), diff.verdicts());
+    }
+
+    @Test
+    public void slowdownsCountOnlyAboveBothThresholds() throws Exception {
+        assertEquals(1.25, RunManifest.REGRESSION_RATIO, 0);
+        assertEquals(5_000, RunManifest.MIN_REGRESSION_MICROS);
+        ObjectNode before = manifest();
+        ObjectNode after = manifest();
+        // 30% and 30 ms slower
+        phase(before, after, "render", 100_000, 130_000);
+        // six times slower but under 5 ms
+        phase(before, after, "write", 900, 5_800);
+        // 24% slower
+        phase(before, after, "total", 100_000, 124_000);
+        operation(before, "GET /slow", "a", 1, 10_000);
+        operation(after, "GET /slow", "a", 1, 20_000);
+        operation(before, "GET /steady", "b", 1, 40_000);
+        operation(after, "GET /steady", "b", 1, 49_000);
+        // exactly at both thresholds
+        operation(before, "GET /edge", "c", 1, 20_000);
+        operation(after, "GET /edge", "c", 1, 25_000);
+
+        Diff diff = diff(before, after);
+        assertTrue(diff.output, diff.changed);
+        assertEquals(Arrays.asList(
+                "⚠ slower phase render: 100.0 ms -> 130.0 ms (+30%)",
+                "⚠ slower operation GET /slow: 10.0 ms -> 20.0 ms (+100%)",
+                "❌ 0 outputs drifted, 2 timings regressed"), diff.verdicts());
+
+        // a faster run is never a regression
+        assertFalse(diff(after, before).changed);
+    }
+
+    @Test
+    public void listsTheWorstSlowdownsFirstAndCountsTheRest() throws Exception {
+        ObjectNode before = manifest();
+        ObjectNode after = manifest();
+        int slower = RunManifest.MAX_LISTED_OPERATIONS + 2;
+        for (int i = 1; i <= slower; i++) {
+            operation(before, "GET /op" + i, "h" + i, 1, 10_000);
+            operation(after, "GET /op" + i, "h" + i, 1, 10_000 + i * 10_000);
+        }
+
+        Diff diff = diff(before, after);
+        List<String> verdicts = diff.verdicts();
+        assertEquals(RunManifest.MAX_LISTED_OPERATIONS + 2, verdicts.size());
+        assertEquals("⚠ slower operation GET /op12: 10.0 ms -> 130.0 ms (+1200%)", verdicts.get(0));
+        assertEquals("⚠ slower operation GET /op3: 10.0 ms -> 40.0 ms (+300%)", verdicts.get(RunManifest.MAX_LISTED_OPERATIONS - 1));
+        assertEquals("⚠ ... and 2 more slower operations", verdicts.get(RunManifest.MAX_LISTED_OPERATIONS));
+        assertEquals("❌ 0 outputs drifted, 12 timings regressed", verdicts.get(verdicts.size() - 1));
+    }
+
+    @Test
+    public void changedInputsAreListedButAreNotADifference() throws Exception {
+        ObjectNode before = manifest();
+        ObjectNode after = manifest();
+        ((ObjectNode) after.get("options")).put("execution", "async");
+        ((ObjectNode) after.get("environment")).put("threads", 16);
+        operation(before, "GET /a", "a", 1, 1000);
+        operation(after, "GET /a", "a", 1, 1000);
+
+        Diff diff = diff(before, after);
+        assertFalse(diff.output, diff.changed);
+        assertTrue(diff.output, diff.output.contains("≠ option execution: forkjoin -> async\n"));
+        assertTrue(diff.output, diff.output.contains("≠ environment threads: 8 -> 16\n"));
+    }
+
+    // what diff() returned and printed
+    private static final class Diff {
+        final boolean changed;
+        final String output;
+
+        Diff(boolean changed, String output) {
+            this.changed = changed;
+            this.output = output;
+        }
+
+        // the drift, regression and summary lines, without the headers and input differences
+        List<String> verdicts() {
+            List<String> verdicts = new ArrayList<>();
+            for (String line : output.split("\n")) {
+                if (line.startsWith("❌") || line.startsWith("⚠") || line.startsWith("✅")) verdicts.add(line);
+            }
+            return verdicts;
+        }
+    }
+
+    private Diff diff(ObjectNode before, ObjectNode after) throws IOException {
+        Path oldPath = write(before, "old");
+        Path newPath = write(after, "new");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PrintStream original = System.out;
+        System.setOut(new PrintStream(out, true, "UTF-8"));
+        try {
+            boolean changed = RunManifest.diff(oldPath, newPath);
+            return new Diff(changed, new String(out.toByteArray(), StandardCharsets.UTF_8));
+        } finally {
+            System.setOut(original);
+        }
+    }
+
+    private Path write(ObjectNode manifest, String name) throws IOException {
+        Path file = scratch.newFolder(name + "-" + UUID.randomUUID()).toPath().resolve(RunManifest.FILE_NAME);
+        Json.mapper().writeValue(file.toFile(), manifest);
+        return file;
+    }
+
+    private static ObjectNode manifest() {
+        ObjectNode manifest = Json.mapper().createObjectNode();
+        manifest.put("format", RunManifest.FORMAT);
+        manifest.put("startedAt", "2026-01-01T00:00:00Z");
+        manifest.put("target", "karate");
+        manifest.put("targetClass", "KaratePromptBuilder");
+        manifest.putObject("spec").putObject("sources").put("openapi.yaml", "spec-hash");
+        manifest.putObject("templates").put("PromptEngine", "template-hash");
+        manifest.putObject("options").put("execution", "forkjoin");
+        manifest.putObject("environment").put("threads", 8);
+        manifest.putObject("timingsMicros");
+        manifest.putArray("operations");
+        return manifest;
+    }
+
+    private static ObjectNode operation(ObjectNode manifest, String label, String sha256, int chars, long micros) {
+        ObjectNode operation = ((ArrayNode) manifest.get("operations")).addObject();
+        operation.put("operation", label);
+        operation.put("file", label.replaceAll("[^A-Za-z]+", "_") + ".txt");
+        operation.put("sha256", sha256);
+        operation.put("chars", chars);
+        operation.put("micros", micros);
+        return operation;
+    }
+
+    private static void phase(ObjectNode before, ObjectNode after, String phase, long oldMicros, long newMicros) {
+        ((ObjectNode) before.get("timingsMicros")).put(phase, oldMicros);
+        ((ObjectNode) after.get("timingsMicros")).put(phase, newMicros);
+    }
+}
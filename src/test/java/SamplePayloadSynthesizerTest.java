@@ -0,0 +1,166 @@
+import io.swagger.v3.parser.OpenAPIV3Parser;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+// Samples must satisfy the schema they were built from and must not depend on which operation happened to render first.
+public class SamplePayloadSynthesizerTest {
+
+    private static final String RECURSIVE = String.join("\n",
+            "openapi: 3.0.3",
+            "info: {title: recursive, version: '1'}",
+            "paths:",
+            "  /a:",
+            "    post:",
+            "      requestBody: {content: {application/json: {schema: {$ref: '#/components/schemas/A'}}}}",
+            "      responses: {'200': {description: ok}}",
+            "  /b:",
+            "    post:",
+            "      requestBody: {content: {application/json: {schema: {$ref: '#/components/schemas/B'}}}}",
+            "      responses: {'200': {description: ok}}",
+            "components:",
+            "  schemas:",
+            "    A:",
+            "      type: object",
+            "      properties: {b: {$ref: '#/components/schemas/B'}, id: {type: integer}}",
+            "    B:",
+            "      type: object",
+            "      properties: {a: {$ref: '#/components/schemas/A'}, name: {type: string}}",
+            "");
+
+    @Test
+    public void recursiveSamplesDoNotDependOnRenderOrder() {
+        ApiModel model = model(RECURSIVE);
+        int a = model.getEndpoints().get(0).bodies.get(0).schema;
+        int b = model.getEndpoints().get(1).bodies.get(0).schema;
+
+        SamplePayloadSynthesizer aFirst = new SamplePayloadSynthesizer(model.getSchemas());
+        Object aOfAFirst = aFirst.sample(a);
+        Object bOfAFirst = aFirst.sample(b);
+
+        SamplePayloadSynthesizer bFirst = new SamplePayloadSynthesizer(model.getSchemas());
+        Object bOfBFirst = bFirst.sample(b);
+        Object aOfBFirst = bFirst.sample(a);
+
+        assertEquals(SamplePayloadSynthesizer.toJson(aOfAFirst), SamplePayloadSynthesizer.toJson(aOfBFirst));
+        assertEquals(SamplePayloadSynthesizer.toJson(bOfAFirst), SamplePayloadSynthesizer.toJson(bOfBFirst));
+        assertEquals("{\"b\":{\"name\":\"string\"},\"id\":1}", SamplePayloadSynthesizer.toJson(aOfBFirst));
+    }
+
+    @Test
+    public void patternSamplesHonourLengthBounds() {
+        Object value = sample("{type: string, pattern: '^[a-z]+$', minLength: 5}");
+        assertTrue(value + " too short", value.toString().length() >= 5);
+        assertTrue(value + " does not match", value.toString().matches("^[a-z]+$"));
+
+        value = sample("{type: string, pattern: '^[A-Z]{2}-\\d*$', minLength: 6, maxLength: 8}");
+        assertTrue(value + " out of bounds", value.toString().length() >= 6 && value.toString().length() <= 8);
+        assertTrue(value + " does not match", value.toString().matches("^[A-Z]{2}-\\d*$"));
+    }
+
+    @Test
+    public void multipleOfStaysBelowMaximumWithoutMinimum() {
+        assertEquals(0L, sample("{type: integer, multipleOf: 10, maximum: 5}"));
+        assertEquals(-10L, sample("{type: integer, multipleOf: 10, maximum: 0, exclusiveMaximum: true}"));
+        Object number = sample("{type: number, multipleOf: 0.4, maximum: 1}");
+        assertTrue(number + " above maximum", ((BigDecimal) number).compareTo(BigDecimal.ONE) <= 0);
+        assertEquals(0, ((BigDecimal) number).remainder(new BigDecimal("0.4")).signum());
+    }
+
+    @Test
+    public void lengthBoundariesKeepThePattern() {
+        List<SamplePayloadSynthesizer.NamedSample> boundary = boundary("{type: object, properties: {code: {type: string, pattern: '^[A-Z]+$', minLength: 3, maxLength: 6}}}");
+        assertEquals(Arrays.asList("code at minLength 3", "code at maxLength 6"), names(boundary));
+        for (SamplePayloadSynthesizer.NamedSample sample : boundary) {
+            String code = (String) ((Map<?, ?>) sample.value).get("code");
+            assertTrue(code + " does not match", code.matches("^[A-Z]+$"));
+        }
+        assertEquals("AAA", ((Map<?, ?>) boundary.get(0).value).get("code"));
+        assertEquals("AAAAAA", ((Map<?, ?>) boundary.get(1).value).get("code"));
+
+        // a fixed-length pattern cannot reach the other bound, so there is no sample for it
+        boundary = boundary("{type: object, properties: {code: {type: string, pattern: '^[0-9]{4}$', minLength: 2, maxLength: 4}}}");
+        assertEquals(Collections.singletonList("code at maxLength 4"), names(boundary));
+    }
+
+    @Test
+    public void wrongTypeInXmlIsNotPlainText() {
+        SamplePayloadSynthesizer.NamedSample wrong = invalid("{type: object, properties: {name: {type: string}}}", "application/xml", "name wrong type");
+        assertEquals("<root><name><unexpected>element</unexpected></name></root>", SamplePayloadSynthesizer.toXml(wrong.value, "root"));
+        assertTrue(wrong.malformed);
+        wrong = invalid("{type: object, properties: {name: {type: string}}}", "application/json", "name wrong type");
+        assertEquals("{\"name\":12345}", SamplePayloadSynthesizer.toJson(wrong.value));
+    }
+
+    @Test
+    public void outsideEnumKeepsTheEnumType() {
+        assertEquals("{\"level\":4}", SamplePayloadSynthesizer.toJson(invalid(
+                "{type: object, properties: {level: {type: integer, enum: [1, 3, 2]}}}", "application/json", "level outside enum").value));
+        assertEquals("{\"ratio\":3.5}", SamplePayloadSynthesizer.toJson(invalid(
+                "{type: object, properties: {ratio: {type: number, enum: [0.5, 2.5]}}}", "application/json", "ratio outside enum").value));
+        assertEquals("{\"flag\":false}", SamplePayloadSynthesizer.toJson(invalid(
+                "{type: object, properties: {flag: {type: boolean, enum: [true]}}}", "application/json", "flag outside enum").value));
+        assertEquals("{\"kind\":\"INVALID_ENUM_VALUE\"}", SamplePayloadSynthesizer.toJson(invalid(
+                "{type: object, properties: {kind: {type: string, enum: [a, b]}}}", "application/json", "kind outside enum").value));
+    }
+
+    @Test
+    public void rootArrayIsOneXmlDocument() {
+        Object value = sample("{type: array, minItems: 2, items: {type: object, properties: {id: {type: integer}}}}");
+        assertEquals("<items><item><id>1</id></item><item><id>1</id></item></items>", SamplePayloadSynthesizer.toXml(value, "items"));
+    }
+
+    @Test
+    public void negatedCharacterClassesYieldACharacterOutsideThem() {
+        for (String pattern : new String[]{"^[^a-z]+$", "^[^a]$", "^[^aA0-9]{3}$", "^[^\\w]$", "^x[^-_ .]y$"}) {
+            Object value = sample("{type: string, pattern: '" + pattern + "'}");
+            assertTrue(value + " does not match " + pattern, value.toString().matches(pattern));
+        }
+    }
+
+    // a request body with the given inline schema, sampled on its own
+    private static Object sample(String schema) {
+        ApiModel model = body(schema);
+        return new SamplePayloadSynthesizer(model.getSchemas()).sample(model.getEndpoints().get(0).bodies.get(0).schema);
+    }
+
+    private static ApiModel body(String schema) {
+        return model(String.join("\n",
+                "openapi: 3.0.3",
+                "info: {title: sample, version: '1'}",
+                "paths:",
+                "  /x:",
+                "    post:",
+                "      requestBody: {content: {application/json: {schema: " + schema + "}}}",
+                "      responses: {'200': {description: ok}}",
+                ""));
+    }
+
+    private static List<SamplePayloadSynthesizer.NamedSample> boundary(String schema) {
+        ApiModel model = body(schema);
+        return new SamplePayloadSynthesizer(model.getSchemas()).boundarySamples(model.getEndpoints().get(0).bodies.get(0).schema);
+    }
+
+    private static SamplePayloadSynthesizer.NamedSample invalid(String schema, String mediaType, String name) {
+        ApiModel model = body(schema);
+        for (SamplePayloadSynthesizer.NamedSample sample : new SamplePayloadSynthesizer(model.getSchemas())
+                .invalidSamples(model.getEndpoints().get(0).bodies.get(0).schema, mediaType)) {
+            if (sample.name.equals(name)) return sample;
+        }
+        throw new AssertionError("no invalid sample " + name);
+    }
+
+    private static List<String> names(List<SamplePayloadSynthesizer.NamedSample> samples) {
+        List<String> names = new ArrayList<>();
+        for (SamplePayloadSynthesizer.NamedSample sample : samples) names.add(sample.name);
+        return names;
+    }
+
+    private static ApiModel model(String yaml) {
+        return ApiModel.build(new OpenAPIV3Parser().readContents(yaml, null, null).getOpenAPI(), true);
+    }
+}
@@ -0,0 +1,69 @@
+import io.swagger.v3.parser.OpenAPIV3Parser;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+
+// Each oneOf/anyOf is its own choice point, even when several share a payload path, and the synthesized sample follows
+// every pick of the variant.
+public class SchemaVariantEngineTest {
+
+    private static final String SPEC = String.join("\n",
+            "openapi: 3.0.3",
+            "info: {title: choices, version: '1'}",
+            "paths:",
+            "  /nested:",
+            "    post:",
+            "      requestBody: {content: {application/json: {schema: {$ref: '#/components/schemas/Root'}}}}",
+            "      responses: {'200': {description: ok}}",
+            "  /both:",
+            "    post:",
+            "      requestBody: {content: {application/json: {schema: {$ref: '#/components/schemas/Both'}}}}",
+            "      responses: {'200': {description: ok}}",
+            "components:",
+            "  schemas:",
+            "    Root:",
+            "      oneOf: [{$ref: '#/components/schemas/Card'}, {$ref: '#/components/schemas/Bank'}]",
+            "    Card:",
+            "      oneOf: [{$ref: '#/components/schemas/Visa'}, {$ref: '#/components/schemas/Amex'}]",
+            "    Visa: {type: object, properties: {visa: {type: string}}}",
+            "    Amex: {type: object, properties: {amex: {type: string}}}",
+            "    Bank: {type: object, properties: {iban: {type: string}}}",
+            "    Both:",
+            "      oneOf: [{$ref: '#/components/schemas/Visa'}, {$ref: '#/components/schemas/Bank'}]",
+            "      anyOf: [{$ref: '#/components/schemas/Amex'}, {type: object, properties: {note: {type: string}}}]",
+            "");
+
+    private final ApiModel model = ApiModel.build(new OpenAPIV3Parser().readContents(SPEC, null, null).getOpenAPI(), true);
+    private final SamplePayloadSynthesizer synthesizer = new SamplePayloadSynthesizer(model.getSchemas());
+
+    @Test
+    public void nestedChoiceAtTheSamePathIsItsOwnPoint() {
+        assertEquals(Arrays.asList("{\"visa\":\"string\"}", "{\"amex\":\"string\"}", "{\"iban\":\"string\"}"),
+                samples(0, SchemaVariantEngine.Strategy.EXHAUSTIVE));
+        assertEquals(3, samples(0, SchemaVariantEngine.Strategy.PAIRWISE).size());
+    }
+
+    @Test
+    public void oneOfAndAnyOfOnOneNodeAreSeparatePoints() {
+        List<String> samples = samples(1, SchemaVariantEngine.Strategy.EXHAUSTIVE);
+        assertEquals(Arrays.asList(
+                "{\"visa\":\"string\",\"amex\":\"string\"}",
+                "{\"visa\":\"string\",\"note\":\"string\"}",
+                "{\"visa\":\"string\",\"amex\":\"string\",\"note\":\"string\"}",
+                "{\"iban\":\"string\",\"amex\":\"string\"}",
+                "{\"iban\":\"string\",\"note\":\"string\"}",
+                "{\"iban\":\"string\",\"amex\":\"string\",\"note\":\"string\"}"), samples);
+        // two factors, so pairwise is the full product as well
+        assertEquals(new HashSet<>(samples), new HashSet<>(samples(1, SchemaVariantEngine.Strategy.PAIRWISE)));
+    }
+
+    private List<String> samples(int operation, SchemaVariantEngine.Strategy strategy) {
+        int body = model.getEndpoints().get(operation).bodies.get(0).schema;
+        List<String> out = new ArrayList<>();
+        Iterator<SchemaVariantEngine.Variant> variants = new SchemaVariantEngine(model.getSchemas(), strategy, 20, 0L).variants(body);
+        while (variants.hasNext()) out.add(SamplePayloadSynthesizer.toJson(synthesizer.sample(body, variants.next())));
+        return out;
+    }
+}
@@ -0,0 +1,236 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import io.swagger.v3.core.util.Json;
+import io.swagger.v3.parser.OpenAPIV3Parser;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+// A spec rendered by several shard workers and merged must leave exactly what one process leaves: the same prompts,
+// CSV, analytics and failure report, a run manifest describing the same outputs, and the same exit status.
+public class ShardMergerTest {
+
+    private static final int SHARDS = 3;
+    private static final Path GOLDEN_DIR = Paths.get("src/test/resources/golden/default");
+
+    @Rule
+    public TemporaryFolder scratch = new TemporaryFolder();
+
+    @Test
+    public void mergedShardsMatchASingleRun() throws Exception {
+        RunManifest.Spec spec = spec();
+        Path single = scratch.newFolder("single").toPath();
+        Path sharded = scratch.newFolder("sharded").toPath();
+        assertEquals(0, PromptEngine.run(PromptEngine.target("practitest"), spec, single, new ShardPlan(0, 1)));
+        for (int shard = 0; shard < SHARDS; shard++) {
+            assertEquals(0, PromptEngine.run(PromptEngine.target("practitest"), spec, sharded, new ShardPlan(shard, SHARDS)));
+        }
+        assertEquals(0, merge(sharded, PromptEngine.target("practitest").outputDir()));
+
+        Map<String, String> expected = files(single);
+        Map<String, String> actual = files(sharded);
+        String manifest = Paths.get(PromptEngine.target("practitest").outputDir(), RunManifest.FILE_NAME).toString();
+        assertEquals(outputs(expected.remove(manifest)), outputs(actual.remove(manifest)));
+        assertEquals(expected.keySet(), actual.keySet());
+        for (String file : expected.keySet()) assertEquals(file, expected.get(file), actual.get(file));
+
+        // and both are the goldens
+        String dir = PromptEngine.target("practitest").outputDir();
+        for (ApiModel.Endpoint ep : spec.model.getEndpoints()) {
+            String name = PromptCorpus.fileName(spec.model, ep);
+            assertEquals(name, read(GOLDEN_DIR.resolve("practitest").resolve(name)), actual.get(Paths.get(dir, name).toString()));
+        }
+        assertEquals(read(GOLDEN_DIR.resolve("practitest-csv/practitest-import.csv")),
+                actual.get(Paths.get("generated-practitest", "practitest-import.csv").toString()));
+    }
+
+    @Test
+    public void failuresOfEveryShardReachTheMergedReportAndStatus() throws Exception {
+        ApiModel model = manyOperations(12);
+        RunManifest.Spec spec = new RunManifest.Spec(model, "many.yaml", "many.yaml", Collections.<String, String>emptyMap(), System.nanoTime());
+        // one failing operation in each of two shards
+        ShardPlan plan = new ShardPlan(0, SHARDS);
+        Set<String> failing = new HashSet<>();
+        Set<Integer> owners = new HashSet<>();
+        for (ApiModel.Endpoint ep : model.getEndpoints()) {
+            if (owners.size() < 2 && owners.add(plan.owner(ep))) failing.add(ep.label());
+        }
+        assertEquals(2, failing.size());
+
+        Path single = scratch.newFolder("single").toPath();
+        Path sharded = scratch.newFolder("sharded").toPath();
+        assertEquals(FailureReport.EXIT_FAILURES, PromptEngine.run(new FailingTarget(failing), spec, single, new ShardPlan(0, 1)));
+        Set<Integer> statuses = new TreeSet<>();
+        for (int shard = 0; shard < SHARDS; shard++) {
+            statuses.add(PromptEngine.run(new FailingTarget(failing), spec, sharded, new ShardPlan(shard, SHARDS)));
+        }
+        assertEquals(new TreeSet<>(Arrays.asList(0, FailureReport.EXIT_FAILURES)), statuses);
+        String dir = new FailingTarget(failing).outputDir();
+        assertEquals(FailureReport.EXIT_FAILURES, merge(sharded, dir));
+
+        JsonNode expected = Json.mapper().readTree(single.resolve(dir).resolve(FailureReport.FILE_NAME).toFile());
+        JsonNode actual = Json.mapper().readTree(sharded.resolve(dir).resolve(FailureReport.FILE_NAME).toFile());
+        for (String field : new String[]{"tool", "operations", "failedOperations"}) {
+            assertEquals(field, expected.get(field), actual.get(field));
+        }
+        assertEquals(2, actual.get("failedOperations").asInt());
+        assertEquals(failures(expected), failures(actual));
+        try (Stream<Path> left = Files.list(sharded.resolve(dir))) {
+            assertEquals(Collections.emptyList(), left.map(Path::toString).filter(name -> name.contains(".shard-")).collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    public void everyOperationHasExactlyOneShardWhateverTheOrder() {
+        ApiModel model = manyOperations(60);
+        List<ApiModel.Endpoint> endpoints = model.getEndpoints();
+        List<ApiModel.Endpoint> reversed = new ArrayList<>(endpoints);
+        Collections.reverse(reversed);
+        for (int count = 1; count <= 5; count++) {
+            List<ApiModel.Endpoint> covered = new ArrayList<>();
+            for (int shard = 0; shard < count; shard++) {
+                List<ApiModel.Endpoint> selected = new ShardPlan(shard, count).select(endpoints);
+                // a shard keeps spec order
+                List<ApiModel.Endpoint> inSpecOrder = new ArrayList<>(selected);
+                inSpecOrder.sort(Comparator.comparingInt(endpoints::indexOf));
+                assertEquals(inSpecOrder, selected);
+                List<ApiModel.Endpoint> fromReversed = new ShardPlan(shard, count).select(reversed);
+                Collections.reverse(fromReversed);
+                assertEquals(selected, fromReversed);
+                covered.addAll(selected);
+            }
+            assertEquals(endpoints.size(), covered.size());
+            assertEquals(new HashSet<>(endpoints), new HashSet<>(covered));
+        }
+    }
+
+    @Test
+    public void addingAShardOnlyMovesOperationsToIt() {
+        ApiModel model = manyOperations(200);
+        ShardPlan three = new ShardPlan(0, 3);
+        ShardPlan four = new ShardPlan(0, 4);
+        int moved = 0;
+        for (ApiModel.Endpoint ep : model.getEndpoints()) {
+            int before = three.owner(ep);
+            int after = four.owner(ep);
+            if (before != after) {
+                assertEquals(ep.label() + " moved between existing shards", 3, after);
+                moved++;
+            }
+        }
+        assertTrue(moved + " of 200 operations moved", moved > 20 && moved < 100);
+    }
+
+    @Test
+    public void mergedArchiveKeepsIndexOrder() throws Exception {
+        ApiModel model = manyOperations(30);
+        Path dir = scratch.newFolder("archive").toPath();
+        Path target = dir.resolve(PromptArchive.FILE_NAME);
+        Map<String, String> prompts = new HashMap<>();
+        for (int shard = 0; shard < SHARDS; shard++) {
+            ShardPlan plan = new ShardPlan(shard, SHARDS);
+            List<ApiModel.Endpoint> selected = plan.select(model.getEndpoints());
+            Path fragment = plan.fragment(target);
+            // each worker fills its slots as it finishes, here last to first
+            PromptArchive archive = new PromptArchive(selected.size());
+            for (int slot = selected.size() - 1; slot >= 0; slot--) {
+                ApiModel.Endpoint ep = selected.get(slot);
+                String name = PromptCorpus.fileName(model, ep);
+                prompts.put(name, "prompt of " + ep.label() + " from shard " + shard + "\n");
+                archive.put(slot, name, prompts.get(name));
+                plan.record(ep, 0, fragment);
+            }
+            archive.write(fragment, plan.isPrimary() ? model.getOutputNames().index(PromptEngine.PROMPT_EXTENSION) : null);
+            plan.writeManifest(dir.toString(), Collections.singletonMap("archive", target + "\t" + fragment));
+        }
+        assertEquals(0, ShardMerger.merge(dir.toString(), dir.resolve(ShardPlan.MANIFEST_DIR)));
+
+        List<String> expected = new ArrayList<>();
+        for (ApiModel.Endpoint ep : model.getEndpoints()) expected.add(PromptCorpus.fileName(model, ep));
+        expected.add(OutputNames.INDEX_FILE);
+        try (PromptArchive.Reader archive = new PromptArchive.Reader(target)) {
+            assertEquals(expected, new ArrayList<>(archive.names()));
+            for (String name : prompts.keySet()) assertEquals(prompts.get(name), archive.read(name));
+        }
+        try (Stream<Path> left = Files.list(dir)) {
+            assertEquals(Collections.singletonList(target), left.collect(Collectors.toList()));
+        }
+    }
+
+    private static RunManifest.Spec spec() throws IOException {
+        ApiModel model = PromptCorpus.load(PromptCorpus.DEFAULT_SPEC);
+        return new RunManifest.Spec(model, PromptCorpus.DEFAULT_SPEC.toString(), PromptCorpus.DEFAULT_SPEC.toString(),
+                Collections.<String, String>emptyMap(), System.nanoTime());
+    }
+
+    private static ApiModel manyOperations(int count) {
+        StringBuilder yaml = new StringBuilder("openapi: 3.0.3\ninfo: {title: many, version: '1'}\npaths:\n");
+        for (int i = 0; i < count; i++) {
+            yaml.append("  /resource").append(i).append(": {get: {responses: {'200': {description: ok}}}}\n");
+        }
+        return ApiModel.build(new OpenAPIV3Parser().readContents(yaml.toString(), null, null).getOpenAPI(), true);
+    }
+
+    private static int merge(Path root, String outputDir) throws IOException {
+        Path dir = root.resolve(outputDir);
+        return ShardMerger.merge(dir.toString(), dir.resolve(ShardPlan.MANIFEST_DIR));
+    }
+
+    // what a run manifest says about the outputs, without start time, timings and shard option
+    private static List<Object> outputs(String manifest) throws IOException {
+        JsonNode json = Json.mapper().readTree(manifest);
+        List<Object> outputs = new ArrayList<>();
+        outputs.add(json.get("outputsSha256").asText());
+        for (JsonNode operation : json.get("operations")) {
+            outputs.add(operation.get("operation").asText() + " " + operation.get("file").asText() + " "
+                    + operation.get("sha256").asText() + " " + operation.get("chars").asText());
+        }
+        return outputs;
+    }
+
+    // single-run failures are listed in completion order
+    private static Set<JsonNode> failures(JsonNode report) {
+        Set<JsonNode> failures = new HashSet<>();
+        for (JsonNode failure : report.get("failures")) failures.add(failure);
+        return failures;
+    }
+
+    private static Map<String, String> files(Path root) throws IOException {
+        Map<String, String> files = new TreeMap<>();
+        try (Stream<Path> walk = Files.walk(root)) {
+            for (Path file : walk.filter(Files::isRegularFile).collect(Collectors.toList())) {
+                files.put(root.relativize(file).toString(), read(file));
+            }
+        }
+        return files;
+    }
+
+    private static String read(Path file) throws IOException {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+
+    // the Jira target with a few operations that always fail to prepare
+    private static final class FailingTarget extends JiraStoryPromptBuilder {
+        private final Set<String> failing;
+
+        FailingTarget(Set<String> failing) {
+            this.failing = failing;
+        }
+
+        @Override
+        public String prepare(PromptEngine.Run run, ApiModel.Endpoint ep) throws Exception {
+            if (failing.contains(ep.label())) throw new IllegalStateException("cannot prepare " + ep.label());
+            return super.prepare(run, ep);
+        }
+    }
+}